@@ -0,0 +1,100 @@
+package com.codereview.review.analysis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * 样板代码精简
+ * 从发送给AI的代码中剔除文件头部的版权和许可证注释，并折叠连续重复的代码行；
+ * 被剔除或折叠的内容替换为等量空行，不影响AI给出的行号
+ * @author CodeReview
+ */
+@Order(40)
+@Component
+public class BoilerplateStage implements PreAnalysisStage {
+
+    /**
+     * 连续重复超过该行数时折叠
+     */
+    @Value("${ai.review.preanalysis.max-repeated-lines:5}")
+    private int maxRepeatedLines;
+
+    @Override
+    public String getName() {
+        return "boilerplate";
+    }
+
+    @Override
+    public void analyze(PreAnalysisContext context) {
+        String code = stripLicenseHeader(context.getCode());
+        code = collapseRepeatedLines(code);
+        if (code.length() < context.getCode().length()) {
+            context.replaceCode(code);
+        }
+    }
+
+    /**
+     * 将文件开头包含版权或许可证声明的块注释替换为等量空行
+     */
+    private String stripLicenseHeader(String code) {
+        int start = 0;
+        while (start < code.length() && Character.isWhitespace(code.charAt(start))) {
+            start++;
+        }
+        if (!code.startsWith("/*", start)) {
+            return code;
+        }
+        int end = code.indexOf("*/", start + 2);
+        if (end < 0) {
+            return code;
+        }
+        end += 2;
+        String header = code.substring(start, end).toLowerCase(Locale.ROOT);
+        if (!header.contains("copyright") && !header.contains("license")) {
+            return code;
+        }
+        StringBuilder stripped = new StringBuilder(code.length() - (end - start));
+        stripped.append(code, 0, start);
+        for (int i = start; i < end; i++) {
+            if (code.charAt(i) == '\n') {
+                stripped.append('\n');
+            }
+        }
+        stripped.append(code, end, code.length());
+        return stripped.toString();
+    }
+
+    /**
+     * 将连续重复超过上限的代码行折叠：保留第一行，下一行注明省略的行数，其余重复行替换为空行以保持行号
+     */
+    private String collapseRepeatedLines(String code) {
+        String[] lines = code.split("\n", -1);
+        StringBuilder collapsed = new StringBuilder(code.length());
+        int i = 0;
+        while (i < lines.length) {
+            int run = 1;
+            while (i + run < lines.length && !lines[i].trim().isEmpty() && lines[i + run].equals(lines[i])) {
+                run++;
+            }
+            if (i > 0) {
+                collapsed.append('\n');
+            }
+            collapsed.append(lines[i]);
+            if (run > maxRepeatedLines) {
+                collapsed.append('\n').append("... 以上一行连续重复").append(run).append("次，已省略其余").append(run - 1).append("行 ...");
+                for (int r = 2; r < run; r++) {
+                    collapsed.append('\n');
+                }
+            } else {
+                for (int r = 1; r < run; r++) {
+                    collapsed.append('\n').append(lines[i]);
+                }
+            }
+            i += run;
+        }
+        return collapsed.toString();
+    }
+}
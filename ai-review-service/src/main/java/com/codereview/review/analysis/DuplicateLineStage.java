@@ -0,0 +1,57 @@
+package com.codereview.review.analysis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 重复行检查
+ * 大部分行与前文重复的文件（复制粘贴生成的配置、测试数据等）直接返回本地结果
+ * @author CodeReview
+ */
+@Order(35)
+@Component
+public class DuplicateLineStage implements PreAnalysisStage {
+
+    /**
+     * 重复行占比超过该值时跳过AI审查
+     */
+    @Value("${ai.review.preanalysis.max-duplicate-ratio:0.8}")
+    private double maxDuplicateRatio;
+
+    /**
+     * 参与判断的最少行数
+     */
+    @Value("${ai.review.preanalysis.min-duplicate-lines:50}")
+    private int minLines;
+
+    @Override
+    public String getName() {
+        return "duplicate";
+    }
+
+    @Override
+    public void analyze(PreAnalysisContext context) {
+        Set<String> seen = new HashSet<>();
+        int lines = 0;
+        int duplicates = 0;
+        for (String line : context.getCode().split("\n")) {
+            String trimmed = line.trim();
+            // 只有括号的行在任何代码中都会大量重复，不参与统计
+            if (trimmed.length() <= 2) {
+                continue;
+            }
+            lines++;
+            if (!seen.add(trimmed)) {
+                duplicates++;
+            }
+        }
+        if (lines >= minLines && duplicates > lines * maxDuplicateRatio) {
+            context.skip("duplicate", "该文件" + duplicates * 100 / lines + "%的代码行与前文重复，"
+                    + "建议抽取公共逻辑或改为数据驱动后再审查。");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.codereview.review.analysis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 生成代码识别
+ * 文件头部注释中带有代码生成器标记（protoc、MyBatis Generator、OpenAPI Generator 等）的文件不做AI审查
+ * @author CodeReview
+ */
+@Order(20)
+@Component
+public class GeneratedCodeStage implements PreAnalysisStage {
+
+    private static final String[] MARKERS = {
+            "@generated", "code generated by", "do not edit", "auto-generated", "autogenerated",
+            "this file was automatically generated", "generated by the protocol buffer compiler",
+            "<auto-generated", "@mbg.generated"
+    };
+
+    /**
+     * 以 # 开头表示注释的语言；C、C++ 等语言中 # 开头的是预处理指令，其中的字符串可能包含标记
+     */
+    private static final Set<String> HASH_COMMENT_LANGUAGES = new HashSet<>(Arrays.asList(
+            "python", "shell", "bash", "sh", "ruby", "perl", "yaml", "yml", "toml", "r", "powershell", "dockerfile"
+    ));
+
+    /**
+     * 只检查文件开头的字符数
+     */
+    @Value("${ai.review.preanalysis.header-chars:2000}")
+    private int headerChars;
+
+    @Override
+    public String getName() {
+        return "generated";
+    }
+
+    @Override
+    public void analyze(PreAnalysisContext context) {
+        String code = context.getCode();
+        String language = context.getLanguage() != null ? context.getLanguage().trim().toLowerCase(Locale.ROOT) : "";
+        boolean hashComments = HASH_COMMENT_LANGUAGES.contains(language);
+        String header = code.substring(0, Math.min(code.length(), headerChars));
+        for (String line : header.split("\n")) {
+            String trimmed = line.trim();
+            if (!isComment(trimmed, hashComments)) {
+                continue;
+            }
+            String lower = trimmed.toLowerCase(Locale.ROOT);
+            for (String marker : MARKERS) {
+                if (lower.contains(marker)) {
+                    context.skip("generated", "该文件为工具生成的代码（包含“" + marker + "”标记），"
+                            + "请审查生成器的输入或配置，无需审查生成结果。");
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成器标记只出现在注释中，避免误判代码里的同名字符串
+     */
+    private boolean isComment(String line, boolean hashComments) {
+        return line.startsWith("//") || (hashComments && line.startsWith("#")) || line.startsWith("/*") || line.startsWith("*")
+                || line.startsWith("<!--") || line.startsWith("--") || line.startsWith("\"\"\"");
+    }
+}
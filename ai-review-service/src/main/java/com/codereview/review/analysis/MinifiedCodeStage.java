@@ -0,0 +1,142 @@
+package com.codereview.review.analysis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 压缩代码和数据文件识别
+ * 按平均行长识别压缩后的脚本和样式表，按字符熵识别Base64等编码数据，
+ * 按字面量行占比识别纯数据文件，这类文件直接返回本地结果
+ * @author CodeReview
+ */
+@Order(30)
+@Component
+public class MinifiedCodeStage implements PreAnalysisStage {
+
+    /**
+     * 平均行长超过该值视为压缩代码
+     */
+    @Value("${ai.review.preanalysis.max-avg-line-length:300}")
+    private int maxAvgLineLength;
+
+    /**
+     * 非空白字符的香农熵（比特/字符）超过该值且几乎没有空白时视为编码数据
+     */
+    @Value("${ai.review.preanalysis.max-entropy:5.5}")
+    private double maxEntropy;
+
+    /**
+     * 字面量行占比超过该值视为纯数据文件
+     */
+    @Value("${ai.review.preanalysis.max-data-line-ratio:0.9}")
+    private double maxDataLineRatio;
+
+    /**
+     * 参与数据文件判断的最少行数
+     */
+    @Value("${ai.review.preanalysis.min-data-lines:50}")
+    private int minDataLines;
+
+    @Override
+    public String getName() {
+        return "minified";
+    }
+
+    @Override
+    public void analyze(PreAnalysisContext context) {
+        String code = context.getCode();
+        String[] lines = code.split("\n");
+        int nonEmpty = 0;
+        int dataLines = 0;
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            nonEmpty++;
+            if (isDataLine(trimmed)) {
+                dataLines++;
+            }
+        }
+        if (nonEmpty == 0) {
+            return;
+        }
+
+        if (code.length() / nonEmpty > maxAvgLineLength) {
+            context.skip("minified", "该文件为压缩或混淆后的代码（平均行长超过" + maxAvgLineLength
+                    + "个字符），请提交压缩前的源码进行审查。");
+            return;
+        }
+        if (isEncoded(code)) {
+            context.skip("encoded", "该文件内容为编码数据（如Base64），不包含可审查的代码逻辑。");
+            return;
+        }
+        if (nonEmpty >= minDataLines && dataLines >= nonEmpty * maxDataLineRatio) {
+            context.skip("data", "该文件主要由数据字面量组成，不包含可审查的代码逻辑。");
+        }
+    }
+
+    /**
+     * 判断是否为字面量数据行：只由数字、引号字符串、逗号和括号组成
+     */
+    private boolean isDataLine(String line) {
+        boolean inString = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    inString = false;
+                }
+            } else if (c == '"' || c == '\'') {
+                inString = true;
+                quote = c;
+            } else if (!(Character.isDigit(c) || Character.isWhitespace(c)
+                    || ",.-+:[]{}()eE".indexOf(c) >= 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断是否为编码数据：空白占比低于5%且非空白字符的香农熵超过阈值（正常代码约4.5比特/字符，Base64约6比特/字符）
+     */
+    private boolean isEncoded(String code) {
+        int[] counts = new int[128];
+        int other = 0;
+        int total = 0;
+        int whitespace = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (Character.isWhitespace(c)) {
+                whitespace++;
+                continue;
+            }
+            if (c < 128) {
+                counts[c]++;
+            } else {
+                other++;
+            }
+            total++;
+        }
+        if (total == 0 || whitespace >= code.length() * 0.05) {
+            return false;
+        }
+        double entropy = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / total;
+                entropy -= p * Math.log(p) / Math.log(2);
+            }
+        }
+        if (other > 0) {
+            double p = (double) other / total;
+            entropy -= p * Math.log(p) / Math.log(2);
+        }
+        return entropy > maxEntropy;
+    }
+}
@@ -0,0 +1,119 @@
+package com.codereview.review.analysis;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.Getter;
+
+/**
+ * 前置分析上下文
+ * 记录原始代码、发送给AI的代码以及本地检测到的问题，各阶段依次读写
+ * @author CodeReview
+ */
+@Getter
+public class PreAnalysisContext {
+
+    /**
+     * 原始代码
+     */
+    private final String originalCode;
+
+    /**
+     * 编程语言
+     */
+    private final String language;
+
+    /**
+     * 发送给AI的代码，阶段可以精简
+     */
+    private String code;
+
+    /**
+     * 本地检测到的问题，格式与AI返回的 issues 一致
+     */
+    private final JSONArray issues = new JSONArray();
+
+    /**
+     * 跳过原因，不为 null 时不再调用AI
+     */
+    private String skipReason;
+
+    /**
+     * 跳过时的总体评价
+     */
+    private String skipSummary;
+
+    public PreAnalysisContext(String code, String language) {
+        this.originalCode = code != null ? code : "";
+        this.language = language;
+        this.code = this.originalCode;
+    }
+
+    /**
+     * 跳过AI调用，直接使用本地结果
+     * @param reason 跳过原因（指标标签）
+     * @param summary 写入审查结果的总体评价
+     */
+    public void skip(String reason, String summary) {
+        this.skipReason = reason;
+        this.skipSummary = summary;
+    }
+
+    public boolean isSkipped() {
+        return skipReason != null;
+    }
+
+    /**
+     * 替换发送给AI的代码
+     */
+    public void replaceCode(String code) {
+        this.code = code;
+    }
+
+    /**
+     * 发送给AI的代码是否被精简过
+     */
+    public boolean isShrunk() {
+        return code.length() < originalCode.length();
+    }
+
+    /**
+     * 记录本地检测到的问题
+     * @param line 问题所在行号（从1开始）
+     */
+    public void addIssue(String type, String severity, String description, String suggestion, int line) {
+        JSONObject issue = new JSONObject();
+        issue.put("type", type);
+        issue.put("severity", severity);
+        issue.put("description", description);
+        issue.put("suggestion", suggestion);
+        issue.put("location", "第" + line + "行");
+        issue.put("source", "local");
+        issues.add(issue);
+    }
+
+    /**
+     * 构建跳过AI调用时的本地审查结果
+     */
+    public String buildLocalResult() {
+        JSONObject result = new JSONObject();
+        result.put("summary", skipSummary);
+        result.put("issues", issues);
+        result.put("suggestions", new JSONArray());
+        result.put("skipped", true);
+        result.put("skipReason", skipReason);
+        return result.toJSONString();
+    }
+
+    /**
+     * 计算原始代码中某个位置所在的行号
+     */
+    public static int lineOf(String code, int index) {
+        int line = 1;
+        for (int i = 0; i < index && i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+}
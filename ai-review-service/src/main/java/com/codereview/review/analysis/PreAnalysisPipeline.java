@@ -0,0 +1,115 @@
+package com.codereview.review.analysis;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.parser.ReviewJsonExtractor;
+import com.codereview.review.prompt.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 审查前置分析流水线
+ * 在调用AI之前依次执行各分析阶段，生成代码、压缩代码、空文件等直接返回本地结果，
+ * 样板代码从提示词中剔除，本地检测到的安全问题合并到最终审查结果中
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class PreAnalysisPipeline {
+
+    @Value("${ai.review.preanalysis.enabled:true}")
+    private boolean enabled;
+
+    @Resource
+    private List<PreAnalysisStage> stages;
+
+    @Resource
+    private ReviewJsonExtractor reviewJsonExtractor;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @PostConstruct
+    public void init() {
+        stages = new ArrayList<>(stages);
+        AnnotationAwareOrderComparator.sort(stages);
+        log.info("审查前置分析阶段: {}", stages.stream().map(PreAnalysisStage::getName).collect(Collectors.toList()));
+    }
+
+    /**
+     * 执行前置分析
+     * @return 分析上下文，{@link PreAnalysisContext#isSkipped()} 为 true 时不再调用AI
+     */
+    public PreAnalysisContext analyze(String code, String language) {
+        PreAnalysisContext context = new PreAnalysisContext(code, language);
+        if (!enabled) {
+            return context;
+        }
+
+        for (PreAnalysisStage stage : stages) {
+            long start = System.nanoTime();
+            try {
+                stage.analyze(context);
+            } catch (Exception e) {
+                // 本地分析失败不影响AI审查
+                log.warn("审查前置分析阶段执行失败: stage={}", stage.getName(), e);
+            } finally {
+                metricsUtils.timer("ai.preanalysis.stage.duration", "stage", stage.getName())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (context.isSkipped()) {
+                break;
+            }
+        }
+
+        if (context.isSkipped()) {
+            metricsUtils.incrementCounter("ai.preanalysis.result", "outcome", "skipped", "reason", context.getSkipReason());
+            metricsUtils.recordSummary("ai.preanalysis.saved.tokens", TokenCounter.count(context.getOriginalCode()));
+        } else if (context.isShrunk()) {
+            metricsUtils.incrementCounter("ai.preanalysis.result", "outcome", "shrunk", "reason", "none");
+            metricsUtils.recordSummary("ai.preanalysis.saved.tokens",
+                    TokenCounter.count(context.getOriginalCode()) - TokenCounter.count(context.getCode()));
+        } else {
+            metricsUtils.incrementCounter("ai.preanalysis.result", "outcome", "passed", "reason", "none");
+        }
+        return context;
+    }
+
+    /**
+     * 将本地检测到的问题合并到AI审查结果中
+     * @return 合并后的审查结果，没有本地问题或AI结果无法解析时返回原结果
+     */
+    public String merge(PreAnalysisContext context, String reviewResult) {
+        if (context.getIssues().isEmpty()) {
+            return reviewResult;
+        }
+        JSONObject result;
+        try {
+            result = JSON.parseObject(reviewJsonExtractor.extractJsonContent(reviewResult));
+        } catch (Exception e) {
+            log.warn("合并本地检测问题失败，审查结果无法解析: {}", e.getMessage());
+            return reviewResult;
+        }
+        if (result == null) {
+            return reviewResult;
+        }
+        JSONArray issues = new JSONArray(context.getIssues());
+        JSONArray aiIssues = result.getJSONArray("issues");
+        if (aiIssues != null) {
+            issues.addAll(aiIssues);
+        }
+        result.put("issues", issues);
+        return result.toJSONString();
+    }
+}
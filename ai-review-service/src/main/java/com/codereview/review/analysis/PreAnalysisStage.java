@@ -0,0 +1,22 @@
+package com.codereview.review.analysis;
+
+/**
+ * 审查前置分析阶段
+ * 在调用AI之前对代码做低成本的本地分析：可以直接给出本地结果跳过AI调用，
+ * 也可以精简发送给AI的代码，或补充本地检测到的问题。
+ * 各阶段按 {@link org.springframework.core.annotation.Order} 顺序执行
+ * @author CodeReview
+ */
+public interface PreAnalysisStage {
+
+    /**
+     * 阶段名称，用于指标和日志
+     */
+    String getName();
+
+    /**
+     * 执行分析
+     * @param context 分析上下文，阶段通过它跳过AI调用、替换代码或记录问题
+     */
+    void analyze(PreAnalysisContext context);
+}
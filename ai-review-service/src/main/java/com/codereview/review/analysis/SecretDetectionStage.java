@@ -0,0 +1,51 @@
+package com.codereview.review.analysis;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 敏感信息检测
+ * 用正则识别硬编码的密钥、口令和私钥，作为高危问题合并到审查结果中
+ * @author CodeReview
+ */
+@Order(50)
+@Component
+public class SecretDetectionStage implements PreAnalysisStage {
+
+    private static final Pattern[] PATTERNS = {
+            // 云厂商访问密钥
+            Pattern.compile("\\b(AKIA|ASIA)[0-9A-Z]{16}\\b"),
+            Pattern.compile("\\bLTAI[0-9A-Za-z]{12,20}\\b"),
+            // 私钥
+            Pattern.compile("-----BEGIN (RSA |EC |DSA |OPENSSH )?PRIVATE KEY-----"),
+            // 常见平台令牌
+            Pattern.compile("\\b(ghp|gho|ghs)_[0-9A-Za-z]{36}\\b"),
+            Pattern.compile("\\bsk-[0-9A-Za-z_-]{20,}\\b"),
+            // 口令、密钥类变量直接赋值为字符串字面量（值中含数字，排除 "user:token:" 这类键名常量）
+            Pattern.compile("(?i)\\b[\\w.-]*(password|passwd|pwd|secret|api[_-]?key|access[_-]?key|token)[\\w.-]*\"?\\s*[:=]\\s*[\"'](?=[^\"'\\s]*\\d)[^\"'\\s$:]{8,}[\"']"),
+            // 连接串中包含口令
+            Pattern.compile("(?i)\\b(jdbc:\\w+|mongodb(\\+srv)?|redis|amqp)://[^\\s:/@\"']+:[^\\s@\"']+@")
+    };
+
+    @Override
+    public String getName() {
+        return "secret";
+    }
+
+    @Override
+    public void analyze(PreAnalysisContext context) {
+        String code = context.getOriginalCode();
+        for (Pattern pattern : PATTERNS) {
+            Matcher matcher = pattern.matcher(code);
+            while (matcher.find()) {
+                context.addIssue("安全漏洞", "high",
+                        "代码中硬编码了敏感信息（密钥、口令或令牌），存在泄露风险",
+                        "将敏感信息移至配置中心或环境变量，并轮换已泄露的凭据",
+                        PreAnalysisContext.lineOf(code, matcher.start()));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.codereview.review.analysis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 代码规模检查
+ * 空文件、只有注释的文件直接返回本地结果
+ * @author CodeReview
+ */
+@Order(10)
+@Component
+public class SizeCheckStage implements PreAnalysisStage {
+
+    /**
+     * 去除注释和空白后的最少字符数，低于该值视为空文件
+     */
+    @Value("${ai.review.preanalysis.min-code-chars:10}")
+    private int minCodeChars;
+
+    @Override
+    public String getName() {
+        return "size";
+    }
+
+    @Override
+    public void analyze(PreAnalysisContext context) {
+        if (countCodeChars(context.getCode()) < minCodeChars) {
+            context.skip("empty", "代码为空或只包含注释，无需审查。");
+        }
+    }
+
+    /**
+     * 统计去除注释和空白后的字符数（识别双斜杠行注释、行首井号注释和块注释）
+     */
+    private int countCodeChars(String code) {
+        int count = 0;
+        boolean lineComment = false;
+        boolean blockComment = false;
+        boolean lineStart = true;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            char next = i + 1 < code.length() ? code.charAt(i + 1) : 0;
+            if (lineComment) {
+                lineComment = c != '\n';
+                lineStart = !lineComment;
+            } else if (blockComment) {
+                if (c == '*' && next == '/') {
+                    blockComment = false;
+                    i++;
+                }
+            } else if (c == '/' && next == '/' || c == '#' && lineStart) {
+                lineComment = true;
+            } else if (c == '/' && next == '*') {
+                blockComment = true;
+                i++;
+            } else if (c == '\n') {
+                lineStart = true;
+            } else if (!Character.isWhitespace(c)) {
+                lineStart = false;
+                count++;
+                if (count >= minCodeChars) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,57 @@
+package com.codereview.review.analysis;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL注入检测
+ * 用正则识别通过字符串拼接或格式化构造SQL语句的代码，作为高危问题合并到审查结果中
+ * @author CodeReview
+ */
+@Order(60)
+@Component
+public class SqlInjectionDetectionStage implements PreAnalysisStage {
+
+    private static final String SQL_KEYWORDS = "(SELECT\\s[^\"'`;\\n]*?\\sFROM|INSERT\\s+INTO|UPDATE\\s+\\w+\\s+SET|DELETE\\s+FROM)";
+
+    private static final Pattern[] PATTERNS = {
+            // "SELECT ... WHERE id = " + id
+            Pattern.compile("(?i)[\"'`][^\"'`\\n]*" + SQL_KEYWORDS + "[^\"'`\\n]*[\"'`]\\s*(\\+|\\.)\\s*[A-Za-z_$]"),
+            // String.format / f-string / 模板字符串中嵌入变量
+            Pattern.compile("(?i)String\\.format\\(\\s*\"[^\"\\n]*" + SQL_KEYWORDS + "[^\"\\n]*%s"),
+            Pattern.compile("(?i)\\bf[\"'][^\"'\\n]*" + SQL_KEYWORDS + "[^\"'\\n]*\\{"),
+            Pattern.compile("(?i)`[^`\\n]*" + SQL_KEYWORDS + "[^`\\n]*\\$\\{"),
+            // MyBatis ${} 直接替换
+            Pattern.compile("(?i)" + SQL_KEYWORDS + "[^;\\n]*\\$\\{")
+    };
+
+    @Override
+    public String getName() {
+        return "sql-injection";
+    }
+
+    @Override
+    public void analyze(PreAnalysisContext context) {
+        String code = context.getOriginalCode();
+        Set<Integer> reported = new HashSet<>();
+        for (Pattern pattern : PATTERNS) {
+            Matcher matcher = pattern.matcher(code);
+            while (matcher.find()) {
+                int line = PreAnalysisContext.lineOf(code, matcher.start());
+                // 同一行被多个规则命中时只报告一次
+                if (!reported.add(line)) {
+                    continue;
+                }
+                context.addIssue("安全漏洞", "high",
+                        "SQL语句通过字符串拼接或格式化构造，存在SQL注入风险",
+                        "使用参数化查询（PreparedStatement、#{} 占位符等）传入参数",
+                        line);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.codereview.review.blob;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.CodeBlob;
+import com.codereview.review.mapper.CodeBlobMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码内容存储的后台清理
+ * 删除引用已归零且超过宽限期的内容，并清理表中没有记录的孤儿文件、残留临时文件和空目录。
+ * 删除文件前先在表中标记清理（比较并交换），标记期间被重新引用的内容由写入方在清理结束后重新落盘
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class CodeBlobCollector {
+
+    @Resource
+    private CodeBlobStore codeBlobStore;
+
+    @Resource
+    private CodeBlobMapper codeBlobMapper;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    /**
+     * 引用归零后保留的时间，期间相同内容再次提交可以直接复用
+     */
+    @Value("${ai.review.blob.gc-grace-minutes:60}")
+    private long gcGraceMinutes;
+
+    @Value("${ai.review.blob.gc-batch-size:500}")
+    private int gcBatchSize;
+
+    @Value("${ai.review.blob.orphan-scan:true}")
+    private boolean orphanScan;
+
+    @Scheduled(initialDelayString = "${ai.review.blob.gc-initial-delay-ms:60000}",
+            fixedDelayString = "${ai.review.blob.gc-interval-ms:3600000}")
+    public void collect() {
+        if (!codeBlobStore.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int deleted = deleteUnreferenced();
+            int orphans = orphanScan ? deleteOrphans() : 0;
+            log.info("代码内容清理完成: unreferenced={}, orphans={}", deleted, orphans);
+        } catch (Exception e) {
+            log.error("代码内容清理失败: {}", e.getMessage(), e);
+        } finally {
+            metricsUtils.timer("ai.blob.gc.duration").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 删除引用已归零的内容，并接管清理节点中途退出遗留的清理标记
+     * @return 删除的内容数
+     */
+    int deleteUnreferenced() throws IOException {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(gcGraceMinutes);
+        int total = 0;
+        while (true) {
+            List<String> hashes = codeBlobMapper.selectUnreferenced(before, gcBatchSize);
+            int deleted = 0;
+            for (String hash : hashes) {
+                // 标记失败说明期间又被引用或已由其他节点标记，保留文件
+                if (codeBlobMapper.markDeleting(hash, before) == 1 && purge(hash)) {
+                    deleted++;
+                }
+            }
+            total += deleted;
+            if (hashes.size() < gcBatchSize || deleted == 0) {
+                break;
+            }
+        }
+        for (String hash : codeBlobMapper.selectStaleDeleting(before, gcBatchSize)) {
+            if (purge(hash)) {
+                total++;
+            }
+        }
+        metricsUtils.incrementCounter("ai.blob.gc.deleted", total, "reason", "unreferenced");
+        return total;
+    }
+
+    /**
+     * 删除已标记清理的内容：先删文件再删记录，标记后又被引用的保留记录并清除标记，
+     * 等待中的写入方随后重新写入文件
+     * @return 记录是否已删除
+     */
+    boolean purge(String hash) throws IOException {
+        try {
+            Files.deleteIfExists(codeBlobStore.pathOf(hash));
+        } catch (IOException e) {
+            // 文件仍在，清除标记让写入方继续使用
+            codeBlobMapper.clearDeleting(hash);
+            throw e;
+        }
+        if (codeBlobMapper.deleteMarked(hash) == 1) {
+            return true;
+        }
+        codeBlobMapper.clearDeleting(hash);
+        metricsUtils.incrementCounter("ai.blob.gc.reacquired");
+        return false;
+    }
+
+    /**
+     * 删除表中没有记录的文件（清理删除记录后残留的或手工拷入的）以及空目录
+     * @return 删除的文件数
+     */
+    int deleteOrphans() throws IOException {
+        Path root = codeBlobStore.getRoot();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(gcGraceMinutes));
+        int total = 0;
+        try (DirectoryStream<Path> level1 = Files.newDirectoryStream(root)) {
+            for (Path dir1 : level1) {
+                if (!Files.isDirectory(dir1)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> level2 = Files.newDirectoryStream(dir1)) {
+                    for (Path dir2 : level2) {
+                        if (Files.isDirectory(dir2)) {
+                            total += deleteOrphansIn(dir2, cutoff);
+                            deleteIfEmpty(dir2);
+                        }
+                    }
+                }
+                deleteIfEmpty(dir1);
+            }
+        }
+        metricsUtils.incrementCounter("ai.blob.gc.deleted", total, "reason", "orphan");
+        return total;
+    }
+
+    private int deleteOrphansIn(Path dir, FileTime cutoff) throws IOException {
+        List<Path> candidates = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).compareTo(cutoff) < 0) {
+                    candidates.add(file);
+                }
+            }
+        }
+
+        int deleted = 0;
+        for (int from = 0; from < candidates.size(); from += gcBatchSize) {
+            List<Path> batch = candidates.subList(from, Math.min(from + gcBatchSize, candidates.size()));
+            List<String> hashes = new ArrayList<>(batch.size());
+            for (Path file : batch) {
+                hashes.add(file.getFileName().toString());
+            }
+            Set<String> known = new HashSet<>();
+            for (CodeBlob blob : codeBlobMapper.selectBatchIds(hashes)) {
+                known.add(blob.getHash());
+            }
+            for (Path file : batch) {
+                String hash = file.getFileName().toString();
+                if (known.contains(hash)) {
+                    continue;
+                }
+                if (hash.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                } else if (codeBlobMapper.insertDeleting(hash) == 1 && purge(hash)) {
+                    // 插入清理记录成功才删除，期间登记引用的写入方会等待清理结束后重新落盘
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private void deleteIfEmpty(Path dir) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            if (entries.iterator().hasNext()) {
+                return;
+            }
+        }
+        try {
+            Files.delete(dir);
+        } catch (IOException e) {
+            // 并发写入了新文件，下次再清理
+            log.debug("目录非空，跳过删除: {}", dir);
+        }
+    }
+}
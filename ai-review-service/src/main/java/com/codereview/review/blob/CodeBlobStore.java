@@ -0,0 +1,191 @@
+package com.codereview.review.blob;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.CodeBlobMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于内容寻址的代码存储
+ * 代码按UTF-8字节的SHA-256哈希存放在本地磁盘（root/ab/cd/哈希），相同内容只存一份，
+ * 审查任务只记录哈希；引用计数保存在 code_blob 表，无引用的内容由 {@link CodeBlobCollector} 定期清理。
+ * 多节点部署时根目录需挂载为共享存储，写入和清理通过表中的引用计数和清理标记协调：
+ * 清理只标记无引用的记录，写入方先登记引用、等待进行中的清理结束后再确认文件，被删除的内容重新写入
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class CodeBlobStore {
+
+    /**
+     * 等待清理结束的轮询间隔
+     */
+    private static final long DELETE_POLL_MS = 50;
+
+    @Resource
+    private CodeBlobMapper codeBlobMapper;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.review.blob.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.review.blob.root-dir:/data/code-review/blobs}")
+    private String rootDir;
+
+    /**
+     * 等待其他节点清理同一内容的最长时间，清理只删除一个文件，超时说明清理节点异常
+     */
+    @Value("${ai.review.blob.delete-wait-ms:10000}")
+    private long deleteWaitMs;
+
+    /**
+     * 新提交的代码是否写入内容存储
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 保存代码并增加引用
+     * @return 内容哈希，未启用时返回 null
+     */
+    public String put(String code) {
+        if (!enabled || code == null) {
+            return null;
+        }
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        String hash = DigestUtil.sha256Hex(bytes);
+        Path path = pathOf(hash);
+
+        // 先登记引用再确认文件：有引用的记录不会再被标记清理，任务记录在本方法返回后才写入
+        codeBlobMapper.acquire(hash, bytes.length);
+        try {
+            awaitDeletion(hash);
+            boolean created = false;
+            if (!Files.exists(path)) {
+                write(path, bytes);
+                created = true;
+            }
+            metricsUtils.incrementCounter("ai.blob.put", "outcome", created ? "new" : "dedup");
+            if (!created) {
+                metricsUtils.incrementCounter("ai.blob.dedup.bytes", bytes.length);
+            }
+        } catch (RuntimeException e) {
+            codeBlobMapper.release(hash);
+            throw e;
+        }
+        return hash;
+    }
+
+    /**
+     * 通过内存映射读取代码
+     */
+    public String get(String hash) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(pathOf(hash), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (NoSuchFileException e) {
+            log.error("代码内容不存在: hash={}", hash);
+            throw new BusinessException("代码内容不存在");
+        } catch (IOException e) {
+            log.error("读取代码内容失败: hash={}, error={}", hash, e.getMessage(), e);
+            throw new BusinessException("读取代码内容失败");
+        } finally {
+            metricsUtils.timer("ai.blob.read.duration").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 释放一次引用，引用归零的内容在宽限期后被清理
+     */
+    public void release(String hash) {
+        if (hash != null) {
+            codeBlobMapper.release(hash);
+        }
+    }
+
+    /**
+     * 为只记录了哈希的任务加载代码内容
+     */
+    public void hydrate(ReviewTask task) {
+        if (task != null && task.getCodeHash() != null
+                && (task.getCodeContent() == null || task.getCodeContent().isEmpty())) {
+            task.setCodeContent(get(task.getCodeHash()));
+        }
+    }
+
+    /**
+     * 内容文件路径，前两级目录取哈希的前4个字符，避免单个目录文件过多
+     */
+    Path pathOf(String hash) {
+        return Paths.get(rootDir, hash.substring(0, 2), hash.substring(2, 4), hash);
+    }
+
+    Path getRoot() {
+        return Paths.get(rootDir);
+    }
+
+    /**
+     * 等待标记在登记引用之前的清理结束，清理节点删除文件后才清除标记，之后再检查文件即可发现被删除的内容
+     */
+    private void awaitDeletion(String hash) {
+        long deadline = System.currentTimeMillis() + deleteWaitMs;
+        while (isDeleting(hash)) {
+            if (System.currentTimeMillis() >= deadline) {
+                log.error("等待代码内容清理结束超时: hash={}", hash);
+                metricsUtils.incrementCounter("ai.blob.put", "outcome", "delete_wait_timeout");
+                throw new BusinessException("保存代码内容失败");
+            }
+            try {
+                Thread.sleep(DELETE_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("保存代码内容失败");
+            }
+        }
+    }
+
+    private boolean isDeleting(String hash) {
+        Integer deleting = codeBlobMapper.selectDeleting(hash);
+        return deleting != null && deleting == 1;
+    }
+
+    /**
+     * 先写临时文件再原子改名，读取方不会看到写了一半的内容
+     */
+    private void write(Path path, byte[] bytes) {
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, bytes);
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.error("写入代码内容失败: path={}, error={}", path, e.getMessage(), e);
+            throw new BusinessException("保存代码内容失败");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.codereview.review.cache;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 审查结果缓存条目
+ * 只保存回填ReviewTask所需的字段，不包含任务本身的信息
+ * @author CodeReview
+ */
+@Data
+public class CachedReviewResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 审查结果（JSON格式）
+     */
+    private String reviewResult;
+
+    /**
+     * 质量评分（0-100）
+     */
+    private Integer qualityScore;
+
+    /**
+     * 安全评分（0-100）
+     */
+    private Integer securityScore;
+
+    /**
+     * 性能评分（0-100）
+     */
+    private Integer performanceScore;
+
+    /**
+     * 问题数量
+     */
+    private Integer issueCount;
+}
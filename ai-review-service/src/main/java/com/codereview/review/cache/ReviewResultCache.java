@@ -0,0 +1,130 @@
+package com.codereview.review.cache;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.alibaba.fastjson2.JSON;
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于内容寻址的审查结果缓存
+ * 缓存键为 (代码内容, 编程语言, AI模型, 提示词版本) 的规范化哈希，
+ * 相同代码的重复提交可以直接复用之前的审查结果，不再调用AI接口
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewResultCache {
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.review.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.review.cache.ttl-hours:72}")
+    private long ttlHours;
+
+    /**
+     * 计算内容哈希
+     * 代码先做规范化（统一换行符、去除行尾空白和首尾空行），避免无意义的差异导致缓存未命中
+     */
+    public String buildKey(String code, String language, String aiModel, String promptVersion) {
+        StringBuilder source = new StringBuilder(code != null ? code.length() + 64 : 64);
+        source.append(promptVersion).append('\n')
+                .append(aiModel != null ? aiModel.trim() : "").append('\n')
+                .append(language != null ? language.trim().toLowerCase(Locale.ROOT) : "").append('\n');
+        appendNormalized(source, code);
+        return DigestUtil.sha256Hex(source.toString());
+    }
+
+    /**
+     * 查询缓存
+     * @param contentHash 内容哈希
+     * @return 缓存的审查结果，未命中返回 null
+     */
+    public CachedReviewResult get(String contentHash) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            String json = redisUtils.get(RedisConstants.AI_REVIEW_CACHE_KEY + contentHash);
+            if (json == null) {
+                metricsUtils.incrementCounter("ai.review.cache.requests", "result", "miss");
+                return null;
+            }
+            metricsUtils.incrementCounter("ai.review.cache.requests", "result", "hit");
+            metricsUtils.recordSummary("ai.review.cache.bytes", json.length(), "op", "read");
+            return JSON.parseObject(json, CachedReviewResult.class);
+        } catch (Exception e) {
+            // 缓存故障不影响审查流程，按未命中处理
+            log.error("读取审查结果缓存失败: hash={}", contentHash, e);
+            metricsUtils.incrementCounter("ai.review.cache.requests", "result", "error");
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存
+     * @param contentHash 内容哈希
+     * @param result 审查结果
+     */
+    public void put(String contentHash, CachedReviewResult result) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String json = JSON.toJSONString(result);
+            redisUtils.set(RedisConstants.AI_REVIEW_CACHE_KEY + contentHash, json, ttlHours, TimeUnit.HOURS);
+            metricsUtils.recordSummary("ai.review.cache.bytes", json.length(), "op", "write");
+        } catch (Exception e) {
+            log.error("写入审查结果缓存失败: hash={}", contentHash, e);
+        }
+    }
+
+    /**
+     * 规范化代码内容：统一换行符为\n，去除行尾空白，去除首尾空行
+     */
+    private void appendNormalized(StringBuilder target, String code) {
+        if (code == null) {
+            return;
+        }
+        int start = target.length();
+        int length = code.length();
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && code.charAt(lineEnd) != '\n' && code.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            while (contentEnd > lineStart && Character.isWhitespace(code.charAt(contentEnd - 1))) {
+                contentEnd--;
+            }
+            // 跳过开头的空行
+            if (contentEnd > lineStart || target.length() > start) {
+                target.append(code, lineStart, contentEnd).append('\n');
+            }
+            if (lineEnd < length && code.charAt(lineEnd) == '\r' && lineEnd + 1 < length && code.charAt(lineEnd + 1) == '\n') {
+                lineEnd++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        // 去除结尾的空行
+        int end = target.length();
+        while (end > start && target.charAt(end - 1) == '\n') {
+            end--;
+        }
+        target.setLength(end);
+    }
+}
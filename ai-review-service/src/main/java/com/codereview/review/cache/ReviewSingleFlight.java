@@ -0,0 +1,193 @@
+package com.codereview.review.cache;
+
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 相同审查请求合并（single-flight）
+ * 按代码内容哈希合并并发的相同审查：同一时刻只有第一个请求调用AI接口，其余请求等待同一个结果。
+ * 本节点内通过内存中的Future合并；跨节点通过Redis进行中标记合并，
+ * 其他节点等待标记释放后从审查结果缓存中读取结果
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewSingleFlight {
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Resource
+    private ReviewResultCache reviewResultCache;
+
+    @Value("${ai.review.singleflight.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 进行中标记的过期时间（秒），防止持有者宕机后标记一直存在；
+     * 同时也是其他节点等待结果的最长时间，等待方不会在标记仍然有效时自行调用AI接口
+     */
+    @Value("${ai.review.singleflight.marker-ttl-seconds:300}")
+    private long markerTtlSeconds;
+
+    /**
+     * 等待其他节点结果时的轮询间隔（毫秒）
+     */
+    @Value("${ai.review.singleflight.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    public void init() {
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "review-singleflight-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsUtils.registerGauge("ai.review.singleflight.inflight", () -> inFlight.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * 执行或合并审查请求
+     * @param contentHash 代码内容哈希
+     * @param loader 实际调用AI的逻辑，返回的Future完成前需要已将可缓存的结果写入审查结果缓存
+     * @return AI原始审查结果
+     */
+    public CompletableFuture<String> execute(String contentHash, Supplier<CompletableFuture<String>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Flight flight = new Flight();
+        Flight existing = inFlight.putIfAbsent(contentHash, flight);
+        if (existing != null) {
+            // 本节点已有相同请求在执行，直接等待其结果
+            existing.waiters.incrementAndGet();
+            metricsUtils.incrementCounter("ai.review.singleflight.coalesced", "scope", "local");
+            log.info("合并相同审查请求（本节点）: hash={}", contentHash);
+            return existing.future.thenApply(result -> result);
+        }
+
+        String markerKey = RedisConstants.AI_REVIEW_INFLIGHT_KEY + contentHash;
+        String markerValue = UUID.randomUUID().toString();
+        boolean owner = acquireMarker(markerKey, markerValue);
+
+        CompletableFuture<String> source;
+        if (owner) {
+            source = invoke(loader);
+        } else {
+            metricsUtils.incrementCounter("ai.review.singleflight.coalesced", "scope", "remote");
+            log.info("合并相同审查请求（其他节点执行中）: hash={}", contentHash);
+            source = new CompletableFuture<>();
+            awaitRemote(contentHash, markerKey, loader, source, System.currentTimeMillis());
+        }
+
+        source.whenComplete((result, error) -> {
+            if (owner) {
+                redisUtils.unlock(markerKey, markerValue);
+            }
+            if (error != null) {
+                flight.future.completeExceptionally(error);
+            } else {
+                flight.future.complete(result);
+            }
+            inFlight.remove(contentHash, flight);
+            metricsUtils.recordSummary("ai.review.singleflight.waiters", flight.waiters.get());
+        });
+        return flight.future.thenApply(result -> result);
+    }
+
+    /**
+     * 尝试设置跨节点进行中标记，Redis不可用时退化为仅本节点合并
+     */
+    private boolean acquireMarker(String markerKey, String markerValue) {
+        try {
+            return Boolean.TRUE.equals(redisUtils.tryLock(markerKey, markerValue, markerTtlSeconds, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.warn("设置审查进行中标记失败，仅在本节点合并请求: key={}", markerKey, e);
+            return true;
+        }
+    }
+
+    /**
+     * 轮询等待其他节点的审查结果
+     * 标记释放（或超过标记有效期）后读取结果缓存；缓存中没有结果（对方失败或宕机）时自行调用AI接口
+     */
+    private void awaitRemote(String contentHash, String markerKey, Supplier<CompletableFuture<String>> loader,
+                             CompletableFuture<String> target, long startMillis) {
+        poller.schedule(() -> {
+            try {
+                boolean timeout = System.currentTimeMillis() - startMillis > TimeUnit.SECONDS.toMillis(markerTtlSeconds);
+                if (!timeout && Boolean.TRUE.equals(redisUtils.hasKey(markerKey))) {
+                    awaitRemote(contentHash, markerKey, loader, target, startMillis);
+                    return;
+                }
+                CachedReviewResult cached = reviewResultCache.get(contentHash);
+                if (cached != null) {
+                    target.complete(cached.getReviewResult());
+                    return;
+                }
+                log.info("等待其他节点审查结果未果，自行调用AI: hash={}, timeout={}", contentHash, timeout);
+                invoke(loader).whenComplete((result, error) -> {
+                    if (error != null) {
+                        target.completeExceptionally(error);
+                    } else {
+                        target.complete(result);
+                    }
+                });
+            } catch (Exception e) {
+                target.completeExceptionally(e);
+            }
+        }, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<String> invoke(Supplier<CompletableFuture<String>> loader) {
+        try {
+            return loader.get();
+        } catch (Exception e) {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * 进行中的请求
+     */
+    private static class Flight {
+
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        /**
+         * 合并到该请求上的等待者数量（不含发起者）
+         */
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+}
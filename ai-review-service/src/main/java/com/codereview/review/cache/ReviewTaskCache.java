@@ -0,0 +1,161 @@
+package com.codereview.review.cache;
+
+import cn.hutool.cache.impl.LRUCache;
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.enums.ReviewStatusEnum;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import com.codereview.review.entity.ReviewTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 审查任务两级缓存（读穿透）
+ * L1为本节点内存LRU缓存，L2为Redis；已完成和失败的任务不再变化，缓存时间较长，
+ * 未结束的任务只短暂缓存。任务状态变化时删除两级缓存，并通过Redis发布订阅通知其他节点删除L1。
+ * 缓存的是不含代码内容的任务投影，代码内容（可达数MB）由调用方在查看详情时按需加载
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewTaskCache implements MessageListener {
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${ai.review.task-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.review.task-cache.l1-max-size:1000}")
+    private int l1MaxSize;
+
+    /**
+     * 已结束任务在各级缓存中的过期时间
+     */
+    @Value("${ai.review.task-cache.l1-ttl-seconds:600}")
+    private long l1TtlSeconds;
+
+    @Value("${ai.review.task-cache.l2-ttl-seconds:86400}")
+    private long l2TtlSeconds;
+
+    /**
+     * 未结束任务的过期时间，兜底失效通知丢失或读写交错的情况
+     */
+    @Value("${ai.review.task-cache.active-ttl-seconds:3}")
+    private long activeTtlSeconds;
+
+    private LRUCache<Long, ReviewTask> l1;
+
+    @PostConstruct
+    public void init() {
+        l1 = new LRUCache<>(l1MaxSize);
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(RedisConstants.REVIEW_TASK_INVALIDATE_CHANNEL));
+        metricsUtils.registerGauge("ai.task.cache.l1.size", () -> l1.size());
+    }
+
+    /**
+     * 查询任务，依次读取L1、L2，都未命中时调用加载函数并回填
+     * 命中缓存时返回的是多个请求共享的投影，代码内容为 null，调用方不应修改；未命中时返回加载函数的结果
+     * @param loader 从数据库加载任务，任务不存在时返回 null
+     */
+    public ReviewTask get(Long taskId, Function<Long, ReviewTask> loader) {
+        if (!enabled) {
+            return loader.apply(taskId);
+        }
+
+        ReviewTask task = l1.get(taskId);
+        if (task != null) {
+            metricsUtils.incrementCounter("ai.task.cache", "result", "l1");
+            return task;
+        }
+
+        try {
+            task = redisUtils.getObject(RedisConstants.REVIEW_TASK_KEY + taskId, ReviewTask.class);
+        } catch (Exception e) {
+            log.warn("读取任务缓存失败: taskId={}, error={}", taskId, e.getMessage());
+        }
+        if (task != null) {
+            metricsUtils.incrementCounter("ai.task.cache", "result", "l2");
+            l1.put(taskId, task, TimeUnit.SECONDS.toMillis(ttlSeconds(task, l1TtlSeconds)));
+            return task;
+        }
+
+        metricsUtils.incrementCounter("ai.task.cache", "result", "miss");
+        task = loader.apply(taskId);
+        if (task != null) {
+            ReviewTask projection = project(task);
+            l1.put(taskId, projection, TimeUnit.SECONDS.toMillis(ttlSeconds(task, l1TtlSeconds)));
+            try {
+                redisUtils.setObject(RedisConstants.REVIEW_TASK_KEY + taskId, projection,
+                        ttlSeconds(task, l2TtlSeconds), TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("写入任务缓存失败: taskId={}, error={}", taskId, e.getMessage());
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 任务状态变化后删除两级缓存，并通知其他节点删除L1
+     */
+    public void evict(Long taskId) {
+        if (!enabled || taskId == null) {
+            return;
+        }
+        l1.remove(taskId);
+        try {
+            redisUtils.delete(RedisConstants.REVIEW_TASK_KEY + taskId);
+            redisUtils.publish(RedisConstants.REVIEW_TASK_INVALIDATE_CHANNEL, String.valueOf(taskId));
+        } catch (Exception e) {
+            // 其他节点的L1靠短过期时间兜底
+            log.warn("删除任务缓存失败: taskId={}, error={}", taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * 收到其他节点的失效通知，删除本节点L1
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            l1.remove(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("无效的任务缓存失效通知: {}", message);
+        }
+    }
+
+    /**
+     * 去掉代码内容的任务副本，缓存占用只与审查结果大小有关
+     */
+    private ReviewTask project(ReviewTask task) {
+        ReviewTask projection = new ReviewTask();
+        BeanUtils.copyProperties(task, projection, "codeContent");
+        return projection;
+    }
+
+    private long ttlSeconds(ReviewTask task, long terminalTtlSeconds) {
+        Integer status = task.getStatus();
+        boolean terminal = ReviewStatusEnum.COMPLETED.getCode().equals(status)
+                || ReviewStatusEnum.FAILED.getCode().equals(status);
+        return terminal ? terminalTtlSeconds : activeTtlSeconds;
+    }
+}
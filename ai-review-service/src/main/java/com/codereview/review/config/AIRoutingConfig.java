@@ -0,0 +1,84 @@
+package com.codereview.review.config;
+
+import com.codereview.review.strategy.AIEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AI多端点路由配置
+ * @author CodeReview
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ai.routing")
+public class AIRoutingConfig {
+
+    /**
+     * 是否启用多端点路由，未启用时按模型名称使用单一端点的策略
+     */
+    private boolean enabled = false;
+
+    /**
+     * 延迟和错误率的EWMA平滑系数
+     */
+    private double ewmaAlpha = 0.2;
+
+    /**
+     * 错误率对路由代价的放大系数
+     */
+    private double errorPenalty = 10;
+
+    /**
+     * 按权重随机选择端点的请求比例，使代价较高的端点仍有少量流量以刷新延迟统计
+     */
+    private double exploreRatio = 0.05;
+
+    /**
+     * 连续失败达到该次数时剔除端点
+     */
+    private int ejectConsecutiveFailures = 5;
+
+    /**
+     * 错误率超过该值时剔除端点
+     */
+    private double ejectErrorRate = 0.5;
+
+    /**
+     * 端点被剔除的时长（秒），到期后重新参与路由
+     */
+    private long ejectionSeconds = 30;
+
+    /**
+     * 端点定义
+     * key: 端点名称
+     */
+    private Map<String, AIEndpoint> endpoints = new LinkedHashMap<>();
+
+    /**
+     * 路由规则，按配置顺序匹配
+     * key: 模型名称关键字（模型名称包含该关键字时使用此规则），default 为未匹配时的默认规则
+     */
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    /**
+     * 路由规则
+     */
+    @Data
+    public static class Route {
+        /**
+         * 负载均衡的端点池
+         */
+        private List<String> endpoints = new ArrayList<>();
+
+        /**
+         * 端点池全部失败或被剔除时依次尝试的降级端点
+         */
+        private List<String> fallback = new ArrayList<>();
+    }
+}
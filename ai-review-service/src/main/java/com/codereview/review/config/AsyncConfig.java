@@ -0,0 +1,96 @@
+package com.codereview.review.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 异步执行线程池配置
+ * @author CodeReview
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Value("${ai.review.stream.core-pool-size:8}")
+    private int streamCorePoolSize;
+
+    @Value("${ai.review.stream.max-pool-size:32}")
+    private int streamMaxPoolSize;
+
+    @Value("${ai.review.stream.queue-capacity:100}")
+    private int streamQueueCapacity;
+
+    @Value("${ai.review.callback.core-pool-size:8}")
+    private int callbackCorePoolSize;
+
+    @Value("${ai.review.callback.max-pool-size:16}")
+    private int callbackMaxPoolSize;
+
+    @Value("${ai.review.callback.queue-capacity:1000}")
+    private int callbackQueueCapacity;
+
+    @Value("${ai.review.consumer.dispatch-pool-size:8}")
+    private int dispatchPoolSize;
+
+    @Value("${ai.review.consumer.dispatch-queue-capacity:200}")
+    private int dispatchQueueCapacity;
+
+    /**
+     * 审查消息分发线程池
+     * 消费线程收到消息后交给该线程池加载任务并发起AI调用，队列满时拒绝，消息保持未确认，由监听器延迟后重新提交
+     */
+    @Bean("reviewDispatchExecutor")
+    public ThreadPoolTaskExecutor reviewDispatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dispatchPoolSize);
+        executor.setMaxPoolSize(dispatchPoolSize);
+        executor.setQueueCapacity(dispatchQueueCapacity);
+        executor.setThreadNamePrefix("review-dispatch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 流式审查线程池
+     * 流式审查在该线程池中执行，不占用Tomcat请求线程
+     */
+    @Bean("reviewStreamExecutor")
+    public ThreadPoolTaskExecutor reviewStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamCorePoolSize);
+        executor.setMaxPoolSize(streamMaxPoolSize);
+        executor.setQueueCapacity(streamQueueCapacity);
+        executor.setThreadNamePrefix("review-stream-");
+        // 队列满时直接拒绝，由调用方返回错误事件
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 审查结果处理线程池
+     * AI接口异步响应后，结果解析和数据库写入在该线程池中执行，避免占用HTTP客户端的回调线程
+     */
+    @Bean("reviewCallbackExecutor")
+    public ThreadPoolTaskExecutor reviewCallbackExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(callbackCorePoolSize);
+        executor.setMaxPoolSize(callbackMaxPoolSize);
+        executor.setQueueCapacity(callbackQueueCapacity);
+        executor.setThreadNamePrefix("review-callback-");
+        // 队列满时由回调线程自行处理，保证审查结果不丢失
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+}
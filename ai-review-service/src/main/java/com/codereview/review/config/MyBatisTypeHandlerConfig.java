@@ -0,0 +1,24 @@
+package com.codereview.review.config;
+
+import com.baomidou.mybatisplus.autoconfigure.ConfigurationCustomizer;
+import com.codereview.review.handler.CompressedTextTypeHandler;
+import com.codereview.review.handler.TextCompression;
+import org.apache.ibatis.type.JdbcType;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MyBatis类型处理器配置
+ * 依赖Spring组件的类型处理器在此创建并注册，实体注解和Mapper语句中按类名引用时使用已注册的实例，
+ * 不再由MyBatis反射创建
+ * @author CodeReview
+ */
+@Configuration
+public class MyBatisTypeHandlerConfig {
+
+    @Bean
+    public ConfigurationCustomizer compressedTextTypeHandlerCustomizer(TextCompression textCompression) {
+        return configuration -> configuration.getTypeHandlerRegistry()
+                .register(String.class, JdbcType.BLOB, new CompressedTextTypeHandler(textCompression));
+    }
+}
@@ -0,0 +1,109 @@
+package com.codereview.review.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RabbitMQ消费者配置
+ * 审查队列使用独立的监听容器：手动确认，任务到达终态后才确认消息，节点重启时未完成的消息会重新投递；
+ * 预取数限制每个消费者未确认的消息数，即本节点同时进行的审查数。
+ * 交互式、批量、超大三个通道各自一个队列和监听容器，按消费者数分配处理能力
+ * @author CodeReview
+ */
+@Configuration
+public class RabbitMQConfig {
+
+    /**
+     * 代码审查队列（交互式通道）
+     */
+    public static final String REVIEW_QUEUE = "code.review.queue";
+
+    /**
+     * 批量审查队列
+     */
+    public static final String REVIEW_BATCH_QUEUE = "code.review.batch.queue";
+
+    /**
+     * 超大代码审查队列
+     */
+    public static final String REVIEW_OVERSIZED_QUEUE = "code.review.oversized.queue";
+
+    /**
+     * 各通道的监听容器工厂
+     */
+    public static final String REVIEW_LISTENER_FACTORY = "reviewListenerContainerFactory";
+
+    public static final String REVIEW_BATCH_LISTENER_FACTORY = "reviewBatchListenerContainerFactory";
+
+    public static final String REVIEW_OVERSIZED_LISTENER_FACTORY = "reviewOversizedListenerContainerFactory";
+
+    @Value("${ai.review.consumer.interactive.concurrency:4}")
+    private int interactiveConcurrency;
+
+    @Value("${ai.review.consumer.interactive.max-concurrency:16}")
+    private int interactiveMaxConcurrency;
+
+    /**
+     * 每个消费者最多持有的未确认消息数
+     */
+    @Value("${ai.review.consumer.interactive.prefetch:8}")
+    private int interactivePrefetch;
+
+    @Value("${ai.review.consumer.batch.concurrency:2}")
+    private int batchConcurrency;
+
+    @Value("${ai.review.consumer.batch.max-concurrency:8}")
+    private int batchMaxConcurrency;
+
+    @Value("${ai.review.consumer.batch.prefetch:8}")
+    private int batchPrefetch;
+
+    @Value("${ai.review.consumer.oversized.concurrency:1}")
+    private int oversizedConcurrency;
+
+    @Value("${ai.review.consumer.oversized.max-concurrency:2}")
+    private int oversizedMaxConcurrency;
+
+    @Value("${ai.review.consumer.oversized.prefetch:2}")
+    private int oversizedPrefetch;
+
+    @Bean(REVIEW_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory reviewListenerContainerFactory(ConnectionFactory connectionFactory) {
+        return createFactory(connectionFactory, interactiveConcurrency, interactiveMaxConcurrency, interactivePrefetch);
+    }
+
+    @Bean(REVIEW_BATCH_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory reviewBatchListenerContainerFactory(ConnectionFactory connectionFactory) {
+        return createFactory(connectionFactory, batchConcurrency, batchMaxConcurrency, batchPrefetch);
+    }
+
+    @Bean(REVIEW_OVERSIZED_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory reviewOversizedListenerContainerFactory(ConnectionFactory connectionFactory) {
+        return createFactory(connectionFactory, oversizedConcurrency, oversizedMaxConcurrency, oversizedPrefetch);
+    }
+
+    /**
+     * 本节点最多同时持有的未确认消息数，用于计算消费者利用率
+     */
+    public int getConsumerCapacity() {
+        return interactiveMaxConcurrency * interactivePrefetch
+                + batchMaxConcurrency * batchPrefetch
+                + oversizedMaxConcurrency * oversizedPrefetch;
+    }
+
+    private SimpleRabbitListenerContainerFactory createFactory(ConnectionFactory connectionFactory,
+                                                               int concurrency, int maxConcurrency, int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConcurrency);
+        factory.setPrefetchCount(prefetch);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
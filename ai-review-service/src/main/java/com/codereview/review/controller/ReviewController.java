@@ -1,21 +1,33 @@
 package com.codereview.review.controller;
 
+import com.codereview.common.exception.BusinessException;
 import com.codereview.common.result.Result;
 import com.codereview.common.utils.UserContextHolder;
 import com.codereview.review.dto.*;
+import com.codereview.review.entity.ReviewIssue;
 import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.event.TaskEventHub;
+import com.codereview.review.service.ReviewIssueService;
 import com.codereview.review.service.ReviewService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 代码审查控制器
@@ -30,6 +42,24 @@ public class ReviewController {
     @Resource
     private ReviewService reviewService;
 
+    @Resource
+    private ReviewIssueService reviewIssueService;
+
+    @Resource
+    private TaskEventHub taskEventHub;
+
+    @Resource(name = "reviewStreamExecutor")
+    private Executor reviewStreamExecutor;
+
+    @Value("${ai.review.stream.timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    /**
+     * 单个订阅连接最多指定的任务数
+     */
+    @Value("${ai.review.events.max-task-ids:100}")
+    private int maxEventTaskIds;
+
     /**
      * 提交代码审查任务
      */
@@ -74,6 +104,43 @@ public class ReviewController {
         return Result.success("审查完成", task);
     }
 
+    /**
+     * 流式执行代码审查
+     * 通过SSE实时推送AI返回的增量内容（delta事件），审查完成后推送任务结果（result事件）
+     */
+    @Operation(summary = "流式代码审查", description = "以SSE方式实时推送AI审查内容，完成后推送完整任务结果")
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReview(
+            @Parameter(description = "代码审查请求", required = true) @Valid @RequestBody CodeReviewRequestDTO dto) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        String userId = UserContextHolder.getCurrentUserId();
+        if (userId == null) {
+            sendEvent(emitter, "error", Result.error(401, "用户未登录"));
+            emitter.complete();
+            return emitter;
+        }
+
+        try {
+            reviewStreamExecutor.execute(() -> {
+                try {
+                    ReviewTask task = reviewService.executeStreamReview(dto, Long.parseLong(userId),
+                            delta -> sendEvent(emitter, "delta", Collections.singletonMap("content", delta)));
+                    sendEvent(emitter, "result", Result.success("审查完成", task));
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("流式代码审查失败", e);
+                    sendEvent(emitter, "error", Result.error(e.getMessage()));
+                    emitter.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("流式审查线程池已满，拒绝请求: userId={}", userId);
+            sendEvent(emitter, "error", Result.error(503, "系统繁忙，请稍后再试"));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
     /**
      * 获取审查任务详情
      */
@@ -89,20 +156,84 @@ public class ReviewController {
         return Result.success(task);
     }
 
+    /**
+     * 订阅审查任务状态变化
+     * 通过SSE推送任务状态变化（status事件），指定任务ID时先推送这些任务的当前状态，替代轮询任务详情
+     */
+    @Operation(summary = "订阅任务状态", description = "以SSE方式推送任务状态变化，不指定任务ID时订阅当前用户的所有任务")
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeTaskEvents(
+            @Parameter(description = "任务ID列表") @RequestParam(required = false) List<Long> taskIds) {
+        String userId = UserContextHolder.getCurrentUserId();
+        if (userId == null || !taskEventHub.isEnabled()) {
+            SseEmitter emitter = new SseEmitter(0L);
+            sendEvent(emitter, "error", userId == null ? Result.error(401, "用户未登录") : Result.error(503, "任务状态推送未开启"));
+            emitter.complete();
+            return emitter;
+        }
+        if (taskIds != null && taskIds.size() > maxEventTaskIds) {
+            taskIds = taskIds.subList(0, maxEventTaskIds);
+        }
+
+        Long currentUserId = Long.parseLong(userId);
+        Set<Long> subscribed = taskIds != null ? new HashSet<>(taskIds) : Collections.emptySet();
+        SseEmitter emitter = taskEventHub.subscribe(currentUserId, subscribed);
+        // 先订阅再推送快照，避免漏掉两者之间发生的状态变化
+        for (Long taskId : subscribed) {
+            try {
+                taskEventHub.send(emitter, reviewService.getTaskStatus(taskId, currentUserId));
+            } catch (BusinessException e) {
+                log.debug("订阅的任务不存在或无权访问: taskId={}, userId={}", taskId, userId);
+            }
+        }
+        return emitter;
+    }
+
     /**
      * 获取用户的审查任务列表
      */
-    @Operation(summary = "获取审查任务列表", description = "分页查询当前用户的所有代码审查任务")
+    @Operation(summary = "获取审查任务列表", description = "分页查询当前用户的代码审查任务摘要，传入 cursor 时使用游标分页")
     @GetMapping("/tasks")
-    public Result<PageResponseDTO<ReviewTask>> getUserTasks(ReviewTaskQueryDTO queryDTO) {
+    public Result<PageResponseDTO<ReviewTaskSummaryDTO>> getUserTasks(ReviewTaskQueryDTO queryDTO) {
         String userId = UserContextHolder.getCurrentUserId();
         if (userId == null) {
             return Result.error(401, "用户未登录");
         }
-        PageResponseDTO<ReviewTask> tasks = reviewService.getUserTasks(Long.parseLong(userId), queryDTO);
+        PageResponseDTO<ReviewTaskSummaryDTO> tasks = reviewService.getUserTasks(Long.parseLong(userId), queryDTO);
         return Result.success(tasks);
     }
 
+    /**
+     * 查询审查问题列表
+     */
+    @Operation(summary = "查询审查问题列表", description = "按任务、严重程度、问题类型分页查询当前用户的审查问题")
+    @GetMapping("/issues")
+    public Result<PageResponseDTO<ReviewIssue>> getUserIssues(ReviewIssueQueryDTO queryDTO) {
+        String userId = UserContextHolder.getCurrentUserId();
+        if (userId == null) {
+            return Result.error(401, "用户未登录");
+        }
+        PageResponseDTO<ReviewIssue> issues = reviewIssueService.getUserIssues(Long.parseLong(userId), queryDTO);
+        return Result.success(issues);
+    }
+
+    /**
+     * 统计审查问题
+     */
+    @Operation(summary = "统计审查问题", description = "按严重程度或问题类型分组统计当前用户的审查问题数量")
+    @GetMapping("/issues/stats")
+    public Result<List<IssueStatDTO>> getIssueStats(
+            @Parameter(description = "任务ID") @RequestParam(required = false) Long taskId,
+            @Parameter(description = "严重程度") @RequestParam(required = false) String severity,
+            @Parameter(description = "分组字段（severity/type）") @RequestParam(defaultValue = "severity") String groupBy) {
+        String userId = UserContextHolder.getCurrentUserId();
+        if (userId == null) {
+            return Result.error(401, "用户未登录");
+        }
+        List<IssueStatDTO> stats = reviewIssueService.getIssueStats(Long.parseLong(userId), taskId, severity, groupBy);
+        return Result.success(stats);
+    }
+
     /**
      * 删除审查任务
      */
@@ -139,4 +270,15 @@ public class ReviewController {
         }
         reviewService.exportReviewReport(dto.getTaskIds(), dto.getFormat(), dto.getIncludeDetails(), Long.parseLong(userId), response);
     }
+
+    /**
+     * 推送SSE事件，客户端断开后忽略发送失败，审查结果仍会正常保存
+     */
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            log.debug("SSE事件发送失败，客户端可能已断开: event={}", name);
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package com.codereview.review.dispatch;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.Getter;
+
+/**
+ * 公平调度虚拟队列中的任务
+ * 以 "{用户ID}:{16位入队序号}:{JSON}" 字符串存放在通道队列（有序集合）中，用户ID和序号由入队脚本拼接，
+ * 同一用户的任务按字典序即入队顺序；原始字符串同时作为进行中集合的成员，取出后原样用于确认或退回。
+ * JSON 只记录任务ID、标题和内容哈希，不内联代码，Redis 中的条目大小与代码大小无关
+ * @author CodeReview
+ */
+@Getter
+public class FairShareJob {
+
+    private final String raw;
+
+    private final ReviewLane lane;
+
+    private final Long userId;
+
+    /**
+     * 调度开销，按代码token数折算，赤字轮转按开销扣减
+     */
+    private final int cost;
+
+    private final long enqueuedAt;
+
+    /**
+     * 还原的审查任务消息，未启用内容存储时只有任务ID，由消费者从数据库加载
+     */
+    private final ReviewTaskMessage message;
+
+    private FairShareJob(String raw, ReviewLane lane, Long userId, int cost, long enqueuedAt, ReviewTaskMessage message) {
+        this.raw = raw;
+        this.lane = lane;
+        this.userId = userId;
+        this.cost = cost;
+        this.enqueuedAt = enqueuedAt;
+        this.message = message;
+    }
+
+    /**
+     * 任务的JSON部分，调度脚本从中读取开销；消息中的代码内容不写入
+     */
+    static String body(ReviewLane lane, int cost, ReviewTaskMessage message) {
+        JSONArray tasks = new JSONArray(message.getTasks().size());
+        for (ReviewTaskMessage.Item item : message.getTasks()) {
+            JSONObject task = new JSONObject();
+            task.put("taskId", item.getTaskId());
+            task.put("title", item.getTitle());
+            task.put("codeHash", item.getCodeHash());
+            tasks.add(task);
+        }
+        JSONObject json = new JSONObject();
+        json.put("lane", lane.name());
+        json.put("cost", cost);
+        json.put("enqueuedAt", System.currentTimeMillis());
+        json.put("aiModel", message.getAiModel());
+        json.put("language", message.getLanguage());
+        json.put("tasks", tasks);
+        return json.toJSONString();
+    }
+
+    public static FairShareJob parse(String raw) {
+        int userEnd = raw.indexOf(':');
+        int seqEnd = raw.indexOf(':', userEnd + 1);
+        if (userEnd <= 0 || seqEnd < 0) {
+            throw new IllegalArgumentException("无效的公平调度任务: " + raw);
+        }
+        Long userId = Long.valueOf(raw.substring(0, userEnd));
+        JSONObject json = JSON.parseObject(raw.substring(seqEnd + 1));
+
+        ReviewTaskMessage message = new ReviewTaskMessage();
+        message.setUserId(userId);
+        message.setAiModel(json.getString("aiModel"));
+        message.setLanguage(json.getString("language"));
+        JSONArray tasks = json.getJSONArray("tasks");
+        for (int i = 0; i < tasks.size(); i++) {
+            JSONObject task = tasks.getJSONObject(i);
+            ReviewTaskMessage.Item item = new ReviewTaskMessage.Item();
+            item.setTaskId(task.getLong("taskId"));
+            item.setTitle(task.getString("title"));
+            item.setCodeHash(task.getString("codeHash"));
+            message.getTasks().add(item);
+        }
+        return new FairShareJob(raw, ReviewLane.valueOf(json.getString("lane")), userId,
+                json.getIntValue("cost"), json.getLongValue("enqueuedAt"), message);
+    }
+}
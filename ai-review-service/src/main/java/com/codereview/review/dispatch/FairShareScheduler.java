@@ -0,0 +1,347 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按用户公平调度AI审查能力（赤字轮转）
+ * 每个通道内每个用户一个虚拟队列（通道队列有序集合中以用户ID开头的成员），有待审查任务的用户按轮转顺序排列；
+ * 轮到的用户按权重累加赤字，赤字足够支付队首任务的开销（按代码token数折算）时取出执行，
+ * 同时限制每个用户进行中的AI调用数。RabbitMQ队列中只发送调度令牌，消费者收到令牌后按上述规则取任务，
+ * 一个用户的大批量上传不会占满所有消费者。
+ * 脚本访问的键都在 KEYS 中声明，并共用一个哈希标签，兼容 Redis Cluster；指标只按通道打标签，与用户数无关
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class FairShareScheduler {
+
+    /**
+     * 调度令牌消息
+     */
+    private static final byte[] TOKEN_MESSAGE = ReviewTaskMessageCodec.encode(ReviewTaskMessage.token());
+
+    /**
+     * 查询用户在通道队列中的队首任务：成员以 "{用户ID}:" 开头，按字典序取第一个
+     */
+    private static final String HEAD_FUNCTION =
+            "local function head(queueKey, user) " +
+            "  return redis.call('ZRANGEBYLEX', queueKey, '[' .. user .. ':', '(' .. user .. ';', 'LIMIT', 0, 1)[1] " +
+            "end ";
+
+    /**
+     * 入队：分配序号后加入通道队列，用户队列由空变为非空时加入轮转列表
+     * KEYS: 通道队列、轮转列表、序号计数；ARGV: 用户ID、任务JSON
+     */
+    private static final RedisScript<Long> ENQUEUE_SCRIPT = new DefaultRedisScript<>(HEAD_FUNCTION +
+            "local empty = not head(KEYS[1], ARGV[1]) " +
+            "local seq = redis.call('INCR', KEYS[3]) " +
+            "redis.call('ZADD', KEYS[1], 0, ARGV[1] .. ':' .. string.format('%016d', seq) .. ':' .. ARGV[2]) " +
+            "if empty then redis.call('RPUSH', KEYS[2], ARGV[1]) end " +
+            "return seq", Long.class);
+
+    /**
+     * 出队：赤字轮转选出一个任务，记入进行中集合并增加用户进行中计数；没有可执行的任务时返回空
+     * KEYS: 轮转列表、赤字哈希、权重哈希、进行中集合、通道队列、进行中计数哈希
+     * ARGV: 每轮额度、默认权重、用户进行中上限、当前时间、最大轮数
+     */
+    private static final RedisScript<String> POLL_SCRIPT = new DefaultRedisScript<>(HEAD_FUNCTION +
+            "local ringLen = redis.call('LLEN', KEYS[1]) " +
+            "local capped = 0 " +
+            "for i = 1, ringLen * tonumber(ARGV[5]) do " +
+            "  local user = redis.call('LINDEX', KEYS[1], 0) " +
+            "  if not user then return false end " +
+            "  local job = head(KEYS[5], user) " +
+            "  if not job then " +
+            "    redis.call('LPOP', KEYS[1]) " +
+            "    redis.call('HDEL', KEYS[2], user) " +
+            "  else " +
+            "    local inflight = tonumber(redis.call('HGET', KEYS[6], user) or '0') " +
+            "    local deficit = tonumber(redis.call('HGET', KEYS[2], user) or '0') " +
+            "    local cost = tonumber(cjson.decode(string.sub(job, #user + 19))['cost']) or 1 " +
+            "    if inflight >= tonumber(ARGV[3]) then " +
+            "      capped = capped + 1 " +
+            "      if capped >= redis.call('LLEN', KEYS[1]) then return false end " +
+            "      redis.call('RPUSH', KEYS[1], redis.call('LPOP', KEYS[1])) " +
+            "    elseif deficit < cost then " +
+            "      capped = 0 " +
+            "      local weight = tonumber(redis.call('HGET', KEYS[3], user) or ARGV[2]) " +
+            "      redis.call('HSET', KEYS[2], user, deficit + tonumber(ARGV[1]) * weight) " +
+            "      redis.call('RPUSH', KEYS[1], redis.call('LPOP', KEYS[1])) " +
+            "    else " +
+            "      redis.call('ZREM', KEYS[5], job) " +
+            "      redis.call('HINCRBY', KEYS[6], user, 1) " +
+            "      redis.call('ZADD', KEYS[4], ARGV[4], job) " +
+            "      if not head(KEYS[5], user) then " +
+            "        redis.call('LPOP', KEYS[1]) " +
+            "        redis.call('HDEL', KEYS[2], user) " +
+            "      else " +
+            "        redis.call('HSET', KEYS[2], user, deficit - cost) " +
+            "      end " +
+            "      return job " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return false", String.class);
+
+    /**
+     * 结束：移出进行中集合并减少用户进行中计数
+     * KEYS: 进行中集合、进行中计数哈希；ARGV: 任务、用户ID
+     */
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "local removed = redis.call('ZREM', KEYS[1], ARGV[1]) " +
+            "if removed == 1 and redis.call('HINCRBY', KEYS[2], ARGV[2], -1) <= 0 then redis.call('HDEL', KEYS[2], ARGV[2]) end " +
+            "return removed", Long.class);
+
+    /**
+     * 续期：任务仍在进行中集合时刷新取出时间
+     */
+    private static final RedisScript<Long> TOUCH_SCRIPT = new DefaultRedisScript<>(
+            "if not redis.call('ZSCORE', KEYS[1], ARGV[1]) then return 0 end " +
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    /**
+     * 退回：移出进行中集合，按原序号放回通道队列（排在该用户后入队的任务之前）；
+     * 只有移出成功的调用方执行退回，避免多个节点重复退回
+     * KEYS: 进行中集合、进行中计数哈希、通道队列、轮转列表；ARGV: 任务、用户ID
+     */
+    private static final RedisScript<Long> REQUEUE_SCRIPT = new DefaultRedisScript<>(HEAD_FUNCTION +
+            "local removed = redis.call('ZREM', KEYS[1], ARGV[1]) " +
+            "if removed == 1 then " +
+            "  if redis.call('HINCRBY', KEYS[2], ARGV[2], -1) <= 0 then redis.call('HDEL', KEYS[2], ARGV[2]) end " +
+            "  local empty = not head(KEYS[3], ARGV[2]) " +
+            "  redis.call('ZADD', KEYS[3], 0, ARGV[1]) " +
+            "  if empty then redis.call('RPUSH', KEYS[4], ARGV[2]) end " +
+            "end " +
+            "return removed", Long.class);
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private PublishConfirmTracker publishConfirmTracker;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.review.fair-share.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 权重为1的用户每轮获得的额度
+     */
+    @Value("${ai.review.fair-share.quantum:4}")
+    private int quantum;
+
+    /**
+     * 每个开销单位对应的代码token数
+     */
+    @Value("${ai.review.fair-share.cost-unit-tokens:1000}")
+    private int costUnitTokens;
+
+    @Value("${ai.review.fair-share.max-cost:64}")
+    private int maxCost;
+
+    @Value("${ai.review.fair-share.default-weight:1}")
+    private int defaultWeight;
+
+    /**
+     * 单个用户（所有节点合计）进行中的AI调用数上限
+     */
+    @Value("${ai.review.fair-share.max-inflight-per-user:8}")
+    private int maxInflightPerUser;
+
+    /**
+     * 单次出队最多轮转的轮数，赤字需要多轮累积时的上限
+     */
+    @Value("${ai.review.fair-share.max-rounds:64}")
+    private int maxRounds;
+
+    /**
+     * 已取出的任务超过该时间未续期时视为执行节点宕机，退回用户队列；默认与审查租约时长一致，
+     * 执行节点在审查进行中按租约续期间隔调用 {@link #touch}
+     */
+    @Value("${ai.review.fair-share.recover-after-seconds:${ai.review.lease-seconds:300}}")
+    private long recoverAfterSeconds;
+
+    @Value("${ai.review.fair-share.recover-batch-size:100}")
+    private int recoverBatchSize;
+
+    /**
+     * 各通道排队的任务数
+     */
+    private final Map<ReviewLane, AtomicLong> depthGauges = new EnumMap<>(ReviewLane.class);
+
+    /**
+     * 各通道有排队任务的用户数
+     */
+    private final Map<ReviewLane, AtomicLong> userGauges = new EnumMap<>(ReviewLane.class);
+
+    @PostConstruct
+    public void init() {
+        for (ReviewLane lane : ReviewLane.values()) {
+            AtomicLong depth = new AtomicLong();
+            AtomicLong users = new AtomicLong();
+            metricsUtils.registerGauge("ai.review.fair.queue.depth", depth, "lane", lane.getName());
+            metricsUtils.registerGauge("ai.review.fair.queue.users", users, "lane", lane.getName());
+            depthGauges.put(lane, depth);
+            userGauges.put(lane, users);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 任务进入用户的虚拟队列，并向通道队列发送一个调度令牌
+     * @param message 审查任务消息，只保存任务ID、标题和内容哈希
+     * @param tokens 任务的代码token数，用于折算调度开销
+     */
+    public void enqueue(ReviewLane lane, Long userId, ReviewTaskMessage message, int tokens) {
+        int cost = Math.min(maxCost, Math.max(1, (tokens + costUnitTokens - 1) / costUnitTokens));
+        redisUtils.execute(ENQUEUE_SCRIPT,
+                Arrays.asList(RedisConstants.FAIR_QUEUE_KEY + lane.getName(), RedisConstants.FAIR_RING_KEY + lane.getName(),
+                        RedisConstants.FAIR_SEQ_KEY),
+                String.valueOf(userId), FairShareJob.body(lane, cost, message));
+        // 令牌由发布确认跟踪，丢失的令牌重新发送，任务不会滞留在虚拟队列中
+        publishConfirmTracker.send(lane.getQueue(), TOKEN_MESSAGE);
+    }
+
+    /**
+     * 收到调度令牌后按赤字轮转取出一个任务
+     * @return 取出的任务；通道中没有任务或有任务的用户都已达到进行中上限时返回 null
+     */
+    public FairShareJob poll(ReviewLane lane) {
+        String raw = redisUtils.execute(POLL_SCRIPT,
+                Arrays.asList(RedisConstants.FAIR_RING_KEY + lane.getName(),
+                        RedisConstants.FAIR_DEFICIT_KEY + lane.getName(),
+                        RedisConstants.FAIR_WEIGHT_KEY,
+                        RedisConstants.FAIR_PROCESSING_KEY,
+                        RedisConstants.FAIR_QUEUE_KEY + lane.getName(),
+                        RedisConstants.FAIR_INFLIGHT_KEY),
+                String.valueOf(quantum),
+                String.valueOf(defaultWeight),
+                String.valueOf(maxInflightPerUser),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(maxRounds));
+        if (raw == null) {
+            return null;
+        }
+        FairShareJob job = FairShareJob.parse(raw);
+        metricsUtils.timer("ai.review.fair.wait", "lane", lane.getName())
+                .record(System.currentTimeMillis() - job.getEnqueuedAt(), TimeUnit.MILLISECONDS);
+        return job;
+    }
+
+    /**
+     * 通道中是否还有排队的任务，取不到任务时用于区分“需要稍后重试”和“令牌多余”
+     */
+    public boolean hasPending(ReviewLane lane) {
+        Long size = redisUtils.listSize(RedisConstants.FAIR_RING_KEY + lane.getName());
+        return size != null && size > 0;
+    }
+
+    /**
+     * 任务已到达终态，释放用户的进行中额度
+     */
+    public void complete(FairShareJob job) {
+        redisUtils.execute(COMPLETE_SCRIPT,
+                Arrays.asList(RedisConstants.FAIR_PROCESSING_KEY, RedisConstants.FAIR_INFLIGHT_KEY),
+                job.getRaw(), String.valueOf(job.getUserId()));
+    }
+
+    /**
+     * 审查进行中续期已取出的任务，避免耗时较长的审查被当作遗留任务退回
+     * @return 任务是否仍在进行中，已被退回或已结束时返回 false
+     */
+    public boolean touch(FairShareJob job) {
+        Long touched = redisUtils.execute(TOUCH_SCRIPT, Collections.singletonList(RedisConstants.FAIR_PROCESSING_KEY),
+                job.getRaw(), String.valueOf(System.currentTimeMillis()));
+        return touched != null && touched == 1;
+    }
+
+    /**
+     * 任务未能开始执行，放回用户队列，由后续令牌重新取出
+     * @return 是否退回成功，任务已被其他节点退回时返回 false
+     */
+    public boolean requeue(FairShareJob job) {
+        Long removed = redisUtils.execute(REQUEUE_SCRIPT,
+                Arrays.asList(RedisConstants.FAIR_PROCESSING_KEY,
+                        RedisConstants.FAIR_INFLIGHT_KEY,
+                        RedisConstants.FAIR_QUEUE_KEY + job.getLane().getName(),
+                        RedisConstants.FAIR_RING_KEY + job.getLane().getName()),
+                job.getRaw(), String.valueOf(job.getUserId()));
+        return removed != null && removed == 1;
+    }
+
+    /**
+     * 退回执行节点宕机后遗留的任务，并补发调度令牌
+     */
+    @Scheduled(initialDelayString = "${ai.review.fair-share.recover-interval-ms:60000}",
+            fixedDelayString = "${ai.review.fair-share.recover-interval-ms:60000}")
+    public void recoverStale() {
+        if (!enabled) {
+            return;
+        }
+        long before = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(recoverAfterSeconds);
+        Set<String> stale;
+        try {
+            stale = redisUtils.zRangeByScore(RedisConstants.FAIR_PROCESSING_KEY, 0, before, recoverBatchSize);
+        } catch (Exception e) {
+            log.warn("查询公平调度遗留任务失败: {}", e.getMessage());
+            return;
+        }
+        int recovered = 0;
+        for (String raw : stale) {
+            FairShareJob job = FairShareJob.parse(raw);
+            if (requeue(job)) {
+                publishConfirmTracker.send(job.getLane().getQueue(), TOKEN_MESSAGE);
+                recovered++;
+            }
+        }
+        if (recovered > 0) {
+            log.info("公平调度遗留任务已退回: count={}", recovered);
+            metricsUtils.incrementCounter("ai.review.fair.recovered", recovered);
+        }
+    }
+
+    /**
+     * 定时采集各通道的排队任务数和排队用户数
+     */
+    @Scheduled(fixedDelayString = "${ai.review.fair-share.metrics-interval-ms:15000}")
+    public void sampleQueueDepth() {
+        if (!enabled) {
+            return;
+        }
+        for (ReviewLane lane : ReviewLane.values()) {
+            try {
+                Long depth = redisUtils.zSize(RedisConstants.FAIR_QUEUE_KEY + lane.getName());
+                Long users = redisUtils.listSize(RedisConstants.FAIR_RING_KEY + lane.getName());
+                depthGauges.get(lane).set(depth != null ? depth : 0);
+                userGauges.get(lane).set(users != null ? users : 0);
+            } catch (Exception e) {
+                log.warn("采集公平调度队列深度失败: lane={}, error={}", lane.getName(), e.getMessage());
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.utils.MetricsUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 审查消息发布确认跟踪（包括公平调度的调度令牌）
+ * 一次发布的多条消息在同一通道上连续发送，不等待逐条确认；每条消息带关联ID登记为未确认，
+ * 代理异步确认后移除，拒绝或超时未确认的消息由定时任务重新发送。
+ * 需要 spring.rabbitmq.publisher-confirm-type=correlated，未开启时只批量发送、不跟踪确认；
+ * 未确认消息按条数和消息体总字节数限制，超过时新消息只发送、不跟踪。
+ * 重复发送的消息由任务领取时的条件更新保证不会重复审查
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class PublishConfirmTracker {
+
+    private static final String CONFIRM_TYPE_CORRELATED = "correlated";
+
+    @Resource
+    private RabbitTemplate rabbitTemplate;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${spring.rabbitmq.publisher-confirm-type:none}")
+    private String confirmType;
+
+    /**
+     * 发送后超过该时间仍未确认的消息重新发送
+     */
+    @Value("${ai.review.publish.confirm-timeout-ms:10000}")
+    private long confirmTimeoutMs;
+
+    /**
+     * 被拒绝的消息等待该时间后重新发送
+     */
+    @Value("${ai.review.publish.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    /**
+     * 单条消息最多发送次数，超过后放弃并记录错误
+     */
+    @Value("${ai.review.publish.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * 未确认消息数上限，超过时新消息不再跟踪，避免代理长时间不可用时占满内存
+     */
+    @Value("${ai.review.publish.max-pending:100000}")
+    private int maxPending;
+
+    /**
+     * 未确认消息的总字节数上限，超过时新消息不再跟踪；消息体包含内联的代码，按条数限制不足以约束内存
+     */
+    @Value("${ai.review.publish.max-pending-bytes:67108864}")
+    private long maxPendingBytes;
+
+    private boolean enabled;
+
+    /**
+     * 关联ID -> 未确认消息
+     */
+    private final Map<String, PendingMessage> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 未确认消息的消息体总字节数
+     */
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        enabled = CONFIRM_TYPE_CORRELATED.equalsIgnoreCase(confirmType);
+        if (!enabled) {
+            log.warn("未开启发布确认（spring.rabbitmq.publisher-confirm-type={}），审查消息发送失败时无法重试", confirmType);
+            return;
+        }
+        // 每个 RabbitTemplate 只能有一个确认回调；不带关联数据的消息确认时忽略
+        rabbitTemplate.setConfirmCallback(this::onConfirm);
+        metricsUtils.registerGauge("ai.review.publish.pending", pending::size);
+        metricsUtils.registerGauge("ai.review.publish.pending.bytes", pendingBytes::get);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 在同一通道上连续发送多条消息，确认异步到达
+     * @param queues 各消息的目标队列，与 payloads 一一对应
+     */
+    public void send(List<String> queues, List<byte[]> payloads) {
+        List<PendingMessage> messages = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            messages.add(new PendingMessage(UUID.randomUUID().toString(), queues.get(i), payloads.get(i)));
+        }
+        sendAll(messages);
+        metricsUtils.incrementCounter("ai.review.publish.sent", messages.size());
+    }
+
+    public void send(String queue, byte[] payload) {
+        send(Collections.singletonList(queue), Collections.singletonList(payload));
+    }
+
+    /**
+     * 重新发送被拒绝或超时未确认的消息
+     */
+    @Scheduled(fixedDelayString = "${ai.review.publish.resend-interval-ms:1000}")
+    public void resendUnconfirmed() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PendingMessage> due = new ArrayList<>();
+        for (PendingMessage message : pending.values()) {
+            if (message.retryAt <= now) {
+                due.add(message);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<PendingMessage> retries = new ArrayList<>(due.size());
+        for (PendingMessage message : due) {
+            // 与确认回调竞争，已被确认移除的消息不再发送
+            if (pending.remove(message.id, message)) {
+                pendingBytes.addAndGet(-message.payload.length);
+                if (message.attempts >= maxAttempts) {
+                    log.error("审查消息多次发送未确认，放弃: queue={}, attempts={}, cause={}",
+                            message.queue, message.attempts, message.cause);
+                    metricsUtils.incrementCounter("ai.review.publish.dropped");
+                } else {
+                    retries.add(message.retry());
+                }
+            }
+        }
+        if (!retries.isEmpty()) {
+            log.warn("重新发送未确认的审查消息: count={}", retries.size());
+            metricsUtils.incrementCounter("ai.review.publish.retried", retries.size());
+            sendAll(retries);
+        }
+    }
+
+    /**
+     * 先登记全部消息再在同一通道上发送；开启确认时发送异常不抛出，已登记的消息由定时任务重试
+     */
+    private void sendAll(List<PendingMessage> messages) {
+        long bytes = 0;
+        for (PendingMessage message : messages) {
+            bytes += message.payload.length;
+        }
+        boolean tracked = enabled && pending.size() + messages.size() <= maxPending
+                && pendingBytes.get() + bytes <= maxPendingBytes;
+        if (tracked) {
+            long retryAt = System.currentTimeMillis() + confirmTimeoutMs;
+            for (PendingMessage message : messages) {
+                message.retryAt = retryAt;
+                pending.put(message.id, message);
+            }
+            pendingBytes.addAndGet(bytes);
+        } else if (enabled) {
+            log.warn("未确认的审查消息过多，本次发送不跟踪确认: pending={}, pendingBytes={}, count={}, bytes={}",
+                    pending.size(), pendingBytes.get(), messages.size(), bytes);
+        }
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingMessage message : messages) {
+                    operations.convertAndSend("", message.queue, message.payload,
+                            tracked ? new CorrelationData(message.id) : null);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if (!tracked) {
+                throw e;
+            }
+            log.warn("审查消息发送失败，等待重试: count={}, error={}", messages.size(), e.getMessage());
+            metricsUtils.incrementCounter("ai.review.publish.send.failed", messages.size());
+        }
+    }
+
+    private void onConfirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (correlationData == null || correlationData.getId() == null) {
+            return;
+        }
+        if (ack) {
+            PendingMessage message = pending.remove(correlationData.getId());
+            if (message != null) {
+                pendingBytes.addAndGet(-message.payload.length);
+                metricsUtils.incrementCounter("ai.review.publish.confirmed");
+            }
+            return;
+        }
+        // 确认回调在连接线程上执行，不在此发送，交给定时任务
+        PendingMessage message = pending.get(correlationData.getId());
+        if (message != null) {
+            message.cause = cause;
+            message.retryAt = System.currentTimeMillis() + retryDelayMs;
+            metricsUtils.incrementCounter("ai.review.publish.nacked");
+            log.warn("审查消息被代理拒绝: queue={}, cause={}", message.queue, cause);
+        }
+    }
+
+    /**
+     * 已发送、等待确认的消息
+     */
+    private static class PendingMessage {
+
+        private final String id;
+
+        private final String queue;
+
+        private final byte[] payload;
+
+        private final int attempts;
+
+        private volatile long retryAt;
+
+        private volatile String cause;
+
+        PendingMessage(String id, String queue, byte[] payload) {
+            this(id, queue, payload, 1);
+        }
+
+        private PendingMessage(String id, String queue, byte[] payload, int attempts) {
+            this.id = id;
+            this.queue = queue;
+            this.payload = payload;
+            this.attempts = attempts;
+        }
+
+        /**
+         * 重试使用新的关联ID，旧关联ID迟到的确认不会影响重试的消息
+         */
+        PendingMessage retry() {
+            PendingMessage next = new PendingMessage(UUID.randomUUID().toString(), queue, payload, attempts + 1);
+            next.cause = cause;
+            return next;
+        }
+    }
+}
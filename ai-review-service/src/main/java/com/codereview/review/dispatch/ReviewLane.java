@@ -0,0 +1,22 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.review.config.RabbitMQConfig;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 审查任务通道
+ * 每个通道对应一个队列和独立的消费者，交互式审查不会排在批量任务后面
+ * @author CodeReview
+ */
+@Getter
+@AllArgsConstructor
+public enum ReviewLane {
+
+    INTERACTIVE("interactive", RabbitMQConfig.REVIEW_QUEUE),
+    BATCH("batch", RabbitMQConfig.REVIEW_BATCH_QUEUE),
+    OVERSIZED("oversized", RabbitMQConfig.REVIEW_OVERSIZED_QUEUE);
+
+    private final String name;
+    private final String queue;
+}
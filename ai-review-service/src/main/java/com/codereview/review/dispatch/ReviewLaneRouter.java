@@ -0,0 +1,49 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.utils.MetricsUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 审查任务通道选择
+ * 提交时按代码大小和请求来源选择通道：超大代码进入超大通道，批量上传进入批量通道，其余为交互式审查
+ * @author CodeReview
+ */
+@Component
+public class ReviewLaneRouter {
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    /**
+     * 代码token数超过该值的任务进入超大通道
+     */
+    @Value("${ai.review.lane.oversized-tokens:8000}")
+    private int oversizedTokens;
+
+    /**
+     * 批量上传的文件数不超过该值时仍按交互式审查处理
+     */
+    @Value("${ai.review.lane.interactive-max-files:1}")
+    private int interactiveMaxFiles;
+
+    /**
+     * 选择单个任务或打包分组的通道
+     * @param tokens 同一条消息中所有任务的代码token数
+     * @param batchFiles 批量上传的文件总数，单个提交时为 0
+     */
+    public ReviewLane route(int tokens, int batchFiles) {
+        ReviewLane lane;
+        if (tokens > oversizedTokens) {
+            lane = ReviewLane.OVERSIZED;
+        } else if (batchFiles > interactiveMaxFiles) {
+            lane = ReviewLane.BATCH;
+        } else {
+            lane = ReviewLane.INTERACTIVE;
+        }
+        metricsUtils.incrementCounter("ai.review.lane.submitted", "lane", lane.getName());
+        return lane;
+    }
+}
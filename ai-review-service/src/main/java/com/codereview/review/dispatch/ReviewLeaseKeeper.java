@@ -0,0 +1,126 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.ReviewTaskMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 审查租约续期
+ * 审查进行中每隔租约时长的三分之一续期一次，审查耗时（AI超时、限流排队、重试）不受租约时长限制；
+ * 只有执行节点宕机、停止续期后租约才会过期，由 {@link com.codereview.review.listener.ReviewLeaseReaper} 重新投递
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewLeaseKeeper {
+
+    @Resource
+    private ReviewTaskMapper reviewTaskMapper;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.review.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private long renewIntervalMs;
+
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void init() {
+        renewIntervalMs = Math.max(1000L, TimeUnit.SECONDS.toMillis(leaseSeconds) / 3);
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "review-lease-keeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 租约时长
+     */
+    public long getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    /**
+     * 新租约的到期时间
+     */
+    public LocalDateTime nextLeaseUntil() {
+        return LocalDateTime.now().withNano(0).plusSeconds(leaseSeconds);
+    }
+
+    /**
+     * 在审查结束前定期续期任务租约，任务到达终态（租约已清除）或租约被其他节点接管时提前停止
+     * @param until 审查结束时完成的Future
+     */
+    public void keep(ReviewTask task, CompletableFuture<?> until) {
+        keepAlive(until, () -> renew(task));
+    }
+
+    /**
+     * 在Future完成前定期执行心跳，心跳返回 false 时停止
+     */
+    public void keepAlive(CompletableFuture<?> until, BooleanSupplier heartbeat) {
+        if (until.isDone()) {
+            return;
+        }
+        AtomicReference<ScheduledFuture<?>> scheduled = new AtomicReference<>();
+        scheduled.set(timer.scheduleWithFixedDelay(() -> {
+            try {
+                if (!until.isDone() && heartbeat.getAsBoolean()) {
+                    return;
+                }
+            } catch (Exception e) {
+                // 暂时性故障下一次重试，连续失败超过租约时长时由其他节点接管
+                log.warn("审查租约续期失败: {}", e.getMessage());
+                return;
+            }
+            scheduled.get().cancel(false);
+        }, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS));
+        until.whenComplete((result, error) -> scheduled.get().cancel(false));
+    }
+
+    /**
+     * 续期一次任务租约，与任务的状态流转互斥，续期后的租约作为后续条件更新的凭证
+     * @return 是否继续续期
+     */
+    boolean renew(ReviewTask task) {
+        synchronized (task) {
+            LocalDateTime current = task.getLeaseUntil();
+            if (current == null) {
+                return false;
+            }
+            LocalDateTime next = nextLeaseUntil();
+            if (reviewTaskMapper.renewLease(task.getId(), current, next) == 0) {
+                log.warn("任务租约已被接管，停止续期: taskId={}", task.getId());
+                metricsUtils.incrementCounter("ai.review.lease.renewed", "outcome", "lost");
+                return false;
+            }
+            task.setLeaseUntil(next);
+            metricsUtils.incrementCounter("ai.review.lease.renewed", "outcome", "renewed");
+            return true;
+        }
+    }
+}
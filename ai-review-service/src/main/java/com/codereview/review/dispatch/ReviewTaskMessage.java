@@ -0,0 +1,150 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.enums.ReviewStatusEnum;
+import com.codereview.review.entity.ReviewTask;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 审查队列消息
+ * 携带消费者执行审查所需的全部信息（任务ID、模型、语言，以及内联代码或内容哈希），
+ * 消费者无需查询数据库即可发起AI调用；代码过大且未启用内容存储时只携带任务ID，由消费者查询数据库
+ * @author CodeReview
+ */
+@Data
+public class ReviewTaskMessage {
+
+    /**
+     * 消息类型：审查任务
+     */
+    public static final int TYPE_TASK = 1;
+
+    /**
+     * 消息类型：公平调度令牌，实际任务在用户虚拟队列中
+     */
+    public static final int TYPE_TOKEN = 2;
+
+    private int type = TYPE_TASK;
+
+    private Long userId;
+
+    private String aiModel;
+
+    private String language;
+
+    /**
+     * 消息中的任务，多个任务时打包审查
+     */
+    private List<Item> tasks = new ArrayList<>();
+
+    /**
+     * 消息中的单个任务
+     */
+    @Data
+    public static class Item {
+
+        private Long taskId;
+
+        private String title;
+
+        /**
+         * 内联的代码内容，超过内联阈值时为 null
+         */
+        private String codeContent;
+
+        /**
+         * 代码内容存储的哈希，未内联时用于从内容存储读取代码
+         */
+        private String codeHash;
+    }
+
+    public static ReviewTaskMessage token() {
+        ReviewTaskMessage message = new ReviewTaskMessage();
+        message.setType(TYPE_TOKEN);
+        return message;
+    }
+
+    /**
+     * 由同一分组的任务构建不内联代码的消息，只携带任务ID和内容哈希，用于存放在公平调度的 Redis 队列中
+     */
+    public static ReviewTaskMessage of(List<ReviewTask> group) {
+        return of(group, -1);
+    }
+
+    /**
+     * 由同一分组的任务构建消息
+     * @param inlineMaxBytes 代码内容按UTF-8编码不超过该字节数时内联
+     */
+    public static ReviewTaskMessage of(List<ReviewTask> group, int inlineMaxBytes) {
+        ReviewTaskMessage message = new ReviewTaskMessage();
+        ReviewTask first = group.get(0);
+        message.setUserId(first.getUserId());
+        message.setAiModel(first.getAiModel());
+        message.setLanguage(first.getLanguage());
+        for (ReviewTask task : group) {
+            Item item = new Item();
+            item.setTaskId(task.getId());
+            item.setTitle(task.getTitle());
+            String code = task.getCodeContent();
+            // 每个字符至少1个字节，字符数已超过阈值时不再编码
+            if (code != null && code.length() <= inlineMaxBytes
+                    && code.getBytes(StandardCharsets.UTF_8).length <= inlineMaxBytes) {
+                item.setCodeContent(code);
+            } else {
+                item.setCodeHash(task.getCodeHash());
+            }
+            message.getTasks().add(item);
+        }
+        return message;
+    }
+
+    public boolean isToken() {
+        return type == TYPE_TOKEN;
+    }
+
+    public List<Long> getTaskIds() {
+        List<Long> taskIds = new ArrayList<>(tasks.size());
+        for (Item item : tasks) {
+            taskIds.add(item.getTaskId());
+        }
+        return taskIds;
+    }
+
+    /**
+     * 是否所有任务都携带了代码内容或内容哈希，消费者无需查询数据库
+     */
+    public boolean isSelfContained() {
+        if (tasks.isEmpty() || aiModel == null || language == null) {
+            return false;
+        }
+        for (Item item : tasks) {
+            if (item.getCodeContent() == null && item.getCodeHash() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 还原为待审查的任务对象，未内联的代码内容由调用方从内容存储读取
+     */
+    public List<ReviewTask> toTasks() {
+        List<ReviewTask> result = new ArrayList<>(tasks.size());
+        for (Item item : tasks) {
+            ReviewTask task = new ReviewTask();
+            task.setId(item.getTaskId());
+            task.setUserId(userId);
+            task.setTitle(item.getTitle());
+            task.setAiModel(aiModel);
+            task.setLanguage(language);
+            task.setCodeContent(item.getCodeContent());
+            task.setCodeHash(item.getCodeHash());
+            task.setStatus(ReviewStatusEnum.PENDING.getCode());
+            result.add(task);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,211 @@
+package com.codereview.review.dispatch;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 审查队列消息的二进制编解码
+ * 格式：魔数(1) + 版本(1) + 类型(1)，审查任务消息随后依次为用户ID、模型、语言、任务数和各任务
+ * （任务ID、标题、内容模式及内联代码或内容哈希）；整数使用变长编码，可空值以 0 表示 null。
+ * 解码时兼容升级前以JSON字符串发送的旧消息
+ * @author CodeReview
+ */
+public final class ReviewTaskMessageCodec {
+
+    /**
+     * 魔数，与JSON消息的首字节 '{' 区分
+     */
+    static final byte MAGIC = (byte) 0xA7;
+
+    /**
+     * 当前编码版本，新增字段时递增，解码时按版本读取
+     */
+    static final byte VERSION = 1;
+
+    private static final int MODE_NONE = 0;
+
+    private static final int MODE_INLINE = 1;
+
+    private static final int MODE_HASH = 2;
+
+    private ReviewTaskMessageCodec() {
+    }
+
+    public static byte[] encode(ReviewTaskMessage message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(estimateSize(message));
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(message.getType());
+        if (message.isToken()) {
+            return out.toByteArray();
+        }
+
+        writeNullableLong(out, message.getUserId());
+        writeString(out, message.getAiModel());
+        writeString(out, message.getLanguage());
+        writeVarLong(out, message.getTasks().size());
+        for (ReviewTaskMessage.Item item : message.getTasks()) {
+            writeNullableLong(out, item.getTaskId());
+            writeString(out, item.getTitle());
+            if (item.getCodeContent() != null) {
+                out.write(MODE_INLINE);
+                writeString(out, item.getCodeContent());
+            } else if (item.getCodeHash() != null) {
+                out.write(MODE_HASH);
+                writeString(out, item.getCodeHash());
+            } else {
+                out.write(MODE_NONE);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException 消息格式错误或版本不受支持
+     */
+    public static ReviewTaskMessage decode(byte[] body) {
+        if (body == null || body.length == 0) {
+            throw new IllegalArgumentException("审查消息为空");
+        }
+        if (body[0] == '{') {
+            return decodeJson(new String(body, StandardCharsets.UTF_8));
+        }
+        if (body[0] != MAGIC) {
+            throw new IllegalArgumentException("未知的审查消息格式");
+        }
+
+        try {
+            ByteBuffer in = ByteBuffer.wrap(body, 1, body.length - 1);
+            int version = in.get();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("不支持的审查消息版本: " + version);
+            }
+            ReviewTaskMessage message = new ReviewTaskMessage();
+            message.setType(in.get());
+            if (message.isToken()) {
+                return message;
+            }
+
+            message.setUserId(readNullableLong(in));
+            message.setAiModel(readString(in));
+            message.setLanguage(readString(in));
+            long count = readVarLong(in);
+            if (count < 0 || count > in.remaining()) {
+                throw new IllegalArgumentException("审查消息任务数错误: " + count);
+            }
+            for (long i = 0; i < count; i++) {
+                ReviewTaskMessage.Item item = new ReviewTaskMessage.Item();
+                item.setTaskId(readNullableLong(in));
+                item.setTitle(readString(in));
+                int mode = in.get();
+                if (mode == MODE_INLINE) {
+                    item.setCodeContent(readString(in));
+                } else if (mode == MODE_HASH) {
+                    item.setCodeHash(readString(in));
+                } else if (mode != MODE_NONE) {
+                    throw new IllegalArgumentException("未知的代码内容模式: " + mode);
+                }
+                message.getTasks().add(item);
+            }
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("审查消息不完整", e);
+        }
+    }
+
+    /**
+     * 解码升级前的JSON消息：{"taskId":..} / {"taskIds":[..]} / {"fairShare":true}，只包含任务ID
+     */
+    private static ReviewTaskMessage decodeJson(String json) {
+        JSONObject object = JSON.parseObject(json);
+        if (object.getBooleanValue("fairShare")) {
+            return ReviewTaskMessage.token();
+        }
+        ReviewTaskMessage message = new ReviewTaskMessage();
+        message.setUserId(object.getLong("userId"));
+        List<Long> taskIds = object.containsKey("taskIds")
+                ? object.getJSONArray("taskIds").toJavaList(Long.class)
+                : Collections.singletonList(object.getLong("taskId"));
+        for (Long taskId : taskIds) {
+            ReviewTaskMessage.Item item = new ReviewTaskMessage.Item();
+            item.setTaskId(taskId);
+            message.getTasks().add(item);
+        }
+        return message;
+    }
+
+    private static int estimateSize(ReviewTaskMessage message) {
+        int size = 64;
+        for (ReviewTaskMessage.Item item : message.getTasks()) {
+            size += 32 + (item.getTitle() != null ? item.getTitle().length() : 0)
+                    + (item.getCodeContent() != null ? item.getCodeContent().length() : 64);
+        }
+        return size;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("变长整数过长");
+    }
+
+    /**
+     * 可空长整数：0 表示 null，其余为值加一（ID均为非负数）
+     */
+    private static void writeNullableLong(ByteArrayOutputStream out, Long value) {
+        writeVarLong(out, value == null ? 0 : value + 1);
+    }
+
+    private static Long readNullableLong(ByteBuffer in) {
+        long value = readVarLong(in);
+        return value == 0 ? null : value - 1;
+    }
+
+    /**
+     * 字符串：长度加一的变长整数（0 表示 null）+ UTF-8字节
+     */
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > in.remaining()) {
+            throw new IllegalArgumentException("审查消息字符串长度错误: " + (length - 1));
+        }
+        int size = (int) (length - 1);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), size, StandardCharsets.UTF_8);
+        in.position(in.position() + size);
+        return value;
+    }
+}
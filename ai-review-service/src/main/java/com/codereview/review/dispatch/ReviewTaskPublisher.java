@@ -0,0 +1,123 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.prompt.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 审查任务消息发布
+ * 按代码大小和请求来源选择通道；消息以二进制编码并携带消费者所需的任务信息，
+ * 开启公平调度时任务先进入用户的虚拟队列（只保存任务ID和内容哈希），队列中只发送调度令牌；
+ * 直接发送的消息由发布确认跟踪，未确认时重新发送
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewTaskPublisher {
+
+    @Resource
+    private PublishConfirmTracker publishConfirmTracker;
+
+    @Resource
+    private ReviewLaneRouter reviewLaneRouter;
+
+    @Resource
+    private FairShareScheduler fairShareScheduler;
+
+    /**
+     * 代码内容不超过该字节数时内联到消息中，消费者无需读取数据库或内容存储
+     */
+    @Value("${ai.review.message.inline-max-bytes:16384}")
+    private int inlineMaxBytes;
+
+    /**
+     * 发布单个任务或打包分组
+     * @param group 同一条消息中的任务，多个任务时打包审查
+     * @param batchFiles 批量上传的文件总数，单个提交时为 0
+     * @return 选择的通道
+     */
+    public ReviewLane publish(List<ReviewTask> group, Long userId, int batchFiles) {
+        return publishAll(Collections.singletonList(group), userId, batchFiles).get(0);
+    }
+
+    /**
+     * 发布批量上传的全部分组，所有消息在同一通道上连续发送，不逐条等待确认
+     * @return 各分组选择的通道
+     */
+    public List<ReviewLane> publishAll(List<List<ReviewTask>> groups, Long userId, int batchFiles) {
+        List<ReviewLane> lanes = new ArrayList<>(groups.size());
+        List<String> queues = new ArrayList<>(groups.size());
+        List<byte[]> payloads = new ArrayList<>(groups.size());
+        for (List<ReviewTask> group : groups) {
+            int tokens = 0;
+            for (ReviewTask task : group) {
+                tokens += codeTokens(task);
+            }
+            ReviewLane lane = reviewLaneRouter.route(tokens, batchFiles);
+            lanes.add(lane);
+
+            if (fairShareScheduler.isEnabled()) {
+                // 虚拟队列保存在 Redis 中，不内联代码
+                fairShareScheduler.enqueue(lane, userId, ReviewTaskMessage.of(group), tokens);
+                log.debug("审查任务已进入公平调度队列: lane={}, taskIds={}", lane.getName(), taskIdsOf(group));
+            } else {
+                byte[] payload = ReviewTaskMessageCodec.encode(ReviewTaskMessage.of(group, inlineMaxBytes));
+                queues.add(lane.getQueue());
+                payloads.add(payload);
+                log.debug("审查任务消息已编码: lane={}, taskIds={}, bytes={}", lane.getName(), taskIdsOf(group), payload.length);
+            }
+        }
+
+        if (!payloads.isEmpty()) {
+            publishConfirmTracker.send(queues, payloads);
+        }
+        log.info("任务已发送到消息队列: userId={}, messages={}, fairShare={}", userId, groups.size(),
+                fairShareScheduler.isEnabled());
+        return lanes;
+    }
+
+    /**
+     * 重新投递未完成的任务（租约过期或长时间未被领取），消息只携带任务ID，由消费者从数据库加载；
+     * 按任务记录的代码token数选择通道，超大任务不会占用交互式通道
+     * @param task 至少包含ID、用户ID和代码token数
+     * @return 选择的通道
+     */
+    public ReviewLane republish(ReviewTask task) {
+        ReviewTaskMessage message = new ReviewTaskMessage();
+        message.setUserId(task.getUserId());
+        ReviewTaskMessage.Item item = new ReviewTaskMessage.Item();
+        item.setTaskId(task.getId());
+        message.getTasks().add(item);
+
+        int tokens = task.getCodeTokens() != null ? task.getCodeTokens() : 0;
+        ReviewLane lane = reviewLaneRouter.route(tokens, 0);
+        if (fairShareScheduler.isEnabled()) {
+            fairShareScheduler.enqueue(lane, task.getUserId(), message, tokens);
+        } else {
+            publishConfirmTracker.send(lane.getQueue(), ReviewTaskMessageCodec.encode(message));
+        }
+        return lane;
+    }
+
+    /**
+     * 优先使用保存任务时统计的token数
+     */
+    private int codeTokens(ReviewTask task) {
+        return task.getCodeTokens() != null ? task.getCodeTokens() : TokenCounter.count(task.getCodeContent());
+    }
+
+    private List<Long> taskIdsOf(List<ReviewTask> group) {
+        List<Long> taskIds = new ArrayList<>(group.size());
+        for (ReviewTask task : group) {
+            taskIds.add(task.getId());
+        }
+        return taskIds;
+    }
+}
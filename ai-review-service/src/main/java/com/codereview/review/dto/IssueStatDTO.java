@@ -0,0 +1,29 @@
+package com.codereview.review.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 问题分组统计DTO
+ * @author CodeReview
+ */
+@Data
+@Schema(description = "问题分组统计")
+public class IssueStatDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 分组名（严重程度或问题类型）
+     */
+    @Schema(description = "分组名", example = "high")
+    private String name;
+
+    /**
+     * 问题数量
+     */
+    @Schema(description = "问题数量", example = "12")
+    private Long count;
+}
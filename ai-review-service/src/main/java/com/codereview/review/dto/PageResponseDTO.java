@@ -17,6 +17,18 @@ import java.util.List;
 @Schema(description = "分页响应结果")
 public class PageResponseDTO<T> {
 
+    /**
+     * 列表查询每页最大条数
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * 将请求的每页大小限制在 1 ~ {@link #MAX_PAGE_SIZE} 之间，未指定时为10
+     */
+    public static int capSize(Integer size) {
+        return Math.min(Math.max(size != null ? size : 10, 1), MAX_PAGE_SIZE);
+    }
+
     /**
      * 数据列表
      */
@@ -40,4 +52,10 @@ public class PageResponseDTO<T> {
      */
     @Schema(description = "每页大小", example = "10")
     private Integer size;
+
+    /**
+     * 下一页游标，仅游标分页返回，为 null 表示没有更多数据
+     */
+    @Schema(description = "下一页游标（游标分页），为空表示没有更多数据")
+    private String nextCursor;
 }
@@ -0,0 +1,47 @@
+package com.codereview.review.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 审查问题查询DTO
+ * @author CodeReview
+ */
+@Data
+@Schema(description = "审查问题查询参数")
+public class ReviewIssueQueryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 页码
+     */
+    @Schema(description = "页码", example = "1")
+    private Integer page = 1;
+
+    /**
+     * 每页大小
+     */
+    @Schema(description = "每页大小", example = "10")
+    private Integer size = 10;
+
+    /**
+     * 任务ID
+     */
+    @Schema(description = "任务ID", example = "1")
+    private Long taskId;
+
+    /**
+     * 问题类型
+     */
+    @Schema(description = "问题类型", example = "SQL注入")
+    private String type;
+
+    /**
+     * 严重程度（high/medium/low）
+     */
+    @Schema(description = "严重程度", example = "high", allowableValues = {"high", "medium", "low"})
+    private String severity;
+}
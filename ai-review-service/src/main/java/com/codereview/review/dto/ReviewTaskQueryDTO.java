@@ -38,4 +38,16 @@ public class ReviewTaskQueryDTO implements Serializable {
      */
     @Schema(description = "编程语言", example = "Java")
     private String language;
+
+    /**
+     * 游标（上一页返回的 nextCursor），传入时使用游标分页，首页传空字符串；不传时使用页码分页
+     */
+    @Schema(description = "游标分页的游标，首页传空字符串；不传时按页码分页")
+    private String cursor;
+
+    /**
+     * 是否返回总数，总数按用户和筛选条件短时缓存，可能与实时数量略有差异
+     */
+    @Schema(description = "是否返回总数（短时缓存的近似值）", example = "true")
+    private Boolean withTotal = true;
 }
@@ -0,0 +1,55 @@
+package com.codereview.review.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 审查任务摘要DTO
+ * 任务列表只返回摘要字段，不包含代码内容和审查结果
+ * @author CodeReview
+ */
+@Data
+@Schema(description = "审查任务摘要")
+public class ReviewTaskSummaryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "任务ID", example = "1")
+    private Long id;
+
+    @Schema(description = "任务标题")
+    private String title;
+
+    @Schema(description = "编程语言", example = "Java")
+    private String language;
+
+    @Schema(description = "AI模型")
+    private String aiModel;
+
+    @Schema(description = "审查状态（0-待审查，1-审查中，2-已完成，3-失败）", example = "2")
+    private Integer status;
+
+    @Schema(description = "质量评分（0-100）")
+    private Integer qualityScore;
+
+    @Schema(description = "安全评分（0-100）")
+    private Integer securityScore;
+
+    @Schema(description = "性能评分（0-100）")
+    private Integer performanceScore;
+
+    @Schema(description = "问题数量")
+    private Integer issueCount;
+
+    @Schema(description = "错误信息")
+    private String errorMsg;
+
+    @Schema(description = "创建时间")
+    private LocalDateTime createTime;
+
+    @Schema(description = "更新时间")
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,45 @@
+package com.codereview.review.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 审查任务状态变化事件DTO
+ * 通过SSE推送给订阅的客户端，不包含代码内容和审查结果，完整结果由客户端按需查询任务详情
+ * @author CodeReview
+ */
+@Data
+@Schema(description = "审查任务状态变化事件")
+public class TaskStatusEventDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "任务ID", example = "1")
+    private Long taskId;
+
+    @Schema(description = "用户ID")
+    private Long userId;
+
+    @Schema(description = "审查状态（0-待审查，1-审查中，2-已完成，3-失败）", example = "2")
+    private Integer status;
+
+    @Schema(description = "质量评分（0-100）")
+    private Integer qualityScore;
+
+    @Schema(description = "安全评分（0-100）")
+    private Integer securityScore;
+
+    @Schema(description = "性能评分（0-100）")
+    private Integer performanceScore;
+
+    @Schema(description = "问题数量")
+    private Integer issueCount;
+
+    @Schema(description = "错误信息")
+    private String errorMsg;
+
+    @Schema(description = "事件时间戳（毫秒）")
+    private Long timestamp;
+}
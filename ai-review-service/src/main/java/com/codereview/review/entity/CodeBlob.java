@@ -0,0 +1,52 @@
+package com.codereview.review.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 代码内容块实体
+ * 记录内容寻址存储中每个代码块的引用计数，内容本身保存在本地磁盘
+ * @author CodeReview
+ */
+@Data
+@TableName("code_blob")
+public class CodeBlob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 内容的SHA-256哈希
+     */
+    @TableId(type = IdType.INPUT)
+    private String hash;
+
+    /**
+     * 内容字节数
+     */
+    private Long size;
+
+    /**
+     * 引用该内容的未删除任务数
+     */
+    private Integer refCount;
+
+    /**
+     * 是否正在清理（0-否，1-是），清理节点删除文件期间写入方需等待后重新落盘
+     */
+    private Integer deleting;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
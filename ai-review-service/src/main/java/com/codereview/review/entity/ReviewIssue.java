@@ -0,0 +1,71 @@
+package com.codereview.review.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 审查问题实体
+ * 审查结果中的每个问题单独存一行，按严重程度、类型筛选和统计时无需再解析审查结果JSON
+ * @author CodeReview
+ */
+@Data
+@TableName("review_issue")
+public class ReviewIssue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 问题ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 所属任务ID
+     */
+    private Long taskId;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 问题类型
+     */
+    private String type;
+
+    /**
+     * 严重程度（high/medium/low）
+     */
+    private String severity;
+
+    /**
+     * 问题描述
+     */
+    private String description;
+
+    /**
+     * 修复建议
+     */
+    private String suggestion;
+
+    /**
+     * 问题位置
+     */
+    private String location;
+
+    /**
+     * 问题来源（ai-AI审查，local-本地预分析）
+     */
+    private String source;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+}
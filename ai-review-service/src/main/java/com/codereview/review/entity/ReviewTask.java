@@ -1,6 +1,7 @@
 package com.codereview.review.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.codereview.review.handler.CompressedTextTypeHandler;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -11,7 +12,7 @@ import java.time.LocalDateTime;
  * @author CodeReview
  */
 @Data
-@TableName("review_task")
+@TableName(value = "review_task", autoResultMap = true)
 public class ReviewTask implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -33,10 +34,17 @@ public class ReviewTask implements Serializable {
     private String title;
 
     /**
-     * 代码内容
+     * 代码内容（超过阈值时压缩存储；写入内容存储时为空）
+     * 提交后不再变化，更新任务时不写回该列
      */
+    @TableField(typeHandler = CompressedTextTypeHandler.class, updateStrategy = FieldStrategy.NEVER)
     private String codeContent;
 
+    /**
+     * 代码内容在内容存储中的SHA-256哈希
+     */
+    private String codeHash;
+
     /**
      * 编程语言
      */
@@ -53,8 +61,9 @@ public class ReviewTask implements Serializable {
     private Integer status;
 
     /**
-     * 审查结果
+     * 审查结果（超过阈值时压缩存储）
      */
+    @TableField(typeHandler = CompressedTextTypeHandler.class)
     private String reviewResult;
 
     /**
@@ -82,6 +91,16 @@ public class ReviewTask implements Serializable {
      */
     private String errorMsg;
 
+    /**
+     * 代码token数
+     */
+    private Integer codeTokens;
+
+    /**
+     * 审查租约到期时间，审查中的任务超过该时间未结束可被重新领取
+     */
+    private LocalDateTime leaseUntil;
+
     /**
      * 创建时间
      */
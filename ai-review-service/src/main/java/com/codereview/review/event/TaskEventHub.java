@@ -0,0 +1,229 @@
+package com.codereview.review.event;
+
+import com.alibaba.fastjson2.JSON;
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import com.codereview.review.dto.TaskStatusEventDTO;
+import com.codereview.review.entity.ReviewTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 审查任务状态推送中心
+ * 任务状态变化时发布到Redis频道，每个节点收到后推送给本节点上订阅了该任务的SSE连接，
+ * 客户端不再需要轮询任务详情接口
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class TaskEventHub implements MessageListener {
+
+    /**
+     * 状态变化事件名
+     */
+    public static final String EVENT_STATUS = "status";
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${ai.review.events.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * SSE连接超时时间，超时后客户端（EventSource）自动重连
+     */
+    @Value("${ai.review.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    /**
+     * 单个用户在本节点上的最大订阅连接数，超过时关闭最早的连接
+     */
+    @Value("${ai.review.events.max-subscriptions-per-user:5}")
+    private int maxSubscriptionsPerUser;
+
+    /**
+     * 用户ID到订阅连接的映射
+     */
+    private final Map<Long, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(RedisConstants.REVIEW_TASK_EVENT_CHANNEL));
+        metricsUtils.registerGauge("ai.task.events.subscriptions", subscriptionCount::get);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 发布任务状态变化，发布失败只记录日志，客户端可以通过查询任务详情兜底
+     */
+    public void publish(ReviewTask task) {
+        if (!enabled || task == null || task.getId() == null) {
+            return;
+        }
+        TaskStatusEventDTO event = toEvent(task);
+        try {
+            redisUtils.publish(RedisConstants.REVIEW_TASK_EVENT_CHANNEL, JSON.toJSONString(event));
+        } catch (Exception e) {
+            log.warn("发布任务状态事件失败: taskId={}, error={}", task.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 订阅当前用户的任务状态变化
+     * @param taskIds 订阅的任务ID，为空时订阅该用户的所有任务
+     */
+    public SseEmitter subscribe(Long userId, Set<Long> taskIds) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(emitter,
+                taskIds == null || taskIds.isEmpty() ? null : Collections.unmodifiableSet(taskIds));
+        List<Subscription> userSubscriptions = subscriptions.compute(userId, (k, list) -> {
+            List<Subscription> result = list != null ? list : new CopyOnWriteArrayList<>();
+            result.add(subscription);
+            return result;
+        });
+        subscriptionCount.incrementAndGet();
+
+        emitter.onCompletion(() -> remove(userId, subscription));
+        emitter.onTimeout(() -> remove(userId, subscription));
+        emitter.onError(e -> remove(userId, subscription));
+
+        while (userSubscriptions.size() > maxSubscriptionsPerUser) {
+            Subscription oldest = userSubscriptions.get(0);
+            remove(userId, oldest);
+            oldest.emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * 向单个连接发送事件，用于订阅后推送当前状态快照
+     */
+    public void send(SseEmitter emitter, ReviewTask task) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_STATUS).data(toEvent(task), MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            log.debug("任务状态事件发送失败，客户端可能已断开: taskId={}", task.getId());
+        }
+    }
+
+    /**
+     * 收到任务状态事件，推送给本节点上的订阅连接
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        TaskStatusEventDTO event;
+        try {
+            event = JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8), TaskStatusEventDTO.class);
+        } catch (Exception e) {
+            log.warn("无效的任务状态事件: {}", message);
+            return;
+        }
+        if (event == null || event.getUserId() == null) {
+            return;
+        }
+        List<Subscription> userSubscriptions = subscriptions.get(event.getUserId());
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            if (subscription.taskIds != null && !subscription.taskIds.contains(event.getTaskId())) {
+                continue;
+            }
+            try {
+                subscription.emitter.send(SseEmitter.event().name(EVENT_STATUS).data(event, MediaType.APPLICATION_JSON));
+                metricsUtils.incrementCounter("ai.task.events.sent");
+            } catch (Exception e) {
+                log.debug("任务状态事件推送失败，关闭连接: userId={}, taskId={}", event.getUserId(), event.getTaskId());
+                remove(event.getUserId(), subscription);
+                subscription.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * 定时发送心跳注释，防止网关和代理因空闲关闭连接，同时及时清理已断开的连接
+     */
+    @Scheduled(fixedDelayString = "${ai.review.events.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Map.Entry<Long, List<Subscription>> entry : subscriptions.entrySet()) {
+            for (Subscription subscription : entry.getValue()) {
+                try {
+                    subscription.emitter.send(SseEmitter.event().comment("ping"));
+                } catch (Exception e) {
+                    remove(entry.getKey(), subscription);
+                    subscription.emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private void remove(Long userId, Subscription subscription) {
+        subscriptions.computeIfPresent(userId, (k, list) -> {
+            if (list.remove(subscription)) {
+                subscriptionCount.decrementAndGet();
+            }
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private TaskStatusEventDTO toEvent(ReviewTask task) {
+        TaskStatusEventDTO event = new TaskStatusEventDTO();
+        event.setTaskId(task.getId());
+        event.setUserId(task.getUserId());
+        event.setStatus(task.getStatus());
+        event.setQualityScore(task.getQualityScore());
+        event.setSecurityScore(task.getSecurityScore());
+        event.setPerformanceScore(task.getPerformanceScore());
+        event.setIssueCount(task.getIssueCount());
+        event.setErrorMsg(task.getErrorMsg());
+        event.setTimestamp(System.currentTimeMillis());
+        return event;
+    }
+
+    /**
+     * 单个SSE订阅，taskIds 为 null 表示订阅用户的所有任务
+     */
+    private static class Subscription {
+
+        private final SseEmitter emitter;
+
+        private final Set<Long> taskIds;
+
+        Subscription(SseEmitter emitter, Set<Long> taskIds) {
+            this.emitter = emitter;
+            this.taskIds = taskIds;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.codereview.review.handler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 压缩文本类型处理器
+ * 用于BLOB列上的大文本字段，写入时按 {@link TextCompression} 的阈值压缩，读取时透明解压；
+ * 实例由 {@link com.codereview.review.config.MyBatisTypeHandlerConfig} 注入编解码器后注册到MyBatis
+ * @author CodeReview
+ */
+@MappedTypes(String.class)
+@MappedJdbcTypes(JdbcType.BLOB)
+public class CompressedTextTypeHandler extends BaseTypeHandler<String> {
+
+    private final TextCompression textCompression;
+
+    public CompressedTextTypeHandler(TextCompression textCompression) {
+        this.textCompression = textCompression;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        ps.setBytes(i, textCompression.encode(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decode(rs.getBytes(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decode(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decode(cs.getBytes(columnIndex));
+    }
+
+    private String decode(byte[] stored) {
+        return stored != null ? textCompression.decode(stored) : null;
+    }
+}
@@ -0,0 +1,166 @@
+package com.codereview.review.handler;
+
+import com.codereview.common.utils.MetricsUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 大文本压缩编解码
+ * 超过阈值的文本以 deflate 压缩存储，格式为 0x00 + 编码标识 + 4字节原始长度 + 压缩数据；
+ * 未压缩的文本按UTF-8原样存储，与从TEXT列迁移过来的旧数据格式一致，读取时按首字节区分
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class TextCompression {
+
+    /**
+     * 压缩数据的首字节，正常文本不会以NUL开头
+     */
+    static final byte MAGIC = 0x00;
+
+    /**
+     * deflate 编码标识
+     */
+    static final byte CODEC_DEFLATE = 0x01;
+
+    private static final int HEADER_LENGTH = 6;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.review.compression.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 文本UTF-8字节数达到该值才压缩，短文本压缩收益不足以抵消编解码开销
+     */
+    @Value("${ai.review.compression.threshold-bytes:1024}")
+    private int thresholdBytes = 1024;
+
+    @Value("${ai.review.compression.level:6}")
+    private int level = 6;
+
+    @PostConstruct
+    public void init() {
+        log.info("文本压缩已配置: enabled={}, thresholdBytes={}, level={}", enabled, thresholdBytes, level);
+    }
+
+    /**
+     * 编码文本，超过阈值且压缩后更小时返回压缩格式，否则返回UTF-8原文
+     */
+    public byte[] encode(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        // 以NUL开头的文本总是压缩，避免与压缩格式混淆
+        boolean leadingNul = raw.length > 0 && raw[0] == MAGIC;
+        if (!leadingNul && (!enabled || raw.length < thresholdBytes)) {
+            return raw;
+        }
+
+        long start = System.nanoTime();
+        byte[] encoded = deflate(raw);
+        record("encode", start);
+        if (!leadingNul && encoded.length >= raw.length) {
+            return raw;
+        }
+        if (metricsUtils != null) {
+            metricsUtils.recordSummary("db.text.compression.ratio", (double) raw.length / encoded.length);
+            metricsUtils.incrementCounter("db.text.compression.saved.bytes", raw.length - encoded.length);
+        }
+        return encoded;
+    }
+
+    /**
+     * 解码存储的字节，兼容压缩格式和UTF-8原文
+     */
+    public String decode(byte[] stored) {
+        if (!isCompressed(stored)) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        if (stored[1] != CODEC_DEFLATE) {
+            throw new IllegalStateException("未知的文本压缩编码: " + stored[1]);
+        }
+
+        long start = System.nanoTime();
+        int length = ((stored[2] & 0xFF) << 24) | ((stored[3] & 0xFF) << 16)
+                | ((stored[4] & 0xFF) << 8) | (stored[5] & 0xFF);
+        byte[] raw = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+            int offset = 0;
+            while (offset < length) {
+                int n = inflater.inflate(raw, offset, length - offset);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                offset += n;
+            }
+            if (offset != length) {
+                throw new IllegalStateException("压缩文本已损坏: 期望" + length + "字节, 实际" + offset + "字节");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("压缩文本已损坏: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        record("decode", start);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 判断存储的字节是否为压缩格式
+     */
+    public boolean isCompressed(byte[] stored) {
+        return stored != null && stored.length >= HEADER_LENGTH && stored[0] == MAGIC;
+    }
+
+    /**
+     * 判断文本写入时是否会被压缩
+     */
+    public boolean shouldCompress(String text) {
+        return enabled && text != null && text.length() * 3 >= thresholdBytes
+                && text.getBytes(StandardCharsets.UTF_8).length >= thresholdBytes;
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + HEADER_LENGTH + 16);
+            out.write(MAGIC);
+            out.write(CODEC_DEFLATE);
+            out.write(raw.length >>> 24);
+            out.write(raw.length >>> 16);
+            out.write(raw.length >>> 8);
+            out.write(raw.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void record(String operation, long startNanos) {
+        if (metricsUtils != null) {
+            metricsUtils.timer("db.text.compression.duration", "operation", operation)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.codereview.review.handler;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.ReviewTaskMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 存量审查任务文本压缩迁移
+ * 列类型改为BLOB后旧数据仍是UTF-8原文（可正常读取），开启后在后台按主键分批把超过阈值的旧数据改写为压缩格式；
+ * 只迁移已完成或失败的任务，进行中的任务结束写入结果时会按新格式存储
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class TextCompressionMigrator implements ApplicationRunner {
+
+    @Resource
+    private ReviewTaskMapper reviewTaskMapper;
+
+    @Resource
+    private TextCompression textCompression;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.review.compression.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${ai.review.compression.migrate-batch-size:200}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!migrateOnStartup) {
+            return;
+        }
+        Thread worker = new Thread(this::migrate, "text-compression-migrator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 按主键顺序迁移所有已结束且未压缩的任务
+     * @return 改写的任务数
+     */
+    public int migrate() {
+        long lastId = 0;
+        int migrated = 0;
+        log.info("开始迁移审查任务文本压缩");
+        try {
+            while (true) {
+                // 首字节不是0x00的即为未压缩的原文
+                List<ReviewTask> tasks = reviewTaskMapper.selectList(new LambdaQueryWrapper<ReviewTask>()
+                        .select(ReviewTask::getId, ReviewTask::getCodeContent, ReviewTask::getReviewResult,
+                                ReviewTask::getUpdateTime)
+                        .gt(ReviewTask::getId, lastId)
+                        .in(ReviewTask::getStatus, 2, 3)
+                        .apply("(ASCII(code_content) <> 0 OR ASCII(review_result) <> 0)")
+                        .orderByAsc(ReviewTask::getId)
+                        .last("LIMIT " + batchSize));
+                if (tasks.isEmpty()) {
+                    break;
+                }
+                for (ReviewTask task : tasks) {
+                    lastId = task.getId();
+                    if (!textCompression.shouldCompress(task.getCodeContent())
+                            && !textCompression.shouldCompress(task.getReviewResult())) {
+                        continue;
+                    }
+                    // 代码内容提交后不随 updateById 写回，这里单独改写两列且保留原更新时间；
+                    // 读取后任务被重新审查或删除时条件不成立，跳过该任务
+                    int rows = reviewTaskMapper.updateStoredText(task.getId(), task.getCodeContent(),
+                            task.getReviewResult(), task.getUpdateTime());
+                    if (rows == 0) {
+                        metricsUtils.incrementCounter("db.text.compression.migrate.skipped");
+                        continue;
+                    }
+                    metricsUtils.incrementCounter("db.text.compression.migrated");
+                    migrated++;
+                }
+            }
+            log.info("审查任务文本压缩迁移完成: migrated={}, lastId={}", migrated, lastId);
+        } catch (Exception e) {
+            log.error("审查任务文本压缩迁移中断: lastId={}, error={}", lastId, e.getMessage(), e);
+        }
+        return migrated;
+    }
+}
@@ -0,0 +1,208 @@
+package com.codereview.review.limiter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 自适应并发限制器（AIMD）
+ * 延迟平稳时每完成约一个并发窗口的请求将上限加1；
+ * 出现限流、超时或延迟突增（超过基线延迟的若干倍）时按比例降低上限。
+ * 超过上限的调用方在有界队列中等待，等待超时或队列已满时拒绝
+ * @author CodeReview
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 基线延迟的EWMA平滑系数
+     */
+    private static final double BASELINE_ALPHA = 0.05;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final int maxQueueSize;
+
+    private final long acquireTimeoutMs;
+
+    private final double backoffRatio;
+
+    private final double latencyTolerance;
+
+    private final ScheduledExecutorService timer;
+
+    /**
+     * 拒绝回调，参数为拒绝原因（queue_full / timeout）
+     */
+    private final Consumer<String> rejectionListener;
+
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+
+    private double limit;
+
+    private int inflight;
+
+    private double baselineLatencyNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueSize,
+                                      long acquireTimeoutMs, double backoffRatio, double latencyTolerance,
+                                      ScheduledExecutorService timer, Consumer<String> rejectionListener) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxQueueSize = maxQueueSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.timer = timer;
+        this.rejectionListener = rejectionListener;
+    }
+
+    /**
+     * 获取执行许可
+     * @return 获得许可后完成的Future；排队超时或队列已满时以 {@link ConcurrencyLimitExceededException} 异常完成
+     */
+    public CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        boolean granted = false;
+        boolean rejected = false;
+        synchronized (this) {
+            if (inflight < (int) limit) {
+                inflight++;
+                granted = true;
+            } else if (waiters.size() >= maxQueueSize) {
+                rejected = true;
+            } else {
+                waiters.addLast(future);
+            }
+        }
+
+        if (granted) {
+            future.complete(new Permit());
+        } else if (rejected) {
+            reject(future, "queue_full");
+        } else {
+            timer.schedule(() -> {
+                if (removeWaiter(future)) {
+                    reject(future, "timeout");
+                }
+            }, acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    private synchronized boolean removeWaiter(CompletableFuture<Permit> future) {
+        return waiters.remove(future);
+    }
+
+    private void reject(CompletableFuture<Permit> future, String reason) {
+        rejectionListener.accept(reason);
+        future.completeExceptionally(new ConcurrencyLimitExceededException(
+                "AI接口并发已达上限，请稍后重试（" + reason + "）"));
+    }
+
+    /**
+     * 请求成功：延迟未突增且并发接近上限时加性增加上限
+     */
+    private synchronized void onSample(long latencyNanos) {
+        if (baselineLatencyNanos <= 0) {
+            baselineLatencyNanos = latencyNanos;
+        }
+        boolean spike = latencyNanos > baselineLatencyNanos * latencyTolerance;
+        baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * BASELINE_ALPHA;
+        if (spike) {
+            decrease();
+        } else if (inflight * 2 >= limit) {
+            // 并发远低于上限时说明流量不足，不继续放大上限
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * 请求过载失败：乘性降低上限
+     */
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    /**
+     * 归还许可，并按当前上限唤醒排队的调用方
+     */
+    private void release() {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        synchronized (this) {
+            inflight--;
+            while (inflight < (int) limit && !waiters.isEmpty()) {
+                CompletableFuture<Permit> waiter = waiters.pollFirst();
+                if (!waiter.isDone()) {
+                    inflight++;
+                    granted.add(waiter);
+                }
+            }
+        }
+        for (CompletableFuture<Permit> waiter : granted) {
+            Permit permit = new Permit();
+            // 调用方已取消等待，许可立即归还
+            if (!waiter.complete(permit)) {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * 执行许可，每个许可只能归还一次
+     */
+    public class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * 请求成功完成
+         * @param latencyNanos 请求耗时（纳秒）
+         */
+        public void onSuccess(long latencyNanos) {
+            if (released.compareAndSet(false, true)) {
+                onSample(latencyNanos);
+                AdaptiveConcurrencyLimiter.this.release();
+            }
+        }
+
+        /**
+         * 请求因过载失败（限流、超时）
+         */
+        public void onDropped() {
+            if (released.compareAndSet(false, true)) {
+                decrease();
+                AdaptiveConcurrencyLimiter.this.release();
+            }
+        }
+
+        /**
+         * 归还许可，不影响上限（与负载无关的失败或取消）
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.codereview.review.limiter;
+
+import com.codereview.common.exception.BusinessException;
+
+/**
+ * 并发限制拒绝异常
+ * AI接口并发已达上限且排队超时或队列已满
+ * @author CodeReview
+ */
+public class ConcurrencyLimitExceededException extends BusinessException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(429, message);
+    }
+}
@@ -0,0 +1,202 @@
+package com.codereview.review.limiter;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.strategy.AIClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * AI接口并发限制器注册表
+ * 按 提供方 + 模型 维护自适应并发限制器，并暴露当前上限、并发数、排队数和拒绝次数指标
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimiterRegistry {
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.limiter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.limiter.initial-limit:16}")
+    private int initialLimit;
+
+    @Value("${ai.limiter.min-limit:2}")
+    private int minLimit;
+
+    @Value("${ai.limiter.max-limit:256}")
+    private int maxLimit;
+
+    /**
+     * 排队等待的最大调用数
+     */
+    @Value("${ai.limiter.max-queue-size:1000}")
+    private int maxQueueSize;
+
+    /**
+     * 排队等待许可的最长时间（毫秒）
+     */
+    @Value("${ai.limiter.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    /**
+     * 过载时上限的缩减比例
+     */
+    @Value("${ai.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    /**
+     * 延迟超过基线延迟的倍数时视为延迟突增
+     */
+    @Value("${ai.limiter.latency-tolerance:3.0}")
+    private double latencyTolerance;
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ai-limiter-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 获取指定提供方和模型的限制器
+     */
+    public AdaptiveConcurrencyLimiter get(String provider, String model) {
+        return limiters.computeIfAbsent(provider + ":" + model, key -> {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                    maxQueueSize, acquireTimeoutMs, backoffRatio, latencyTolerance, timer,
+                    reason -> metricsUtils.incrementCounter("ai.limiter.rejected",
+                            "provider", provider, "model", model, "reason", reason));
+            metricsUtils.registerGauge("ai.limiter.limit", () -> limiter.getLimit(), "provider", provider, "model", model);
+            metricsUtils.registerGauge("ai.limiter.inflight", () -> limiter.getInflight(), "provider", provider, "model", model);
+            metricsUtils.registerGauge("ai.limiter.queued", () -> limiter.getQueued(), "provider", provider, "model", model);
+            log.info("创建AI接口并发限制器: provider={}, model={}, initialLimit={}", provider, model, initialLimit);
+            return limiter;
+        });
+    }
+
+    /**
+     * 在并发限制下执行异步调用，并根据调用结果调整上限
+     * 返回的Future被取消时，排队中的等待或进行中的调用一并取消；
+     * 启用限制时返回 {@link LimitedCallFuture}，记录获得许可的时间
+     */
+    public <T> CompletableFuture<T> execute(String provider, String model, Supplier<CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        LimitedCallFuture<T> result = new LimitedCallFuture<>();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> permitFuture = get(provider, model).acquire();
+        permitFuture.whenComplete((permit, acquireError) -> {
+            if (acquireError != null) {
+                result.completeExceptionally(unwrap(acquireError));
+                return;
+            }
+            if (result.isDone()) {
+                permit.release();
+                return;
+            }
+
+            long start = System.nanoTime();
+            result.markPermitGranted(start);
+            CompletableFuture<T> inner;
+            try {
+                inner = call.get();
+            } catch (Exception e) {
+                permit.release();
+                result.completeExceptionally(e);
+                return;
+            }
+            inner.whenComplete((value, error) -> {
+                if (error == null) {
+                    permit.onSuccess(System.nanoTime() - start);
+                    result.complete(value);
+                } else {
+                    if (!result.isCancelled() && isOverload(unwrap(error))) {
+                        permit.onDropped();
+                    } else {
+                        permit.release();
+                    }
+                    result.completeExceptionally(unwrap(error));
+                }
+            });
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    inner.cancel(true);
+                }
+            });
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                permitFuture.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 在并发限制下执行同步调用（流式调用等），只占用许可不参与上限调整
+     */
+    public <T> T executeBlocking(String provider, String model, Callable<T> call) throws Exception {
+        if (!enabled) {
+            return call.call();
+        }
+        AdaptiveConcurrencyLimiter.Permit permit;
+        try {
+            permit = get(provider, model).acquire().join();
+        } catch (CompletionException e) {
+            throw (Exception) unwrap(e);
+        }
+        try {
+            return call.call();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * 是否为AI接口过载导致的失败
+     */
+    private boolean isOverload(Throwable error) {
+        if (error instanceof AIClientException) {
+            return ((AIClientException) error).isOverload();
+        }
+        return error instanceof InterruptedIOException;
+    }
+
+    private Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
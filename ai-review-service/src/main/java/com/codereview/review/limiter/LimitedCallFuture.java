@@ -0,0 +1,28 @@
+package com.codereview.review.limiter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 受并发限制的调用结果
+ * 记录获得许可、实际发出调用的时间，使调用方统计的延迟不包含在限制器中排队的时间
+ * @author CodeReview
+ */
+public class LimitedCallFuture<T> extends CompletableFuture<T> {
+
+    /**
+     * 获得许可的时间（System.nanoTime），0表示尚未获得许可
+     */
+    private volatile long permitGrantedNanos;
+
+    void markPermitGranted(long nanos) {
+        this.permitGrantedNanos = nanos;
+    }
+
+    /**
+     * 获取获得许可的时间
+     * @return System.nanoTime 时间戳，尚未获得许可（排队中或被拒绝）时为0
+     */
+    public long getPermitGrantedNanos() {
+        return permitGrantedNanos;
+    }
+}
@@ -0,0 +1,103 @@
+package com.codereview.review.listener;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.dispatch.ReviewTaskPublisher;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.ReviewTaskMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 过期租约任务重新投递
+ * 执行节点在审查进行中持续续期租约（{@link com.codereview.review.dispatch.ReviewLeaseKeeper}），租约过期说明执行节点已宕机；
+ * 宕机后消息会重新投递，但在租约过期前其他节点领取不到任务、只能确认消息，
+ * 这里定时把租约已过期的审查中任务退回待审查，并按记录的代码token数重新发送到对应通道，由任意节点重新领取。
+ * 重复投递仍处理失败的消息会被丢弃，任务停留在待审查状态，长时间未被领取的待审查任务同样重新投递
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewLeaseReaper {
+
+    @Resource
+    private ReviewTaskMapper reviewTaskMapper;
+
+    @Resource
+    private ReviewTaskPublisher reviewTaskPublisher;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.review.consumer.lease-reaper-enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.review.consumer.lease-reaper-batch-size:100}")
+    private int batchSize;
+
+    @Value("${ai.review.consumer.pending-republish-seconds:900}")
+    private long pendingRepublishSeconds;
+
+    @Scheduled(initialDelayString = "${ai.review.consumer.lease-reaper-interval-ms:60000}",
+            fixedDelayString = "${ai.review.consumer.lease-reaper-interval-ms:60000}")
+    public void requeueExpired() {
+        if (!enabled) {
+            return;
+        }
+        List<ReviewTask> expired;
+        try {
+            expired = reviewTaskMapper.selectExpiredLeases(LocalDateTime.now(), batchSize);
+        } catch (Exception e) {
+            log.warn("查询租约过期任务失败: {}", e.getMessage());
+            return;
+        }
+        int requeued = 0;
+        for (ReviewTask task : expired) {
+            // 以读取到的租约为条件退回待审查，只有退回成功的节点投递，其余节点跳过
+            if (reviewTaskMapper.releaseReview(task.getId(), task.getLeaseUntil()) == 0) {
+                continue;
+            }
+            reviewTaskPublisher.republish(task);
+            requeued++;
+        }
+        if (requeued > 0) {
+            log.info("租约过期任务已重新投递: count={}", requeued);
+            metricsUtils.incrementCounter("ai.review.lease.requeued", requeued);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ai.review.consumer.lease-reaper-interval-ms:60000}",
+            fixedDelayString = "${ai.review.consumer.lease-reaper-interval-ms:60000}")
+    public void republishStalePending() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<ReviewTask> stale;
+        try {
+            stale = reviewTaskMapper.selectStalePending(now.minusSeconds(pendingRepublishSeconds), batchSize);
+        } catch (Exception e) {
+            log.warn("查询超时未领取任务失败: {}", e.getMessage());
+            return;
+        }
+        int republished = 0;
+        for (ReviewTask task : stale) {
+            // 先刷新更新时间，只有刷新成功的节点投递，下一次投递在再等待一个周期之后
+            if (reviewTaskMapper.touchPending(task.getId(), task.getUpdateTime(), now) == 0) {
+                continue;
+            }
+            reviewTaskPublisher.republish(task);
+            republished++;
+        }
+        if (republished > 0) {
+            log.info("超时未领取任务已重新投递: count={}", republished);
+            metricsUtils.incrementCounter("ai.review.pending.republished", republished);
+        }
+    }
+
+}
@@ -1,20 +1,44 @@
 package com.codereview.review.listener;
 
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONObject;
-import com.codereview.review.dto.CodeReviewRequestDTO;
-import com.codereview.review.entity.ReviewTask;
-import com.codereview.review.mapper.ReviewTaskMapper;
+import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.config.RabbitMQConfig;
+import com.codereview.review.dispatch.FairShareJob;
+import com.codereview.review.dispatch.FairShareScheduler;
+import com.codereview.review.dispatch.ReviewLane;
+import com.codereview.review.dispatch.ReviewLeaseKeeper;
+import com.codereview.review.dispatch.ReviewTaskMessage;
+import com.codereview.review.dispatch.ReviewTaskMessageCodec;
+import com.codereview.review.limiter.ConcurrencyLimitExceededException;
 import com.codereview.review.service.ReviewService;
+import com.rabbitmq.client.Channel;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.Queue;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 代码审查消息监听器
+ * 消息在任务到达终态（完成、失败或已被其他节点接管）后才确认，节点在审查过程中宕机时消息会重新投递；
+ * 分发线程池已满、AI并发受限和暂时性故障时消息延迟后再处理或退回队列，避免立即重新投递造成空转；
+ * 交互式、批量、超大三个通道分别监听，各自的消费者数和预取数决定通道占用的处理能力
  * @author CodeReview
  */
 @Slf4j
@@ -25,33 +49,286 @@ public class ReviewTaskListener {
     private ReviewService reviewService;
 
     @Resource
-    private ReviewTaskMapper reviewTaskMapper;
+    private RabbitMQConfig rabbitMQConfig;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Resource
+    private FairShareScheduler fairShareScheduler;
+
+    @Resource
+    private ReviewLeaseKeeper reviewLeaseKeeper;
+
+    @Resource(name = "reviewDispatchExecutor")
+    private Executor reviewDispatchExecutor;
+
+    /**
+     * 有待审查任务的用户都已达到进行中上限时，调度令牌等待该时间后重新取任务
+     */
+    @Value("${ai.review.fair-share.retry-delay-ms:500}")
+    private long fairShareRetryDelayMs;
+
+    /**
+     * 分发线程池已满时重新提交、AI并发受限或暂时性故障时退回消息之前的等待时间
+     */
+    @Value("${ai.review.consumer.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    private ScheduledExecutorService retryTimer;
+
+    /**
+     * 本节点已收到但尚未确认的消息数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "review-dispatch-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsUtils.registerGauge("ai.review.consumer.inflight", inFlight);
+        metricsUtils.registerGauge("ai.review.consumer.utilization",
+                () -> (double) inFlight.get() / Math.max(1, rabbitMQConfig.getConsumerCapacity()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        retryTimer.shutdownNow();
+    }
+
+    /**
+     * 监听交互式审查队列
+     */
+    @RabbitListener(queuesToDeclare = @Queue(name = RabbitMQConfig.REVIEW_QUEUE, durable = "true"),
+            containerFactory = RabbitMQConfig.REVIEW_LISTENER_FACTORY)
+    public void handleReviewTask(Message message, Channel channel,
+                                 @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                 @Header(AmqpHeaders.REDELIVERED) boolean redelivered) {
+        receive(ReviewLane.INTERACTIVE, message.getBody(), channel, deliveryTag, redelivered);
+    }
+
+    /**
+     * 监听批量审查队列
+     */
+    @RabbitListener(queuesToDeclare = @Queue(name = RabbitMQConfig.REVIEW_BATCH_QUEUE, durable = "true"),
+            containerFactory = RabbitMQConfig.REVIEW_BATCH_LISTENER_FACTORY)
+    public void handleBatchReviewTask(Message message, Channel channel,
+                                      @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                      @Header(AmqpHeaders.REDELIVERED) boolean redelivered) {
+        receive(ReviewLane.BATCH, message.getBody(), channel, deliveryTag, redelivered);
+    }
+
+    /**
+     * 监听超大代码审查队列
+     */
+    @RabbitListener(queuesToDeclare = @Queue(name = RabbitMQConfig.REVIEW_OVERSIZED_QUEUE, durable = "true"),
+            containerFactory = RabbitMQConfig.REVIEW_OVERSIZED_LISTENER_FACTORY)
+    public void handleOversizedReviewTask(Message message, Channel channel,
+                                          @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                          @Header(AmqpHeaders.REDELIVERED) boolean redelivered) {
+        receive(ReviewLane.OVERSIZED, message.getBody(), channel, deliveryTag, redelivered);
+    }
 
     /**
-     * 监听代码审查队列
+     * 消费线程只负责把消息交给分发线程池
      */
-    @RabbitListener(queuesToDeclare = @Queue(name = "code.review.queue", durable = "true"))
-    public void handleReviewTask(String message) {
+    private void receive(ReviewLane lane, byte[] body, Channel channel, long deliveryTag, boolean redelivered) {
+        Delivery delivery = new Delivery(lane, channel, deliveryTag);
+        inFlight.incrementAndGet();
+        submitDispatch(body, delivery, redelivered);
+    }
+
+    private void submitDispatch(byte[] body, Delivery delivery, boolean redelivered) {
         try {
-            log.info("收到代码审查任务: {}", message);
+            reviewDispatchExecutor.execute(() -> dispatch(body, delivery, redelivered));
+        } catch (RejectedExecutionException e) {
+            // 消息保持未确认，稍后重新提交，不退回队列避免立即重新投递造成空转
+            log.warn("审查分发线程池已满，稍后重新提交: lane={}", delivery.lane.getName());
+            metricsUtils.incrementCounter("ai.review.consumer.deferred", "lane", delivery.lane.getName());
+            schedule(() -> submitDispatch(body, delivery, redelivered), delivery, "rejected");
+        }
+    }
 
-            JSONObject jsonMessage = JSON.parseObject(message);
-            Long taskId = jsonMessage.getLong("taskId");
+    private void dispatch(byte[] body, Delivery delivery, boolean redelivered) {
+        ReviewTaskMessage message;
+        try {
+            message = ReviewTaskMessageCodec.decode(body);
+        } catch (Exception e) {
+            log.error("无法解析的审查消息，丢弃: lane={}, bytes={}", delivery.lane.getName(), body != null ? body.length : 0, e);
+            settle(delivery, "invalid", false);
+            return;
+        }
 
-            // 获取任务详情
-            ReviewTask task = reviewTaskMapper.selectById(taskId);
-            if (task == null) {
-                log.error("任务不存在: taskId={}", taskId);
+        // 公平调度令牌：按赤字轮转从用户虚拟队列取出实际任务
+        if (message.isToken()) {
+            FairShareJob job;
+            try {
+                job = fairShareScheduler.poll(delivery.lane);
+                if (job == null && fairShareScheduler.hasPending(delivery.lane)) {
+                    // 令牌保持未确认，稍后重试，不退回队列避免空转
+                    schedule(() -> submitDispatch(body, delivery, redelivered), fairShareRetryDelayMs, delivery, "error");
+                    return;
+                }
+                if (job != null) {
+                    delivery.job = job;
+                    message = job.getMessage();
+                }
+            } catch (Exception e) {
+                log.error("公平调度取任务失败，令牌稍后退回队列: lane={}", delivery.lane.getName(), e);
+                requeueLater(delivery, "error");
+                return;
+            }
+            if (job == null) {
+                // 令牌多于任务（宕机退回后补发的令牌），直接确认
+                settle(delivery, "idle", null);
                 return;
             }
+        }
 
-            // 直接执行已存在任务的审查，不再创建新任务
-            reviewService.executeAsyncReview(taskId);
+        List<Long> taskIds = message.getTaskIds();
+        log.info("收到代码审查任务: lane={}, taskIds={}, selfContained={}", delivery.lane.getName(), taskIds,
+                message.isSelfContained());
 
-            log.info("代码审查任务处理完成: taskId={}", taskId);
+        CompletableFuture<Void> future;
+        try {
+            future = startReview(message);
+        } catch (BusinessException e) {
+            log.error("审查任务不存在，确认消息: taskIds={}", taskIds);
+            settle(delivery, "missing", null);
+            return;
+        } catch (Exception e) {
+            // 数据库等暂时性故障：首次投递延迟后退回队列重试，重复投递仍失败则丢弃消息，
+            // 任务保持待审查，由 ReviewLeaseReaper 超时后重新投递；公平调度的任务总是退回
+            log.error("处理代码审查任务失败: taskIds={}", taskIds, e);
+            if (!redelivered || delivery.job != null) {
+                requeueLater(delivery, "error");
+            } else {
+                settle(delivery, "error", false);
+            }
+            return;
+        }
+
+        FairShareJob job = delivery.job;
+        if (job != null) {
+            // 与任务租约同步续期，审查耗时超过遗留判定时间也不会被退回
+            reviewLeaseKeeper.keepAlive(future, () -> fairShareScheduler.touch(job));
+        }
+
+        future.whenComplete((result, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof ConcurrencyLimitExceededException) {
+                // 任务已退回待审查，消息延迟后退回队列，重新投递时再次领取
+                log.warn("AI并发受限，审查消息稍后退回队列: taskIds={}", taskIds);
+                requeueLater(delivery, "throttled");
+                return;
+            }
+            // 审查失败已写入任务状态，消息不再重试
+            if (error != null) {
+                log.error("代码审查任务处理失败: taskIds={}", taskIds, error);
+            } else {
+                log.info("代码审查任务处理完成: taskIds={}", taskIds);
+            }
+            settle(delivery, error != null ? "failed" : "completed", null);
+        });
+    }
+
+    private CompletableFuture<Void> startReview(ReviewTaskMessage message) {
+        // 消息携带了代码内容或内容哈希，不查询数据库直接发起审查
+        if (message.isSelfContained()) {
+            return reviewService.executeQueuedReview(message.toTasks());
+        }
+
+        // 升级前的旧消息或未内联的超大代码：按任务ID从数据库加载，打包消息只调用一次AI
+        List<Long> taskIds = message.getTaskIds();
+        if (taskIds.isEmpty()) {
+            throw new BusinessException("审查消息不包含任务");
+        }
+        if (taskIds.size() > 1) {
+            return reviewService.executeAsyncBatchReview(taskIds);
+        }
+        return reviewService.executeAsyncReview(taskIds.get(0));
+    }
+
+    /**
+     * 延迟后退回消息，等待期间消息保持未确认，占用预取额度，消费速度随之下降
+     */
+    private void requeueLater(Delivery delivery, String result) {
+        schedule(() -> settle(delivery, result, true), delivery, result);
+    }
+
+    private void schedule(Runnable action, Delivery delivery, String result) {
+        schedule(action, retryDelayMs, delivery, result);
+    }
 
+    private void schedule(Runnable action, long delayMs, Delivery delivery, String result) {
+        try {
+            retryTimer.schedule(action, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 节点关闭中，立即退回队列
+            settle(delivery, result, true);
+        }
+    }
+
+    /**
+     * 确认或拒绝消息
+     * @param requeue null-确认，true-退回队列，false-拒绝并丢弃
+     */
+    private void settle(Delivery delivery, String result, Boolean requeue) {
+        inFlight.decrementAndGet();
+        FairShareJob job = delivery.job;
+        if (job != null) {
+            try {
+                if (Boolean.TRUE.equals(requeue)) {
+                    fairShareScheduler.requeue(job);
+                } else {
+                    fairShareScheduler.complete(job);
+                }
+            } catch (Exception e) {
+                // 未释放的任务由公平调度的遗留任务退回兜底
+                log.warn("公平调度任务释放失败: job={}, error={}", job.getRaw(), e.getMessage());
+            }
+        }
+        try {
+            if (requeue == null) {
+                delivery.channel.basicAck(delivery.deliveryTag, false);
+            } else {
+                delivery.channel.basicNack(delivery.deliveryTag, false, requeue);
+            }
         } catch (Exception e) {
-            log.error("处理代码审查任务失败", e);
+            // 通道已关闭时消息会由代理重新投递，任务的条件状态流转保证不会重复审查
+            log.warn("审查消息确认失败: deliveryTag={}, error={}", delivery.deliveryTag, e.getMessage());
+        }
+        String lane = delivery.lane.getName();
+        metricsUtils.incrementCounter("ai.review.consumer.messages", "lane", lane, "result", result);
+        metricsUtils.timer("ai.review.consumer.duration", "lane", lane, "result", result)
+                .record(System.nanoTime() - delivery.receivedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 一次消息投递，确认时使用
+     */
+    private static class Delivery {
+
+        private final ReviewLane lane;
+
+        private final Channel channel;
+
+        private final long deliveryTag;
+
+        private final long receivedAt = System.nanoTime();
+
+        /**
+         * 调度令牌取出的公平调度任务
+         */
+        private volatile FairShareJob job;
+
+        Delivery(ReviewLane lane, Channel channel, long deliveryTag) {
+            this.lane = lane;
+            this.channel = channel;
+            this.deliveryTag = deliveryTag;
         }
     }
 }
@@ -0,0 +1,79 @@
+package com.codereview.review.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.codereview.review.entity.CodeBlob;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 代码内容块Mapper
+ * @author CodeReview
+ */
+@Mapper
+public interface CodeBlobMapper extends BaseMapper<CodeBlob> {
+
+    /**
+     * 增加引用，内容块不存在时创建
+     */
+    @Insert("INSERT INTO code_blob (hash, size, ref_count, deleting) VALUES (#{hash}, #{size}, 1, 0) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, size = VALUES(size)")
+    int acquire(@Param("hash") String hash, @Param("size") long size);
+
+    /**
+     * 释放引用
+     */
+    @Update("UPDATE code_blob SET ref_count = ref_count - 1 WHERE hash = #{hash} AND ref_count > 0")
+    int release(@Param("hash") String hash);
+
+    /**
+     * 查询清理标记，记录不存在时返回 null
+     */
+    @Select("SELECT deleting FROM code_blob WHERE hash = #{hash}")
+    Integer selectDeleting(@Param("hash") String hash);
+
+    /**
+     * 查询在指定时间之前就已无引用且未在清理中的内容块
+     */
+    @Select("SELECT hash FROM code_blob WHERE ref_count <= 0 AND deleting = 0 AND update_time < #{before} LIMIT #{limit}")
+    List<String> selectUnreferenced(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 查询在指定时间之前就已标记清理、但清理节点未完成的内容块
+     */
+    @Select("SELECT hash FROM code_blob WHERE deleting = 1 AND update_time < #{before} LIMIT #{limit}")
+    List<String> selectStaleDeleting(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 标记无引用的内容块为清理中，期间被重新引用的不会标记
+     * @return 1-标记成功，由当前节点删除文件
+     */
+    @Update("UPDATE code_blob SET deleting = 1 " +
+            "WHERE hash = #{hash} AND deleting = 0 AND ref_count <= 0 AND update_time < #{before}")
+    int markDeleting(@Param("hash") String hash, @Param("before") LocalDateTime before);
+
+    /**
+     * 为表中没有记录的孤儿文件插入清理中的记录，已有记录（刚被引用）时不插入
+     * @return 1-插入成功，由当前节点删除文件
+     */
+    @Insert("INSERT IGNORE INTO code_blob (hash, size, ref_count, deleting) VALUES (#{hash}, 0, 0, 1)")
+    int insertDeleting(@Param("hash") String hash);
+
+    /**
+     * 文件删除后删除清理中的记录，标记后又被引用的不会删除
+     */
+    @Delete("DELETE FROM code_blob WHERE hash = #{hash} AND deleting = 1 AND ref_count <= 0")
+    int deleteMarked(@Param("hash") String hash);
+
+    /**
+     * 清除清理标记，通知等待中的写入方文件删除已结束
+     */
+    @Update("UPDATE code_blob SET deleting = 0 WHERE hash = #{hash} AND deleting = 1")
+    int clearDeleting(@Param("hash") String hash);
+}
@@ -0,0 +1,44 @@
+package com.codereview.review.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.codereview.review.dto.IssueStatDTO;
+import com.codereview.review.entity.ReviewIssue;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 审查问题Mapper
+ * @author CodeReview
+ */
+@Mapper
+public interface ReviewIssueMapper extends BaseMapper<ReviewIssue> {
+
+    /**
+     * 批量插入问题，一条INSERT写入多行
+     */
+    @Insert("<script>" +
+            "INSERT INTO review_issue (task_id, user_id, type, severity, description, suggestion, location, source) VALUES " +
+            "<foreach collection='issues' item='i' separator=','>" +
+            "(#{i.taskId}, #{i.userId}, #{i.type}, #{i.severity}, #{i.description}, #{i.suggestion}, #{i.location}, #{i.source})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("issues") List<ReviewIssue> issues);
+
+    /**
+     * 按严重程度或类型分组统计问题数
+     * @param groupBy 分组字段（severity/type），其他值按严重程度分组
+     */
+    @Select("<script>" +
+            "SELECT <choose><when test=\"groupBy == 'type'\">type</when><otherwise>severity</otherwise></choose> AS name, " +
+            "COUNT(*) AS count FROM review_issue WHERE user_id = #{userId}" +
+            "<if test='taskId != null'> AND task_id = #{taskId}</if>" +
+            "<if test='severity != null'> AND severity = #{severity}</if>" +
+            " GROUP BY name ORDER BY count DESC" +
+            "</script>")
+    List<IssueStatDTO> selectStats(@Param("userId") Long userId, @Param("taskId") Long taskId,
+                                   @Param("severity") String severity, @Param("groupBy") String groupBy);
+}
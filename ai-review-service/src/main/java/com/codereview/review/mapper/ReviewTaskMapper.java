@@ -2,12 +2,126 @@ package com.codereview.review.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.codereview.review.entity.ReviewTask;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 代码审查任务Mapper
+ * 审查状态流转使用按列更新的条件语句（比较并交换），只写状态、租约和结果相关的列，
+ * 并发的多个消费者中只有一个能领取同一任务
  * @author CodeReview
  */
 @Mapper
 public interface ReviewTaskMapper extends BaseMapper<ReviewTask> {
+
+    /**
+     * 批量插入待审查任务，一条INSERT写入多行，自增ID按顺序回填到各任务
+     */
+    @Insert("<script>" +
+            "INSERT INTO review_task (user_id, title, code_content, code_hash, code_tokens, language, ai_model, status, create_time, update_time) VALUES " +
+            "<foreach collection='tasks' item='t' separator=','>" +
+            "(#{t.userId}, #{t.title}, " +
+            "#{t.codeContent, jdbcType=BLOB, typeHandler=com.codereview.review.handler.CompressedTextTypeHandler}, " +
+            "#{t.codeHash}, #{t.codeTokens}, #{t.language}, #{t.aiModel}, #{t.status}, #{t.createTime}, #{t.updateTime})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "tasks.id", keyColumn = "id")
+    int insertBatch(@Param("tasks") List<ReviewTask> tasks);
+
+    /**
+     * 改写代码内容和审查结果的存储格式，不改变更新时间
+     * 仅改写已结束的任务，且要求读取后未被修改（更新时间不变），避免覆盖并发写入的审查结果
+     * @param readUpdateTime 读取时的更新时间
+     * @return 1-改写成功，0-任务已被修改或未结束
+     */
+    @Update("UPDATE review_task SET " +
+            "code_content = #{codeContent, jdbcType=BLOB, typeHandler=com.codereview.review.handler.CompressedTextTypeHandler}, " +
+            "review_result = #{reviewResult, jdbcType=BLOB, typeHandler=com.codereview.review.handler.CompressedTextTypeHandler}, " +
+            "update_time = update_time " +
+            "WHERE id = #{id} AND deleted = 0 AND status IN (2, 3) AND update_time = #{readUpdateTime}")
+    int updateStoredText(@Param("id") Long id, @Param("codeContent") String codeContent,
+                         @Param("reviewResult") String reviewResult,
+                         @Param("readUpdateTime") LocalDateTime readUpdateTime);
+
+    /**
+     * 领取任务：待审查、或审查中但租约已过期（执行节点宕机）的任务置为审查中
+     * @param leaseUntil 租约到期时间，同时作为后续状态流转的凭证
+     * @return 1-领取成功，0-任务已被其他节点领取或已结束
+     */
+    @Update("UPDATE review_task SET status = 1, code_tokens = #{codeTokens}, lease_until = #{leaseUntil}, error_msg = NULL " +
+            "WHERE id = #{id} AND deleted = 0 AND (status = 0 OR (status = 1 AND lease_until < #{now}))")
+    int claimReview(@Param("id") Long id, @Param("codeTokens") Integer codeTokens,
+                    @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * 续期租约：仅持有当前租约的节点可以续期
+     * @return 1-续期成功，0-租约已被其他节点接管或任务已结束
+     */
+    @Update("UPDATE review_task SET lease_until = #{newLeaseUntil} " +
+            "WHERE id = #{id} AND status = 1 AND lease_until = #{leaseUntil}")
+    int renewLease(@Param("id") Long id, @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("newLeaseUntil") LocalDateTime newLeaseUntil);
+
+    /**
+     * 审查完成：仅持有当前租约的节点可以写入结果
+     * @return 1-写入成功，0-租约已被其他节点接管
+     */
+    @Update("UPDATE review_task SET status = 2, " +
+            "review_result = #{reviewResult, jdbcType=BLOB, typeHandler=com.codereview.review.handler.CompressedTextTypeHandler}, " +
+            "quality_score = #{qualityScore}, security_score = #{securityScore}, performance_score = #{performanceScore}, " +
+            "issue_count = #{issueCount}, lease_until = NULL " +
+            "WHERE id = #{id} AND status = 1 AND lease_until = #{leaseUntil}")
+    int completeReview(@Param("id") Long id, @Param("leaseUntil") LocalDateTime leaseUntil,
+                       @Param("reviewResult") String reviewResult, @Param("qualityScore") Integer qualityScore,
+                       @Param("securityScore") Integer securityScore, @Param("performanceScore") Integer performanceScore,
+                       @Param("issueCount") Integer issueCount);
+
+    /**
+     * 审查失败：待审查的任务（领取前出错）或持有当前租约的任务置为失败
+     * @return 1-更新成功，0-任务已被其他节点接管或已结束
+     */
+    @Update("UPDATE review_task SET status = 3, error_msg = #{errorMsg}, lease_until = NULL " +
+            "WHERE id = #{id} AND (status = 0 OR (status = 1 AND lease_until = #{leaseUntil}))")
+    int failReview(@Param("id") Long id, @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("errorMsg") String errorMsg);
+
+    /**
+     * 退回待审查：AI并发受限时持有当前租约的节点放弃任务，由消息重新投递后再次领取；
+     * 租约过期的任务也以读取到的租约为条件退回，多个节点中只有一个重新投递
+     * @return 1-退回成功，0-租约已被其他节点接管或任务已结束
+     */
+    @Update("UPDATE review_task SET status = 0, lease_until = NULL " +
+            "WHERE id = #{id} AND status = 1 AND lease_until = #{leaseUntil}")
+    int releaseReview(@Param("id") Long id, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 查询租约已过期的审查中任务（执行节点宕机或确认前失败），只返回ID、用户ID、代码token数和租约到期时间，用于重新投递
+     */
+    @Select("SELECT id, user_id, code_tokens, lease_until FROM review_task WHERE deleted = 0 AND status = 1 AND lease_until < #{now} " +
+            "ORDER BY lease_until LIMIT #{limit}")
+    List<ReviewTask> selectExpiredLeases(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 查询长时间未被领取的待审查任务（消息处理失败被丢弃），只返回ID、用户ID、代码token数和更新时间，用于重新投递
+     * 按状态前缀走 idx_status_lease_until，扫描范围限于待审查任务
+     */
+    @Select("SELECT id, user_id, code_tokens, update_time FROM review_task WHERE deleted = 0 AND status = 0 AND update_time < #{before} " +
+            "ORDER BY update_time LIMIT #{limit}")
+    List<ReviewTask> selectStalePending(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 刷新待审查任务的更新时间，多个节点中只有一个重新投递同一任务，投递后重新计算等待时间
+     * @return 1-刷新成功，0-任务已被领取或已被其他节点重新投递
+     */
+    @Update("UPDATE review_task SET update_time = #{now} " +
+            "WHERE id = #{id} AND status = 0 AND update_time = #{updateTime}")
+    int touchPending(@Param("id") Long id, @Param("updateTime") LocalDateTime updateTime,
+                     @Param("now") LocalDateTime now);
 }
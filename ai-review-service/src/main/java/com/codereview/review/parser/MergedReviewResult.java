@@ -0,0 +1,37 @@
+package com.codereview.review.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 审查结果及其完整性
+ * 大文件分片审查时部分片段失败、或有片段由对冲的其他模型返回时，结果只保存到任务，不写入审查结果缓存
+ * @author CodeReview
+ */
+@Data
+@AllArgsConstructor
+public class MergedReviewResult {
+
+    /**
+     * 审查结果（AI原始返回或合并后的JSON）
+     */
+    private String result;
+
+    /**
+     * 审查失败的片段数
+     */
+    private int failedChunks;
+
+    /**
+     * 是否可以写入审查结果缓存
+     */
+    private boolean cacheable;
+
+    public static MergedReviewResult complete(String result, boolean cacheable) {
+        return new MergedReviewResult(result, 0, cacheable);
+    }
+
+    public boolean isComplete() {
+        return failedChunks == 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.codereview.review.parser;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 打包审查结果拆分器
+ * 将多文件打包审查返回的 files 数组按 fileId 拆分为各文件独立的审查结果JSON，
+ * 拆分后的结果与单文件审查的返回格式一致
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class PackedReviewSplitter {
+
+    @Resource
+    private ReviewJsonExtractor reviewJsonExtractor;
+
+    /**
+     * 拆分打包审查结果
+     * @param raw AI原始返回
+     * @return fileId 到单文件审查结果JSON的映射，无法解析时返回空映射；AI遗漏的文件不在映射中
+     */
+    public Map<String, String> split(String raw) {
+        Map<String, String> results = new HashMap<>();
+        JSONArray files;
+        try {
+            JSONObject packed = JSON.parseObject(reviewJsonExtractor.extractJsonContent(raw));
+            files = packed != null ? packed.getJSONArray("files") : null;
+        } catch (Exception e) {
+            log.warn("解析打包审查结果失败: {}", e.getMessage());
+            return results;
+        }
+        if (files == null) {
+            return results;
+        }
+
+        for (Object item : files) {
+            if (!(item instanceof JSONObject)) {
+                continue;
+            }
+            JSONObject file = (JSONObject) item;
+            String fileId = file.getString("fileId");
+            if (fileId == null || results.containsKey(fileId)) {
+                continue;
+            }
+            JSONObject result = new JSONObject(file);
+            result.remove("fileId");
+            results.put(fileId, result.toJSONString());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,736 @@
+package com.codereview.review.parser;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * AI审查结果JSON提取器
+ * 单次扫描定位返回内容中的JSON对象（支持代码块包裹和前后说明文字），按字符串和括号层级匹配结束位置，
+ * 格式正确时直接截取子串，只有出现尾随逗号或输出被截断时才复制修复；
+ * 提取结果需经 {@link #isValidObject(String)} 校验后才能使用，评分和问题数直接在JSON文本上流式读取
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewJsonExtractor {
+
+    private static final String FENCE = "```";
+
+    private static final String[] SCORE_FIELDS = {"qualityScore", "securityScore", "performanceScore"};
+
+    /**
+     * 从 AI 返回的内容中提取 JSON
+     * 支持多种格式：
+     * 1. 纯 JSON: {...}
+     * 2. Markdown 代码块: ```json\n{...}\n```
+     * 3. 文本 + JSON: 一些说明\n{...}
+     * 同时容忍尾随逗号和被截断的输出（补齐未闭合的字符串和括号）
+     */
+    public String extractJsonContent(String content) {
+        if (content == null) {
+            return "{}";
+        }
+        // 有代码块时优先取代码块中的JSON
+        int start = findFencedJsonStart(content);
+        if (start < 0) {
+            start = content.indexOf('{');
+        }
+        if (start < 0) {
+            String trimmed = content.trim();
+            if (trimmed.isEmpty()) {
+                return "{}";
+            }
+            // 没有JSON对象，直接返回原内容
+            log.debug("直接使用原始内容作为 JSON");
+            return trimmed;
+        }
+
+        // 单次扫描：跟踪字符串、转义和括号层级，找到匹配的结束括号
+        int depth = 0;
+        boolean inString = false;
+        boolean escape = false;
+        boolean trailingComma = false;
+        int lastSignificant = -1;
+        int end = -1;
+        int scanEnd = content.length();
+        for (int i = start; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (inString) {
+                if (escape) {
+                    escape = false;
+                } else if (c == '\\') {
+                    escape = true;
+                } else if (c == '"') {
+                    inString = false;
+                    lastSignificant = i;
+                }
+                continue;
+            }
+            if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (lastSignificant >= 0 && content.charAt(lastSignificant) == ',') {
+                    trailingComma = true;
+                }
+                depth--;
+                if (depth == 0) {
+                    end = i + 1;
+                    break;
+                }
+            } else if (c == '`' && content.startsWith(FENCE, i)) {
+                // JSON未闭合就遇到代码块结束标记，说明输出被截断
+                scanEnd = i;
+                break;
+            }
+            if (!Character.isWhitespace(c)) {
+                lastSignificant = i;
+            }
+        }
+
+        if (end > 0 && !trailingComma) {
+            return content.substring(start, end);
+        }
+        int limit = end > 0 ? end : scanEnd;
+        log.debug("审查结果JSON格式不完整，修复后使用: trailingComma={}, truncated={}", trailingComma, end < 0);
+        return repair(content, start, limit);
+    }
+
+    /**
+     * 校验提取结果是否为语法正确的JSON对象
+     * 括号匹配扫描和评分读取都不校验键值之间的分隔符，格式错误的输出需要在保存和缓存前排除；
+     * 按JSON语法完整解析一遍，但不构建对象树
+     * @param json {@link #extractJsonContent(String)} 提取的JSON
+     * @return 是否为JSON对象
+     */
+    public boolean isValidObject(String json) {
+        if (json == null) {
+            return false;
+        }
+        JsonValidator validator = new JsonValidator(json);
+        validator.skipWhitespace();
+        if (validator.peek() != '{' || !validator.value(0)) {
+            return false;
+        }
+        validator.skipWhitespace();
+        return validator.atEnd();
+    }
+
+    /**
+     * 查找代码块中JSON对象的起始位置
+     * 只接受内容以 { 开头的代码块，不会取到说明文字或其他代码块（如示例代码）中的括号
+     * @return 起始位置，没有这样的代码块时返回 -1
+     */
+    private int findFencedJsonStart(String content) {
+        int fence = content.indexOf(FENCE);
+        while (fence >= 0) {
+            int i = fence + FENCE.length();
+            // 跳过语言标记（json、java等）和空白
+            while (i < content.length() && Character.isLetterOrDigit(content.charAt(i))) {
+                i++;
+            }
+            while (i < content.length() && Character.isWhitespace(content.charAt(i))) {
+                i++;
+            }
+            if (i < content.length() && content.charAt(i) == '{') {
+                return i;
+            }
+            int close = content.indexOf(FENCE, i);
+            if (close < 0) {
+                return -1;
+            }
+            fence = content.indexOf(FENCE, close + FENCE.length());
+        }
+        return -1;
+    }
+
+    /**
+     * 流式读取审查结果中的评分和问题数，不构建对象树
+     * @param json {@link #extractJsonContent(String)} 提取的JSON
+     * @return 评分和问题数，不是JSON对象或对象为空时返回 null
+     */
+    public ReviewScores extractScores(String json) {
+        if (json == null) {
+            return null;
+        }
+        JsonCursor cursor = new JsonCursor(json);
+        cursor.skipWhitespace();
+        if (!cursor.consume('{')) {
+            return null;
+        }
+        ReviewScores scores = new ReviewScores();
+        int fields = 0;
+        while (true) {
+            cursor.skipWhitespace();
+            if (cursor.consume('}') || cursor.atEnd()) {
+                break;
+            }
+            if (cursor.consume(',')) {
+                continue;
+            }
+            String key = cursor.readKey();
+            if (key == null || !cursor.consumeAfterWhitespace(':')) {
+                return null;
+            }
+            cursor.skipWhitespace();
+            fields++;
+            int scoreIndex = indexOfScoreField(key);
+            if (scoreIndex >= 0) {
+                Integer score = cursor.readInteger();
+                if (scoreIndex == 0) {
+                    scores.setQualityScore(score);
+                } else if (scoreIndex == 1) {
+                    scores.setSecurityScore(score);
+                } else {
+                    scores.setPerformanceScore(score);
+                }
+            } else if ("issues".equals(key)) {
+                scores.setIssueCount(cursor.countArrayElements());
+            } else {
+                cursor.skipValue();
+            }
+        }
+        return fields > 0 ? scores : null;
+    }
+
+    /**
+     * 复制并修复JSON：去掉尾随逗号，补齐被截断的字符串、键值和括号
+     */
+    private String repair(String content, int start, int limit) {
+        StringBuilder out = new StringBuilder(limit - start + 8);
+        char[] stack = new char[16];
+        int depth = 0;
+        boolean inString = false;
+        boolean escape = false;
+        boolean pendingComma = false;
+        boolean expectKey = false;
+        int keyStart = -1;
+
+        for (int i = start; i < limit; i++) {
+            char c = content.charAt(i);
+            if (inString) {
+                out.append(c);
+                if (escape) {
+                    escape = false;
+                } else if (c == '\\') {
+                    escape = true;
+                } else if (c == '"') {
+                    inString = false;
+                    keyStart = -1;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                if (!pendingComma) {
+                    out.append(c);
+                }
+                continue;
+            }
+            if (c == ',') {
+                // 逗号延迟输出，后面紧跟结束括号时丢弃
+                pendingComma = true;
+                expectKey = depth > 0 && stack[depth - 1] == '{';
+                continue;
+            }
+            if (c == '}' || c == ']') {
+                pendingComma = false;
+                if (depth > 0) {
+                    depth--;
+                }
+                out.append(c);
+                if (depth == 0) {
+                    return out.toString();
+                }
+                continue;
+            }
+            if (pendingComma) {
+                out.append(',');
+                pendingComma = false;
+            }
+            if (c == '"') {
+                inString = true;
+                keyStart = expectKey ? out.length() : -1;
+                expectKey = false;
+            } else if (c == '{' || c == '[') {
+                if (depth == stack.length) {
+                    char[] grown = new char[stack.length * 2];
+                    System.arraycopy(stack, 0, grown, 0, depth);
+                    stack = grown;
+                }
+                stack[depth++] = c;
+                expectKey = c == '{';
+            } else if (c == ':') {
+                expectKey = false;
+            }
+            out.append(c);
+        }
+
+        // 输出被截断：补齐未闭合的部分
+        if (inString) {
+            if (keyStart >= 0) {
+                // 截断在键名中，丢弃这个不完整的键
+                out.setLength(keyStart);
+            } else {
+                if (escape) {
+                    out.setLength(out.length() - 1);
+                }
+                out.append('"');
+            }
+        }
+        trimIncompleteTail(out);
+        while (depth > 0) {
+            out.append(stack[--depth] == '{' ? '}' : ']');
+        }
+        return out.toString();
+    }
+
+    /**
+     * 去掉末尾不完整的内容：空白、逗号、未写完的字面量，缺少值的键补 null
+     */
+    private void trimIncompleteTail(StringBuilder out) {
+        int len = out.length();
+        while (len > 0 && Character.isWhitespace(out.charAt(len - 1))) {
+            len--;
+        }
+        // 未写完的 true/false/null 或数字
+        int literalEnd = len;
+        while (len > 0 && isLiteralChar(out.charAt(len - 1))) {
+            len--;
+        }
+        String literal = out.substring(len, literalEnd);
+        if (literal.isEmpty() || "true".equals(literal) || "false".equals(literal) || "null".equals(literal)
+                || isCompleteNumber(literal)) {
+            len = literalEnd;
+        }
+        while (len > 0 && (Character.isWhitespace(out.charAt(len - 1)) || out.charAt(len - 1) == ',')) {
+            len--;
+        }
+        out.setLength(len);
+        if (len > 0 && out.charAt(len - 1) == ':') {
+            out.append("null");
+        } else if (len > 0 && out.charAt(len - 1) == '"' && isDanglingKey(out)) {
+            out.append(":null");
+        }
+    }
+
+    /**
+     * 判断末尾的字符串是否为缺少冒号和值的键（前一个有效字符是 { 或 ,，且位于对象中）
+     */
+    private boolean isDanglingKey(StringBuilder out) {
+        int i = out.length() - 2;
+        while (i >= 0) {
+            char c = out.charAt(i);
+            if (c == '"' && (i == 0 || out.charAt(i - 1) != '\\')) {
+                break;
+            }
+            i--;
+        }
+        i--;
+        while (i >= 0 && Character.isWhitespace(out.charAt(i))) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        char before = out.charAt(i);
+        if (before == '{') {
+            return true;
+        }
+        if (before != ',') {
+            return false;
+        }
+        // 逗号之前的层级是对象还是数组，需要向前找到未闭合的括号
+        int depth = 0;
+        boolean inString = false;
+        for (int j = i - 1; j >= 0; j--) {
+            char c = out.charAt(j);
+            if (c == '"' && (j == 0 || out.charAt(j - 1) != '\\')) {
+                inString = !inString;
+            } else if (!inString) {
+                if (c == '}' || c == ']') {
+                    depth++;
+                } else if (c == '{' || c == '[') {
+                    if (depth == 0) {
+                        return c == '{';
+                    }
+                    depth--;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isLiteralChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '+';
+    }
+
+    private boolean isCompleteNumber(String literal) {
+        char last = literal.charAt(literal.length() - 1);
+        if (!Character.isDigit(last)) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (!(Character.isDigit(c) || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOfScoreField(String key) {
+        for (int i = 0; i < SCORE_FIELDS.length; i++) {
+            if (SCORE_FIELDS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * JSON文本游标，只支持评分读取需要的最小操作
+     */
+    private static final class JsonCursor {
+
+        private final String json;
+
+        private int pos;
+
+        JsonCursor(String json) {
+            this.json = json;
+        }
+
+        boolean atEnd() {
+            return pos >= json.length();
+        }
+
+        void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean consume(char expected) {
+            if (pos < json.length() && json.charAt(pos) == expected) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean consumeAfterWhitespace(char expected) {
+            skipWhitespace();
+            return consume(expected);
+        }
+
+        /**
+         * 读取键名，键名不含转义时不复制
+         */
+        String readKey() {
+            if (!consume('"')) {
+                return null;
+            }
+            int start = pos;
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (c == '\\') {
+                    pos += 2;
+                    continue;
+                }
+                if (c == '"') {
+                    return json.substring(start, pos++);
+                }
+                pos++;
+            }
+            return null;
+        }
+
+        /**
+         * 读取整数评分，兼容小数和字符串形式的数字，不是数字时返回 null
+         */
+        Integer readInteger() {
+            boolean quoted = consume('"');
+            int start = pos;
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (!(Character.isDigit(c) || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E')) {
+                    break;
+                }
+                pos++;
+            }
+            Integer value = null;
+            if (pos > start) {
+                try {
+                    value = (int) Math.round(Double.parseDouble(json.substring(start, pos)));
+                } catch (NumberFormatException e) {
+                    value = null;
+                }
+            }
+            if (quoted || pos == start) {
+                // 回到值的开头，按普通值跳过
+                pos = quoted ? start - 1 : start;
+                skipValue();
+            }
+            return value;
+        }
+
+        /**
+         * 统计数组的元素个数，不是数组时跳过该值并返回 null
+         */
+        Integer countArrayElements() {
+            if (!consume('[')) {
+                skipValue();
+                return null;
+            }
+            int count = 0;
+            while (true) {
+                skipWhitespace();
+                if (atEnd() || consume(']')) {
+                    return count;
+                }
+                if (consume(',')) {
+                    continue;
+                }
+                count++;
+                skipValue();
+            }
+        }
+
+        /**
+         * 跳过一个完整的值（字符串、对象、数组或字面量）
+         */
+        void skipValue() {
+            skipWhitespace();
+            if (atEnd()) {
+                return;
+            }
+            char c = json.charAt(pos);
+            if (c == '"') {
+                pos++;
+                while (pos < json.length()) {
+                    char s = json.charAt(pos++);
+                    if (s == '\\') {
+                        pos++;
+                    } else if (s == '"') {
+                        return;
+                    }
+                }
+                return;
+            }
+            if (c == '{' || c == '[') {
+                int depth = 0;
+                boolean inString = false;
+                while (pos < json.length()) {
+                    char s = json.charAt(pos++);
+                    if (inString) {
+                        if (s == '\\') {
+                            pos++;
+                        } else if (s == '"') {
+                            inString = false;
+                        }
+                    } else if (s == '"') {
+                        inString = true;
+                    } else if (s == '{' || s == '[') {
+                        depth++;
+                    } else if (s == '}' || s == ']') {
+                        if (--depth == 0) {
+                            return;
+                        }
+                    }
+                }
+                return;
+            }
+            while (pos < json.length()) {
+                char s = json.charAt(pos);
+                if (s == ',' || s == '}' || s == ']' || Character.isWhitespace(s)) {
+                    return;
+                }
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * 严格的JSON语法校验器，按RFC 8259解析一遍，不构建对象树
+     */
+    private static final class JsonValidator {
+
+        /**
+         * 嵌套层级上限，防止异常输出导致栈溢出
+         */
+        private static final int MAX_DEPTH = 256;
+
+        private final String json;
+
+        private int pos;
+
+        JsonValidator(String json) {
+            this.json = json;
+        }
+
+        boolean atEnd() {
+            return pos >= json.length();
+        }
+
+        char peek() {
+            return pos < json.length() ? json.charAt(pos) : 0;
+        }
+
+        void skipWhitespace() {
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        boolean value(int depth) {
+            if (depth > MAX_DEPTH) {
+                return false;
+            }
+            skipWhitespace();
+            char c = peek();
+            if (c == '{') {
+                return object(depth + 1);
+            }
+            if (c == '[') {
+                return array(depth + 1);
+            }
+            if (c == '"') {
+                return string();
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return number();
+            }
+            return literal("true") || literal("false") || literal("null");
+        }
+
+        private boolean object(int depth) {
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return true;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"' || !string()) {
+                    return false;
+                }
+                skipWhitespace();
+                if (peek() != ':') {
+                    return false;
+                }
+                pos++;
+                if (!value(depth)) {
+                    return false;
+                }
+                skipWhitespace();
+                char c = peek();
+                pos++;
+                if (c == '}') {
+                    return true;
+                }
+                if (c != ',') {
+                    return false;
+                }
+            }
+        }
+
+        private boolean array(int depth) {
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return true;
+            }
+            while (true) {
+                if (!value(depth)) {
+                    return false;
+                }
+                skipWhitespace();
+                char c = peek();
+                pos++;
+                if (c == ']') {
+                    return true;
+                }
+                if (c != ',') {
+                    return false;
+                }
+            }
+        }
+
+        private boolean string() {
+            pos++;
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return true;
+                }
+                if (c < 0x20) {
+                    return false;
+                }
+                if (c == '\\') {
+                    if (pos >= json.length()) {
+                        return false;
+                    }
+                    char e = json.charAt(pos++);
+                    if (e == 'u') {
+                        for (int i = 0; i < 4; i++) {
+                            if (pos >= json.length() || Character.digit(json.charAt(pos++), 16) < 0) {
+                                return false;
+                            }
+                        }
+                    } else if ("\"\\/bfnrt".indexOf(e) < 0) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean number() {
+            if (peek() == '-') {
+                pos++;
+            }
+            if (peek() == '0') {
+                pos++;
+            } else if (!digits()) {
+                return false;
+            }
+            if (peek() == '.') {
+                pos++;
+                if (!digits()) {
+                    return false;
+                }
+            }
+            if (peek() == 'e' || peek() == 'E') {
+                pos++;
+                if (peek() == '+' || peek() == '-') {
+                    pos++;
+                }
+                return digits();
+            }
+            return true;
+        }
+
+        private boolean digits() {
+            int start = pos;
+            while (pos < json.length() && json.charAt(pos) >= '0' && json.charAt(pos) <= '9') {
+                pos++;
+            }
+            return pos > start;
+        }
+
+        private boolean literal(String expected) {
+            if (json.startsWith(expected, pos)) {
+                pos += expected.length();
+                return true;
+            }
+            return false;
+        }
+    }
+}
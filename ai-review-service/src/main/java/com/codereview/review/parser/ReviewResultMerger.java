@@ -0,0 +1,150 @@
+package com.codereview.review.parser;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.codereview.common.exception.BusinessException;
+import com.codereview.review.prompt.CodeChunk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 分片审查结果合并器
+ * 将大文件各片段的审查结果合并为一个完整的审查结果：
+ * 评分按片段token数加权平均，问题列表合并并标注所在行范围，优化建议去重合并
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ReviewResultMerger {
+
+    private static final String[] SCORE_FIELDS = {"qualityScore", "securityScore", "performanceScore"};
+
+    @Resource
+    private ReviewJsonExtractor reviewJsonExtractor;
+
+    /**
+     * AI返回的问题位置中的行号：前后不是字母、数字或小数点的整数，避免改动标识符中的数字
+     */
+    private static final Pattern LINE_NUMBER = Pattern.compile("(?<![\\w.])\\d+(?![\\w.])");
+
+    /**
+     * 合并各片段的审查结果
+     * @param chunks 代码片段
+     * @param results 与片段一一对应的AI原始返回，审查失败的片段为 null
+     * @return 合并后的审查结果JSON及失败的片段数
+     */
+    public MergedReviewResult merge(List<CodeChunk> chunks, List<String> results) {
+        double[] scoreSums = new double[SCORE_FIELDS.length];
+        long[] scoreWeights = new long[SCORE_FIELDS.length];
+        JSONArray issues = new JSONArray();
+        Set<String> suggestions = new LinkedHashSet<>();
+        StringBuilder summary = new StringBuilder("代码较大，已按类和函数边界拆分为")
+                .append(chunks.size()).append("个片段分别审查。");
+        int failed = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            CodeChunk chunk = chunks.get(i);
+            JSONObject result = parseResult(results.get(i));
+            if (result == null) {
+                failed++;
+                continue;
+            }
+            String location = "第" + chunk.getStartLine() + "-" + chunk.getEndLine() + "行";
+
+            for (int f = 0; f < SCORE_FIELDS.length; f++) {
+                Integer score = result.getInteger(SCORE_FIELDS[f]);
+                if (score != null) {
+                    scoreSums[f] += (double) score * chunk.getTokens();
+                    scoreWeights[f] += chunk.getTokens();
+                }
+            }
+
+            JSONArray chunkIssues = result.getJSONArray("issues");
+            if (chunkIssues != null) {
+                for (Object issue : chunkIssues) {
+                    if (issue instanceof JSONObject) {
+                        rebaseLocation((JSONObject) issue, chunk, location);
+                    }
+                    issues.add(issue);
+                }
+            }
+
+            JSONArray chunkSuggestions = result.getJSONArray("suggestions");
+            if (chunkSuggestions != null) {
+                for (Object suggestion : chunkSuggestions) {
+                    if (suggestion != null) {
+                        suggestions.add(suggestion.toString());
+                    }
+                }
+            }
+
+            String chunkSummary = result.getString("summary");
+            if (chunkSummary != null && !chunkSummary.isEmpty()) {
+                summary.append('\n').append('[').append(location).append("] ").append(chunkSummary);
+            }
+        }
+
+        if (failed == chunks.size()) {
+            throw new BusinessException("所有代码片段审查均失败");
+        }
+        if (failed > 0) {
+            log.warn("部分代码片段审查失败: failed={}, total={}", failed, chunks.size());
+            summary.append('\n').append("有").append(failed).append("个片段审查失败，结果可能不完整。");
+        }
+
+        JSONObject merged = new JSONObject();
+        merged.put("summary", summary.toString());
+        for (int f = 0; f < SCORE_FIELDS.length; f++) {
+            if (scoreWeights[f] > 0) {
+                merged.put(SCORE_FIELDS[f], (int) Math.round(scoreSums[f] / scoreWeights[f]));
+            }
+        }
+        merged.put("issues", issues);
+        merged.put("suggestions", new JSONArray(suggestions));
+        return new MergedReviewResult(merged.toJSONString(), failed, failed == 0);
+    }
+
+    /**
+     * AI按片段内的行号给出问题位置，换算为整个文件的行号；未给出位置时标注片段的行范围
+     */
+    private void rebaseLocation(JSONObject issue, CodeChunk chunk, String chunkLocation) {
+        Object location = issue.get("location");
+        int offset = chunk.getStartLine() - 1;
+        if (location == null || location.toString().isEmpty()) {
+            issue.put("location", chunkLocation);
+        } else if (offset > 0 && location instanceof Number) {
+            issue.put("location", ((Number) location).intValue() + offset);
+        } else if (offset > 0) {
+            Matcher matcher = LINE_NUMBER.matcher(location.toString());
+            StringBuffer rebased = new StringBuffer();
+            while (matcher.find()) {
+                matcher.appendReplacement(rebased, String.valueOf(Long.parseLong(matcher.group()) + offset));
+            }
+            matcher.appendTail(rebased);
+            issue.put("location", rebased.toString());
+        }
+    }
+
+    /**
+     * 解析单个片段的审查结果，无法解析时返回 null
+     */
+    private JSONObject parseResult(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        try {
+            return JSON.parseObject(reviewJsonExtractor.extractJsonContent(raw));
+        } catch (Exception e) {
+            log.warn("解析代码片段审查结果失败: {}", e.getMessage());
+            return null;
+        }
+    }
+}
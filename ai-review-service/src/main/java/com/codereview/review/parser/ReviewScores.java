@@ -0,0 +1,31 @@
+package com.codereview.review.parser;
+
+import lombok.Data;
+
+/**
+ * 从审查结果JSON中流式读取的评分和问题数
+ * @author CodeReview
+ */
+@Data
+public class ReviewScores {
+
+    /**
+     * 质量评分（0-100）
+     */
+    private Integer qualityScore;
+
+    /**
+     * 安全评分（0-100）
+     */
+    private Integer securityScore;
+
+    /**
+     * 性能评分（0-100）
+     */
+    private Integer performanceScore;
+
+    /**
+     * 问题数量，结果中没有 issues 数组时为 null
+     */
+    private Integer issueCount;
+}
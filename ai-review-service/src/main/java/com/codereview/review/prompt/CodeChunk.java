@@ -0,0 +1,39 @@
+package com.codereview.review.prompt;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 代码片段
+ * 大文件按类、函数边界拆分后的一段代码
+ * @author CodeReview
+ */
+@Data
+@AllArgsConstructor
+public class CodeChunk {
+
+    /**
+     * 片段序号（从0开始）
+     */
+    private int index;
+
+    /**
+     * 起始行号（从1开始）
+     */
+    private int startLine;
+
+    /**
+     * 结束行号（包含）
+     */
+    private int endLine;
+
+    /**
+     * 估算的token数
+     */
+    private int tokens;
+
+    /**
+     * 片段内容
+     */
+    private String content;
+}
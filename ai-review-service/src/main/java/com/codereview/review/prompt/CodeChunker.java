@@ -0,0 +1,231 @@
+package com.codereview.review.prompt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 代码分片器
+ * 在类、函数边界处将大文件拆分为token数受限的片段，使各片段可以并行审查。
+ * 不引入语法解析器，按语言采用轻量的结构识别：
+ * 花括号语言按嵌套深度识别代码块结束位置，Python按缩进和def/class声明识别，其他语言按空行拆分
+ * @author CodeReview
+ */
+@Component
+public class CodeChunker {
+
+    /**
+     * 使用花括号界定代码块的语言
+     */
+    private static final Set<String> BRACE_LANGUAGES = new HashSet<>(Arrays.asList(
+            "java", "javascript", "typescript", "go", "c", "c++", "cpp", "c#", "csharp",
+            "php", "rust", "kotlin", "swift", "scala", "dart"));
+
+    @Value("${ai.review.chunk.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 单个片段的最大token数，超过该值的文件才会被拆分
+     */
+    @Value("${ai.review.chunk.max-tokens:6000}")
+    private int maxChunkTokens;
+
+    /**
+     * 拆分代码
+     * @param code 代码内容
+     * @param language 编程语言
+     * @return 代码片段列表，无需拆分时只包含一个完整片段
+     */
+    public List<CodeChunk> split(String code, String language) {
+        if (code == null) {
+            return Collections.emptyList();
+        }
+        String[] lines = code.split("\n", -1);
+        int[] lineTokens = new int[lines.length];
+        int totalTokens = 0;
+        for (int i = 0; i < lines.length; i++) {
+            lineTokens[i] = TokenCounter.count(lines[i]) + 1;
+            totalTokens += lineTokens[i];
+        }
+        if (!enabled || totalTokens <= maxChunkTokens) {
+            return Collections.singletonList(new CodeChunk(0, 1, lines.length, totalTokens, code));
+        }
+
+        String lang = language != null ? language.trim().toLowerCase(Locale.ROOT) : "";
+        List<Integer> unitStarts;
+        if (BRACE_LANGUAGES.contains(lang)) {
+            unitStarts = braceBoundaries(lines);
+        } else if ("python".equals(lang)) {
+            unitStarts = pythonBoundaries(lines);
+        } else {
+            unitStarts = blankLineBoundaries(lines);
+        }
+        return pack(lines, lineTokens, unitStarts);
+    }
+
+    /**
+     * 将结构单元贪心装入片段，单元本身超过上限时按行强制拆分
+     */
+    private List<CodeChunk> pack(String[] lines, int[] lineTokens, List<Integer> unitStarts) {
+        List<CodeChunk> chunks = new ArrayList<>();
+        int chunkStart = 0;
+        int chunkTokens = 0;
+        for (int u = 0; u < unitStarts.size(); u++) {
+            int unitStart = unitStarts.get(u);
+            int unitEnd = u + 1 < unitStarts.size() ? unitStarts.get(u + 1) : lines.length;
+            int unitTokens = 0;
+            for (int i = unitStart; i < unitEnd; i++) {
+                unitTokens += lineTokens[i];
+            }
+
+            if (chunkTokens + unitTokens <= maxChunkTokens) {
+                chunkTokens += unitTokens;
+                continue;
+            }
+            // 当前片段已满，先输出
+            if (chunkTokens > 0) {
+                chunks.add(buildChunk(chunks.size(), lines, chunkStart, unitStart, chunkTokens));
+            }
+            chunkStart = unitStart;
+            chunkTokens = 0;
+            if (unitTokens <= maxChunkTokens) {
+                chunkTokens = unitTokens;
+                continue;
+            }
+            // 单元本身超限（如超长函数），按行拆分
+            for (int i = unitStart; i < unitEnd; i++) {
+                if (chunkTokens + lineTokens[i] > maxChunkTokens && chunkTokens > 0) {
+                    chunks.add(buildChunk(chunks.size(), lines, chunkStart, i, chunkTokens));
+                    chunkStart = i;
+                    chunkTokens = 0;
+                }
+                chunkTokens += lineTokens[i];
+            }
+        }
+        if (chunkTokens > 0) {
+            chunks.add(buildChunk(chunks.size(), lines, chunkStart, lines.length, chunkTokens));
+        }
+        return chunks;
+    }
+
+    private CodeChunk buildChunk(int index, String[] lines, int start, int end, int tokens) {
+        StringBuilder content = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                content.append('\n');
+            }
+            content.append(lines[i]);
+        }
+        return new CodeChunk(index, start + 1, end, tokens, content.toString());
+    }
+
+    /**
+     * 花括号语言：一个深度不超过1的代码块结束后（顶层函数、类中的方法、类本身）作为单元边界。
+     * 忽略字符串和注释中的花括号；字符串不跨行，避免字符字面量误判影响后续行
+     */
+    private List<Integer> braceBoundaries(String[] lines) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int depth = 0;
+        int blockMaxDepth = 0;
+        boolean inBlockComment = false;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            char quote = 0;
+            for (int j = 0; j < line.length(); j++) {
+                char c = line.charAt(j);
+                char next = j + 1 < line.length() ? line.charAt(j + 1) : 0;
+                if (inBlockComment) {
+                    if (c == '*' && next == '/') {
+                        inBlockComment = false;
+                        j++;
+                    }
+                } else if (quote != 0) {
+                    if (c == '\\') {
+                        j++;
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '/' && next == '/') {
+                    break;
+                } else if (c == '/' && next == '*') {
+                    inBlockComment = true;
+                    j++;
+                } else if (c == '"' || c == '\'' || c == '`') {
+                    quote = c;
+                } else if (c == '{') {
+                    depth++;
+                    blockMaxDepth = Math.max(blockMaxDepth, depth);
+                } else if (c == '}') {
+                    depth = Math.max(0, depth - 1);
+                }
+            }
+            if (depth <= 1 && blockMaxDepth > depth && i + 1 < lines.length) {
+                starts.add(i + 1);
+                blockMaxDepth = depth;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Python：顶层或类中一级缩进的 def/class 声明作为单元起点，装饰器、类声明与其后的定义保持在一起
+     */
+    private List<Integer> pythonBoundaries(String[] lines) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        boolean previousAttached = false;
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            String stripped = line.trim();
+            if (stripped.isEmpty()) {
+                continue;
+            }
+            int indent = indentWidth(line);
+            boolean declaration = indent <= 4 && (stripped.startsWith("def ") || stripped.startsWith("async def ")
+                    || stripped.startsWith("class ") || stripped.startsWith("@"));
+            if (declaration && !previousAttached) {
+                starts.add(i);
+            }
+            // 装饰器、类声明等以冒号结尾的块头需要和下一行保持在同一单元
+            previousAttached = stripped.startsWith("@") || stripped.endsWith(":");
+        }
+        return starts;
+    }
+
+    /**
+     * 其他语言：空行之后的第一行作为单元起点
+     */
+    private List<Integer> blankLineBoundaries(String[] lines) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i - 1].trim().isEmpty() && !lines[i].trim().isEmpty()) {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private int indentWidth(String line) {
+        int width = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                width++;
+            } else if (c == '\t') {
+                width += 4;
+            } else {
+                break;
+            }
+        }
+        return width;
+    }
+}
@@ -0,0 +1,29 @@
+package com.codereview.review.prompt;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 打包审查中的单个文件
+ * 多个小文件打包为一个提示词时，每个文件以唯一标识分隔，AI按标识分别返回审查结果
+ * @author CodeReview
+ */
+@Data
+@AllArgsConstructor
+public class PackedFile {
+
+    /**
+     * 文件标识（在同一个打包请求内唯一）
+     */
+    private String fileId;
+
+    /**
+     * 文件名称
+     */
+    private String fileName;
+
+    /**
+     * 文件内容
+     */
+    private String content;
+}
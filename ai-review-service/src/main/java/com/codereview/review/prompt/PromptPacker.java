@@ -0,0 +1,98 @@
+package com.codereview.review.prompt;
+
+import com.codereview.review.entity.ReviewTask;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 批量审查提示词打包器
+ * 将批量审查中的小文件按token预算装箱（首次适应递减），每箱只调用一次AI，
+ * 审查要求只发送一次，连接和首token延迟也只付出一次；较大的文件仍单独审查
+ * @author CodeReview
+ */
+@Component
+public class PromptPacker {
+
+    /**
+     * 每个文件分隔符等附加内容的token估算
+     */
+    private static final int FILE_OVERHEAD_TOKENS = 20;
+
+    @Value("${ai.review.pack.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 单个打包提示词中代码部分的token上限
+     */
+    @Value("${ai.review.pack.max-prompt-tokens:6000}")
+    private int maxPromptTokens;
+
+    /**
+     * 参与打包的单个文件token上限，超过的文件单独审查
+     */
+    @Value("${ai.review.pack.max-file-tokens:1500}")
+    private int maxFileTokens;
+
+    /**
+     * 单个打包提示词最多包含的文件数，避免输出过长
+     */
+    @Value("${ai.review.pack.max-files:10}")
+    private int maxFiles;
+
+    /**
+     * 将任务分组，每组对应一次AI调用
+     * @param tasks 同一批次的审查任务
+     * @return 任务分组，单元素分组表示单独审查
+     */
+    public List<List<ReviewTask>> pack(List<ReviewTask> tasks) {
+        List<List<ReviewTask>> groups = new ArrayList<>();
+        if (!enabled || tasks.size() < 2) {
+            for (ReviewTask task : tasks) {
+                groups.add(Collections.singletonList(task));
+            }
+            return groups;
+        }
+
+        List<ReviewTask> small = new ArrayList<>();
+        for (ReviewTask task : tasks) {
+            if (tokensOf(task) <= maxFileTokens) {
+                small.add(task);
+            } else {
+                groups.add(Collections.singletonList(task));
+            }
+        }
+
+        // 首次适应递减：大文件先装箱，剩余空间留给小文件
+        small.sort(Comparator.comparingInt(this::tokensOf).reversed());
+        List<List<ReviewTask>> bins = new ArrayList<>();
+        List<Integer> binTokens = new ArrayList<>();
+        for (ReviewTask task : small) {
+            int tokens = tokensOf(task);
+            int target = -1;
+            for (int i = 0; i < bins.size(); i++) {
+                if (bins.get(i).size() < maxFiles && binTokens.get(i) + tokens <= maxPromptTokens) {
+                    target = i;
+                    break;
+                }
+            }
+            if (target < 0) {
+                bins.add(new ArrayList<>());
+                binTokens.add(0);
+                target = bins.size() - 1;
+            }
+            bins.get(target).add(task);
+            binTokens.set(target, binTokens.get(target) + tokens);
+        }
+        groups.addAll(bins);
+        return groups;
+    }
+
+    private int tokensOf(ReviewTask task) {
+        return TokenCounter.count(task.getCodeContent()) + FILE_OVERHEAD_TOKENS;
+    }
+}
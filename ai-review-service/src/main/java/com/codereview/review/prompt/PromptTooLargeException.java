@@ -0,0 +1,17 @@
+package com.codereview.review.prompt;
+
+import com.codereview.common.exception.BusinessException;
+
+/**
+ * 提示词超出token预算异常
+ * 在发送请求前由本地token计数发现，避免上传完整内容后才被AI接口拒绝
+ * @author CodeReview
+ */
+public class PromptTooLargeException extends BusinessException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PromptTooLargeException(int promptTokens, int maxInputTokens) {
+        super(413, "代码过大，提示词约" + promptTokens + "个token，超过上限" + maxInputTokens);
+    }
+}
@@ -0,0 +1,171 @@
+package com.codereview.review.prompt;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 代码审查提示词构建器
+ * 提示词分为静态部分（角色、审查要求、输出格式）和动态部分（待审查代码），
+ * 静态部分在所有请求中完全相同，支持提示词缓存的模型可以将其标记为可缓存
+ * @author CodeReview
+ */
+@Component
+public class ReviewPromptBuilder {
+
+    /**
+     * 系统角色设定
+     */
+    private static final String SYSTEM_PROMPT = "你是一位资深的代码审查专家，擅长发现代码中的问题、性能优化点和安全漏洞。";
+
+    /**
+     * 审查要求
+     */
+    private static final String REVIEW_ASPECTS =
+            "请从以下几个方面进行审查：\n" +
+            "1. **代码质量**：检查代码的可读性、可维护性、命名规范等\n" +
+            "2. **潜在Bug**：识别可能导致错误的代码模式\n" +
+            "3. **性能优化**：指出可以优化的性能瓶颈\n" +
+            "4. **安全漏洞**：检查SQL注入、XSS、敏感信息泄露等安全问题\n" +
+            "5. **最佳实践**：给出符合业界最佳实践的改进建议\n\n";
+
+    /**
+     * 审查细则：各方面的检查项、严重程度和评分标准、输出要求
+     * 与审查要求一起组成静态部分，静态部分需达到模型提示词缓存的最小长度（Claude 为1024个token）才能被缓存
+     */
+    private static final String REVIEW_GUIDELINES =
+            "审查细则：\n" +
+            "- 代码质量：函数和类的职责是否单一，函数是否过长或嵌套过深，是否存在重复代码和魔法数字；" +
+            "命名是否准确表达含义并符合该语言的命名惯例；注释是否说明意图而不是复述代码，公共接口是否有必要的文档说明。\n" +
+            "- 潜在Bug：空指针或空值访问，数组和集合越界，整数溢出和精度丢失，文件、连接、锁等资源未释放，" +
+            "异常被吞掉或捕获范围过大，并发访问共享状态缺少同步，边界条件和错误分支未处理，浮点数和字符串的比较方式错误。\n" +
+            "- 性能优化：循环中的重复计算和重复查询（如N+1查询），不必要的对象创建和数据复制，" +
+            "不合适的数据结构导致低效查找，在循环中拼接字符串，同步阻塞调用和过大的锁粒度，缺少分页或批量处理，可以缓存而未缓存的结果。\n" +
+            "- 安全漏洞：SQL、命令、路径和表达式注入，XSS和CSRF，反序列化不可信数据，硬编码的密码、密钥和令牌，" +
+            "日志或异常信息中泄露敏感数据，缺少身份认证和权限校验，使用弱加密算法或不安全的随机数，未校验外部输入的长度、格式和范围。\n" +
+            "- 最佳实践：是否符合该语言和框架的惯用写法，错误处理和日志是否规范，依赖和配置是否便于替换和测试，公共接口是否保持向后兼容。\n\n" +
+            "严重程度判定：\n" +
+            "- high：会导致错误结果、数据丢失、服务崩溃，或是可被利用的安全漏洞，应在合入前修复；\n" +
+            "- medium：在特定条件下会出错，或明显影响性能和可维护性，建议尽快修复；\n" +
+            "- low：代码风格、命名、注释等不影响运行结果的改进项。\n\n" +
+            "评分标准：各项评分满分100，该方面没有发现问题时给90分以上；每个high问题通常扣15到25分，" +
+            "medium问题扣5到10分，low问题扣1到3分；评分应与列出的问题一致，不要给出与问题列表矛盾的评分。\n\n" +
+            "输出要求：\n" +
+            "- 只报告代码中确实存在的问题，不要臆测未提供的代码，同一问题不要重复报告；\n" +
+            "- 每个问题给出所在行，行号从提供的代码第1行开始计数，格式为“第N行”或“第N-M行”；\n" +
+            "- description 说明问题是什么以及为什么是问题，suggestion 给出具体的修改方法，必要时附上修改后的代码片段；\n" +
+            "- summary 用两三句话概括代码的整体质量和最主要的问题，代码没有问题时 issues 返回空数组；\n" +
+            "- 只返回JSON，不要在JSON前后添加其他说明，所有说明文字使用中文。\n\n";
+
+    /**
+     * 审查要求和输出格式
+     */
+    private static final String REVIEW_INSTRUCTIONS = REVIEW_ASPECTS + REVIEW_GUIDELINES +
+            "请以结构化的JSON格式返回结果，包含以下字段：\n" +
+            "{\n" +
+            "  \"summary\": \"总体评价\",\n" +
+            "  \"qualityScore\": 质量评分(0-100),\n" +
+            "  \"securityScore\": 安全评分(0-100),\n" +
+            "  \"performanceScore\": 性能评分(0-100),\n" +
+            "  \"issues\": [\n" +
+            "    {\n" +
+            "      \"type\": \"问题类型\",\n" +
+            "      \"severity\": \"严重程度(high/medium/low)\",\n" +
+            "      \"location\": \"所在行\",\n" +
+            "      \"description\": \"问题描述\",\n" +
+            "      \"suggestion\": \"修复建议\"\n" +
+            "    }\n" +
+            "  ],\n" +
+            "  \"suggestions\": [\"优化建议1\", \"优化建议2\"]\n" +
+            "}";
+
+    /**
+     * 多文件打包审查的要求和输出格式
+     */
+    private static final String PACKED_REVIEW_INSTRUCTIONS =
+            "待审查内容包含多个文件，每个文件以 ===== FILE 文件标识: 文件名 ===== 开始，以 ===== END FILE 文件标识 ===== 结束。\n" +
+            "请对每个文件分别独立审查，不要混淆不同文件的问题，行号从每个文件代码的第1行开始计数。\n\n" +
+            REVIEW_ASPECTS + REVIEW_GUIDELINES +
+            "请以结构化的JSON格式返回结果，files 数组中每个文件一项，fileId 与文件标识一致：\n" +
+            "{\n" +
+            "  \"files\": [\n" +
+            "    {\n" +
+            "      \"fileId\": \"文件标识\",\n" +
+            "      \"summary\": \"总体评价\",\n" +
+            "      \"qualityScore\": 质量评分(0-100),\n" +
+            "      \"securityScore\": 安全评分(0-100),\n" +
+            "      \"performanceScore\": 性能评分(0-100),\n" +
+            "      \"issues\": [\n" +
+            "        {\n" +
+            "          \"type\": \"问题类型\",\n" +
+            "          \"severity\": \"严重程度(high/medium/low)\",\n" +
+            "          \"location\": \"所在行\",\n" +
+            "          \"description\": \"问题描述\",\n" +
+            "          \"suggestion\": \"修复建议\"\n" +
+            "        }\n" +
+            "      ],\n" +
+            "      \"suggestions\": [\"优化建议1\", \"优化建议2\"]\n" +
+            "    }\n" +
+            "  ]\n" +
+            "}";
+
+    /**
+     * 获取系统角色设定
+     */
+    public String getSystemPrompt() {
+        return SYSTEM_PROMPT;
+    }
+
+    /**
+     * 获取静态的审查要求（系统角色 + 审查要求 + 输出格式），适合放在请求最前面并标记为可缓存
+     */
+    public String getStaticInstructions() {
+        return SYSTEM_PROMPT + "\n\n" + REVIEW_INSTRUCTIONS;
+    }
+
+    /**
+     * 构建只包含待审查代码的用户消息，与 {@link #getStaticInstructions()} 搭配使用
+     */
+    public String buildCodeMessage(String code, String language) {
+        return String.format("请对以下%s代码进行全面审查，并提供详细的分析报告：\n\n```%s\n%s\n```",
+                language, language, code);
+    }
+
+    /**
+     * 构建完整的代码审查提示词（代码在前、审查要求在后）
+     */
+    public String buildReviewPrompt(String code, String language) {
+        return buildCodeMessage(code, language) + "\n\n" + REVIEW_INSTRUCTIONS;
+    }
+
+    /**
+     * 获取多文件打包审查的静态要求，适合放在请求最前面并标记为可缓存
+     */
+    public String getPackedStaticInstructions() {
+        return SYSTEM_PROMPT + "\n\n" + PACKED_REVIEW_INSTRUCTIONS;
+    }
+
+    /**
+     * 构建多文件打包的用户消息，每个文件以文件标识分隔，与 {@link #getPackedStaticInstructions()} 搭配使用
+     */
+    public String buildPackedCodeMessage(List<PackedFile> files, String language) {
+        StringBuilder message = new StringBuilder();
+        message.append("请对以下").append(files.size()).append("个").append(language)
+                .append("文件分别进行全面审查，并提供详细的分析报告：\n\n");
+        for (PackedFile file : files) {
+            message.append("===== FILE ").append(file.getFileId()).append(": ").append(file.getFileName()).append(" =====\n")
+                    .append("```").append(language).append('\n')
+                    .append(file.getContent()).append('\n')
+                    .append("```\n")
+                    .append("===== END FILE ").append(file.getFileId()).append(" =====\n\n");
+        }
+        return message.toString();
+    }
+
+    /**
+     * 构建完整的多文件打包审查提示词（代码在前、审查要求在后）
+     */
+    public String buildPackedReviewPrompt(List<PackedFile> files, String language) {
+        return buildPackedCodeMessage(files, language) + PACKED_REVIEW_INSTRUCTIONS;
+    }
+}
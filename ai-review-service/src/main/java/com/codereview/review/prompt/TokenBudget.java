@@ -0,0 +1,66 @@
+package com.codereview.review.prompt;
+
+import com.codereview.common.utils.MetricsUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 请求token预算
+ * 发送请求前校验提示词大小，并按输入规模和任务类型确定输出上限（max_tokens）：
+ * 小文件不再预留过多输出，超出上限的提示词在网络请求前直接拒绝
+ * @author CodeReview
+ */
+@Component
+public class TokenBudget {
+
+    /**
+     * 单次请求提示词的token上限（应大于分片上限加上审查要求）
+     */
+    @Value("${ai.review.token.max-input-tokens:12000}")
+    private int maxInputTokens;
+
+    /**
+     * 每个文件的基础输出token（总体评价、评分等固定部分）
+     */
+    @Value("${ai.review.token.base-output-tokens:600}")
+    private int baseOutputTokens;
+
+    /**
+     * 每个代码token对应的输出token（问题描述和建议随代码规模增长）
+     */
+    @Value("${ai.review.token.output-ratio:0.3}")
+    private double outputRatio;
+
+    @Value("${ai.review.token.min-output-tokens:512}")
+    private int minOutputTokens;
+
+    @Value("${ai.review.token.max-output-tokens:4096}")
+    private int maxOutputTokens;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    /**
+     * 校验提示词并分配输出上限
+     * @param promptTokens 完整提示词（含系统提示）的token数
+     * @param codeTokens 其中代码部分的token数
+     * @param files 提示词中包含的文件数，打包审查时大于1
+     * @return 请求的 max_tokens
+     * @throws PromptTooLargeException 提示词超出上限
+     */
+    public int allocate(int promptTokens, int codeTokens, int files) {
+        String type = files > 1 ? "packed" : "single";
+        if (promptTokens > maxInputTokens) {
+            metricsUtils.incrementCounter("ai.prompt.rejected", "type", type);
+            throw new PromptTooLargeException(promptTokens, maxInputTokens);
+        }
+        metricsUtils.recordSummary("ai.prompt.tokens", promptTokens, "type", type);
+
+        long wanted = (long) baseOutputTokens * Math.max(files, 1) + Math.round(codeTokens * outputRatio);
+        int outputTokens = (int) Math.max(minOutputTokens, Math.min(maxOutputTokens, wanted));
+        metricsUtils.recordSummary("ai.prompt.max.tokens", outputTokens, "type", type);
+        return outputTokens;
+    }
+}
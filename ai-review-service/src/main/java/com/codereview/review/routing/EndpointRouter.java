@@ -0,0 +1,204 @@
+package com.codereview.review.routing;
+
+import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.config.AIRoutingConfig;
+import com.codereview.review.strategy.AIEndpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 端点路由器
+ * 在端点池中按权重随机选出两个候选端点，取路由代价（EWMA延迟 × 错误率惩罚 × 进行中请求数）较低者，
+ * 并保留少量按权重随机的探测流量；
+ * 连续失败或错误率过高的端点被暂时剔除，池内端点都不可用时按降级链依次尝试
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class EndpointRouter {
+
+    @Resource
+    private AIRoutingConfig routingConfig;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (Map.Entry<String, AIEndpoint> entry : routingConfig.getEndpoints().entrySet()) {
+            AIEndpoint endpoint = entry.getValue();
+            endpoint.setName(entry.getKey());
+            EndpointStats endpointStats = new EndpointStats(endpoint);
+            stats.put(entry.getKey(), endpointStats);
+
+            metricsUtils.registerGauge("ai.routing.latency.ewma", () -> endpointStats.getLatencyMs(),
+                    "endpoint", endpoint.getName());
+            metricsUtils.registerGauge("ai.routing.error.rate", () -> endpointStats.getErrorRate(),
+                    "endpoint", endpoint.getName());
+            metricsUtils.registerGauge("ai.routing.inflight", () -> endpointStats.getInflight(),
+                    "endpoint", endpoint.getName());
+            metricsUtils.registerGauge("ai.routing.ejected",
+                    () -> endpointStats.isEjected(System.currentTimeMillis()) ? 1 : 0, "endpoint", endpoint.getName());
+        }
+        for (Map.Entry<String, AIRoutingConfig.Route> entry : routingConfig.getRoutes().entrySet()) {
+            List<String> names = new ArrayList<>(entry.getValue().getEndpoints());
+            names.addAll(entry.getValue().getFallback());
+            for (String name : names) {
+                if (!stats.containsKey(name)) {
+                    throw new IllegalStateException("路由规则 " + entry.getKey() + " 引用了未定义的端点: " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * 为一次调用规划端点尝试顺序
+     * 依次为：端点池中选出的首选端点、池内其他可用端点（按代价升序）、可用的降级端点（按配置顺序），
+     * 最后是被剔除的端点，保证所有端点都不可用时仍有机会成功
+     * @param route 路由规则
+     * @return 端点尝试顺序
+     */
+    public List<AIEndpoint> plan(AIRoutingConfig.Route route) {
+        long now = System.currentTimeMillis();
+        double errorPenalty = routingConfig.getErrorPenalty();
+
+        List<EndpointStats> healthyPool = new ArrayList<>();
+        List<EndpointStats> ejected = new ArrayList<>();
+        for (String name : route.getEndpoints()) {
+            EndpointStats endpointStats = stats.get(name);
+            (endpointStats.isEjected(now) ? ejected : healthyPool).add(endpointStats);
+        }
+
+        List<AIEndpoint> plan = new ArrayList<>();
+        if (!healthyPool.isEmpty()) {
+            EndpointStats first = pickTwoChoices(healthyPool, errorPenalty);
+            plan.add(first.getEndpoint());
+            healthyPool.remove(first);
+            healthyPool.sort(Comparator.comparingDouble(s -> s.cost(errorPenalty)));
+            for (EndpointStats endpointStats : healthyPool) {
+                plan.add(endpointStats.getEndpoint());
+            }
+        }
+        for (String name : route.getFallback()) {
+            EndpointStats endpointStats = stats.get(name);
+            if (endpointStats.isEjected(now)) {
+                ejected.add(endpointStats);
+            } else if (!plan.contains(endpointStats.getEndpoint())) {
+                plan.add(endpointStats.getEndpoint());
+            }
+        }
+        for (EndpointStats endpointStats : ejected) {
+            if (!plan.contains(endpointStats.getEndpoint())) {
+                plan.add(endpointStats.getEndpoint());
+            }
+        }
+        if (plan.isEmpty()) {
+            throw new BusinessException("路由规则未配置可用端点");
+        }
+        return plan;
+    }
+
+    /**
+     * 为对冲请求选择目标端点
+     * 只选择端点池中未被剔除的端点（首选端点之外代价最低者），降级端点和被剔除的端点不接收对冲流量
+     * @param route 路由规则
+     * @param plan 本次调用的端点尝试顺序
+     * @return 对冲目标端点，没有合适端点时返回 null
+     */
+    public AIEndpoint hedgeTarget(AIRoutingConfig.Route route, List<AIEndpoint> plan) {
+        long now = System.currentTimeMillis();
+        for (int i = 1; i < plan.size(); i++) {
+            AIEndpoint endpoint = plan.get(i);
+            if (route.getEndpoints().contains(endpoint.getName()) && !stats.get(endpoint.getName()).isEjected(now)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按权重随机选出两个候选端点，返回代价较低者
+     */
+    private EndpointStats pickTwoChoices(List<EndpointStats> pool, double errorPenalty) {
+        if (pool.size() == 1) {
+            return pool.get(0);
+        }
+        // 少量请求只按权重随机，避免偶发高延迟的端点因代价偏高而长期得不到新样本
+        if (ThreadLocalRandom.current().nextDouble() < routingConfig.getExploreRatio()) {
+            return pickWeighted(pool, null);
+        }
+        EndpointStats a = pickWeighted(pool, null);
+        EndpointStats b = pickWeighted(pool, a);
+        return a.cost(errorPenalty) <= b.cost(errorPenalty) ? a : b;
+    }
+
+    private EndpointStats pickWeighted(List<EndpointStats> pool, EndpointStats exclude) {
+        int total = 0;
+        for (EndpointStats endpointStats : pool) {
+            if (endpointStats != exclude) {
+                total += Math.max(1, endpointStats.getEndpoint().getWeight());
+            }
+        }
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (EndpointStats endpointStats : pool) {
+            if (endpointStats == exclude) {
+                continue;
+            }
+            r -= Math.max(1, endpointStats.getEndpoint().getWeight());
+            if (r < 0) {
+                return endpointStats;
+            }
+        }
+        return pool.get(pool.size() - 1);
+    }
+
+    /**
+     * 记录端点调用开始
+     */
+    public void onStart(AIEndpoint endpoint) {
+        stats.get(endpoint.getName()).onStart();
+    }
+
+    /**
+     * 记录端点调用成功
+     * @param latencyMs 调用耗时（毫秒）
+     */
+    public void onSuccess(AIEndpoint endpoint, long latencyMs) {
+        stats.get(endpoint.getName()).onSuccess(latencyMs, routingConfig.getEwmaAlpha());
+        metricsUtils.incrementCounter("ai.routing.requests", "endpoint", endpoint.getName(), "result", "success");
+    }
+
+    /**
+     * 记录端点调用失败，达到剔除条件时暂时剔除端点
+     * @param latencyMs 调用耗时（毫秒）
+     */
+    public void onFailure(AIEndpoint endpoint, long latencyMs) {
+        EndpointStats endpointStats = stats.get(endpoint.getName());
+        metricsUtils.incrementCounter("ai.routing.requests", "endpoint", endpoint.getName(), "result", "failure");
+        if (endpointStats.onFailure(latencyMs, routingConfig.getEwmaAlpha(),
+                routingConfig.getEjectConsecutiveFailures(), routingConfig.getEjectErrorRate())) {
+            endpointStats.eject(System.currentTimeMillis() + routingConfig.getEjectionSeconds() * 1000);
+            metricsUtils.incrementCounter("ai.routing.ejections", "endpoint", endpoint.getName());
+            log.warn("AI端点失败过多，暂时剔除: endpoint={}, seconds={}", endpoint.getName(), routingConfig.getEjectionSeconds());
+        }
+    }
+
+    /**
+     * 记录端点调用放弃（取消），只释放进行中计数
+     */
+    public void onAbandon(AIEndpoint endpoint) {
+        stats.get(endpoint.getName()).onAbandon();
+    }
+}
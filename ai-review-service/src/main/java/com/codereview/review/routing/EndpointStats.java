@@ -0,0 +1,103 @@
+package com.codereview.review.routing;
+
+import com.codereview.review.strategy.AIEndpoint;
+
+/**
+ * 端点运行统计
+ * 记录EWMA延迟、EWMA错误率、进行中请求数和剔除状态
+ * @author CodeReview
+ */
+public class EndpointStats {
+
+    private final AIEndpoint endpoint;
+
+    /**
+     * EWMA延迟（毫秒），0表示尚无样本
+     */
+    private double latencyMs;
+
+    /**
+     * EWMA错误率
+     */
+    private double errorRate;
+
+    private int inflight;
+
+    private int consecutiveFailures;
+
+    /**
+     * 剔除截止时间（毫秒时间戳）
+     */
+    private long ejectedUntil;
+
+    public EndpointStats(AIEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public AIEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized double getLatencyMs() {
+        return latencyMs;
+    }
+
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+
+    public synchronized boolean isEjected(long now) {
+        return ejectedUntil > now;
+    }
+
+    /**
+     * 路由代价：EWMA延迟按错误率放大，再乘以进行中请求数，尚无样本的端点代价为0以便尽快探测
+     */
+    public synchronized double cost(double errorPenalty) {
+        return latencyMs * (1 + errorRate * errorPenalty) * (inflight + 1);
+    }
+
+    synchronized void onStart() {
+        inflight++;
+    }
+
+    synchronized void onSuccess(long latency, double alpha) {
+        inflight = Math.max(0, inflight - 1);
+        latencyMs = latencyMs <= 0 ? latency : latencyMs + (latency - latencyMs) * alpha;
+        errorRate += (0 - errorRate) * alpha;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * 记录失败
+     * @return 是否需要剔除该端点
+     */
+    synchronized boolean onFailure(long latency, double alpha, int ejectFailures, double ejectErrorRate) {
+        inflight = Math.max(0, inflight - 1);
+        // 失败请求的耗时同样计入延迟，超时的端点因此快速变得昂贵
+        latencyMs = latencyMs <= 0 ? latency : latencyMs + (latency - latencyMs) * alpha;
+        errorRate += (1 - errorRate) * alpha;
+        consecutiveFailures++;
+        return consecutiveFailures >= ejectFailures || errorRate > ejectErrorRate;
+    }
+
+    /**
+     * 请求结束但不计入统计（取消等）
+     */
+    synchronized void onAbandon() {
+        inflight = Math.max(0, inflight - 1);
+    }
+
+    /**
+     * 剔除端点；剔除到期后错误率减半，给端点重新证明自己的机会
+     */
+    synchronized void eject(long until) {
+        ejectedUntil = until;
+        consecutiveFailures = 0;
+        errorRate /= 2;
+    }
+}
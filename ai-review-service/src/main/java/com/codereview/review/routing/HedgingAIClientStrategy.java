@@ -0,0 +1,95 @@
+package com.codereview.review.routing;
+
+import com.codereview.review.prompt.PackedFile;
+import com.codereview.review.strategy.AIClientStrategy;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 对冲策略
+ * 主策略响应过慢时向备用策略发出对冲请求；同步和流式调用只使用主策略。
+ * 备用策略是其他模型时，由它返回的结果不按主策略的模型写入审查结果缓存
+ * @author CodeReview
+ */
+public class HedgingAIClientStrategy implements AIClientStrategy {
+
+    private final AIClientStrategy primary;
+
+    private final AIClientStrategy secondary;
+
+    private final RequestHedger requestHedger;
+
+    /**
+     * 备用策略返回的结果，弱引用，结果不再被引用后自动移除
+     */
+    private final Map<String, Boolean> secondaryResults = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public HedgingAIClientStrategy(AIClientStrategy primary, AIClientStrategy secondary, RequestHedger requestHedger) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.requestHedger = requestHedger;
+    }
+
+    @Override
+    public String reviewCode(String code, String language) {
+        return primary.reviewCode(code, language);
+    }
+
+    @Override
+    public CompletableFuture<String> reviewCodeAsync(String code, String language) {
+        return requestHedger.execute(primary.getModelName(),
+                () -> primary.reviewCodeAsync(code, language),
+                () -> trackSecondary(secondary.reviewCodeAsync(code, language)));
+    }
+
+    @Override
+    public CompletableFuture<String> reviewFilesAsync(List<PackedFile> files, String language) {
+        return requestHedger.execute(primary.getModelName(),
+                () -> primary.reviewFilesAsync(files, language),
+                () -> trackSecondary(secondary.reviewFilesAsync(files, language)));
+    }
+
+    @Override
+    public String streamReviewCode(String code, String language, Consumer<String> onDelta) {
+        return primary.streamReviewCode(code, language, onDelta);
+    }
+
+    @Override
+    public boolean isCacheable(String reviewResult) {
+        return !secondaryResults.containsKey(reviewResult) && primary.isCacheable(reviewResult);
+    }
+
+    @Override
+    public String getModelName() {
+        return primary.getModelName();
+    }
+
+    @Override
+    public String getPromptVersion() {
+        return primary.getPromptVersion();
+    }
+
+    /**
+     * 备用策略是其他模型时记录它返回的结果；对冲失败方被取消时同时取消原始请求
+     */
+    private CompletableFuture<String> trackSecondary(CompletableFuture<String> future) {
+        if (secondary.getModelName().equals(primary.getModelName())) {
+            return future;
+        }
+        CompletableFuture<String> tracked = future.thenApply(result -> {
+            secondaryResults.put(result, Boolean.TRUE);
+            return result;
+        });
+        tracked.whenComplete((result, error) -> {
+            if (tracked.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return tracked;
+    }
+}
@@ -0,0 +1,300 @@
+package com.codereview.review.routing;
+
+import com.codereview.common.utils.MetricsUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求执行器
+ * 主调用在最近延迟的指定分位数时间内未返回时，向备用端点或策略发出一个相同的请求，
+ * 先成功返回的结果胜出并取消另一个请求。对冲请求受预算限制，不超过总请求数的一定比例
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class RequestHedger {
+
+    /**
+     * 预算最多累积的对冲次数，避免长时间空闲后集中对冲
+     */
+    private static final double MAX_BUDGET_TOKENS = 10;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Value("${ai.hedge.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 触发对冲的延迟分位数
+     */
+    @Value("${ai.hedge.percentile:0.95}")
+    private double percentile;
+
+    /**
+     * 计算分位数使用的最近成功请求数
+     */
+    @Value("${ai.hedge.window-size:200}")
+    private int windowSize;
+
+    /**
+     * 样本数达到该值后才开始对冲
+     */
+    @Value("${ai.hedge.min-samples:20}")
+    private int minSamples;
+
+    /**
+     * 对冲等待时间下限（毫秒）
+     */
+    @Value("${ai.hedge.min-delay-ms:1000}")
+    private long minDelayMs;
+
+    /**
+     * 对冲请求占总请求数的比例上限
+     */
+    @Value("${ai.hedge.budget-ratio:0.05}")
+    private double budgetRatio;
+
+    private final Map<String, HedgeState> states = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ai-hedge-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 执行可对冲的调用
+     * @param key 延迟统计和预算的维度（如路由规则、策略名称）
+     * @param primary 主调用
+     * @param secondary 对冲调用，为 null 时不对冲
+     * @return 先成功的结果；两个调用都失败时以主调用的异常完成
+     */
+    public <T> CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> primary,
+                                            Supplier<CompletableFuture<T>> secondary) {
+        if (!enabled) {
+            return primary.get();
+        }
+
+        HedgeState state = states.computeIfAbsent(key, k -> new HedgeState(windowSize));
+        state.deposit(budgetRatio);
+        long start = System.currentTimeMillis();
+        HedgedCall<T> call = new HedgedCall<>(key, state, start);
+
+        call.attach(invoke(primary), false);
+        long delay = state.hedgeDelay();
+        if (secondary != null && delay > 0) {
+            timer.schedule(() -> {
+                if (!call.shouldHedge()) {
+                    return;
+                }
+                if (!state.withdraw()) {
+                    metricsUtils.incrementCounter("ai.hedge.skipped", "key", key, "reason", "budget");
+                    return;
+                }
+                metricsUtils.incrementCounter("ai.hedge.fired", "key", key);
+                log.info("AI调用超过{}ms未返回，发出对冲请求: key={}", delay, key);
+                call.attach(invoke(secondary), true);
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        return call.result;
+    }
+
+    private <T> CompletableFuture<T> invoke(Supplier<CompletableFuture<T>> supplier) {
+        try {
+            return supplier.get();
+        } catch (Exception e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * 一次可对冲的调用，最多包含主调用和对冲调用两个请求
+     */
+    private class HedgedCall<T> {
+
+        private final String key;
+
+        private final HedgeState state;
+
+        private final long start;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private CompletableFuture<T> primary;
+
+        private CompletableFuture<T> hedge;
+
+        private int pending;
+
+        /**
+         * 结果是否已确定（已有请求成功，或全部请求失败）
+         */
+        private boolean settled;
+
+        private Throwable primaryError;
+
+        HedgedCall(String key, HedgeState state, long start) {
+            this.key = key;
+            this.state = state;
+            this.start = start;
+            // 调用方取消时取消所有请求
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    cancelAll();
+                }
+            });
+        }
+
+        synchronized boolean shouldHedge() {
+            return !settled && !result.isDone() && pending > 0;
+        }
+
+        void attach(CompletableFuture<T> future, boolean isHedge) {
+            boolean late;
+            synchronized (this) {
+                // 对冲请求发出期间主调用可能已经完成，此时对冲请求不再需要
+                late = isHedge && (settled || result.isDone());
+                if (!late) {
+                    pending++;
+                    if (isHedge) {
+                        hedge = future;
+                    } else {
+                        primary = future;
+                    }
+                }
+            }
+            if (late) {
+                metricsUtils.incrementCounter("ai.hedge.skipped", "key", key, "reason", "late");
+                future.cancel(true);
+                return;
+            }
+            future.whenComplete((value, error) -> onComplete(future, isHedge, value, error));
+        }
+
+        private void onComplete(CompletableFuture<T> future, boolean isHedge, T value, Throwable error) {
+            CompletableFuture<T> loser = null;
+            boolean failed = false;
+            synchronized (this) {
+                pending--;
+                if (error == null) {
+                    if (!settled) {
+                        settled = true;
+                        loser = isHedge ? primary : hedge;
+                    }
+                } else {
+                    if (!isHedge) {
+                        primaryError = error;
+                    }
+                    failed = pending == 0 && !settled;
+                    if (failed) {
+                        settled = true;
+                    }
+                }
+            }
+
+            if (error == null) {
+                if (result.complete(value)) {
+                    state.record(System.currentTimeMillis() - start);
+                    if (isHedge) {
+                        metricsUtils.incrementCounter("ai.hedge.won", "key", key);
+                    }
+                    if (loser != null && loser != future) {
+                        loser.cancel(true);
+                    }
+                }
+            } else if (failed) {
+                result.completeExceptionally(primaryError != null ? primaryError : error);
+            }
+        }
+
+        private void cancelAll() {
+            CompletableFuture<T> p;
+            CompletableFuture<T> h;
+            synchronized (this) {
+                p = primary;
+                h = hedge;
+            }
+            if (p != null) {
+                p.cancel(true);
+            }
+            if (h != null) {
+                h.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 单个维度的延迟窗口和对冲预算
+     */
+    private class HedgeState {
+
+        private final long[] samples;
+
+        private int count;
+
+        private int next;
+
+        private double budget;
+
+        HedgeState(int size) {
+            this.samples = new long[Math.max(1, size)];
+        }
+
+        synchronized void record(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * 对冲等待时间，样本不足时返回0表示不对冲
+         */
+        synchronized long hedgeDelay() {
+            if (count < minSamples) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+            return Math.max(minDelayMs, sorted[Math.max(0, index)]);
+        }
+
+        synchronized void deposit(double amount) {
+            budget = Math.min(MAX_BUDGET_TOKENS, budget + amount);
+        }
+
+        synchronized boolean withdraw() {
+            if (budget < 1) {
+                return false;
+            }
+            budget -= 1;
+            return true;
+        }
+    }
+}
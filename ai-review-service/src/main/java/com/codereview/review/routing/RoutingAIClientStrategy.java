@@ -0,0 +1,236 @@
+package com.codereview.review.routing;
+
+import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.config.AIRoutingConfig;
+import com.codereview.review.limiter.ConcurrencyLimitExceededException;
+import com.codereview.review.limiter.LimitedCallFuture;
+import com.codereview.review.prompt.PackedFile;
+import com.codereview.review.prompt.PromptTooLargeException;
+import com.codereview.review.strategy.AIClientException;
+import com.codereview.review.strategy.AIClientStrategy;
+import com.codereview.review.strategy.AIEndpoint;
+import com.codereview.review.strategy.AIEndpointClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * 多端点路由策略
+ * 按路由规则为每次调用选择端点，调用失败时依次切换到下一个端点；
+ * 首选端点响应过慢时可向次选端点发出对冲请求
+ * @author CodeReview
+ */
+@Slf4j
+public class RoutingAIClientStrategy implements AIClientStrategy {
+
+    private final String routeKey;
+
+    private final AIRoutingConfig.Route route;
+
+    private final EndpointRouter endpointRouter;
+
+    private final Map<String, AIEndpointClient> clients;
+
+    private final RequestHedger requestHedger;
+
+    private final MetricsUtils metricsUtils;
+
+    public RoutingAIClientStrategy(String routeKey, AIRoutingConfig.Route route, EndpointRouter endpointRouter,
+                                   Map<String, AIEndpointClient> clients, RequestHedger requestHedger,
+                                   MetricsUtils metricsUtils) {
+        this.routeKey = routeKey;
+        this.route = route;
+        this.endpointRouter = endpointRouter;
+        this.clients = clients;
+        this.requestHedger = requestHedger;
+        this.metricsUtils = metricsUtils;
+    }
+
+    @Override
+    public String reviewCode(String code, String language) {
+        try {
+            return reviewCodeAsync(code, language).join();
+        } catch (Exception e) {
+            Throwable cause = unwrap(e);
+            log.error("路由调用AI接口失败: route={}", routeKey, cause);
+            return "AI审查失败：" + cause.getMessage();
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> reviewCodeAsync(String code, String language) {
+        return route((client, endpoint) -> client.reviewCodeAsync(endpoint, code, language));
+    }
+
+    @Override
+    public CompletableFuture<String> reviewFilesAsync(List<PackedFile> files, String language) {
+        return route((client, endpoint) -> client.reviewFilesAsync(endpoint, files, language));
+    }
+
+    /**
+     * 按路由规则调用，首选端点过慢时向次选端点发出对冲请求
+     */
+    private CompletableFuture<String> route(BiFunction<AIEndpointClient, AIEndpoint, CompletableFuture<String>> call) {
+        List<AIEndpoint> plan = endpointRouter.plan(route);
+        AIEndpoint hedgeTarget = endpointRouter.hedgeTarget(route, plan);
+        if (hedgeTarget == null) {
+            return callChain(plan, call);
+        }
+        // 对冲请求只发往健康的次选端点，不再切换
+        List<AIEndpoint> hedgePlan = Collections.singletonList(hedgeTarget);
+        return requestHedger.execute(getModelName(),
+                () -> callChain(plan, call),
+                () -> callChain(hedgePlan, call));
+    }
+
+    /**
+     * 按端点尝试顺序调用，失败时切换到下一个端点
+     */
+    private CompletableFuture<String> callChain(List<AIEndpoint> plan,
+                                                BiFunction<AIEndpointClient, AIEndpoint, CompletableFuture<String>> call) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> current = new AtomicReference<>();
+        // 调用方取消时同时取消当前端点的调用
+        result.whenComplete((value, error) -> {
+            CompletableFuture<String> attempt = current.get();
+            if (result.isCancelled() && attempt != null) {
+                attempt.cancel(true);
+            }
+        });
+        attempt(plan, 0, call, result, current);
+        return result;
+    }
+
+    /**
+     * 调用第 index 个端点，失败时切换到下一个端点
+     */
+    private void attempt(List<AIEndpoint> plan, int index,
+                         BiFunction<AIEndpointClient, AIEndpoint, CompletableFuture<String>> call,
+                         CompletableFuture<String> result, AtomicReference<CompletableFuture<String>> current) {
+        if (result.isDone()) {
+            return;
+        }
+        AIEndpoint endpoint = plan.get(index);
+        long start = System.nanoTime();
+        endpointRouter.onStart(endpoint);
+
+        CompletableFuture<String> future;
+        try {
+            future = call.apply(clientOf(endpoint), endpoint);
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        current.set(future);
+
+        CompletableFuture<String> attemptFuture = future;
+        future.whenComplete((value, error) -> {
+            long latency = latencyMillis(attemptFuture, start);
+            if (error == null) {
+                endpointRouter.onSuccess(endpoint, latency);
+                result.complete(value);
+                return;
+            }
+            if (result.isCancelled()) {
+                endpointRouter.onAbandon(endpoint);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (isClientError(cause)) {
+                // 请求本身有问题，换端点也不会成功，不计入端点失败
+                endpointRouter.onAbandon(endpoint);
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (cause instanceof ConcurrencyLimitExceededException) {
+                // 本地限制器拒绝，请求未发往端点，不影响端点统计，但可以尝试其他端点
+                endpointRouter.onAbandon(endpoint);
+                metricsUtils.incrementCounter("ai.routing.requests", "endpoint", endpoint.getName(), "result", "rejected");
+            } else {
+                endpointRouter.onFailure(endpoint, latency);
+            }
+            if (index + 1 < plan.size()) {
+                log.warn("AI端点调用失败，切换到下一个端点: route={}, endpoint={}, next={}, error={}",
+                        routeKey, endpoint.getName(), plan.get(index + 1).getName(), cause.getMessage());
+                metricsUtils.incrementCounter("ai.routing.failover", "route", routeKey, "endpoint", endpoint.getName());
+                attempt(plan, index + 1, call, result, current);
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    /**
+     * 流式调用不做端点切换（增量内容已输出给调用方），只使用首选端点；
+     * 流式耗时取决于输出长度，不计入端点延迟统计
+     */
+    @Override
+    public String streamReviewCode(String code, String language, Consumer<String> onDelta) {
+        AIEndpoint endpoint = endpointRouter.plan(route).get(0);
+        endpointRouter.onStart(endpoint);
+        try {
+            return clientOf(endpoint).streamReviewCode(endpoint, code, language, onDelta);
+        } finally {
+            endpointRouter.onAbandon(endpoint);
+        }
+    }
+
+    @Override
+    public String getModelName() {
+        return "route:" + routeKey;
+    }
+
+    private AIEndpointClient clientOf(AIEndpoint endpoint) {
+        AIEndpointClient client = clients.get(endpoint.getProvider());
+        if (client == null) {
+            throw new BusinessException("不支持的AI接口协议: " + endpoint.getProvider());
+        }
+        return client;
+    }
+
+    /**
+     * 计算端点调用耗时，受并发限制的调用从获得许可时开始计时，不包含在限制器中排队的时间
+     */
+    private long latencyMillis(CompletableFuture<String> future, long startNanos) {
+        long start = startNanos;
+        if (future instanceof LimitedCallFuture) {
+            long granted = ((LimitedCallFuture<String>) future).getPermitGrantedNanos();
+            if (granted > 0) {
+                start = granted;
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * 是否为不可重试的客户端错误：本地发现的提示词超限，以及除408、429以外的4xx响应
+     */
+    private boolean isClientError(Throwable cause) {
+        if (cause instanceof PromptTooLargeException) {
+            return true;
+        }
+        if (cause instanceof AIClientException) {
+            int status = ((AIClientException) cause).getStatusCode();
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+        return false;
+    }
+
+    private Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
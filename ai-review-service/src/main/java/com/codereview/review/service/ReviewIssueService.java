@@ -0,0 +1,38 @@
+package com.codereview.review.service;
+
+import com.codereview.review.dto.IssueStatDTO;
+import com.codereview.review.dto.PageResponseDTO;
+import com.codereview.review.dto.ReviewIssueQueryDTO;
+import com.codereview.review.entity.ReviewIssue;
+import com.codereview.review.entity.ReviewTask;
+
+import java.util.List;
+
+/**
+ * 审查问题服务接口
+ * @author CodeReview
+ */
+public interface ReviewIssueService {
+
+    /**
+     * 将审查结果中的问题拆分保存，同一任务重复保存时先清除旧记录
+     * @param reviewResult 审查结果JSON
+     */
+    void saveIssues(ReviewTask task, String reviewResult);
+
+    /**
+     * 分页查询用户的审查问题
+     */
+    PageResponseDTO<ReviewIssue> getUserIssues(Long userId, ReviewIssueQueryDTO queryDTO);
+
+    /**
+     * 按严重程度或类型统计用户的审查问题
+     * @param groupBy 分组字段（severity/type）
+     */
+    List<IssueStatDTO> getIssueStats(Long userId, Long taskId, String severity, String groupBy);
+
+    /**
+     * 删除任务的审查问题
+     */
+    void deleteByTaskId(Long taskId);
+}
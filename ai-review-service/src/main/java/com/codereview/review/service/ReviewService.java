@@ -6,6 +6,8 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * 代码审查服务接口
@@ -38,10 +40,32 @@ public interface ReviewService {
      */
     ReviewTask executeSyncReview(CodeReviewRequestDTO dto, Long userId);
 
+    /**
+     * 执行流式代码审查
+     * @param onDelta AI返回的增量内容回调
+     * @return 审查完成后的任务
+     */
+    ReviewTask executeStreamReview(CodeReviewRequestDTO dto, Long userId, Consumer<String> onDelta);
+
     /**
      * 执行异步审查（处理MQ队列中的任务）
+     * @return 任务进入终态后完成的Future，等待AI响应期间不占用调用线程；
+     *         AI并发受限时任务退回待审查，Future以 ConcurrencyLimitExceededException 异常完成，消息应延迟后重新投递
+     */
+    CompletableFuture<Void> executeAsyncReview(Long taskId);
+
+    /**
+     * 执行打包异步审查（处理MQ队列中的打包任务），整组只调用一次AI
+     * @return 组内所有任务进入终态后完成的Future，并发受限时同 {@link #executeAsyncReview(Long)}
      */
-    void executeAsyncReview(Long taskId);
+    CompletableFuture<Void> executeAsyncBatchReview(List<Long> taskIds);
+
+    /**
+     * 执行队列消息中的审查任务，任务信息由消息携带，不查询数据库；多个任务时整组只调用一次AI
+     * @param tasks 由消息还原的待审查任务，未内联的代码内容从内容存储读取
+     * @return 组内所有任务进入终态后完成的Future，并发受限时同 {@link #executeAsyncReview(Long)}
+     */
+    CompletableFuture<Void> executeQueuedReview(List<ReviewTask> tasks);
 
     /**
      * 获取审查任务详情
@@ -54,9 +78,14 @@ public interface ReviewService {
     ReviewTask getTaskDetail(Long taskId, Long userId);
 
     /**
-     * 获取用户的审查任务列表
+     * 获取审查任务状态（校验用户权限），不加载代码内容，用于状态推送的快照
+     */
+    ReviewTask getTaskStatus(Long taskId, Long userId);
+
+    /**
+     * 获取用户的审查任务列表（摘要），支持页码分页和游标分页
      */
-    PageResponseDTO<ReviewTask> getUserTasks(Long userId, ReviewTaskQueryDTO queryDTO);
+    PageResponseDTO<ReviewTaskSummaryDTO> getUserTasks(Long userId, ReviewTaskQueryDTO queryDTO);
 
     /**
      * 删除审查任务
@@ -0,0 +1,166 @@
+package com.codereview.review.service.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.dto.IssueStatDTO;
+import com.codereview.review.dto.PageResponseDTO;
+import com.codereview.review.dto.ReviewIssueQueryDTO;
+import com.codereview.review.entity.ReviewIssue;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.ReviewIssueMapper;
+import com.codereview.review.service.ReviewIssueService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 审查问题服务实现
+ * @author CodeReview
+ */
+@Slf4j
+@Service
+public class ReviewIssueServiceImpl implements ReviewIssueService {
+
+    private static final int MAX_TYPE_LENGTH = 100;
+    private static final int MAX_SEVERITY_LENGTH = 20;
+    private static final int MAX_LOCATION_LENGTH = 100;
+    private static final String DEFAULT_SOURCE = "ai";
+
+    @Resource
+    private ReviewIssueMapper reviewIssueMapper;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 单条批量INSERT的最大行数，避免超出 max_allowed_packet
+     */
+    @Value("${ai.review.issue.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void saveIssues(ReviewTask task, String reviewResult) {
+        List<ReviewIssue> issues = extractIssues(task, reviewResult);
+        try {
+            // MQ重投或重新审查时先清除旧记录，保证每个任务只有一份问题；
+            // 删除和插入在同一事务中，插入失败时保留旧记录
+            transactionTemplate.executeWithoutResult(status -> {
+                deleteByTaskId(task.getId());
+                for (int from = 0; from < issues.size(); from += batchSize) {
+                    reviewIssueMapper.insertBatch(issues.subList(from, Math.min(from + batchSize, issues.size())));
+                }
+            });
+            metricsUtils.recordSummary("ai.review.issue.rows", issues.size());
+        } catch (Exception e) {
+            // 问题明细是审查结果的派生数据，保存失败不影响任务本身
+            log.error("保存审查问题失败: taskId={}, error={}", task.getId(), e.getMessage(), e);
+            metricsUtils.incrementCounter("ai.review.issue.save.failed");
+        }
+    }
+
+    @Override
+    public PageResponseDTO<ReviewIssue> getUserIssues(Long userId, ReviewIssueQueryDTO queryDTO) {
+        int page = queryDTO.getPage() != null ? Math.max(queryDTO.getPage(), 1) : 1;
+        int size = PageResponseDTO.capSize(queryDTO.getSize());
+        Page<ReviewIssue> pageParam = new Page<>(page, size);
+        LambdaQueryWrapper<ReviewIssue> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ReviewIssue::getUserId, userId);
+
+        if (queryDTO.getTaskId() != null) {
+            wrapper.eq(ReviewIssue::getTaskId, queryDTO.getTaskId());
+        }
+        if (queryDTO.getSeverity() != null && !queryDTO.getSeverity().trim().isEmpty()) {
+            wrapper.eq(ReviewIssue::getSeverity, normalizeSeverity(queryDTO.getSeverity()));
+        }
+        if (queryDTO.getType() != null && !queryDTO.getType().trim().isEmpty()) {
+            wrapper.eq(ReviewIssue::getType, queryDTO.getType().trim());
+        }
+        wrapper.orderByDesc(ReviewIssue::getId);
+
+        Page<ReviewIssue> result = reviewIssueMapper.selectPage(pageParam, wrapper);
+
+        PageResponseDTO<ReviewIssue> response = new PageResponseDTO<>();
+        response.setRecords(result.getRecords());
+        response.setTotal(result.getTotal());
+        response.setPage(page);
+        response.setSize(size);
+        return response;
+    }
+
+    @Override
+    public List<IssueStatDTO> getIssueStats(Long userId, Long taskId, String severity, String groupBy) {
+        String normalized = severity != null && !severity.trim().isEmpty() ? normalizeSeverity(severity) : null;
+        return reviewIssueMapper.selectStats(userId, taskId, normalized, groupBy);
+    }
+
+    @Override
+    public void deleteByTaskId(Long taskId) {
+        reviewIssueMapper.delete(new LambdaQueryWrapper<ReviewIssue>().eq(ReviewIssue::getTaskId, taskId));
+    }
+
+    /**
+     * 从审查结果JSON中取出问题列表
+     * @return 问题列表，结果无法解析或没有问题时返回空列表
+     */
+    List<ReviewIssue> extractIssues(ReviewTask task, String reviewResult) {
+        JSONArray array;
+        try {
+            JSONObject result = JSON.parseObject(reviewResult);
+            array = result != null ? result.getJSONArray("issues") : null;
+        } catch (Exception e) {
+            log.warn("审查结果不是有效JSON，跳过问题拆分: taskId={}", task.getId());
+            return Collections.emptyList();
+        }
+        if (array == null || array.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<ReviewIssue> issues = new ArrayList<>(array.size());
+        for (Object item : array) {
+            if (!(item instanceof JSONObject)) {
+                continue;
+            }
+            JSONObject json = (JSONObject) item;
+            ReviewIssue issue = new ReviewIssue();
+            issue.setTaskId(task.getId());
+            issue.setUserId(task.getUserId());
+            issue.setType(truncate(json.getString("type"), MAX_TYPE_LENGTH));
+            issue.setSeverity(truncate(normalizeSeverity(json.getString("severity")), MAX_SEVERITY_LENGTH));
+            issue.setDescription(json.getString("description"));
+            issue.setSuggestion(json.getString("suggestion"));
+            issue.setLocation(truncate(json.getString("location"), MAX_LOCATION_LENGTH));
+            String source = json.getString("source");
+            issue.setSource(source != null ? truncate(source, MAX_SEVERITY_LENGTH) : DEFAULT_SOURCE);
+            issues.add(issue);
+        }
+        return issues;
+    }
+
+    /**
+     * 严重程度统一为小写，便于按值筛选
+     */
+    private String normalizeSeverity(String severity) {
+        return severity != null ? severity.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+}
@@ -1,17 +1,39 @@
 package com.codereview.review.service.impl;
 
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.codereview.common.constant.RedisConstants;
 import com.codereview.common.enums.ReviewStatusEnum;
 import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
 import com.codereview.common.utils.RedisUtils;
+import com.codereview.review.analysis.PreAnalysisContext;
+import com.codereview.review.analysis.PreAnalysisPipeline;
+import com.codereview.review.blob.CodeBlobStore;
+import com.codereview.review.cache.CachedReviewResult;
+import com.codereview.review.cache.ReviewResultCache;
+import com.codereview.review.cache.ReviewSingleFlight;
+import com.codereview.review.cache.ReviewTaskCache;
+import com.codereview.review.dispatch.ReviewLeaseKeeper;
+import com.codereview.review.dispatch.ReviewTaskPublisher;
 import com.codereview.review.dto.*;
 import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.event.TaskEventHub;
+import com.codereview.review.limiter.ConcurrencyLimitExceededException;
 import com.codereview.review.mapper.ReviewTaskMapper;
+import com.codereview.review.parser.MergedReviewResult;
+import com.codereview.review.parser.PackedReviewSplitter;
+import com.codereview.review.parser.ReviewJsonExtractor;
+import com.codereview.review.parser.ReviewResultMerger;
+import com.codereview.review.parser.ReviewScores;
+import com.codereview.review.prompt.CodeChunk;
+import com.codereview.review.prompt.CodeChunker;
+import com.codereview.review.prompt.PackedFile;
+import com.codereview.review.prompt.PromptPacker;
+import com.codereview.review.prompt.TokenCounter;
+import com.codereview.review.service.ReviewIssueService;
 import com.codereview.review.service.ReviewService;
+import com.codereview.review.strategy.AIClientException;
 import com.codereview.review.strategy.AIClientFactory;
 import com.codereview.review.strategy.AIClientStrategy;
 import com.itextpdf.text.*;
@@ -22,17 +44,26 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * 代码审查服务实现
@@ -45,16 +76,81 @@ public class ReviewServiceImpl implements ReviewService {
     @Resource
     private ReviewTaskMapper reviewTaskMapper;
 
+    @Resource
+    private RedisUtils redisUtils;
+
     @Resource
     private AIClientFactory aiClientFactory;
 
     @Resource
-    private RabbitTemplate rabbitTemplate;
+    private ReviewResultCache reviewResultCache;
 
     @Resource
-    private RedisUtils redisUtils;
+    private ReviewTaskCache reviewTaskCache;
+
+    @Resource
+    private TaskEventHub taskEventHub;
+
+    @Resource
+    private ReviewSingleFlight reviewSingleFlight;
+
+    @Resource
+    private ReviewJsonExtractor reviewJsonExtractor;
+
+    @Resource
+    private CodeChunker codeChunker;
+
+    @Resource
+    private ReviewResultMerger reviewResultMerger;
+
+    @Resource
+    private PromptPacker promptPacker;
+
+    @Resource
+    private ReviewTaskPublisher reviewTaskPublisher;
+
+    @Resource
+    private ReviewLeaseKeeper reviewLeaseKeeper;
+
+    @Resource
+    private PreAnalysisPipeline preAnalysisPipeline;
+
+    @Resource
+    private PackedReviewSplitter packedReviewSplitter;
+
+    @Resource
+    private ReviewIssueService reviewIssueService;
+
+    @Resource
+    private CodeBlobStore codeBlobStore;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
 
-    private static final String REVIEW_QUEUE = "code.review.queue";
+    @Resource(name = "reviewCallbackExecutor")
+    private Executor reviewCallbackExecutor;
+
+    private static final String CURSOR_SEPARATOR = "_";
+
+    /**
+     * 任务列表总数缓存时长，总数允许短时间内不精确
+     */
+    @Value("${ai.review.list.total-cache-seconds:60}")
+    private long totalCacheSeconds;
+
+    /**
+     * 错误信息列长度
+     */
+    private static final int MAX_ERROR_MSG_LENGTH = 500;
+
+    /**
+     * 批量提交时单条INSERT的最大行数，避免超出 max_allowed_packet
+     */
+    @Value("${ai.review.batch.insert-size:200}")
+    private int insertBatchSize;
 
 
     @Override
@@ -68,16 +164,12 @@ public class ReviewServiceImpl implements ReviewService {
         task.setAiModel(dto.getAiModel());
         task.setStatus(ReviewStatusEnum.PENDING.getCode());
 
-        reviewTaskMapper.insert(task);
+        insertTask(task);
         log.info("创建代码审查任务: taskId={}, userId={}", task.getId(), userId);
 
         // 如果是异步审查，发送到消息队列
         if (dto.getAsync()) {
-            JSONObject message = new JSONObject();
-            message.put("taskId", task.getId());
-            message.put("userId", userId);
-            rabbitTemplate.convertAndSend(REVIEW_QUEUE, message.toJSONString());
-            log.info("任务已发送到消息队列: taskId={}", task.getId());
+            reviewTaskPublisher.publish(Collections.singletonList(task), userId, 0);
         } else {
             // 同步执行审查
             executeReview(task);
@@ -88,61 +180,34 @@ public class ReviewServiceImpl implements ReviewService {
 
     @Override
     public List<Long> submitBatchReviewTask(BatchReviewRequestDTO dto, Long userId) {
-        List<Long> taskIds = new ArrayList<>();
-        
-        try {
-            for (MultipartFile file : dto.getFiles()) {
-                // 从文件名获取标题
-                String title = dto.getTitle() + " - " + file.getOriginalFilename();
-                
-                // 读取文件内容
-                String codeContent = new String(file.getBytes());
-                
-                // 创建审查任务
-                ReviewTask task = new ReviewTask();
-                task.setUserId(userId);
-                task.setTitle(title);
-                task.setCodeContent(codeContent);
-                task.setLanguage(dto.getLanguage());
-                task.setAiModel(dto.getAiModel());
-                task.setStatus(ReviewStatusEnum.PENDING.getCode());
-
-                reviewTaskMapper.insert(task);
-                taskIds.add(task.getId());
-                log.info("创建批量代码审查任务: taskId={}, userId={}, fileName={}", task.getId(), userId, file.getOriginalFilename());
-
-                // 如果是异步审查，发送到消息队列
-                if (dto.getAsync()) {
-                    JSONObject message = new JSONObject();
-                    message.put("taskId", task.getId());
-                    message.put("userId", userId);
-                    rabbitTemplate.convertAndSend(REVIEW_QUEUE, message.toJSONString());
-                    log.info("批量任务已发送到消息队列: taskId={}", task.getId());
-                } else {
-                    // 同步执行审查
-                    executeReview(task);
-                }
-            }
-        } catch (IOException e) {
-            log.error("读取上传文件失败", e);
-            throw new BusinessException("文件读取失败: " + e.getMessage());
-        }
-
-        return taskIds;
+        return submitBatch(dto.getTitle(), dto.getLanguage(), dto.getAiModel(), dto.getAsync(), dto.getFiles(), userId);
     }
 
     @Override
     public List<Long> submitBatchReviewTask(String title, String language, String aiModel, Boolean async, List<MultipartFile> files, Long userId) {
-        List<Long> taskIds = new ArrayList<>();
-        
+        return submitBatch(title, language, aiModel, async, files, userId);
+    }
+
+    @Override
+    public List<Long> submitBatchReviewTask(BatchReviewMultipartDTO dto, Long userId) {
+        return submitBatch(dto.getTitle(), dto.getLanguage(), dto.getAiModel(), dto.getAsync(), dto.getFiles(), userId);
+    }
+
+    /**
+     * 批量提交审查任务
+     * 每个文件创建一个任务，小文件按token预算打包，每个分组只调用一次AI
+     */
+    private List<Long> submitBatch(String title, String language, String aiModel, Boolean async, List<MultipartFile> files, Long userId) {
+        List<ReviewTask> tasks = new ArrayList<>(files.size());
+
         try {
             for (MultipartFile file : files) {
                 // 从文件名获取标题
                 String taskTitle = title + " - " + file.getOriginalFilename();
-                
+
                 // 读取文件内容
                 String codeContent = new String(file.getBytes());
-                
+
                 // 创建审查任务
                 ReviewTask task = new ReviewTask();
                 task.setUserId(userId);
@@ -151,71 +216,33 @@ public class ReviewServiceImpl implements ReviewService {
                 task.setLanguage(language);
                 task.setAiModel(aiModel);
                 task.setStatus(ReviewStatusEnum.PENDING.getCode());
-
-                reviewTaskMapper.insert(task);
-                taskIds.add(task.getId());
-                log.info("创建批量代码审查任务: taskId={}, userId={}, fileName={}", task.getId(), userId, file.getOriginalFilename());
-
-                // 如果是异步审查，发送到消息队列
-                if (async) {
-                    JSONObject message = new JSONObject();
-                    message.put("taskId", task.getId());
-                    message.put("userId", userId);
-                    rabbitTemplate.convertAndSend(REVIEW_QUEUE, message.toJSONString());
-                    log.info("批量任务已发送到消息队列: taskId={}", task.getId());
-                } else {
-                    // 同步执行审查
-                    executeReview(task);
-                }
+                tasks.add(task);
             }
         } catch (IOException e) {
             log.error("读取上传文件失败", e);
             throw new BusinessException("文件读取失败: " + e.getMessage());
         }
 
-        return taskIds;
-    }
+        insertTasks(tasks);
+        List<Long> taskIds = new ArrayList<>(tasks.size());
+        for (ReviewTask task : tasks) {
+            taskIds.add(task.getId());
+        }
+        log.info("创建批量代码审查任务: userId={}, files={}, taskIds={}", userId, tasks.size(), taskIds);
 
-    @Override
-    public List<Long> submitBatchReviewTask(BatchReviewMultipartDTO dto, Long userId) {
-        List<Long> taskIds = new ArrayList<>();
-        
-        try {
-            for (MultipartFile file : dto.getFiles()) {
-                // 从文件名获取标题
-                String title = dto.getTitle() + " - " + file.getOriginalFilename();
-                
-                // 读取文件内容
-                String codeContent = new String(file.getBytes());
-                
-                // 创建审查任务
-                ReviewTask task = new ReviewTask();
-                task.setUserId(userId);
-                task.setTitle(title);
-                task.setCodeContent(codeContent);
-                task.setLanguage(dto.getLanguage());
-                task.setAiModel(dto.getAiModel());
-                task.setStatus(ReviewStatusEnum.PENDING.getCode());
+        List<List<ReviewTask>> groups = promptPacker.pack(tasks);
+        log.info("批量审查任务分组完成: files={}, groups={}", tasks.size(), groups.size());
 
-                reviewTaskMapper.insert(task);
-                taskIds.add(task.getId());
-                log.info("创建批量代码审查任务: taskId={}, userId={}, fileName={}", task.getId(), userId, file.getOriginalFilename());
-
-                // 如果是异步审查，发送到消息队列
-                if (dto.getAsync()) {
-                    JSONObject message = new JSONObject();
-                    message.put("taskId", task.getId());
-                    message.put("userId", userId);
-                    rabbitTemplate.convertAndSend(REVIEW_QUEUE, message.toJSONString());
-                    log.info("批量任务已发送到消息队列: taskId={}", task.getId());
-                } else {
-                    // 同步执行审查
-                    executeReview(task);
-                }
+        // 如果是异步审查，每个分组一条消息，在同一通道上连续发送，由发布确认异步跟踪
+        if (async) {
+            reviewTaskPublisher.publishAll(groups, userId, tasks.size());
+        } else {
+            // 同步执行审查，各分组并行调用AI
+            List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+            for (List<ReviewTask> group : groups) {
+                futures.add(executePackedReviewAsync(group, false));
             }
-        } catch (IOException e) {
-            log.error("读取上传文件失败", e);
-            throw new BusinessException("文件读取失败: " + e.getMessage());
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
         }
 
         return taskIds;
@@ -232,39 +259,86 @@ public class ReviewServiceImpl implements ReviewService {
         task.setAiModel(dto.getAiModel());
         task.setStatus(ReviewStatusEnum.PENDING.getCode());
 
-        reviewTaskMapper.insert(task);
+        insertTask(task);
 
         // 同步执行审查
         executeReview(task);
 
-        return reviewTaskMapper.selectById(task.getId());
+        return loadTask(task.getId());
     }
 
     @Override
-    public void executeAsyncReview(Long taskId) {
+    public ReviewTask executeStreamReview(CodeReviewRequestDTO dto, Long userId, Consumer<String> onDelta) {
+        // 创建审查任务
+        ReviewTask task = new ReviewTask();
+        task.setUserId(userId);
+        task.setTitle(dto.getTitle());
+        task.setCodeContent(dto.getCodeContent());
+        task.setLanguage(dto.getLanguage());
+        task.setAiModel(dto.getAiModel());
+        task.setStatus(ReviewStatusEnum.PENDING.getCode());
+
+        insertTask(task);
+        log.info("创建流式代码审查任务: taskId={}, userId={}", task.getId(), userId);
+
+        // 流式执行审查，增量内容实时回调给调用方
+        executeReviewAsync(task, onDelta, false).join();
+
+        return loadTask(task.getId());
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsyncReview(Long taskId) {
         // 获取已存在的任务
-        ReviewTask task = reviewTaskMapper.selectById(taskId);
+        ReviewTask task = loadTask(taskId);
         if (task == null) {
             log.error("任务不存在: taskId={}", taskId);
             throw new BusinessException("任务不存在");
         }
 
-        // 执行审查
-        executeReview(task);
+        // 执行审查，不等待AI响应
+        return executeReviewAsync(task, null, true);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsyncBatchReview(List<Long> taskIds) {
+        List<ReviewTask> tasks = reviewTaskMapper.selectBatchIds(taskIds);
+        tasks.forEach(codeBlobStore::hydrate);
+        if (tasks.isEmpty()) {
+            log.error("任务不存在: taskIds={}", taskIds);
+            throw new BusinessException("任务不存在");
+        }
+
+        // 打包执行审查，不等待AI响应
+        return executePackedReviewAsync(tasks, true);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeQueuedReview(List<ReviewTask> tasks) {
+        tasks.forEach(codeBlobStore::hydrate);
+
+        // 打包执行审查，不等待AI响应；领取任务时的条件更新会跳过已删除或已被领取的任务
+        return executePackedReviewAsync(tasks, true);
     }
 
     @Override
     public ReviewTask getTaskDetail(Long taskId) {
-        ReviewTask task = reviewTaskMapper.selectById(taskId);
+        ReviewTask task = reviewTaskCache.get(taskId, this::loadTask);
         if (task == null) {
             throw new BusinessException("审查任务不存在");
         }
-        return task;
+        return withCode(task);
     }
 
     @Override
     public ReviewTask getTaskDetail(Long taskId, Long userId) {
-        ReviewTask task = reviewTaskMapper.selectById(taskId);
+        return withCode(getTaskStatus(taskId, userId));
+    }
+
+    @Override
+    public ReviewTask getTaskStatus(Long taskId, Long userId) {
+        // 轮询任务详情走两级缓存，已结束的任务基本不再访问数据库
+        ReviewTask task = reviewTaskCache.get(taskId, this::loadTask);
         if (task == null) {
             throw new BusinessException("审查任务不存在");
         }
@@ -275,10 +349,82 @@ public class ReviewServiceImpl implements ReviewService {
         return task;
     }
 
+    /**
+     * 缓存的任务不含代码内容，查看详情时按需加载：启用内容存储的从磁盘读取，否则只查询代码列
+     * @return 含代码内容的任务，不修改缓存共享的对象
+     */
+    private ReviewTask withCode(ReviewTask cached) {
+        if (cached.getCodeContent() != null) {
+            return cached;
+        }
+        ReviewTask task = new ReviewTask();
+        BeanUtils.copyProperties(cached, task);
+        if (task.getCodeHash() != null) {
+            task.setCodeContent(codeBlobStore.get(task.getCodeHash()));
+            return task;
+        }
+        ReviewTask code = reviewTaskMapper.selectOne(new LambdaQueryWrapper<ReviewTask>()
+                .select(ReviewTask::getId, ReviewTask::getCodeContent)
+                .eq(ReviewTask::getId, task.getId()));
+        if (code == null) {
+            throw new BusinessException("审查任务不存在");
+        }
+        task.setCodeContent(code.getCodeContent());
+        return task;
+    }
+
     @Override
-    public PageResponseDTO<ReviewTask> getUserTasks(Long userId, ReviewTaskQueryDTO queryDTO) {
-        Page<ReviewTask> pageParam = new Page<>(queryDTO.getPage(), queryDTO.getSize());
+    public PageResponseDTO<ReviewTaskSummaryDTO> getUserTasks(Long userId, ReviewTaskQueryDTO queryDTO) {
+        int size = PageResponseDTO.capSize(queryDTO.getSize());
+        boolean withTotal = !Boolean.FALSE.equals(queryDTO.getWithTotal());
+        Long cachedTotal = withTotal ? getCachedTaskTotal(userId, queryDTO) : null;
+
+        PageResponseDTO<ReviewTaskSummaryDTO> response = new PageResponseDTO<>();
+        response.setSize(size);
+
+        if (queryDTO.getCursor() != null) {
+            // 游标分页：从上一页最后一条之后继续读取，耗时与翻页深度无关
+            LambdaQueryWrapper<ReviewTask> wrapper = buildTaskListWrapper(userId, queryDTO);
+            applyCursor(wrapper, queryDTO.getCursor());
+            wrapper.orderByDesc(ReviewTask::getCreateTime).orderByDesc(ReviewTask::getId)
+                    .last("LIMIT " + (size + 1));
+            List<ReviewTask> tasks = reviewTaskMapper.selectList(wrapper);
+            if (tasks.size() > size) {
+                tasks = tasks.subList(0, size);
+                ReviewTask last = tasks.get(size - 1);
+                response.setNextCursor(last.getCreateTime() + CURSOR_SEPARATOR + last.getId());
+            }
+            response.setRecords(toSummaries(tasks));
+            if (withTotal) {
+                response.setTotal(cachedTotal != null ? cachedTotal
+                        : cacheTaskTotal(userId, queryDTO, reviewTaskMapper.selectCount(buildTaskListWrapper(userId, queryDTO))));
+            }
+            return response;
+        }
+
+        // 页码分页：总数命中缓存时跳过 COUNT 查询
+        Page<ReviewTask> pageParam = new Page<>(queryDTO.getPage(), size, withTotal && cachedTotal == null);
+        LambdaQueryWrapper<ReviewTask> wrapper = buildTaskListWrapper(userId, queryDTO);
+        wrapper.orderByDesc(ReviewTask::getCreateTime).orderByDesc(ReviewTask::getId);
+        Page<ReviewTask> result = reviewTaskMapper.selectPage(pageParam, wrapper);
+
+        response.setRecords(toSummaries(result.getRecords()));
+        response.setPage(queryDTO.getPage());
+        if (withTotal) {
+            response.setTotal(cachedTotal != null ? cachedTotal : cacheTaskTotal(userId, queryDTO, result.getTotal()));
+        }
+        return response;
+    }
+
+    /**
+     * 构建任务列表查询条件，只查询摘要列，不读取代码内容和审查结果
+     */
+    private LambdaQueryWrapper<ReviewTask> buildTaskListWrapper(Long userId, ReviewTaskQueryDTO queryDTO) {
         LambdaQueryWrapper<ReviewTask> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ReviewTask::getId, ReviewTask::getTitle, ReviewTask::getLanguage, ReviewTask::getAiModel,
+                ReviewTask::getStatus, ReviewTask::getQualityScore, ReviewTask::getSecurityScore,
+                ReviewTask::getPerformanceScore, ReviewTask::getIssueCount, ReviewTask::getErrorMsg,
+                ReviewTask::getCreateTime, ReviewTask::getUpdateTime);
         wrapper.eq(ReviewTask::getUserId, userId);
 
         // 添加状态筛选
@@ -290,19 +436,80 @@ public class ReviewServiceImpl implements ReviewService {
         if (queryDTO.getLanguage() != null && !queryDTO.getLanguage().trim().isEmpty()) {
             wrapper.eq(ReviewTask::getLanguage, queryDTO.getLanguage());
         }
+        return wrapper;
+    }
 
-        wrapper.orderByDesc(ReviewTask::getCreateTime);
+    /**
+     * 游标格式为 创建时间_任务ID，按 (create_time, id) 倒序取游标之后的数据
+     */
+    private void applyCursor(LambdaQueryWrapper<ReviewTask> wrapper, String cursor) {
+        if (cursor.isEmpty()) {
+            return;
+        }
+        LocalDateTime createTime;
+        Long id;
+        try {
+            int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            createTime = LocalDateTime.parse(cursor.substring(0, separator));
+            id = Long.parseLong(cursor.substring(separator + 1));
+        } catch (Exception e) {
+            throw new BusinessException("无效的分页游标");
+        }
+        wrapper.le(ReviewTask::getCreateTime, createTime)
+                .and(w -> w.lt(ReviewTask::getCreateTime, createTime).or().lt(ReviewTask::getId, id));
+    }
 
-        Page<ReviewTask> result = reviewTaskMapper.selectPage(pageParam, wrapper);
+    private List<ReviewTaskSummaryDTO> toSummaries(List<ReviewTask> tasks) {
+        List<ReviewTaskSummaryDTO> summaries = new ArrayList<>(tasks.size());
+        for (ReviewTask task : tasks) {
+            ReviewTaskSummaryDTO summary = new ReviewTaskSummaryDTO();
+            summary.setId(task.getId());
+            summary.setTitle(task.getTitle());
+            summary.setLanguage(task.getLanguage());
+            summary.setAiModel(task.getAiModel());
+            summary.setStatus(task.getStatus());
+            summary.setQualityScore(task.getQualityScore());
+            summary.setSecurityScore(task.getSecurityScore());
+            summary.setPerformanceScore(task.getPerformanceScore());
+            summary.setIssueCount(task.getIssueCount());
+            summary.setErrorMsg(task.getErrorMsg());
+            summary.setCreateTime(task.getCreateTime());
+            summary.setUpdateTime(task.getUpdateTime());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
 
-        // 构建分页响应对象
-        PageResponseDTO<ReviewTask> response = new PageResponseDTO<>();
-        response.setRecords(result.getRecords());
-        response.setTotal(result.getTotal());
-        response.setPage(queryDTO.getPage());
-        response.setSize(queryDTO.getSize());
+    /**
+     * 读取缓存的任务总数
+     * @return 总数，未缓存或Redis不可用时返回 null
+     */
+    private Long getCachedTaskTotal(Long userId, ReviewTaskQueryDTO queryDTO) {
+        try {
+            String cached = redisUtils.get(taskTotalKey(userId, queryDTO));
+            return cached != null ? Long.valueOf(cached) : null;
+        } catch (Exception e) {
+            log.warn("读取任务总数缓存失败: userId={}, error={}", userId, e.getMessage());
+            return null;
+        }
+    }
 
-        return response;
+    /**
+     * 缓存任务总数，列表翻页期间不再重复执行 COUNT
+     * @return 传入的总数
+     */
+    private Long cacheTaskTotal(Long userId, ReviewTaskQueryDTO queryDTO, Long total) {
+        try {
+            redisUtils.set(taskTotalKey(userId, queryDTO), String.valueOf(total), totalCacheSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入任务总数缓存失败: userId={}, error={}", userId, e.getMessage());
+        }
+        return total;
+    }
+
+    private String taskTotalKey(Long userId, ReviewTaskQueryDTO queryDTO) {
+        return RedisConstants.REVIEW_TASK_TOTAL_KEY + userId + ":" + queryDTO.getStatus() + ":"
+                + (queryDTO.getLanguage() != null ? queryDTO.getLanguage().trim() : "");
     }
 
     @Override
@@ -315,7 +522,12 @@ public class ReviewServiceImpl implements ReviewService {
             throw new BusinessException("无权删除该任务");
         }
 
-        reviewTaskMapper.deleteById(taskId);
+        int deleted = reviewTaskMapper.deleteById(taskId);
+        reviewTaskCache.evict(taskId);
+        reviewIssueService.deleteByTaskId(taskId);
+        if (deleted > 0 && task.getCodeHash() != null) {
+            codeBlobStore.release(task.getCodeHash());
+        }
         log.info("删除审查任务: taskId={}, userId={}", taskId, userId);
     }
 
@@ -334,7 +546,7 @@ public class ReviewServiceImpl implements ReviewService {
         // 查询任务详情
         List<ReviewTask> tasks = new ArrayList<>();
         for (Long taskId : taskIds) {
-            ReviewTask task = reviewTaskMapper.selectById(taskId);
+            ReviewTask task = loadTask(taskId);
             if (task == null) {
                 throw new BusinessException("任务不存在: " + taskId);
             }
@@ -479,138 +691,592 @@ public class ReviewServiceImpl implements ReviewService {
     }
 
     /**
-     * 执行代码审查（核心方法）
+     * 执行代码审查并等待完成（同步提交场景）
      */
     private void executeReview(ReviewTask task) {
-        String lockKey = RedisConstants.DISTRIBUTED_LOCK_KEY + "review:" + task.getId();
-        String lockValue = UUID.randomUUID().toString();
+        executeReviewAsync(task, null, false).join();
+    }
 
+    /**
+     * 执行代码审查（核心方法）
+     * AI调用基于异步HTTP，等待AI响应期间不占用线程；结果解析和入库在回调线程池中执行
+     * @param onDelta 增量内容回调，不为 null 时在当前线程中以流式方式调用AI；需要分片审查的大文件合并完成后一次性回调完整结果
+     * @param queued 是否由队列消息触发，是则AI并发受限时退回待审查，由消息重新投递
+     * @return 任务进入终态（完成或失败）后完成的Future；任务退回待审查时以 {@link ConcurrencyLimitExceededException} 异常完成
+     */
+    private CompletableFuture<Void> executeReviewAsync(ReviewTask task, Consumer<String> onDelta, boolean queued) {
         try {
-            // 尝试获取分布式锁
-            Boolean locked = redisUtils.tryLock(lockKey, lockValue, 5, TimeUnit.MINUTES);
-            if (!locked) {
-                log.warn("获取锁失败，任务可能正在执行: taskId={}", task.getId());
-                return;
+            // 条件更新领取任务，同一任务只会被一个节点执行
+            if (!claimTask(task)) {
+                return CompletableFuture.completedFuture(null);
             }
+        } catch (Exception e) {
+            markFailed(task, e);
+            return CompletableFuture.completedFuture(null);
+        }
+        // 流式审查在当前线程中调用AI，先开始续期再执行
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        reviewLeaseKeeper.keep(task, settled);
+        CompletableFuture<Void> future = reviewClaimedAsync(task, onDelta, queued);
+        future.whenComplete((result, error) -> settled.complete(null));
+        return future;
+    }
 
-            // 更新任务状态为审查中
-            task.setStatus(ReviewStatusEnum.REVIEWING.getCode());
-            reviewTaskMapper.updateById(task);
+    /**
+     * 审查已领取的任务
+     */
+    private CompletableFuture<Void> reviewClaimedAsync(ReviewTask task, Consumer<String> onDelta, boolean queued) {
+        String contentHash;
+        CompletableFuture<String> resultFuture;
+        try {
+            // 本地前置分析：生成代码、空文件等直接使用本地结果，不调用AI
+            PreAnalysisContext analysis = preAnalysisPipeline.analyze(task.getCodeContent(), task.getLanguage());
+            if (analysis.isSkipped()) {
+                String localResult = analysis.buildLocalResult();
+                parseAndSaveResult(task, localResult);
+                if (onDelta != null) {
+                    onDelta.accept(localResult);
+                }
+                log.info("前置分析跳过AI审查: taskId={}, reason={}", task.getId(), analysis.getSkipReason());
+                return CompletableFuture.completedFuture(null);
+            }
 
             // 获取AI客户端策略
             AIClientStrategy strategy = aiClientFactory.getStrategy(task.getAiModel());
 
-            // 调用AI进行代码审查
-            String reviewResult = strategy.reviewCode(task.getCodeContent(), task.getLanguage());
-
-            // 解析审查结果
-            parseAndSaveResult(task, reviewResult);
+            // 按内容哈希查询审查结果缓存，命中则直接回填结果
+            contentHash = reviewResultCache.buildKey(task.getCodeContent(), task.getLanguage(),
+                    task.getAiModel(), strategy.getPromptVersion());
+            CachedReviewResult cached = reviewResultCache.get(contentHash);
+            if (cached != null) {
+                applyCachedResult(task, cached);
+                if (onDelta != null) {
+                    onDelta.accept(cached.getReviewResult());
+                }
+                log.info("代码审查命中缓存: taskId={}, hash={}", task.getId(), contentHash);
+                return CompletableFuture.completedFuture(null);
+            }
 
-            // 缓存审查结果
-            String cacheKey = RedisConstants.AI_REVIEW_CACHE_KEY + task.getId();
-            redisUtils.set(cacheKey, reviewResult, RedisConstants.REVIEW_CACHE_EXPIRE_TIME, TimeUnit.HOURS);
+            // 调用AI审查精简后的代码，合并本地检测到的问题，结果在释放给合并等待者之前写入缓存
+            List<CodeChunk> chunks = codeChunker.split(analysis.getCode(), task.getLanguage());
+            if (onDelta != null && chunks.size() <= 1) {
+                resultFuture = streamReview(strategy, analysis.getCode(), task.getLanguage(), onDelta)
+                        .thenApply(reviewResult -> cacheResult(contentHash, preAnalysisPipeline.merge(analysis, reviewResult)));
+            } else {
+                // 相同内容的并发审查只调用一次AI，其余请求等待同一个结果；不完整或由其他模型返回的结果不写入缓存
+                resultFuture = reviewSingleFlight.execute(contentHash, () -> reviewCodeAsync(strategy, task, analysis.getCode(), chunks)
+                        .thenApplyAsync(merged -> {
+                            String reviewResult = preAnalysisPipeline.merge(analysis, merged.getResult());
+                            return merged.isCacheable() ? cacheResult(contentHash, reviewResult) : reviewResult;
+                        }, reviewCallbackExecutor));
+                if (onDelta != null) {
+                    // 大文件需要分片审查，无法流式输出，合并完成后一次性推送完整结果
+                    resultFuture = resultFuture.thenApply(reviewResult -> {
+                        onDelta.accept(reviewResult);
+                        return reviewResult;
+                    });
+                }
+            }
+        } catch (Exception e) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (releaseOrFail(task, e, queued)) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(null);
+            }
+            return future;
+        }
 
+        return resultFuture.handleAsync((reviewResult, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                if (releaseOrFail(task, cause, queued)) {
+                    throw new CompletionException(cause);
+                }
+                return null;
+            }
+            parseAndSaveResult(task, reviewResult);
             log.info("代码审查完成: taskId={}", task.getId());
+            return null;
+        }, reviewCallbackExecutor);
+    }
 
+    /**
+     * 在当前线程中流式调用AI，调用失败时返回异常完成的Future，与异步审查走同一失败处理（标记失败或退回待审查）
+     */
+    private CompletableFuture<String> streamReview(AIClientStrategy strategy, String code, String language,
+                                                   Consumer<String> onDelta) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            future.complete(strategy.streamReviewCode(code, language, onDelta));
         } catch (Exception e) {
-            log.error("代码审查失败: taskId={}", task.getId(), e);
-            task.setStatus(ReviewStatusEnum.FAILED.getCode());
-            task.setErrorMsg(e.getMessage());
-            reviewTaskMapper.updateById(task);
-        } finally {
-            // 释放锁
-            redisUtils.unlock(lockKey, lockValue);
+            future.completeExceptionally(e);
         }
+        return future;
     }
 
     /**
-     * 解析并保存审查结果
+     * 打包执行一组小文件的代码审查
+     * 整组只调用一次AI，返回结果按文件标识拆分回各任务；整组调用失败或AI遗漏的文件回退为单独审查
+     * @return 组内所有任务进入终态后完成的Future
      */
-    private void parseAndSaveResult(ReviewTask task, String reviewResult) {
-        log.info("开始解析审查结果 - taskId: {}", task.getId());
-        log.debug("原始审查结果: {}", reviewResult);
+    private CompletableFuture<Void> executePackedReviewAsync(List<ReviewTask> group, boolean queued) {
+        if (group.size() == 1) {
+            return executeReviewAsync(group.get(0), null, queued);
+        }
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        CompletableFuture<Void> future = reviewPackedAsync(group, settled, queued);
+        future.whenComplete((result, error) -> settled.complete(null));
+        return future;
+    }
 
+    /**
+     * 领取并打包审查一组任务，领取成功的任务在 settled 完成前持续续期租约
+     */
+    private CompletableFuture<Void> reviewPackedAsync(List<ReviewTask> group, CompletableFuture<Void> settled,
+                                                      boolean queued) {
+        List<ReviewTask> pending = new ArrayList<>();
+        List<String> contentHashes = new ArrayList<>();
+        List<PreAnalysisContext> analyses = new ArrayList<>();
+        AIClientStrategy strategy;
         try {
-            // 提取 JSON 内容
-            String jsonContent = extractJsonContent(reviewResult);
-            log.debug("提取的 JSON 内容: {}", jsonContent);
+            strategy = aiClientFactory.getStrategy(group.get(0).getAiModel());
+        } catch (Exception e) {
+            for (ReviewTask task : group) {
+                markFailed(task, e);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
 
-            // 尝试解析JSON格式的结果
-            JSONObject result = JSON.parseObject(jsonContent);
+        for (ReviewTask task : group) {
+            try {
+                if (!claimTask(task)) {
+                    continue;
+                }
+                reviewLeaseKeeper.keep(task, settled);
 
-            task.setReviewResult(jsonContent);
-            task.setQualityScore(result.getInteger("qualityScore"));
-            task.setSecurityScore(result.getInteger("securityScore"));
-            task.setPerformanceScore(result.getInteger("performanceScore"));
+                PreAnalysisContext analysis = preAnalysisPipeline.analyze(task.getCodeContent(), task.getLanguage());
+                if (analysis.isSkipped()) {
+                    parseAndSaveResult(task, analysis.buildLocalResult());
+                    log.info("前置分析跳过AI审查: taskId={}, reason={}", task.getId(), analysis.getSkipReason());
+                    continue;
+                }
 
-            if (result.containsKey("issues")) {
-                task.setIssueCount(result.getJSONArray("issues").size());
+                String contentHash = reviewResultCache.buildKey(task.getCodeContent(), task.getLanguage(),
+                        task.getAiModel(), strategy.getPromptVersion());
+                CachedReviewResult cached = reviewResultCache.get(contentHash);
+                if (cached != null) {
+                    applyCachedResult(task, cached);
+                    log.info("代码审查命中缓存: taskId={}, hash={}", task.getId(), contentHash);
+                    continue;
+                }
+                pending.add(task);
+                contentHashes.add(contentHash);
+                analyses.add(analysis);
+            } catch (Exception e) {
+                markFailed(task, e);
             }
+        }
 
-            task.setStatus(ReviewStatusEnum.COMPLETED.getCode());
-            log.info("审查结果解析成功 - taskId: {}, qualityScore: {}, securityScore: {}, performanceScore: {}",
-                    task.getId(), task.getQualityScore(), task.getSecurityScore(), task.getPerformanceScore());
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (pending.size() == 1) {
+            return reviewClaimedAsync(pending.get(0), null, queued);
+        }
+
+        List<PackedFile> files = new ArrayList<>(pending.size());
+        List<Long> pendingIds = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            ReviewTask task = pending.get(i);
+            files.add(new PackedFile("F" + (i + 1), task.getTitle(), analyses.get(i).getCode()));
+            pendingIds.add(task.getId());
+        }
+        log.info("打包审查{}个文件: taskIds={}", files.size(), pendingIds);
+        metricsUtils.recordSummary("ai.review.pack.files", files.size());
+
+        CompletableFuture<String> resultFuture;
+        try {
+            resultFuture = strategy.reviewFilesAsync(files, pending.get(0).getLanguage());
         } catch (Exception e) {
-            log.error("解析审查结果失败 - taskId: {}, error: {}", task.getId(), e.getMessage(), e);
-            // 如果解析失败，直接保存原始结果
-            task.setReviewResult(reviewResult);
-            task.setStatus(ReviewStatusEnum.COMPLETED.getCode());
+            resultFuture = new CompletableFuture<>();
+            resultFuture.completeExceptionally(e);
         }
 
-        reviewTaskMapper.updateById(task);
+        return resultFuture.handleAsync((packedResult, error) -> {
+            Map<String, String> results;
+            boolean cacheable = error == null && strategy.isCacheable(packedResult);
+            if (error != null) {
+                log.warn("打包审查失败，回退为单独审查: files={}, error={}", files.size(), unwrap(error).getMessage());
+                results = Collections.emptyMap();
+            } else {
+                results = packedReviewSplitter.split(packedResult);
+            }
+
+            List<CompletableFuture<Void>> fallbacks = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                ReviewTask task = pending.get(i);
+                String reviewResult = results.get(files.get(i).getFileId());
+                try {
+                    if (reviewResult != null && parseResult(reviewResult) != null) {
+                        String merged = preAnalysisPipeline.merge(analyses.get(i), reviewResult);
+                        parseAndSaveResult(task, cacheable ? cacheResult(contentHashes.get(i), merged) : merged);
+                        metricsUtils.incrementCounter("ai.review.pack.results", "outcome", "packed");
+                        log.info("代码审查完成: taskId={}", task.getId());
+                        continue;
+                    }
+                } catch (Exception e) {
+                    log.warn("保存打包审查结果失败，回退为单独审查: taskId={}", task.getId(), e);
+                }
+                metricsUtils.incrementCounter("ai.review.pack.results", "outcome", "fallback");
+                // 任务仍持有租约，直接单独审查
+                fallbacks.add(reviewClaimedAsync(task, null, queued));
+            }
+            return CompletableFuture.allOf(fallbacks.toArray(new CompletableFuture[0]));
+        }, reviewCallbackExecutor).thenCompose(v -> v);
     }
 
     /**
-     * 从 AI 返回的内容中提取 JSON
-     * 支持多种格式：
-     * 1. 纯 JSON: {...}
-     * 2. Markdown 代码块: ```json\n{...}\n```
-     * 3. 文本 + JSON: 一些说明\n{...}
+     * 调用AI审查代码
+     * 大文件按类、函数边界拆分为多个片段并行审查，总耗时取决于最慢的片段，最后合并为一个结果。
+     * 片段因限流或AI服务暂时故障失败时取消其余片段，整个任务按该异常退回待审查或失败，不保存不完整的结果
      */
-    private String extractJsonContent(String content) {
-        if (content == null || content.trim().isEmpty()) {
-            return "{}";
+    private CompletableFuture<MergedReviewResult> reviewCodeAsync(AIClientStrategy strategy, ReviewTask task, String code,
+                                                                  List<CodeChunk> chunks) {
+        if (chunks.size() <= 1) {
+            return strategy.reviewCodeAsync(code, task.getLanguage())
+                    .thenApply(result -> MergedReviewResult.complete(result, strategy.isCacheable(result)));
+        }
+
+        log.info("代码较大，拆分为{}个片段并行审查: taskId={}", chunks.size(), task.getId());
+        metricsUtils.recordSummary("ai.review.chunks", chunks.size());
+        CompletableFuture<MergedReviewResult> merged = new CompletableFuture<>();
+        List<CompletableFuture<String>> calls = new ArrayList<>(chunks.size());
+        List<CompletableFuture<String>> futures = new ArrayList<>(chunks.size());
+        for (CodeChunk chunk : chunks) {
+            CompletableFuture<String> call = strategy.reviewCodeAsync(chunk.getContent(), task.getLanguage());
+            calls.add(call);
+            // 其他失败只跳过该片段，合并结果标注不完整
+            futures.add(call.handle((result, error) -> {
+                if (error == null) {
+                    return result;
+                }
+                Throwable cause = unwrap(error);
+                if (isRetryable(cause)) {
+                    merged.completeExceptionally(cause);
+                } else {
+                    log.warn("代码片段审查失败: taskId={}, chunk={}, lines={}-{}", task.getId(),
+                            chunk.getIndex(), chunk.getStartLine(), chunk.getEndLine(), cause);
+                }
+                return null;
+            }));
         }
+        merged.whenComplete((result, error) -> {
+            if (error != null) {
+                calls.forEach(call -> call.cancel(true));
+            }
+        });
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenRun(() -> {
+            if (merged.isDone()) {
+                return;
+            }
+            List<String> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<String> future : futures) {
+                results.add(future.join());
+            }
+            try {
+                MergedReviewResult result = reviewResultMerger.merge(chunks, results);
+                for (String chunkResult : results) {
+                    if (chunkResult != null && !strategy.isCacheable(chunkResult)) {
+                        result.setCacheable(false);
+                    }
+                }
+                merged.complete(result);
+            } catch (Exception e) {
+                merged.completeExceptionally(e);
+            }
+        });
+        return merged;
+    }
 
-        content = content.trim();
+    /**
+     * 片段失败是否应让整个任务重试：并发受限或AI服务过载、服务端错误、网络异常
+     */
+    private boolean isRetryable(Throwable e) {
+        return e instanceof ConcurrencyLimitExceededException
+                || (e instanceof AIClientException && ((AIClientException) e).isTransient());
+    }
 
-        // 情况1: 检查是否有 markdown 代码块
-        if (content.contains("```json")) {
-            int startIndex = content.indexOf("```json") + 7;
-            int endIndex = content.indexOf("```", startIndex);
-            if (endIndex > startIndex) {
-                String extracted = content.substring(startIndex, endIndex).trim();
-                log.debug("从 markdown 代码块中提取 JSON");
-                return extracted;
+    /**
+     * 统计任务代码的token数，用于容量规划
+     */
+    private void recordCodeTokens(ReviewTask task) {
+        int tokens = task.getCodeTokens() != null ? task.getCodeTokens() : TokenCounter.count(task.getCodeContent());
+        task.setCodeTokens(tokens);
+        metricsUtils.recordSummary("ai.review.code.tokens", tokens, "model", String.valueOf(task.getAiModel()));
+    }
+
+    /**
+     * 领取任务：置为审查中并记录代码token数，只更新状态相关的列
+     * @return 是否领取成功，任务已被其他节点领取或已结束时返回 false
+     */
+    private boolean claimTask(ReviewTask task) {
+        recordCodeTokens(task);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        LocalDateTime leaseUntil = now.plusSeconds(reviewLeaseKeeper.getLeaseSeconds());
+        if (reviewTaskMapper.claimReview(task.getId(), task.getCodeTokens(), leaseUntil, now) == 0) {
+            log.warn("任务已被领取或已结束，跳过: taskId={}", task.getId());
+            metricsUtils.incrementCounter("ai.review.transition.conflict", "transition", "claim");
+            return false;
+        }
+        task.setStatus(ReviewStatusEnum.REVIEWING.getCode());
+        task.setLeaseUntil(leaseUntil);
+        task.setErrorMsg(null);
+        onStatusChanged(task);
+        return true;
+    }
+
+    /**
+     * 将任务标记为审查失败
+     */
+    private void markFailed(ReviewTask task, Throwable e) {
+        log.error("代码审查失败: taskId={}", task.getId(), e);
+        String errorMsg = e.getMessage();
+        if (errorMsg != null && errorMsg.length() > MAX_ERROR_MSG_LENGTH) {
+            errorMsg = errorMsg.substring(0, MAX_ERROR_MSG_LENGTH);
+        }
+        // 与租约续期互斥，条件更新使用最近一次续期后的租约
+        synchronized (task) {
+            if (reviewTaskMapper.failReview(task.getId(), task.getLeaseUntil(), errorMsg) == 0) {
+                log.warn("任务租约已被接管，放弃写入失败状态: taskId={}", task.getId());
+                metricsUtils.incrementCounter("ai.review.transition.conflict", "transition", "fail");
+                return;
             }
+            task.setStatus(ReviewStatusEnum.FAILED.getCode());
+            task.setErrorMsg(errorMsg);
+            task.setLeaseUntil(null);
         }
+        onStatusChanged(task);
+    }
+
+    /**
+     * 队列任务因AI并发受限失败时退回待审查，其他失败标记为审查失败
+     * 并发受限是暂时的，标记失败会让任务永久失败；退回后由监听器延迟退回消息，重新投递时再次领取
+     * @return 是否已退回待审查
+     */
+    private boolean releaseOrFail(ReviewTask task, Throwable e, boolean queued) {
+        if (!queued || !(e instanceof ConcurrencyLimitExceededException)) {
+            markFailed(task, e);
+            return false;
+        }
+        synchronized (task) {
+            if (reviewTaskMapper.releaseReview(task.getId(), task.getLeaseUntil()) == 0) {
+                log.warn("任务租约已被接管，放弃退回待审查: taskId={}", task.getId());
+                metricsUtils.incrementCounter("ai.review.transition.conflict", "transition", "release");
+                return false;
+            }
+            task.setStatus(ReviewStatusEnum.PENDING.getCode());
+            task.setLeaseUntil(null);
+        }
+        log.warn("AI并发受限，任务退回待审查: taskId={}", task.getId());
+        onStatusChanged(task);
+        return true;
+    }
+
+    /**
+     * 写入审查结果并置为已完成，只更新结果相关的列
+     * @return 是否写入成功，租约已被其他节点接管时返回 false
+     */
+    private boolean completeTask(ReviewTask task) {
+        // 与租约续期互斥，条件更新使用最近一次续期后的租约
+        synchronized (task) {
+            int updated = reviewTaskMapper.completeReview(task.getId(), task.getLeaseUntil(), task.getReviewResult(),
+                    task.getQualityScore(), task.getSecurityScore(), task.getPerformanceScore(), task.getIssueCount());
+            if (updated == 0) {
+                log.warn("任务租约已被接管，放弃写入审查结果: taskId={}", task.getId());
+                metricsUtils.incrementCounter("ai.review.transition.conflict", "transition", "complete");
+                return false;
+            }
+            task.setStatus(ReviewStatusEnum.COMPLETED.getCode());
+            task.setLeaseUntil(null);
+        }
+        onStatusChanged(task);
+        return true;
+    }
 
-        // 情况2: 检查是否有普通代码块
-        if (content.contains("```")) {
-            int startIndex = content.indexOf("```") + 3;
-            // 跳过可能的语言标识
-            while (startIndex < content.length() && content.charAt(startIndex) != '\n' && content.charAt(startIndex) != '{') {
-                startIndex++;
+    /**
+     * 任务状态变化后删除任务缓存，并推送给订阅该任务的客户端
+     */
+    private void onStatusChanged(ReviewTask task) {
+        reviewTaskCache.evict(task.getId());
+        taskEventHub.publish(task);
+    }
+
+    /**
+     * 解开CompletableFuture包装的异常
+     */
+    private Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * 保存新任务，启用内容存储时代码写入内容存储，任务表只记录哈希；同时记录代码token数，重新投递时据此选择通道
+     * 插入后任务对象仍保留代码内容，供后续审查直接使用
+     */
+    private void insertTask(ReviewTask task) {
+        String code = task.getCodeContent();
+        task.setCodeTokens(TokenCounter.count(code));
+        String hash = codeBlobStore.put(code);
+        if (hash != null) {
+            task.setCodeHash(hash);
+            task.setCodeContent("");
+        }
+        try {
+            reviewTaskMapper.insert(task);
+        } catch (RuntimeException e) {
+            codeBlobStore.release(hash);
+            throw e;
+        } finally {
+            task.setCodeContent(code);
+        }
+    }
+
+    /**
+     * 批量保存新任务，每批一条多行INSERT；内容存储的处理与 insertTask 相同。
+     * 所有批次在同一事务中写入，中途失败时整体回滚，不会留下已写入但未投递的待审查任务
+     */
+    private void insertTasks(List<ReviewTask> tasks) {
+        List<String> codes = new ArrayList<>(tasks.size());
+        List<String> hashes = new ArrayList<>(tasks.size());
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            for (ReviewTask task : tasks) {
+                String code = task.getCodeContent();
+                codes.add(code);
+                task.setCodeTokens(TokenCounter.count(code));
+                String hash = codeBlobStore.put(code);
+                hashes.add(hash);
+                if (hash != null) {
+                    task.setCodeHash(hash);
+                    task.setCodeContent("");
+                }
+                // 自定义INSERT不经过自动填充
+                task.setCreateTime(now);
+                task.setUpdateTime(now);
             }
-            int endIndex = content.indexOf("```", startIndex);
-            if (endIndex > startIndex) {
-                String extracted = content.substring(startIndex, endIndex).trim();
-                log.debug("从普通代码块中提取 JSON");
-                return extracted;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < tasks.size(); from += insertBatchSize) {
+                    reviewTaskMapper.insertBatch(tasks.subList(from, Math.min(from + insertBatchSize, tasks.size())));
+                }
+            });
+        } catch (RuntimeException e) {
+            // 事务已回滚，释放本次登记的全部内容引用
+            for (String hash : hashes) {
+                codeBlobStore.release(hash);
+            }
+            throw e;
+        } finally {
+            for (int i = 0; i < codes.size(); i++) {
+                tasks.get(i).setCodeContent(codes.get(i));
             }
         }
+        metricsUtils.recordSummary("ai.review.batch.inserted", tasks.size());
+    }
+
+    /**
+     * 按ID查询任务并加载代码内容
+     * @return 任务，不存在时返回 null
+     */
+    private ReviewTask loadTask(Long taskId) {
+        ReviewTask task = reviewTaskMapper.selectById(taskId);
+        codeBlobStore.hydrate(task);
+        return task;
+    }
 
-        // 情况3: 查找第一个 { 到最后一个 }
-        int firstBrace = content.indexOf('{');
-        int lastBrace = content.lastIndexOf('}');
-        if (firstBrace != -1 && lastBrace != -1 && lastBrace > firstBrace) {
-            String extracted = content.substring(firstBrace, lastBrace + 1).trim();
-            log.debug("从文本中提取 JSON（查找大括号）");
-            return extracted;
+    /**
+     * 使用缓存的审查结果回填任务
+     */
+    private void applyCachedResult(ReviewTask task, CachedReviewResult cached) {
+        task.setReviewResult(cached.getReviewResult());
+        task.setQualityScore(cached.getQualityScore());
+        task.setSecurityScore(cached.getSecurityScore());
+        task.setPerformanceScore(cached.getPerformanceScore());
+        task.setIssueCount(cached.getIssueCount());
+        if (completeTask(task)) {
+            reviewIssueService.saveIssues(task, cached.getReviewResult());
         }
+    }
+
+    /**
+     * 缓存成功解析的审查结果
+     * @return 原始审查结果
+     */
+    private String cacheResult(String contentHash, String reviewResult) {
+        CachedReviewResult parsed = parseResult(reviewResult);
+        if (parsed != null) {
+            reviewResultCache.put(contentHash, parsed);
+        }
+        return reviewResult;
+    }
 
-        // 情况4: 直接返回原内容（可能已经是纯 JSON）
-        log.debug("直接使用原始内容作为 JSON");
-        return content;
+    /**
+     * 将AI返回解析为结构化审查结果
+     * @return 解析结果，无法解析时返回 null
+     */
+    private CachedReviewResult parseResult(String reviewResult) {
+        try {
+            // 提取 JSON 内容
+            String jsonContent = reviewJsonExtractor.extractJsonContent(reviewResult);
+            log.debug("提取的 JSON 内容: {}", jsonContent);
+            if (!reviewJsonExtractor.isValidObject(jsonContent)) {
+                return null;
+            }
+
+            // 直接在JSON文本上读取评分和问题数
+            ReviewScores scores = reviewJsonExtractor.extractScores(jsonContent);
+            if (scores == null) {
+                return null;
+            }
+
+            CachedReviewResult parsed = new CachedReviewResult();
+            parsed.setReviewResult(jsonContent);
+            parsed.setQualityScore(scores.getQualityScore());
+            parsed.setSecurityScore(scores.getSecurityScore());
+            parsed.setPerformanceScore(scores.getPerformanceScore());
+            parsed.setIssueCount(scores.getIssueCount());
+            return parsed;
+        } catch (Exception e) {
+            log.error("解析审查结果失败: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 解析并保存审查结果
+     */
+    private void parseAndSaveResult(ReviewTask task, String reviewResult) {
+        log.info("开始解析审查结果 - taskId: {}", task.getId());
+        log.debug("原始审查结果: {}", reviewResult);
+
+        CachedReviewResult parsed = parseResult(reviewResult);
+        if (parsed != null) {
+            task.setReviewResult(parsed.getReviewResult());
+            task.setQualityScore(parsed.getQualityScore());
+            task.setSecurityScore(parsed.getSecurityScore());
+            task.setPerformanceScore(parsed.getPerformanceScore());
+            task.setIssueCount(parsed.getIssueCount());
+            log.info("审查结果解析成功 - taskId: {}, qualityScore: {}, securityScore: {}, performanceScore: {}",
+                    task.getId(), task.getQualityScore(), task.getSecurityScore(), task.getPerformanceScore());
+        } else {
+            // 如果解析失败，直接保存原始结果
+            task.setReviewResult(reviewResult);
+        }
+        if (completeTask(task) && parsed != null) {
+            reviewIssueService.saveIssues(task, parsed.getReviewResult());
+        }
     }
 }
@@ -0,0 +1,50 @@
+package com.codereview.review.strategy;
+
+import com.codereview.common.exception.BusinessException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * AI接口调用异常
+ * 携带HTTP状态码，便于上层区分限流、超时等失败类型
+ * @author CodeReview
+ */
+public class AIClientException extends BusinessException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * HTTP状态码，网络异常时为0
+     */
+    private final int statusCode;
+
+    public AIClientException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public AIClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 是否为AI接口过载导致的失败（限流、服务不可用、服务过载或超时）
+     */
+    public boolean isOverload() {
+        return statusCode == 429 || statusCode == 503 || statusCode == 529
+                || getCause() instanceof InterruptedIOException;
+    }
+
+    /**
+     * 是否为稍后重试可能成功的失败（过载、服务端错误或网络异常）
+     */
+    public boolean isTransient() {
+        return isOverload() || statusCode >= 500 || getCause() instanceof IOException;
+    }
+}
@@ -1,38 +1,90 @@
 package com.codereview.review.strategy;
 
 import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.config.AIRoutingConfig;
+import com.codereview.review.routing.EndpointRouter;
+import com.codereview.review.routing.HedgingAIClientStrategy;
+import com.codereview.review.routing.RequestHedger;
+import com.codereview.review.routing.RoutingAIClientStrategy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AI客户端工厂
- * 使用工厂模式管理不同的AI客户端策略
+ * 使用工厂模式管理不同的AI客户端策略；启用多端点路由时，匹配路由规则的模型由路由策略在端点池中选择端点
  * @author CodeReview
  */
 @Component
 public class AIClientFactory {
 
+    /**
+     * 未匹配任何路由规则时使用的规则名称
+     */
+    private static final String DEFAULT_ROUTE = "default";
+
     @Resource
     private List<AIClientStrategy> strategies;
 
+    @Resource
+    private List<AIEndpointClient> endpointClients;
+
+    @Resource
+    private AIRoutingConfig routingConfig;
+
+    @Resource
+    private EndpointRouter endpointRouter;
+
+    @Resource
+    private RequestHedger requestHedger;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    /**
+     * 未启用多端点路由时的对冲备用策略（如 claude），为空时不对冲
+     */
+    @Value("${ai.hedge.secondary-strategy:}")
+    private String hedgeSecondaryStrategy;
+
     private final Map<String, AIClientStrategy> strategyMap = new ConcurrentHashMap<>();
 
+    private final Map<String, AIEndpointClient> endpointClientMap = new ConcurrentHashMap<>();
+
+    private final Map<String, AIClientStrategy> routingStrategyMap = new ConcurrentHashMap<>();
+
+    private final Map<String, AIClientStrategy> hedgingStrategyMap = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void init() {
         for (AIClientStrategy strategy : strategies) {
             strategyMap.put(strategy.getModelName(), strategy);
         }
+        for (AIEndpointClient client : endpointClients) {
+            endpointClientMap.put(client.getProvider(), client);
+        }
     }
 
     /**
      * 根据模型名称获取对应的策略
      */
     public AIClientStrategy getStrategy(String model) {
+        if (routingConfig.isEnabled()) {
+            String routeKey = matchRoute(model);
+            if (routeKey != null) {
+                return routingStrategyMap.computeIfAbsent(routeKey, key -> new RoutingAIClientStrategy(
+                        key, routingConfig.getRoutes().get(key), endpointRouter, endpointClientMap,
+                        requestHedger, metricsUtils));
+            }
+        }
+
         // 支持的模型映射
         String strategyKey;
         if (model.contains("gpt")) {
@@ -47,6 +99,26 @@ public class AIClientFactory {
         if (strategy == null) {
             throw new BusinessException("不支持的AI模型: " + model);
         }
+
+        AIClientStrategy secondary = strategyMap.get(hedgeSecondaryStrategy);
+        if (secondary != null && secondary != strategy) {
+            return hedgingStrategyMap.computeIfAbsent(strategyKey,
+                    key -> new HedgingAIClientStrategy(strategy, secondary, requestHedger));
+        }
         return strategy;
     }
+
+    /**
+     * 按配置顺序匹配路由规则，模型名称包含规则关键字即匹配
+     * @return 路由规则名称，未匹配且未配置默认规则时返回 null
+     */
+    private String matchRoute(String model) {
+        String lowerModel = model.toLowerCase(Locale.ROOT);
+        for (String key : routingConfig.getRoutes().keySet()) {
+            if (!DEFAULT_ROUTE.equals(key) && lowerModel.contains(key.toLowerCase(Locale.ROOT))) {
+                return key;
+            }
+        }
+        return routingConfig.getRoutes().containsKey(DEFAULT_ROUTE) ? DEFAULT_ROUTE : null;
+    }
 }
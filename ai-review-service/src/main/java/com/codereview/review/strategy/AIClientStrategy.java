@@ -1,5 +1,12 @@
 package com.codereview.review.strategy;
 
+import com.codereview.review.prompt.PackedFile;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
 /**
  * AI客户端策略接口
  * 使用策略模式支持多种AI模型
@@ -15,9 +22,68 @@ public interface AIClientStrategy {
      */
     String reviewCode(String code, String language);
 
+    /**
+     * 异步调用AI进行代码审查
+     * 实现需基于非阻塞HTTP或自有线程池完成调用，不得占用公共ForkJoin线程池执行阻塞IO
+     * @param code 代码内容
+     * @param language 编程语言
+     * @return 审查结果，调用失败时以 {@link AIClientException} 异常完成
+     */
+    CompletableFuture<String> reviewCodeAsync(String code, String language);
+
+    /**
+     * 将多个文件打包为一次调用进行审查
+     * 结果为包含 files 数组的JSON，每个文件一项，以 fileId 对应；默认实现不支持打包，调用方应回退为逐个审查
+     * @param files 待审查文件
+     * @param language 编程语言
+     * @return 审查结果，调用失败时以 {@link AIClientException} 异常完成
+     */
+    default CompletableFuture<String> reviewFilesAsync(List<PackedFile> files, String language) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(new AIClientException("当前AI模型不支持多文件打包审查", 0));
+        return future;
+    }
+
+    /**
+     * 以流式方式调用AI进行代码审查
+     * 默认实现不支持增量输出，审查完成后一次性回调全部内容
+     * @param code 代码内容
+     * @param language 编程语言
+     * @param onDelta 增量内容回调
+     * @return 完整的审查结果
+     * @throws RuntimeException 调用失败时抛出，通常为 {@link AIClientException}
+     */
+    default String streamReviewCode(String code, String language, Consumer<String> onDelta) {
+        String result;
+        try {
+            result = reviewCodeAsync(code, language).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        onDelta.accept(result);
+        return result;
+    }
+
     /**
      * 获取策略支持的模型名称
      * @return 模型名称
      */
     String getModelName();
+
+    /**
+     * 审查结果是否可以按本策略的模型写入审查结果缓存
+     * @param reviewResult 本策略返回的审查结果
+     * @return 对冲到其他模型的策略对备用模型返回的结果返回 false
+     */
+    default boolean isCacheable(String reviewResult) {
+        return true;
+    }
+
+    /**
+     * 获取提示词版本，提示词模板变化时需要递增，使旧的审查结果缓存失效
+     * @return 提示词版本
+     */
+    default String getPromptVersion() {
+        return "v2";
+    }
 }
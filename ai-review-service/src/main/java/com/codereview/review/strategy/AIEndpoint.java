@@ -0,0 +1,42 @@
+package com.codereview.review.strategy;
+
+import lombok.Data;
+
+/**
+ * AI接口端点
+ * 同一协议可以部署在不同地域、不同厂商，每个端点对应一组接口地址、密钥和模型
+ * @author CodeReview
+ */
+@Data
+public class AIEndpoint {
+
+    /**
+     * 端点名称（唯一）
+     */
+    private String name;
+
+    /**
+     * 接口协议：openai（Chat Completions）、anthropic（Messages API）
+     */
+    private String provider = "openai";
+
+    /**
+     * 接口地址
+     */
+    private String apiUrl;
+
+    /**
+     * 接口密钥
+     */
+    private String apiKey;
+
+    /**
+     * 模型名称
+     */
+    private String model;
+
+    /**
+     * 路由权重
+     */
+    private int weight = 100;
+}
@@ -0,0 +1,40 @@
+package com.codereview.review.strategy;
+
+import com.codereview.review.prompt.PackedFile;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 可调用任意端点的AI客户端
+ * 同一协议的多个端点共用一个客户端实现，由路由层决定每次调用的端点
+ * @author CodeReview
+ */
+public interface AIEndpointClient {
+
+    /**
+     * 获取支持的接口协议
+     * @return 接口协议，与 {@link AIEndpoint#getProvider()} 对应
+     */
+    String getProvider();
+
+    /**
+     * 异步调用指定端点进行代码审查
+     * @return 审查结果，调用失败时以 {@link AIClientException} 异常完成
+     */
+    CompletableFuture<String> reviewCodeAsync(AIEndpoint endpoint, String code, String language);
+
+    /**
+     * 异步调用指定端点，将多个文件打包为一次调用进行审查
+     * @return 审查结果，调用失败时以 {@link AIClientException} 异常完成
+     */
+    CompletableFuture<String> reviewFilesAsync(AIEndpoint endpoint, List<PackedFile> files, String language);
+
+    /**
+     * 以流式方式调用指定端点进行代码审查
+     * @return 完整的审查结果
+     * @throws AIClientException 接口调用失败或流在结束事件之前中断
+     */
+    String streamReviewCode(AIEndpoint endpoint, String code, String language, Consumer<String> onDelta);
+}
@@ -0,0 +1,420 @@
+package com.codereview.review.strategy;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.limiter.ConcurrencyLimiterRegistry;
+import com.codereview.review.prompt.PackedFile;
+import com.codereview.review.prompt.PromptTooLargeException;
+import com.codereview.review.prompt.ReviewPromptBuilder;
+import com.codereview.review.prompt.TokenBudget;
+import com.codereview.review.prompt.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Claude AI客户端策略实现
+ * 使用 Messages API，静态的审查要求放在 system 中并标记为可缓存（cache_control: ephemeral），
+ * 重复审查时复用服务端的提示词缓存，只有待审查代码按正常输入计费；
+ * 短于模型最小可缓存长度的前缀不会被缓存，此时不标记
+ * @author CodeReview
+ */
+@Slf4j
+@Component
+public class ClaudeClientStrategy implements AIClientStrategy, AIEndpointClient {
+
+    @Value("${ai.claude.api-key:your-claude-api-key}")
+    private String apiKey;
+
+    @Value("${ai.claude.api-url:https://api.anthropic.com/v1/messages}")
+    private String apiUrl;
+
+    @Value("${ai.claude.model:claude-3-opus-20240229}")
+    private String model;
+
+    @Value("${ai.claude.anthropic-version:2023-06-01}")
+    private String anthropicVersion;
+
+    /**
+     * 是否将静态的审查要求标记为可缓存
+     */
+    @Value("${ai.claude.prompt-cache-enabled:true}")
+    private boolean promptCacheEnabled;
+
+    /**
+     * 模型最小可缓存的前缀token数（Opus、Sonnet 为1024，Haiku 为2048）
+     */
+    @Value("${ai.claude.prompt-cache-min-tokens:1024}")
+    private int promptCacheMinTokens;
+
+    @Value("${ai.claude.max-requests:256}")
+    private int maxRequests;
+
+    @Value("${ai.claude.max-requests-per-host:256}")
+    private int maxRequestsPerHost;
+
+    @Resource
+    private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
+    @Resource
+    private ReviewPromptBuilder reviewPromptBuilder;
+
+    @Resource
+    private TokenBudget tokenBudget;
+
+    @Resource
+    private MetricsUtils metricsUtils;
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private OkHttpClient httpClient;
+
+    /**
+     * ai.claude 配置的默认端点
+     */
+    private AIEndpoint defaultEndpoint;
+
+    @PostConstruct
+    public void init() {
+        defaultEndpoint = new AIEndpoint();
+        defaultEndpoint.setName("claude");
+        defaultEndpoint.setProvider(getProvider());
+        defaultEndpoint.setApiUrl(apiUrl);
+        defaultEndpoint.setApiKey(apiKey);
+        defaultEndpoint.setModel(model);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(Math.min(maxRequestsPerHost, 64), 5, TimeUnit.MINUTES))
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+
+        int staticTokens = TokenCounter.count(reviewPromptBuilder.getStaticInstructions());
+        if (promptCacheEnabled && staticTokens < promptCacheMinTokens) {
+            log.warn("静态审查要求短于最小可缓存长度，不使用提示词缓存: tokens={}, min={}", staticTokens, promptCacheMinTokens);
+        }
+    }
+
+    @Override
+    public String reviewCode(String code, String language) {
+        try {
+            return reviewCodeAsync(code, language).join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("调用Claude API异常", cause);
+            return "AI审查失败：" + cause.getMessage();
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> reviewCodeAsync(String code, String language) {
+        return reviewCodeAsync(defaultEndpoint, code, language);
+    }
+
+    @Override
+    public String streamReviewCode(String code, String language, Consumer<String> onDelta) {
+        return streamReviewCode(defaultEndpoint, code, language, onDelta);
+    }
+
+    @Override
+    public String getModelName() {
+        return "claude";
+    }
+
+    @Override
+    public String getProvider() {
+        return "anthropic";
+    }
+
+    @Override
+    public CompletableFuture<String> reviewCodeAsync(AIEndpoint endpoint, String code, String language) {
+        return completeAsync(endpoint, reviewPromptBuilder.getStaticInstructions(),
+                reviewPromptBuilder.buildCodeMessage(code, language), TokenCounter.count(code), 1);
+    }
+
+    @Override
+    public CompletableFuture<String> reviewFilesAsync(List<PackedFile> files, String language) {
+        return reviewFilesAsync(defaultEndpoint, files, language);
+    }
+
+    @Override
+    public CompletableFuture<String> reviewFilesAsync(AIEndpoint endpoint, List<PackedFile> files, String language) {
+        int codeTokens = 0;
+        for (PackedFile file : files) {
+            codeTokens += TokenCounter.count(file.getContent());
+        }
+        return completeAsync(endpoint, reviewPromptBuilder.getPackedStaticInstructions(),
+                reviewPromptBuilder.buildPackedCodeMessage(files, language), codeTokens, files.size());
+    }
+
+    /**
+     * 流式调用失败（限流排队、提示词超限、接口错误、error事件、流中断）时抛出异常，由调用方按审查失败处理
+     */
+    @Override
+    public String streamReviewCode(AIEndpoint endpoint, String code, String language, Consumer<String> onDelta) {
+        try {
+            return concurrencyLimiterRegistry.executeBlocking(endpoint.getName(), endpoint.getModel(),
+                    () -> doStreamReviewCode(endpoint, code, language, onDelta));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("流式调用Claude API异常", e);
+            throw new AIClientException("AI接口流式调用异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 校验token预算后异步调用，超出预算时直接失败，不发送请求
+     */
+    private CompletableFuture<String> completeAsync(AIEndpoint endpoint, String instructions, String userContent,
+                                                    int codeTokens, int files) {
+        Request request;
+        try {
+            request = buildRequest(endpoint, instructions, userContent,
+                    allocateOutputTokens(instructions, userContent, codeTokens, files), false);
+        } catch (PromptTooLargeException e) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return concurrencyLimiterRegistry.execute(endpoint.getName(), endpoint.getModel(),
+                () -> doCompleteAsync(endpoint, request));
+    }
+
+    /**
+     * 按本地token计数校验提示词大小，并分配输出上限
+     */
+    private int allocateOutputTokens(String instructions, String userContent, int codeTokens, int files) {
+        int promptTokens = TokenCounter.count(instructions) + TokenCounter.count(userContent);
+        return tokenBudget.allocate(promptTokens, codeTokens, files);
+    }
+
+    /**
+     * 异步调用Messages API
+     */
+    private CompletableFuture<String> doCompleteAsync(AIEndpoint endpoint, Request request) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call;
+        try {
+            call = httpClient.newCall(request);
+        } catch (Exception e) {
+            future.completeExceptionally(new AIClientException("AI接口请求构建失败: " + e.getMessage(), e));
+            return future;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.error("异步调用Claude API异常", e);
+                future.completeExceptionally(new AIClientException("AI接口调用异常: " + e.getMessage(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    String responseBody = r.body() != null ? r.body().string() : null;
+                    if (!r.isSuccessful()) {
+                        log.error("Claude API异步调用失败 - 状态码: {}, 响应: {}", r.code(), responseBody);
+                        future.completeExceptionally(new AIClientException(
+                                "AI接口调用错误（状态码：" + r.code() + "）", r.code()));
+                        return;
+                    }
+                    log.debug("Claude API响应: {}", responseBody);
+
+                    JSONObject message = JSON.parseObject(responseBody);
+                    String content = parseMessageContent(message);
+                    if (content == null) {
+                        log.error("Claude API响应格式错误: {}", responseBody);
+                        future.completeExceptionally(new AIClientException("AI接口响应格式错误", r.code()));
+                        return;
+                    }
+                    recordUsage(endpoint, message.getJSONObject("usage"));
+                    future.complete(content);
+                } catch (Exception e) {
+                    log.error("解析Claude API响应异常", e);
+                    future.completeExceptionally(new AIClientException("AI接口响应解析失败: " + e.getMessage(), e));
+                }
+            }
+        });
+
+        // 调用方取消Future时同时取消底层HTTP请求
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 流式调用Messages API
+     * 事件顺序：message_start（含输入及缓存token用量）→ content_block_delta（增量文本）→ message_delta（输出token用量）→ message_stop
+     */
+    private String doStreamReviewCode(AIEndpoint endpoint, String code, String language, Consumer<String> onDelta) {
+        String instructions = reviewPromptBuilder.getStaticInstructions();
+        String userContent = reviewPromptBuilder.buildCodeMessage(code, language);
+        Request request = buildRequest(endpoint, instructions, userContent,
+                allocateOutputTokens(instructions, userContent, TokenCounter.count(code), 1), true);
+
+        StringBuilder content = new StringBuilder();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                String errorBody = response.body() != null ? response.body().string() : "无响应体";
+                log.error("Claude API流式调用失败 - 状态码: {}, 响应: {}", response.code(), errorBody);
+                throw new AIClientException("AI接口调用错误（状态码：" + response.code() + "）", response.code());
+            }
+
+            JSONObject usage = new JSONObject();
+            boolean finished = ServerSentEventReader.read(response.body().source(), (event, data) -> {
+                JSONObject payload = JSON.parseObject(data);
+                String type = payload != null ? payload.getString("type") : event;
+                if ("message_start".equals(type)) {
+                    JSONObject startUsage = payload.getJSONObject("message").getJSONObject("usage");
+                    if (startUsage != null) {
+                        usage.putAll(startUsage);
+                    }
+                } else if ("content_block_delta".equals(type)) {
+                    JSONObject delta = payload.getJSONObject("delta");
+                    String text = delta != null ? delta.getString("text") : null;
+                    if (text != null && !text.isEmpty()) {
+                        content.append(text);
+                        onDelta.accept(text);
+                    }
+                } else if ("message_delta".equals(type)) {
+                    JSONObject deltaUsage = payload.getJSONObject("usage");
+                    if (deltaUsage != null) {
+                        usage.putAll(deltaUsage);
+                    }
+                } else if ("error".equals(type)) {
+                    // 流中的错误事件（如 overloaded_error）按过载处理，限制器据此降低并发
+                    JSONObject error = payload.getJSONObject("error");
+                    String errorType = error != null ? error.getString("type") : null;
+                    throw new AIClientException("AI接口流式响应错误: "
+                            + (error != null ? error.getString("message") : data),
+                            "overloaded_error".equals(errorType) ? 529 : 0);
+                } else if ("message_stop".equals(type)) {
+                    return false;
+                }
+                return true;
+            });
+            recordUsage(endpoint, usage);
+            if (!finished) {
+                log.error("Claude API流式响应中断: received={}", content.length());
+                throw new AIClientException("AI接口流式响应中断（已接收" + content.length() + "个字符）", 0);
+            }
+            return content.toString();
+        } catch (IOException e) {
+            log.error("流式调用Claude API异常: received={}", content.length(), e);
+            throw new AIClientException("AI接口流式调用异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 构建Messages API请求
+     * 静态的审查要求作为 system 内容块放在请求最前面，开启提示词缓存且达到最小可缓存长度时标记 cache_control，
+     * 待审查代码放在 user 消息中，不影响缓存前缀
+     * @param endpoint 调用的端点
+     * @param instructions 静态的审查要求
+     * @param userContent 包含待审查代码的用户消息
+     * @param outputTokens 输出token上限
+     * @param stream 是否使用流式响应
+     */
+    private Request buildRequest(AIEndpoint endpoint, String instructions, String userContent, int outputTokens,
+                                 boolean stream) {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("model", endpoint.getModel());
+        requestBody.put("max_tokens", outputTokens);
+        requestBody.put("temperature", 0.7);
+
+        JSONObject systemBlock = new JSONObject();
+        systemBlock.put("type", "text");
+        systemBlock.put("text", instructions);
+        if (promptCacheEnabled && TokenCounter.count(instructions) >= promptCacheMinTokens) {
+            JSONObject cacheControl = new JSONObject();
+            cacheControl.put("type", "ephemeral");
+            systemBlock.put("cache_control", cacheControl);
+        }
+        JSONArray system = new JSONArray();
+        system.add(systemBlock);
+        requestBody.put("system", system);
+
+        JSONArray messages = new JSONArray();
+        JSONObject userMessage = new JSONObject();
+        userMessage.put("role", "user");
+        userMessage.put("content", userContent);
+        messages.add(userMessage);
+        requestBody.put("messages", messages);
+        if (stream) {
+            requestBody.put("stream", true);
+        }
+
+        RequestBody body = RequestBody.create(requestBody.toJSONString(), JSON_MEDIA_TYPE);
+        return new Request.Builder()
+                .url(endpoint.getApiUrl())
+                .addHeader("x-api-key", endpoint.getApiKey())
+                .addHeader("anthropic-version", anthropicVersion)
+                .addHeader("Content-Type", "application/json")
+                .addHeader("Accept", stream ? "text/event-stream" : "application/json")
+                .post(body)
+                .build();
+    }
+
+    /**
+     * 解析非流式响应中的审查内容（拼接 content 中所有 text 块）
+     * @return 审查内容，响应格式不正确时返回 null
+     */
+    private String parseMessageContent(JSONObject message) {
+        if (message == null) {
+            return null;
+        }
+        JSONArray blocks = message.getJSONArray("content");
+        if (blocks == null || blocks.isEmpty()) {
+            return null;
+        }
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < blocks.size(); i++) {
+            JSONObject block = blocks.getJSONObject(i);
+            if ("text".equals(block.getString("type"))) {
+                content.append(block.getString("text"));
+            }
+        }
+        return content.toString();
+    }
+
+    /**
+     * 记录token用量，包括提示词缓存的读取和写入token数
+     */
+    private void recordUsage(AIEndpoint endpoint, JSONObject usage) {
+        if (usage == null) {
+            return;
+        }
+        recordTokens(endpoint, "input", usage.getLongValue("input_tokens"));
+        recordTokens(endpoint, "output", usage.getLongValue("output_tokens"));
+        recordTokens(endpoint, "cache_read", usage.getLongValue("cache_read_input_tokens"));
+        recordTokens(endpoint, "cache_write", usage.getLongValue("cache_creation_input_tokens"));
+    }
+
+    private void recordTokens(AIEndpoint endpoint, String type, long tokens) {
+        if (tokens > 0) {
+            metricsUtils.incrementCounter("ai.claude.tokens", tokens,
+                    "endpoint", endpoint.getName(), "model", endpoint.getModel(), "type", type);
+        }
+    }
+}
@@ -3,20 +3,33 @@ package com.codereview.review.strategy;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.codereview.review.limiter.ConcurrencyLimiterRegistry;
+import com.codereview.review.prompt.PackedFile;
+import com.codereview.review.prompt.PromptTooLargeException;
+import com.codereview.review.prompt.ReviewPromptBuilder;
+import com.codereview.review.prompt.TokenBudget;
+import com.codereview.review.prompt.TokenCounter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * GPT AI客户端策略实现
+ * 兼容OpenAI Chat Completions协议，既可使用 ai.openai 配置的默认端点，也可由路由层指定端点
  * @author CodeReview
  */
 @Slf4j
 @Component
-public class GPTClientStrategy implements AIClientStrategy {
+public class GPTClientStrategy implements AIClientStrategy, AIEndpointClient {
 
     @Value("${ai.openai.api-key:your-openai-api-key}")
     private String apiKey;
@@ -29,42 +42,149 @@ public class GPTClientStrategy implements AIClientStrategy {
 
     private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
 
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(60, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+    /**
+     * 流式响应结束标记
+     */
+    private static final String STREAM_DONE = "[DONE]";
+
+    @Value("${ai.openai.max-requests:256}")
+    private int maxRequests;
+
+    @Value("${ai.openai.max-requests-per-host:256}")
+    private int maxRequestsPerHost;
+
+    @Resource
+    private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
+    @Resource
+    private ReviewPromptBuilder reviewPromptBuilder;
+
+    @Resource
+    private TokenBudget tokenBudget;
+
+    private OkHttpClient httpClient;
+
+    /**
+     * ai.openai 配置的默认端点
+     */
+    private AIEndpoint defaultEndpoint;
+
+    @PostConstruct
+    public void init() {
+        defaultEndpoint = new AIEndpoint();
+        defaultEndpoint.setName("default");
+        defaultEndpoint.setApiUrl(apiUrl);
+        defaultEndpoint.setApiKey(apiKey);
+        defaultEndpoint.setModel(model);
+
+        // OkHttp默认每个host最多5个并发请求，异步调用时需要放开，否则大量审查会在Dispatcher中排队
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(Math.min(maxRequestsPerHost, 64), 5, TimeUnit.MINUTES))
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
 
     @Override
     public String reviewCode(String code, String language) {
         try {
-            String prompt = buildReviewPrompt(code, language);
-
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("model", model);
-
-            JSONArray messages = new JSONArray();
-            JSONObject systemMessage = new JSONObject();
-            systemMessage.put("role", "system");
-            systemMessage.put("content", "你是一位资深的代码审查专家，擅长发现代码中的问题、性能优化点和安全漏洞。");
-            messages.add(systemMessage);
-
-            JSONObject userMessage = new JSONObject();
-            userMessage.put("role", "user");
-            userMessage.put("content", prompt);
-            messages.add(userMessage);
-
-            requestBody.put("messages", messages);
-            requestBody.put("temperature", 0.7);
-            requestBody.put("max_tokens", 2000);
-
-            RequestBody body = RequestBody.create(requestBody.toJSONString(), JSON_MEDIA_TYPE);
-            Request request = new Request.Builder()
-                    .url(apiUrl)
-                    .addHeader("Authorization", "Bearer " + apiKey)
-                    .addHeader("Content-Type", "application/json")
-                    .post(body)
-                    .build();
+            return concurrencyLimiterRegistry.executeBlocking(defaultEndpoint.getName(), model,
+                    () -> doReviewCode(defaultEndpoint, code, language));
+        } catch (Exception e) {
+            log.error("调用iFlow API异常", e);
+            return "AI审查失败：" + e.getMessage();
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> reviewCodeAsync(String code, String language) {
+        return reviewCodeAsync(defaultEndpoint, code, language);
+    }
+
+    @Override
+    public String streamReviewCode(String code, String language, Consumer<String> onDelta) {
+        return streamReviewCode(defaultEndpoint, code, language, onDelta);
+    }
+
+    @Override
+    public String getProvider() {
+        return "openai";
+    }
+
+    @Override
+    public CompletableFuture<String> reviewCodeAsync(AIEndpoint endpoint, String code, String language) {
+        return completeAsync(endpoint, reviewPromptBuilder.buildReviewPrompt(code, language), TokenCounter.count(code), 1);
+    }
+
+    @Override
+    public CompletableFuture<String> reviewFilesAsync(List<PackedFile> files, String language) {
+        return reviewFilesAsync(defaultEndpoint, files, language);
+    }
+
+    @Override
+    public CompletableFuture<String> reviewFilesAsync(AIEndpoint endpoint, List<PackedFile> files, String language) {
+        int codeTokens = 0;
+        for (PackedFile file : files) {
+            codeTokens += TokenCounter.count(file.getContent());
+        }
+        return completeAsync(endpoint, reviewPromptBuilder.buildPackedReviewPrompt(files, language), codeTokens, files.size());
+    }
+
+    /**
+     * 流式调用失败（限流排队、提示词超限、接口错误、流中断）时抛出异常，由调用方按审查失败处理
+     */
+    @Override
+    public String streamReviewCode(AIEndpoint endpoint, String code, String language, Consumer<String> onDelta) {
+        try {
+            return concurrencyLimiterRegistry.executeBlocking(endpoint.getName(), endpoint.getModel(),
+                    () -> doStreamReviewCode(endpoint, code, language, onDelta));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("流式调用iFlow API异常", e);
+            throw new AIClientException("AI接口流式调用异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 校验token预算后异步调用，超出预算时直接失败，不发送请求
+     */
+    private CompletableFuture<String> completeAsync(AIEndpoint endpoint, String prompt, int codeTokens, int files) {
+        int maxTokens;
+        try {
+            maxTokens = allocateOutputTokens(prompt, codeTokens, files);
+        } catch (PromptTooLargeException e) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        // 并发受自适应限制器约束，AI接口限流或延迟突增时自动降低并发
+        return concurrencyLimiterRegistry.execute(endpoint.getName(), endpoint.getModel(),
+                () -> doCompleteAsync(endpoint, prompt, maxTokens));
+    }
+
+    /**
+     * 按本地token计数校验提示词大小，并分配输出上限
+     */
+    private int allocateOutputTokens(String prompt, int codeTokens, int files) {
+        int promptTokens = TokenCounter.count(reviewPromptBuilder.getSystemPrompt()) + TokenCounter.count(prompt);
+        return tokenBudget.allocate(promptTokens, codeTokens, files);
+    }
+
+    /**
+     * 同步调用AI接口
+     */
+    private String doReviewCode(AIEndpoint endpoint, String code, String language) {
+        try {
+            String prompt = reviewPromptBuilder.buildReviewPrompt(code, language);
+            Request request = buildRequest(endpoint, prompt,
+                    allocateOutputTokens(prompt, TokenCounter.count(code), 1), false);
 
             try (Response response = httpClient.newCall(request).execute()) {
                 if (!response.isSuccessful()) {
@@ -78,15 +198,10 @@ public class GPTClientStrategy implements AIClientStrategy {
                     responseBody = response.body().string();
                 }
                 log.debug("iFlow API响应: {}", responseBody);
-                JSONObject jsonResponse = JSON.parseObject(responseBody);
-
-                if (jsonResponse.containsKey("choices")) {
-                    JSONArray choices = jsonResponse.getJSONArray("choices");
-                    if (choices.size() > 0) {
-                        JSONObject firstChoice = choices.getJSONObject(0);
-                        JSONObject message = firstChoice.getJSONObject("message");
-                        return message.getString("content");
-                    }
+
+                String content = parseCompletionContent(responseBody);
+                if (content != null) {
+                    return content;
                 }
 
                 log.error("iFlow API响应格式错误: {}", responseBody);
@@ -98,41 +213,172 @@ public class GPTClientStrategy implements AIClientStrategy {
         }
     }
 
+    /**
+     * 异步调用AI接口
+     * @param prompt 用户提示词
+     * @param maxTokens 输出token上限
+     */
+    private CompletableFuture<String> doCompleteAsync(AIEndpoint endpoint, String prompt, int maxTokens) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call;
+        try {
+            call = httpClient.newCall(buildRequest(endpoint, prompt, maxTokens, false));
+        } catch (Exception e) {
+            future.completeExceptionally(new AIClientException("AI接口请求构建失败: " + e.getMessage(), e));
+            return future;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.error("异步调用iFlow API异常", e);
+                future.completeExceptionally(new AIClientException("AI接口调用异常: " + e.getMessage(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    String responseBody = r.body() != null ? r.body().string() : null;
+                    if (!r.isSuccessful()) {
+                        log.error("iFlow API异步调用失败 - 状态码: {}, 响应: {}", r.code(), responseBody);
+                        future.completeExceptionally(new AIClientException(
+                                "AI接口调用错误（状态码：" + r.code() + "）", r.code()));
+                        return;
+                    }
+                    log.debug("iFlow API响应: {}", responseBody);
+
+                    String content = parseCompletionContent(responseBody);
+                    if (content == null) {
+                        log.error("iFlow API响应格式错误: {}", responseBody);
+                        future.completeExceptionally(new AIClientException("AI接口响应格式错误", r.code()));
+                        return;
+                    }
+                    future.complete(content);
+                } catch (Exception e) {
+                    log.error("解析iFlow API响应异常", e);
+                    future.completeExceptionally(new AIClientException("AI接口响应解析失败: " + e.getMessage(), e));
+                }
+            }
+        });
+
+        // 调用方取消Future时同时取消底层HTTP请求
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 流式调用AI接口
+     */
+    private String doStreamReviewCode(AIEndpoint endpoint, String code, String language, Consumer<String> onDelta) {
+        String prompt = reviewPromptBuilder.buildReviewPrompt(code, language);
+        Request request = buildRequest(endpoint, prompt,
+                allocateOutputTokens(prompt, TokenCounter.count(code), 1), true);
+
+        StringBuilder content = new StringBuilder();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                String errorBody = response.body() != null ? response.body().string() : "无响应体";
+                log.error("iFlow API流式调用失败 - 状态码: {}, 响应: {}", response.code(), errorBody);
+                throw new AIClientException("AI接口调用错误（状态码：" + response.code() + "）", response.code());
+            }
+
+            boolean finished = ServerSentEventReader.read(response.body().source(), (event, data) -> {
+                if (STREAM_DONE.equals(data)) {
+                    return false;
+                }
+                String delta = parseStreamDelta(data);
+                if (delta != null && !delta.isEmpty()) {
+                    content.append(delta);
+                    onDelta.accept(delta);
+                }
+                return true;
+            });
+            if (!finished) {
+                log.error("iFlow API流式响应中断: received={}", content.length());
+                throw new AIClientException("AI接口流式响应中断（已接收" + content.length() + "个字符）", 0);
+            }
+            return content.toString();
+        } catch (IOException e) {
+            log.error("流式调用iFlow API异常: received={}", content.length(), e);
+            throw new AIClientException("AI接口流式调用异常: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public String getModelName() {
         return "gpt";
     }
 
     /**
-     * 构建代码审查提示词
+     * 构建Chat Completions请求
+     * @param endpoint 调用的端点
+     * @param prompt 用户提示词
+     * @param maxTokens 输出token上限
+     * @param stream 是否使用流式响应
+     */
+    private Request buildRequest(AIEndpoint endpoint, String prompt, int maxTokens, boolean stream) {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("model", endpoint.getModel());
+
+        JSONArray messages = new JSONArray();
+        JSONObject systemMessage = new JSONObject();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", reviewPromptBuilder.getSystemPrompt());
+        messages.add(systemMessage);
+
+        JSONObject userMessage = new JSONObject();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+        messages.add(userMessage);
+
+        requestBody.put("messages", messages);
+        requestBody.put("temperature", 0.7);
+        requestBody.put("max_tokens", maxTokens);
+        if (stream) {
+            requestBody.put("stream", true);
+        }
+
+        RequestBody body = RequestBody.create(requestBody.toJSONString(), JSON_MEDIA_TYPE);
+        return new Request.Builder()
+                .url(endpoint.getApiUrl())
+                .addHeader("Authorization", "Bearer " + endpoint.getApiKey())
+                .addHeader("Content-Type", "application/json")
+                .addHeader("Accept", stream ? "text/event-stream" : "application/json")
+                .post(body)
+                .build();
+    }
+
+    /**
+     * 解析非流式响应中的审查内容（choices[0].message.content）
+     * @return 审查内容，响应格式不正确时返回 null
      */
-    private String buildReviewPrompt(String code, String language) {
-        return String.format(
-            "请对以下%s代码进行全面审查，并提供详细的分析报告：\n\n" +
-            "```%s\n%s\n```\n\n" +
-            "请从以下几个方面进行审查：\n" +
-            "1. **代码质量**：检查代码的可读性、可维护性、命名规范等\n" +
-            "2. **潜在Bug**：识别可能导致错误的代码模式\n" +
-            "3. **性能优化**：指出可以优化的性能瓶颈\n" +
-            "4. **安全漏洞**：检查SQL注入、XSS、敏感信息泄露等安全问题\n" +
-            "5. **最佳实践**：给出符合业界最佳实践的改进建议\n\n" +
-            "请以结构化的JSON格式返回结果，包含以下字段：\n" +
-            "{\n" +
-            "  \"summary\": \"总体评价\",\n" +
-            "  \"qualityScore\": 质量评分(0-100),\n" +
-            "  \"securityScore\": 安全评分(0-100),\n" +
-            "  \"performanceScore\": 性能评分(0-100),\n" +
-            "  \"issues\": [\n" +
-            "    {\n" +
-            "      \"type\": \"问题类型\",\n" +
-            "      \"severity\": \"严重程度(high/medium/low)\",\n" +
-            "      \"description\": \"问题描述\",\n" +
-            "      \"suggestion\": \"修复建议\"\n" +
-            "    }\n" +
-            "  ],\n" +
-            "  \"suggestions\": [\"优化建议1\", \"优化建议2\"]\n" +
-            "}",
-            language, language, code
-        );
+    private String parseCompletionContent(String responseBody) {
+        JSONObject jsonResponse = JSON.parseObject(responseBody);
+        if (jsonResponse == null || !jsonResponse.containsKey("choices")) {
+            return null;
+        }
+        JSONArray choices = jsonResponse.getJSONArray("choices");
+        if (choices.isEmpty()) {
+            return null;
+        }
+        JSONObject message = choices.getJSONObject(0).getJSONObject("message");
+        return message != null ? message.getString("content") : null;
+    }
+
+    /**
+     * 解析流式响应中的增量内容（choices[0].delta.content）
+     */
+    private String parseStreamDelta(String data) {
+        JSONObject chunk = JSON.parseObject(data);
+        JSONArray choices = chunk.getJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return null;
+        }
+        JSONObject delta = choices.getJSONObject(0).getJSONObject("delta");
+        return delta != null ? delta.getString("content") : null;
     }
 }
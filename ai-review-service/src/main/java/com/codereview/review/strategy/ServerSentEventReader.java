@@ -0,0 +1,73 @@
+package com.codereview.review.strategy;
+
+import okio.BufferedSource;
+
+import java.io.IOException;
+
+/**
+ * Server-Sent Events 流解析器
+ * 逐行读取AI接口的流式响应，按空行切分事件后回调
+ * @author CodeReview
+ */
+public final class ServerSentEventReader {
+
+    private ServerSentEventReader() {
+    }
+
+    /**
+     * 事件回调
+     */
+    @FunctionalInterface
+    public interface EventHandler {
+
+        /**
+         * 处理一个完整事件
+         * @param event 事件名称，未指定时为 null
+         * @param data 事件数据（多行data按换行拼接）
+         * @return 是否继续读取后续事件
+         */
+        boolean onEvent(String event, String data) throws IOException;
+    }
+
+    /**
+     * 读取整个事件流，直到流结束或回调返回 false
+     * @return 回调是否主动结束读取（收到结束事件）；返回 false 表示连接在结束事件之前关闭
+     */
+    public static boolean read(BufferedSource source, EventHandler handler) throws IOException {
+        String event = null;
+        StringBuilder data = null;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                // 空行表示一个事件结束
+                if (data != null && !handler.onEvent(event, data.toString())) {
+                    return true;
+                }
+                event = null;
+                data = null;
+                continue;
+            }
+            if (line.charAt(0) == ':') {
+                // 注释行（通常是心跳）
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            if ("data".equals(field)) {
+                if (data == null) {
+                    data = new StringBuilder(value);
+                } else {
+                    data.append('\n').append(value);
+                }
+            } else if ("event".equals(field)) {
+                event = value;
+            }
+        }
+        // 流结束时没有以空行收尾的最后一个事件
+        return data != null && !handler.onEvent(event, data.toString());
+    }
+}
@@ -0,0 +1,146 @@
+package com.codereview.review.analysis;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.parser.ReviewJsonExtractor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PreAnalysisPipeline单元测试
+ * @author CodeReview
+ */
+class PreAnalysisPipelineTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PreAnalysisPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        SizeCheckStage sizeCheckStage = new SizeCheckStage();
+        ReflectionTestUtils.setField(sizeCheckStage, "minCodeChars", 10);
+        GeneratedCodeStage generatedCodeStage = new GeneratedCodeStage();
+        ReflectionTestUtils.setField(generatedCodeStage, "headerChars", 2000);
+        MinifiedCodeStage minifiedCodeStage = new MinifiedCodeStage();
+        ReflectionTestUtils.setField(minifiedCodeStage, "maxAvgLineLength", 300);
+        ReflectionTestUtils.setField(minifiedCodeStage, "maxEntropy", 5.5);
+        ReflectionTestUtils.setField(minifiedCodeStage, "maxDataLineRatio", 0.9);
+        ReflectionTestUtils.setField(minifiedCodeStage, "minDataLines", 50);
+        DuplicateLineStage duplicateLineStage = new DuplicateLineStage();
+        ReflectionTestUtils.setField(duplicateLineStage, "maxDuplicateRatio", 0.8);
+        ReflectionTestUtils.setField(duplicateLineStage, "minLines", 50);
+        BoilerplateStage boilerplateStage = new BoilerplateStage();
+        ReflectionTestUtils.setField(boilerplateStage, "maxRepeatedLines", 5);
+
+        pipeline = new PreAnalysisPipeline();
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        // 乱序注入，由 @Order 排序
+        ReflectionTestUtils.setField(pipeline, "stages", new ArrayList<>(Arrays.asList(
+                new SqlInjectionDetectionStage(), new SecretDetectionStage(), boilerplateStage,
+                duplicateLineStage, minifiedCodeStage, generatedCodeStage, sizeCheckStage)));
+        ReflectionTestUtils.setField(pipeline, "reviewJsonExtractor", new ReviewJsonExtractor());
+        ReflectionTestUtils.setField(pipeline, "metricsUtils", new MetricsUtils(meterRegistry));
+        pipeline.init();
+    }
+
+    @Test
+    void testAnalyze_GeneratedFileSkipsAiCall() {
+        String code = "// Code generated by protoc-gen-go. DO NOT EDIT.\n" +
+                "package user\n\n" +
+                "type User struct {\n    Name string\n}\n";
+
+        PreAnalysisContext context = pipeline.analyze(code, "Go");
+
+        assertTrue(context.isSkipped());
+        assertEquals("generated", context.getSkipReason());
+        JSONObject result = JSON.parseObject(context.buildLocalResult());
+        assertTrue(result.getBooleanValue("skipped"));
+        assertEquals(1, meterRegistry.get("ai.preanalysis.result").tag("outcome", "skipped").counter().count());
+    }
+
+    @Test
+    void testAnalyze_GeneratedPythonFileHashCommentSkipsAiCall() {
+        String code = "# -*- coding: utf-8 -*-\n" +
+                "# Generated by the protocol buffer compiler.  DO NOT EDIT!\n" +
+                "from google.protobuf import descriptor as _descriptor\n";
+
+        PreAnalysisContext context = pipeline.analyze(code, "Python");
+
+        assertTrue(context.isSkipped());
+        assertEquals("generated", context.getSkipReason());
+    }
+
+    @Test
+    void testAnalyze_PreprocessorDirectiveNotTreatedAsComment() {
+        String code = "#include <stdio.h>\n" +
+                "#define BANNER \"do not edit this banner\"\n" +
+                "int main(void) {\n    printf(\"%s\\n\", BANNER);\n    return 0;\n}\n";
+
+        PreAnalysisContext context = pipeline.analyze(code, "C");
+
+        assertFalse(context.isSkipped());
+    }
+
+    @Test
+    void testAnalyze_LicenseHeaderStrippedKeepingLineNumbers() {
+        String code = "/*\n * Copyright 2024 Example Inc.\n * Licensed under the Apache License 2.0\n */\n" +
+                "public class UserService {\n    public void save(User user) { repository.save(user); }\n}";
+
+        PreAnalysisContext context = pipeline.analyze(code, "Java");
+
+        assertFalse(context.isSkipped());
+        assertTrue(context.isShrunk());
+        assertFalse(context.getCode().contains("Copyright"));
+        assertEquals(code.split("\n", -1).length, context.getCode().split("\n", -1).length);
+    }
+
+    @Test
+    void testAnalyze_RepeatedLinesCollapsedKeepingLineNumbers() {
+        StringBuilder code = new StringBuilder("public class Matrix {\n    int[] values = {\n");
+        for (int i = 0; i < 20; i++) {
+            code.append("        0, 0, 0, 0, 0, 0, 0, 0,\n");
+        }
+        code.append("    };\n    void run() { compute(values); }\n}");
+
+        PreAnalysisContext context = pipeline.analyze(code.toString(), "Java");
+
+        assertFalse(context.isSkipped());
+        assertTrue(context.isShrunk());
+        String[] lines = context.getCode().split("\n", -1);
+        assertEquals(code.toString().split("\n", -1).length, lines.length);
+        assertTrue(lines[3].contains("已省略其余19行"));
+        assertEquals("    void run() { compute(values); }", lines[23]);
+    }
+
+    @Test
+    void testMerge_LocalSecurityFindingsPrependedToAiIssues() {
+        String code = "public class UserDao {\n" +
+                "    private String password = \"SuperSecret123\";\n" +
+                "    public User find(String id) {\n" +
+                "        return jdbc.query(\"SELECT * FROM user WHERE id = \" + id);\n" +
+                "    }\n" +
+                "}";
+
+        PreAnalysisContext context = pipeline.analyze(code, "Java");
+        String merged = pipeline.merge(context,
+                "```json\n{\"qualityScore\":70,\"issues\":[{\"type\":\"代码质量\",\"severity\":\"low\"}]}\n```");
+
+        JSONArray issues = JSON.parseObject(merged).getJSONArray("issues");
+        assertEquals(3, issues.size());
+        assertEquals("第2行", issues.getJSONObject(0).getString("location"));
+        assertEquals("第4行", issues.getJSONObject(1).getString("location"));
+        assertEquals("代码质量", issues.getJSONObject(2).getString("type"));
+    }
+}
@@ -0,0 +1,369 @@
+package com.codereview.review.blob;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.CodeBlob;
+import com.codereview.review.mapper.CodeBlobMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CodeBlobCollector单元测试
+ * 两个节点共享同一存储目录和内存中的 code_blob 表，在清理的各个步骤之间插入另一节点的写入
+ * @author CodeReview
+ */
+class CodeBlobCollectorTest {
+
+    private static final String CODE = "public class Shared { /* 中文 */ }";
+
+    private Path root;
+
+    private BlobTable table;
+
+    /**
+     * 节点A：提交代码
+     */
+    private CodeBlobStore storeA;
+
+    /**
+     * 节点B：执行清理
+     */
+    private CodeBlobMapper mapperB;
+
+    private CodeBlobStore storeB;
+
+    private CodeBlobCollector collectorB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("code-blob-gc-test");
+        table = new BlobTable();
+        storeA = newStore(mapperFor(table));
+        mapperB = mapperFor(table);
+        storeB = newStore(mapperB);
+
+        collectorB = new CodeBlobCollector();
+        ReflectionTestUtils.setField(collectorB, "codeBlobStore", storeB);
+        ReflectionTestUtils.setField(collectorB, "codeBlobMapper", mapperB);
+        ReflectionTestUtils.setField(collectorB, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(collectorB, "gcGraceMinutes", 0L);
+        ReflectionTestUtils.setField(collectorB, "gcBatchSize", 10);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testDeleteUnreferenced_DeletesFileAndRow() throws IOException {
+        // Given
+        String hash = storeA.put(CODE);
+        storeA.release(hash);
+        table.age(hash);
+
+        // When
+        int deleted = collectorB.deleteUnreferenced();
+
+        // Then
+        assertEquals(1, deleted);
+        assertFalse(Files.exists(storeA.pathOf(hash)));
+        assertNull(table.rows.get(hash));
+    }
+
+    @Test
+    void testDeleteUnreferenced_AcquiredBeforeMarkKeepsFile() throws IOException {
+        // Given
+        String hash = storeA.put(CODE);
+        storeA.release(hash);
+        table.age(hash);
+        // 节点B查出待清理记录后、标记前，节点A提交了相同代码（文件已存在，直接复用）
+        doAnswer(invocation -> {
+            List<String> hashes = table.selectUnreferenced(invocation.getArgument(0));
+            storeA.put(CODE);
+            return hashes;
+        }).when(mapperB).selectUnreferenced(any(), anyInt());
+
+        // When
+        int deleted = collectorB.deleteUnreferenced();
+
+        // Then
+        assertEquals(0, deleted);
+        assertEquals(CODE, storeA.get(hash));
+        assertEquals(1, table.rows.get(hash).refCount);
+        assertEquals(0, table.rows.get(hash).deleting);
+    }
+
+    @Test
+    void testDeleteUnreferenced_AcquiredDuringDeletionRewritesFile() throws Exception {
+        // Given
+        String hash = storeA.put(CODE);
+        storeA.release(hash);
+        table.age(hash);
+        // 节点B标记清理后、删除文件前，节点A登记了引用（此时文件仍在）
+        AtomicReference<CompletableFuture<String>> putA = new AtomicReference<>();
+        doAnswer(invocation -> {
+            int marked = table.markDeleting(invocation.getArgument(0), invocation.getArgument(1));
+            putA.set(CompletableFuture.supplyAsync(() -> storeA.put(CODE)));
+            table.awaitRefCount(hash, 1);
+            return marked;
+        }).when(mapperB).markDeleting(anyString(), any());
+
+        // When
+        int deleted = collectorB.deleteUnreferenced();
+
+        // Then: 节点B删除了文件但保留记录并清除标记，节点A等待清理结束后重新写入
+        assertEquals(0, deleted);
+        assertEquals(hash, putA.get().get(5, TimeUnit.SECONDS));
+        assertEquals(CODE, storeA.get(hash));
+        assertEquals(1, table.rows.get(hash).refCount);
+        assertEquals(0, table.rows.get(hash).deleting);
+    }
+
+    @Test
+    void testDeleteUnreferenced_StaleMarkerTakenOver() throws IOException {
+        // Given: 清理节点标记后退出，文件和记录都未删除
+        String hash = storeA.put(CODE);
+        storeA.release(hash);
+        table.rows.get(hash).deleting = 1;
+        table.age(hash);
+
+        // When
+        int deleted = collectorB.deleteUnreferenced();
+
+        // Then
+        assertEquals(1, deleted);
+        assertFalse(Files.exists(storeA.pathOf(hash)));
+        assertNull(table.rows.get(hash));
+    }
+
+    @Test
+    void testDeleteOrphans_FileWithoutRowDeleted() throws IOException {
+        // Given
+        String hash = storeA.put(CODE);
+        table.rows.remove(hash);
+        Path path = storeA.pathOf(hash);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000L));
+
+        // When
+        int deleted = collectorB.deleteOrphans();
+
+        // Then
+        assertEquals(1, deleted);
+        assertFalse(Files.exists(path));
+        assertNull(table.rows.get(hash));
+    }
+
+    @Test
+    void testDeleteOrphans_AcquiredDuringScanKeepsFile() throws IOException {
+        // Given
+        String hash = storeA.put(CODE);
+        table.rows.remove(hash);
+        Path path = storeA.pathOf(hash);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000L));
+        // 节点B确认文件无记录后，节点A提交了相同代码
+        doAnswer(invocation -> {
+            List<CodeBlob> known = table.selectBatch(invocation.getArgument(0));
+            storeA.put(CODE);
+            return known;
+        }).when(mapperB).selectBatchIds(anyCollection());
+
+        // When
+        int deleted = collectorB.deleteOrphans();
+
+        // Then
+        assertEquals(0, deleted);
+        assertEquals(CODE, storeA.get(hash));
+        assertEquals(1, table.rows.get(hash).refCount);
+    }
+
+    private CodeBlobStore newStore(CodeBlobMapper mapper) {
+        CodeBlobStore store = new CodeBlobStore();
+        ReflectionTestUtils.setField(store, "codeBlobMapper", mapper);
+        ReflectionTestUtils.setField(store, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "rootDir", root.toString());
+        ReflectionTestUtils.setField(store, "deleteWaitMs", 5000L);
+        return store;
+    }
+
+    /**
+     * 每个节点使用各自的Mapper，语句在共享的内存表上执行
+     */
+    private CodeBlobMapper mapperFor(BlobTable table) {
+        CodeBlobMapper mapper = mock(CodeBlobMapper.class);
+        when(mapper.acquire(anyString(), anyLong()))
+                .thenAnswer(invocation -> table.acquire(invocation.getArgument(0), invocation.getArgument(1)));
+        when(mapper.release(anyString())).thenAnswer(invocation -> table.release(invocation.getArgument(0)));
+        when(mapper.selectDeleting(anyString())).thenAnswer(invocation -> table.selectDeleting(invocation.getArgument(0)));
+        when(mapper.selectUnreferenced(any(), anyInt()))
+                .thenAnswer(invocation -> table.selectUnreferenced(invocation.getArgument(0)));
+        when(mapper.selectStaleDeleting(any(), anyInt()))
+                .thenAnswer(invocation -> table.selectStaleDeleting(invocation.getArgument(0)));
+        when(mapper.markDeleting(anyString(), any()))
+                .thenAnswer(invocation -> table.markDeleting(invocation.getArgument(0), invocation.getArgument(1)));
+        when(mapper.insertDeleting(anyString())).thenAnswer(invocation -> table.insertDeleting(invocation.getArgument(0)));
+        when(mapper.deleteMarked(anyString())).thenAnswer(invocation -> table.deleteMarked(invocation.getArgument(0)));
+        when(mapper.clearDeleting(anyString())).thenAnswer(invocation -> table.clearDeleting(invocation.getArgument(0)));
+        when(mapper.selectBatchIds(anyCollection())).thenAnswer(invocation -> table.selectBatch(invocation.getArgument(0)));
+        return mapper;
+    }
+
+    /**
+     * 内存中的 code_blob 表，按 CodeBlobMapper 中各语句的条件执行
+     */
+    private static class BlobTable {
+
+        private final Map<String, Row> rows = new HashMap<>();
+
+        synchronized int acquire(String hash, long size) {
+            Row row = rows.computeIfAbsent(hash, key -> new Row());
+            row.refCount++;
+            row.size = size;
+            row.updateTime = LocalDateTime.now();
+            return 1;
+        }
+
+        synchronized int release(String hash) {
+            Row row = rows.get(hash);
+            if (row == null || row.refCount <= 0) {
+                return 0;
+            }
+            row.refCount--;
+            row.updateTime = LocalDateTime.now();
+            return 1;
+        }
+
+        synchronized Integer selectDeleting(String hash) {
+            Row row = rows.get(hash);
+            return row != null ? row.deleting : null;
+        }
+
+        synchronized List<String> selectUnreferenced(LocalDateTime before) {
+            List<String> hashes = new ArrayList<>();
+            rows.forEach((hash, row) -> {
+                if (row.refCount <= 0 && row.deleting == 0 && row.updateTime.isBefore(before)) {
+                    hashes.add(hash);
+                }
+            });
+            return hashes;
+        }
+
+        synchronized List<String> selectStaleDeleting(LocalDateTime before) {
+            List<String> hashes = new ArrayList<>();
+            rows.forEach((hash, row) -> {
+                if (row.deleting == 1 && row.updateTime.isBefore(before)) {
+                    hashes.add(hash);
+                }
+            });
+            return hashes;
+        }
+
+        synchronized int markDeleting(String hash, LocalDateTime before) {
+            Row row = rows.get(hash);
+            if (row == null || row.deleting != 0 || row.refCount > 0 || !row.updateTime.isBefore(before)) {
+                return 0;
+            }
+            row.deleting = 1;
+            row.updateTime = LocalDateTime.now();
+            return 1;
+        }
+
+        synchronized int insertDeleting(String hash) {
+            if (rows.containsKey(hash)) {
+                return 0;
+            }
+            Row row = new Row();
+            row.deleting = 1;
+            rows.put(hash, row);
+            return 1;
+        }
+
+        synchronized int deleteMarked(String hash) {
+            Row row = rows.get(hash);
+            if (row == null || row.deleting != 1 || row.refCount > 0) {
+                return 0;
+            }
+            rows.remove(hash);
+            return 1;
+        }
+
+        synchronized int clearDeleting(String hash) {
+            Row row = rows.get(hash);
+            if (row == null || row.deleting != 1) {
+                return 0;
+            }
+            row.deleting = 0;
+            row.updateTime = LocalDateTime.now();
+            return 1;
+        }
+
+        synchronized List<CodeBlob> selectBatch(Collection<String> hashes) {
+            List<CodeBlob> blobs = new ArrayList<>();
+            for (String hash : hashes) {
+                if (rows.containsKey(hash)) {
+                    CodeBlob blob = new CodeBlob();
+                    blob.setHash(hash);
+                    blobs.add(blob);
+                }
+            }
+            return blobs;
+        }
+
+        /**
+         * 把更新时间调到宽限期之前
+         */
+        synchronized void age(String hash) {
+            rows.get(hash).updateTime = LocalDateTime.now().minusHours(1);
+        }
+
+        void awaitRefCount(String hash, int refCount) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline) {
+                synchronized (this) {
+                    Row row = rows.get(hash);
+                    if (row != null && row.refCount == refCount) {
+                        return;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            fail("等待引用登记超时");
+        }
+    }
+
+    private static class Row {
+
+        private long size;
+
+        private int refCount;
+
+        private int deleting;
+
+        private LocalDateTime updateTime = LocalDateTime.now();
+    }
+}
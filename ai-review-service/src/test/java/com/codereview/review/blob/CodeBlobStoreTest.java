@@ -0,0 +1,108 @@
+package com.codereview.review.blob;
+
+import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.CodeBlobMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CodeBlobStore单元测试（使用临时目录存放代码内容）
+ * @author CodeReview
+ */
+class CodeBlobStoreTest {
+
+    private Path root;
+
+    private CodeBlobMapper codeBlobMapper;
+
+    private CodeBlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("code-blob-test");
+        codeBlobMapper = mock(CodeBlobMapper.class);
+        store = new CodeBlobStore();
+        ReflectionTestUtils.setField(store, "codeBlobMapper", codeBlobMapper);
+        ReflectionTestUtils.setField(store, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "rootDir", root.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testPut_IdenticalContentStoredOnceInShardedLayout() {
+        // Given
+        String code = "public class A { /* 中文 */ }";
+
+        // When
+        String first = store.put(code);
+        String second = store.put(code);
+
+        // Then
+        assertEquals(first, second);
+        assertEquals(64, first.length());
+        Path path = root.resolve(first.substring(0, 2)).resolve(first.substring(2, 4)).resolve(first);
+        assertTrue(Files.isRegularFile(path));
+        assertEquals(code, store.get(first));
+        verify(codeBlobMapper, times(2)).acquire(eq(first), anyLong());
+    }
+
+    @Test
+    void testHydrate_TaskReferencingOnlyHash() {
+        // Given
+        String hash = store.put("int x = 1;");
+        ReviewTask task = new ReviewTask();
+        task.setCodeHash(hash);
+        task.setCodeContent("");
+
+        // When
+        store.hydrate(task);
+
+        // Then
+        assertEquals("int x = 1;", task.getCodeContent());
+    }
+
+    @Test
+    void testPut_DeletionWaitTimeoutReleasesReference() {
+        // Given: 其他节点标记清理后一直未结束
+        ReflectionTestUtils.setField(store, "deleteWaitMs", 100L);
+        when(codeBlobMapper.selectDeleting(anyString())).thenReturn(1);
+
+        // When & Then
+        assertThrows(BusinessException.class, () -> store.put("int x = 1;"));
+        verify(codeBlobMapper).acquire(anyString(), anyLong());
+        verify(codeBlobMapper).release(anyString());
+    }
+
+    @Test
+    void testPut_DisabledReturnsNullAndMissingContentFails() {
+        // Given
+        ReflectionTestUtils.setField(store, "enabled", false);
+
+        // When & Then
+        assertNull(store.put("int x = 1;"));
+        assertThrows(BusinessException.class, () -> store.get(
+                "0000000000000000000000000000000000000000000000000000000000000000"));
+    }
+}
@@ -0,0 +1,174 @@
+package com.codereview.review.cache;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReviewSingleFlight单元测试
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class ReviewSingleFlightTest {
+
+    private static final String HASH = "hash-1";
+
+    @Mock
+    private RedisUtils redisUtils;
+
+    @Mock
+    private ReviewResultCache reviewResultCache;
+
+    private ReviewSingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new ReviewSingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "redisUtils", redisUtils);
+        ReflectionTestUtils.setField(singleFlight, "reviewResultCache", reviewResultCache);
+        ReflectionTestUtils.setField(singleFlight, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(singleFlight, "enabled", true);
+        ReflectionTestUtils.setField(singleFlight, "markerTtlSeconds", 300L);
+        ReflectionTestUtils.setField(singleFlight, "pollIntervalMs", 20L);
+        singleFlight.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        singleFlight.destroy();
+    }
+
+    @Test
+    void testExecute_LocalFollowerSharesLeaderResult() {
+        // Given
+        when(redisUtils.tryLock(anyString(), anyString(), anyLong(), any())).thenReturn(true);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        CompletableFuture<String> leader = singleFlight.execute(HASH, () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> follower = singleFlight.execute(HASH, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        upstream.complete("result");
+
+        // Then
+        assertEquals("result", leader.join());
+        assertEquals("result", follower.join());
+        assertEquals(1, calls.get());
+        verify(redisUtils, times(1)).tryLock(anyString(), anyString(), anyLong(), any());
+        verify(redisUtils).unlock(anyString(), anyString());
+    }
+
+    @Test
+    void testExecute_LeaderFailurePropagatesAndReleasesMarker() {
+        // Given
+        when(redisUtils.tryLock(anyString(), anyString(), anyLong(), any())).thenReturn(true);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> leader = singleFlight.execute(HASH, () -> upstream);
+        CompletableFuture<String> follower = singleFlight.execute(HASH, () -> CompletableFuture.completedFuture("other"));
+
+        // When
+        upstream.completeExceptionally(new IllegalStateException("AI调用失败"));
+
+        // Then
+        assertThrows(CompletionException.class, leader::join);
+        assertThrows(CompletionException.class, follower::join);
+        verify(redisUtils).unlock(anyString(), anyString());
+
+        // 失败的请求不再占用合并槽位，后续请求重新调用AI
+        assertEquals("retry", singleFlight.execute(HASH, () -> CompletableFuture.completedFuture("retry")).join());
+    }
+
+    @Test
+    void testExecute_RemoteFollowerReadsCacheAfterMarkerReleased() throws Exception {
+        // Given
+        when(redisUtils.tryLock(anyString(), anyString(), anyLong(), any())).thenReturn(false);
+        when(redisUtils.hasKey(anyString())).thenReturn(true, true, false);
+        CachedReviewResult cached = new CachedReviewResult();
+        cached.setReviewResult("cached");
+        when(reviewResultCache.get(HASH)).thenReturn(cached);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        String result = singleFlight.execute(HASH, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("own");
+        }).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("cached", result);
+        assertEquals(0, calls.get());
+        verify(redisUtils, never()).unlock(anyString(), anyString());
+    }
+
+    @Test
+    void testExecute_RemoteLeaderFailedFollowerInvokesItself() throws Exception {
+        // Given
+        when(redisUtils.tryLock(anyString(), anyString(), anyLong(), any())).thenReturn(false);
+        when(redisUtils.hasKey(anyString())).thenReturn(false);
+        when(reviewResultCache.get(HASH)).thenReturn(null);
+
+        // When
+        String result = singleFlight.execute(HASH, () -> CompletableFuture.completedFuture("own"))
+                .get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("own", result);
+    }
+
+    @Test
+    void testExecute_RemoteFollowerWaitsUntilMarkerExpires() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(singleFlight, "markerTtlSeconds", 1L);
+        when(redisUtils.tryLock(anyString(), anyString(), anyLong(), any())).thenReturn(false);
+        when(redisUtils.hasKey(anyString())).thenReturn(true);
+        when(reviewResultCache.get(HASH)).thenReturn(null);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        CompletableFuture<String> future = singleFlight.execute(HASH, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("own");
+        });
+        Thread.sleep(300);
+
+        // Then: 标记有效期内不自行调用AI，有效期过后才调用
+        assertEquals(0, calls.get());
+        assertEquals("own", future.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testExecute_DisabledCallsLoaderDirectly() {
+        // Given
+        ReflectionTestUtils.setField(singleFlight, "enabled", false);
+
+        // When
+        String result = singleFlight.execute(HASH, () -> CompletableFuture.completedFuture("direct")).join();
+
+        // Then
+        assertEquals("direct", result);
+        verifyNoInteractions(redisUtils, reviewResultCache);
+    }
+}
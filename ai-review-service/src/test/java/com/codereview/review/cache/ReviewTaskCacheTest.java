@@ -0,0 +1,201 @@
+package com.codereview.review.cache;
+
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.enums.ReviewStatusEnum;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import com.codereview.review.entity.ReviewTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReviewTaskCache单元测试
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class ReviewTaskCacheTest {
+
+    private static final String KEY = RedisConstants.REVIEW_TASK_KEY + 1L;
+
+    @Mock
+    private RedisUtils redisUtils;
+
+    @Mock
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private ReviewTaskCache cache;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReviewTaskCache();
+        ReflectionTestUtils.setField(cache, "redisUtils", redisUtils);
+        ReflectionTestUtils.setField(cache, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(cache, "redisMessageListenerContainer", redisMessageListenerContainer);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "l1MaxSize", 10);
+        ReflectionTestUtils.setField(cache, "l1TtlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "l2TtlSeconds", 86400L);
+        ReflectionTestUtils.setField(cache, "activeTtlSeconds", 3L);
+        cache.init();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void testGet_MissCachesProjectionWithoutCode() {
+        // Given
+        ReviewTask task = task(ReviewStatusEnum.COMPLETED.getCode());
+
+        // When
+        ReviewTask loaded = cache.get(1L, loader(task));
+
+        // Then: 调用方拿到完整任务，缓存中不含代码内容
+        assertSame(task, loaded);
+        ArgumentCaptor<ReviewTask> captor = ArgumentCaptor.forClass(ReviewTask.class);
+        verify(redisUtils).setObject(eq(KEY), captor.capture(), eq(86400L), eq(TimeUnit.SECONDS));
+        assertNull(captor.getValue().getCodeContent());
+        assertEquals("{\"issues\":[]}", captor.getValue().getReviewResult());
+        assertEquals("public class A {}", task.getCodeContent());
+    }
+
+    @Test
+    void testGet_L1HitSkipsRedisAndLoader() {
+        // Given
+        Function<Long, ReviewTask> loader = loader(task(ReviewStatusEnum.COMPLETED.getCode()));
+        cache.get(1L, loader);
+
+        // When
+        ReviewTask cached = cache.get(1L, loader);
+
+        // Then
+        assertNull(cached.getCodeContent());
+        assertEquals(1L, cached.getId());
+        assertEquals(1, loads.get());
+        verify(redisUtils, times(1)).getObject(eq(KEY), eq(ReviewTask.class));
+    }
+
+    @Test
+    void testGet_L2HitPopulatesL1() {
+        // Given
+        ReviewTask projection = task(ReviewStatusEnum.COMPLETED.getCode());
+        projection.setCodeContent(null);
+        when(redisUtils.getObject(eq(KEY), eq(ReviewTask.class))).thenReturn(projection);
+        Function<Long, ReviewTask> loader = loader(null);
+
+        // When
+        ReviewTask first = cache.get(1L, loader);
+        ReviewTask second = cache.get(1L, loader);
+
+        // Then: 第二次命中L1，不再读取Redis
+        assertSame(projection, first);
+        assertSame(projection, second);
+        assertEquals(0, loads.get());
+        verify(redisUtils, times(1)).getObject(eq(KEY), eq(ReviewTask.class));
+        verify(redisUtils, never()).setObject(anyString(), any(), anyLong(), any());
+    }
+
+    @Test
+    void testGet_ActiveTaskUsesShortTtl() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(cache, "activeTtlSeconds", 1L);
+        Function<Long, ReviewTask> loader = loader(task(ReviewStatusEnum.REVIEWING.getCode()));
+
+        // When
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        Thread.sleep(1100);
+        cache.get(1L, loader);
+
+        // Then: 未结束的任务在L1和L2中都只短暂缓存
+        verify(redisUtils, times(2)).setObject(eq(KEY), any(ReviewTask.class), eq(1L), eq(TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_RedisFailureFallsBackToLoader() {
+        // Given
+        when(redisUtils.getObject(eq(KEY), eq(ReviewTask.class))).thenThrow(new IllegalStateException("连接中断"));
+        doThrow(new IllegalStateException("连接中断"))
+                .when(redisUtils).setObject(anyString(), any(), anyLong(), any());
+
+        // When
+        ReviewTask loaded = cache.get(1L, loader(task(ReviewStatusEnum.COMPLETED.getCode())));
+
+        // Then
+        assertNotNull(loaded);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testEvict_RemovesBothLevelsAndNotifiesNodes() {
+        // Given
+        Function<Long, ReviewTask> loader = loader(task(ReviewStatusEnum.COMPLETED.getCode()));
+        cache.get(1L, loader);
+
+        // When
+        cache.evict(1L);
+        cache.get(1L, loader);
+
+        // Then
+        verify(redisUtils).delete(KEY);
+        verify(redisUtils).publish(RedisConstants.REVIEW_TASK_INVALIDATE_CHANNEL, "1");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testOnMessage_InvalidationRemovesL1() {
+        // Given
+        Function<Long, ReviewTask> loader = loader(task(ReviewStatusEnum.COMPLETED.getCode()));
+        cache.get(1L, loader);
+
+        // When: 其他节点发布失效通知，无效消息被忽略
+        cache.onMessage(message("not-a-number"), null);
+        cache.get(1L, loader);
+        cache.onMessage(message("1"), null);
+        cache.get(1L, loader);
+
+        // Then
+        assertEquals(2, loads.get());
+        verify(redisUtils, never()).delete(anyString());
+    }
+
+    private Function<Long, ReviewTask> loader(ReviewTask task) {
+        return id -> {
+            loads.incrementAndGet();
+            return task;
+        };
+    }
+
+    private ReviewTask task(Integer status) {
+        ReviewTask task = new ReviewTask();
+        task.setId(1L);
+        task.setUserId(3L);
+        task.setStatus(status);
+        task.setCodeContent("public class A {}");
+        task.setReviewResult("{\"issues\":[]}");
+        return task;
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(RedisConstants.REVIEW_TASK_INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,9 +1,15 @@
 package com.codereview.review.controller;
 
 import com.codereview.review.dto.CodeReviewRequestDTO;
+import com.codereview.review.dto.IssueStatDTO;
 import com.codereview.review.dto.PageResponseDTO;
+import com.codereview.review.dto.ReviewIssueQueryDTO;
 import com.codereview.review.dto.ReviewTaskQueryDTO;
+import com.codereview.review.dto.ReviewTaskSummaryDTO;
+import com.codereview.review.entity.ReviewIssue;
 import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.event.TaskEventHub;
+import com.codereview.review.service.ReviewIssueService;
 import com.codereview.review.service.ReviewService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,10 +19,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -39,6 +48,15 @@ class ReviewControllerTest {
     @MockBean
     private ReviewService reviewService;
 
+    @MockBean
+    private ReviewIssueService reviewIssueService;
+
+    @MockBean
+    private TaskEventHub taskEventHub;
+
+    @MockBean(name = "reviewStreamExecutor")
+    private Executor reviewStreamExecutor;
+
     private CodeReviewRequestDTO reviewRequestDTO;
     private ReviewTask mockTask;
 
@@ -160,8 +178,8 @@ class ReviewControllerTest {
     @Test
     void testGetUserTasks_Success() throws Exception {
         // Given
-        PageResponseDTO<ReviewTask> pageResponse = new PageResponseDTO<>();
-        pageResponse.setRecords(Arrays.asList(mockTask));
+        PageResponseDTO<ReviewTaskSummaryDTO> pageResponse = new PageResponseDTO<>();
+        pageResponse.setRecords(Arrays.asList(new ReviewTaskSummaryDTO()));
         pageResponse.setTotal(1L);
         pageResponse.setPage(1);
         pageResponse.setSize(10);
@@ -185,7 +203,7 @@ class ReviewControllerTest {
     @Test
     void testGetUserTasks_WithFilters() throws Exception {
         // Given
-        PageResponseDTO<ReviewTask> pageResponse = new PageResponseDTO<>();
+        PageResponseDTO<ReviewTaskSummaryDTO> pageResponse = new PageResponseDTO<>();
         pageResponse.setRecords(Collections.emptyList());
         pageResponse.setTotal(0L);
         pageResponse.setPage(1);
@@ -231,4 +249,128 @@ class ReviewControllerTest {
 
         verify(reviewService, never()).deleteTask(anyLong(), anyLong());
     }
+
+    @Test
+    void testGetUserIssues_Success() throws Exception {
+        // Given
+        ReviewIssue issue = new ReviewIssue();
+        issue.setTaskId(1L);
+        issue.setSeverity("high");
+        PageResponseDTO<ReviewIssue> pageResponse = new PageResponseDTO<>();
+        pageResponse.setRecords(Collections.singletonList(issue));
+        pageResponse.setTotal(1L);
+        pageResponse.setPage(1);
+        pageResponse.setSize(10);
+
+        when(reviewIssueService.getUserIssues(anyLong(), any(ReviewIssueQueryDTO.class))).thenReturn(pageResponse);
+
+        // When & Then
+        mockMvc.perform(get("/review/issues")
+                .header("X-User-Id", "1")
+                .param("taskId", "1")
+                .param("severity", "high"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.records[0].severity").value("high"))
+                .andExpect(jsonPath("$.data.total").value(1));
+
+        verify(reviewIssueService, times(1)).getUserIssues(eq(1L),
+                argThat(query -> query.getTaskId() == 1L && "high".equals(query.getSeverity())));
+    }
+
+    @Test
+    void testGetUserIssues_NoUserId() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/review/issues"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(401));
+
+        verify(reviewIssueService, never()).getUserIssues(anyLong(), any());
+    }
+
+    @Test
+    void testGetIssueStats_Success() throws Exception {
+        // Given
+        IssueStatDTO stat = new IssueStatDTO();
+        stat.setName("security");
+        stat.setCount(3L);
+        when(reviewIssueService.getIssueStats(1L, 1L, null, "type")).thenReturn(Collections.singletonList(stat));
+
+        // When & Then
+        mockMvc.perform(get("/review/issues/stats")
+                .header("X-User-Id", "1")
+                .param("taskId", "1")
+                .param("groupBy", "type"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data[0].name").value("security"))
+                .andExpect(jsonPath("$.data[0].count").value(3));
+    }
+
+    @Test
+    void testGetIssueStats_DefaultGroupBySeverity() throws Exception {
+        // Given
+        when(reviewIssueService.getIssueStats(1L, null, null, "severity")).thenReturn(Collections.emptyList());
+
+        // When & Then
+        mockMvc.perform(get("/review/issues/stats")
+                .header("X-User-Id", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data").isEmpty());
+
+        verify(reviewIssueService, times(1)).getIssueStats(1L, null, null, "severity");
+    }
+
+    @Test
+    void testSubscribeTaskEvents_SendsSnapshotOfSubscribedTasks() throws Exception {
+        // Given
+        SseEmitter emitter = new SseEmitter(0L);
+        when(taskEventHub.isEnabled()).thenReturn(true);
+        when(taskEventHub.subscribe(eq(1L), anySet())).thenReturn(emitter);
+        when(reviewService.getTaskStatus(1L, 1L)).thenReturn(mockTask);
+
+        // When & Then
+        mockMvc.perform(get("/review/events")
+                .header("X-User-Id", "1")
+                .param("taskIds", "1"))
+                .andExpect(request().asyncStarted());
+
+        verify(taskEventHub, times(1)).subscribe(1L, Collections.singleton(1L));
+        verify(taskEventHub, times(1)).send(emitter, mockTask);
+    }
+
+    @Test
+    void testSubscribeTaskEvents_TaskIdsCapped() throws Exception {
+        // Given
+        when(taskEventHub.isEnabled()).thenReturn(true);
+        when(taskEventHub.subscribe(eq(1L), anySet())).thenReturn(new SseEmitter(0L));
+        String[] taskIds = new String[150];
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = String.valueOf(i + 1);
+        }
+
+        // When
+        mockMvc.perform(get("/review/events")
+                .header("X-User-Id", "1")
+                .param("taskIds", taskIds))
+                .andExpect(request().asyncStarted());
+
+        // Then: 最多订阅100个任务
+        verify(taskEventHub, times(1)).subscribe(eq(1L), argThat((Set<Long> ids) -> ids.size() == 100));
+    }
+
+    @Test
+    void testSubscribeTaskEvents_Disabled() throws Exception {
+        // Given
+        when(taskEventHub.isEnabled()).thenReturn(false);
+
+        // When & Then
+        mockMvc.perform(get("/review/events")
+                .header("X-User-Id", "1"))
+                .andExpect(status().isOk());
+
+        verify(taskEventHub, never()).subscribe(anyLong(), any());
+        verify(reviewService, never()).getTaskStatus(anyLong(), anyLong());
+    }
 }
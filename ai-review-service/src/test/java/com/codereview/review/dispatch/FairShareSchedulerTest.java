@@ -0,0 +1,292 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import com.codereview.review.entity.ReviewTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * FairShareScheduler单元测试
+ * 调度逻辑在Lua脚本中，使用Docker中的Redis执行；没有Docker时跳过
+ * @author CodeReview
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@ExtendWith(MockitoExtension.class)
+class FairShareSchedulerTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private static StringRedisTemplate redisTemplate;
+
+    @Mock
+    private PublishConfirmTracker publishConfirmTracker;
+
+    private SimpleMeterRegistry registry;
+
+    private FairShareScheduler scheduler;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushDb();
+        }
+        RedisUtils redisUtils = new RedisUtils();
+        ReflectionTestUtils.setField(redisUtils, "stringRedisTemplate", redisTemplate);
+
+        registry = new SimpleMeterRegistry();
+        scheduler = new FairShareScheduler();
+        ReflectionTestUtils.setField(scheduler, "redisUtils", redisUtils);
+        ReflectionTestUtils.setField(scheduler, "publishConfirmTracker", publishConfirmTracker);
+        ReflectionTestUtils.setField(scheduler, "metricsUtils", new MetricsUtils(registry));
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "quantum", 1);
+        ReflectionTestUtils.setField(scheduler, "costUnitTokens", 1000);
+        ReflectionTestUtils.setField(scheduler, "maxCost", 64);
+        ReflectionTestUtils.setField(scheduler, "defaultWeight", 1);
+        ReflectionTestUtils.setField(scheduler, "maxInflightPerUser", 100);
+        ReflectionTestUtils.setField(scheduler, "maxRounds", 64);
+        ReflectionTestUtils.setField(scheduler, "recoverAfterSeconds", 300L);
+        ReflectionTestUtils.setField(scheduler, "recoverBatchSize", 100);
+        scheduler.init();
+    }
+
+    @Test
+    void testPoll_EqualWeightsInterleaveUsers() {
+        // Given: 用户1先提交4个任务，用户2后提交2个
+        enqueue(1L, 4);
+        enqueue(2L, 2);
+
+        // When
+        List<Long> order = pollUsers(6);
+
+        // Then: 轮流取出，用户2的任务不会排在用户1的全部任务之后
+        assertEquals(Arrays.asList(1L, 2L, 1L, 2L, 1L, 1L), order);
+        assertNull(scheduler.poll(ReviewLane.INTERACTIVE));
+        assertFalse(scheduler.hasPending(ReviewLane.INTERACTIVE));
+        verify(publishConfirmTracker, times(6)).send(eq(ReviewLane.INTERACTIVE.getQueue()), any(byte[].class));
+    }
+
+    @Test
+    void testPoll_WeightScalesShare() {
+        // Given: 用户2权重为2
+        redisTemplate.opsForHash().put(RedisConstants.FAIR_WEIGHT_KEY, "2", "2");
+        enqueue(1L, 6);
+        enqueue(2L, 6);
+
+        // When
+        List<Long> order = pollUsers(6);
+
+        // Then
+        assertEquals(2, order.stream().filter(user -> user == 1L).count());
+        assertEquals(4, order.stream().filter(user -> user == 2L).count());
+    }
+
+    @Test
+    void testPoll_CostChargedByTokens() {
+        // Given: 用户1的任务开销为3，用户2的任务开销为1
+        scheduler.enqueue(ReviewLane.INTERACTIVE, 1L, message(101L), 3000);
+        scheduler.enqueue(ReviewLane.INTERACTIVE, 1L, message(102L), 3000);
+        enqueue(2L, 3);
+
+        // When
+        List<Long> order = pollUsers(4);
+
+        // Then: 用户1累积三轮额度后才能取出一个任务
+        assertEquals(Arrays.asList(2L, 2L, 1L, 2L), order);
+    }
+
+    @Test
+    void testPoll_InflightCapSkipsUserUntilComplete() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "maxInflightPerUser", 2);
+        enqueue(1L, 3);
+
+        // When
+        FairShareJob first = scheduler.poll(ReviewLane.INTERACTIVE);
+        FairShareJob second = scheduler.poll(ReviewLane.INTERACTIVE);
+        FairShareJob capped = scheduler.poll(ReviewLane.INTERACTIVE);
+
+        // Then: 达到上限时取不到任务但仍有排队任务，结束一个后可以继续取
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(capped);
+        assertTrue(scheduler.hasPending(ReviewLane.INTERACTIVE));
+        scheduler.complete(first);
+        assertNotNull(scheduler.poll(ReviewLane.INTERACTIVE));
+    }
+
+    @Test
+    void testPoll_CappedUserDoesNotBlockOthers() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "maxInflightPerUser", 1);
+        enqueue(1L, 2);
+        enqueue(2L, 1);
+
+        // When
+        List<Long> order = pollUsers(2);
+
+        // Then
+        assertEquals(Arrays.asList(1L, 2L), order);
+        assertNull(scheduler.poll(ReviewLane.INTERACTIVE));
+    }
+
+    @Test
+    void testRequeue_JobReturnsAheadOfLaterJobs() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "maxInflightPerUser", 1);
+        scheduler.enqueue(ReviewLane.INTERACTIVE, 1L, message(1L), 0);
+        scheduler.enqueue(ReviewLane.INTERACTIVE, 1L, message(2L), 0);
+        FairShareJob job = scheduler.poll(ReviewLane.INTERACTIVE);
+
+        // When: 重复退回只有一次生效
+        boolean requeued = scheduler.requeue(job);
+        boolean again = scheduler.requeue(job);
+
+        // Then: 进行中额度已释放，再次取出的是同一任务
+        assertTrue(requeued);
+        assertFalse(again);
+        FairShareJob next = scheduler.poll(ReviewLane.INTERACTIVE);
+        assertEquals(job.getRaw(), next.getRaw());
+        assertEquals(Arrays.asList(1L), next.getMessage().getTaskIds());
+    }
+
+    @Test
+    void testTouch_OnlyWhileInProgress() {
+        // Given
+        enqueue(1L, 1);
+        FairShareJob job = scheduler.poll(ReviewLane.INTERACTIVE);
+
+        // When & Then
+        assertTrue(scheduler.touch(job));
+        scheduler.complete(job);
+        assertFalse(scheduler.touch(job));
+        assertFalse(scheduler.requeue(job));
+    }
+
+    @Test
+    void testRecoverStale_RequeuesAndReissuesToken() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "recoverAfterSeconds", 0L);
+        enqueue(1L, 1);
+        FairShareJob job = scheduler.poll(ReviewLane.INTERACTIVE);
+        Thread.sleep(5);
+
+        // When
+        scheduler.recoverStale();
+
+        // Then
+        verify(publishConfirmTracker, times(2)).send(eq(ReviewLane.INTERACTIVE.getQueue()), any(byte[].class));
+        assertEquals(job.getRaw(), scheduler.poll(ReviewLane.INTERACTIVE).getRaw());
+    }
+
+    @Test
+    void testEnqueue_StoresIdsAndHashWithoutCode() {
+        // Given
+        ReviewTask task = new ReviewTask();
+        task.setId(7L);
+        task.setUserId(1L);
+        task.setTitle("A.java");
+        task.setAiModel("gpt-4");
+        task.setLanguage("Java");
+        task.setCodeContent("public class A {}");
+        task.setCodeHash("ab12cd");
+
+        // When
+        scheduler.enqueue(ReviewLane.INTERACTIVE, 1L, ReviewTaskMessage.of(Collections.singletonList(task)), 500);
+
+        // Then: Redis 中不含代码，取出后携带内容哈希，消费者无需查询数据库
+        Set<String> queued = redisTemplate.opsForZSet().range(RedisConstants.FAIR_QUEUE_KEY + ReviewLane.INTERACTIVE.getName(), 0, -1);
+        assertEquals(1, queued.size());
+        assertFalse(queued.iterator().next().contains("public class A"));
+        ReviewTaskMessage message = scheduler.poll(ReviewLane.INTERACTIVE).getMessage();
+        assertEquals(1L, message.getUserId());
+        assertEquals("ab12cd", message.getTasks().get(0).getCodeHash());
+        assertNull(message.getTasks().get(0).getCodeContent());
+        assertTrue(message.isSelfContained());
+    }
+
+    @Test
+    void testSampleQueueDepth_TaggedByLaneOnly() {
+        // Given
+        enqueue(1L, 3);
+        enqueue(2L, 1);
+        scheduler.enqueue(ReviewLane.BATCH, 3L, message(301L), 0);
+
+        // When
+        scheduler.sampleQueueDepth();
+        scheduler.poll(ReviewLane.INTERACTIVE);
+
+        // Then
+        assertEquals(4.0, registry.get("ai.review.fair.queue.depth").tag("lane", "interactive").gauge().value());
+        assertEquals(2.0, registry.get("ai.review.fair.queue.users").tag("lane", "interactive").gauge().value());
+        assertEquals(1.0, registry.get("ai.review.fair.queue.depth").tag("lane", "batch").gauge().value());
+        assertEquals(3, registry.get("ai.review.fair.queue.depth").gauges().size());
+        assertTrue(registry.getMeters().stream().noneMatch(meter -> meter.getId().getTag("user") != null));
+    }
+
+    private void enqueue(Long userId, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.enqueue(ReviewLane.INTERACTIVE, userId, message(userId * 100 + i), 500);
+        }
+    }
+
+    private List<Long> pollUsers(int count) {
+        List<Long> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FairShareJob job = scheduler.poll(ReviewLane.INTERACTIVE);
+            assertNotNull(job);
+            users.add(job.getUserId());
+        }
+        return users;
+    }
+
+    private ReviewTaskMessage message(Long taskId) {
+        ReviewTaskMessage message = new ReviewTaskMessage();
+        ReviewTaskMessage.Item item = new ReviewTaskMessage.Item();
+        item.setTaskId(taskId);
+        message.getTasks().add(item);
+        return message;
+    }
+}
@@ -0,0 +1,210 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.utils.MetricsUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PublishConfirmTracker单元测试
+ * 确认回调通过 RabbitTemplate 注册的回调触发，超时和重试间隔设为0时定时任务立即重发
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class PublishConfirmTrackerTest {
+
+    private static final String QUEUE = "code.review.queue";
+
+    private static final byte[] PAYLOAD = "task".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations operations;
+
+    private SimpleMeterRegistry registry;
+
+    private PublishConfirmTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        tracker = new PublishConfirmTracker();
+        ReflectionTestUtils.setField(tracker, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(tracker, "metricsUtils", new MetricsUtils(registry));
+        ReflectionTestUtils.setField(tracker, "confirmType", "correlated");
+        ReflectionTestUtils.setField(tracker, "confirmTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(tracker, "retryDelayMs", 0L);
+        ReflectionTestUtils.setField(tracker, "maxAttempts", 3);
+        ReflectionTestUtils.setField(tracker, "maxPending", 100);
+        ReflectionTestUtils.setField(tracker, "maxPendingBytes", 1024L);
+
+        // 在同一通道上发送：直接用模拟的操作对象执行回调
+        lenient().when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<Object>>getArgument(0).doInRabbit(operations));
+    }
+
+    @Test
+    void testConfirm_AckedMessageNotResent() {
+        // Given
+        RabbitTemplate.ConfirmCallback callback = init();
+        tracker.send(QUEUE, PAYLOAD);
+
+        // When
+        callback.confirm(sentCorrelations().get(0), true, null);
+        ReflectionTestUtils.setField(tracker, "confirmTimeoutMs", 0L);
+        tracker.resendUnconfirmed();
+
+        // Then
+        verify(operations, times(1)).convertAndSend(eq(""), eq(QUEUE), eq(PAYLOAD), any(CorrelationData.class));
+        assertEquals(0.0, pending());
+        assertEquals(1.0, registry.counter("ai.review.publish.confirmed").count());
+    }
+
+    @Test
+    void testConfirm_NackedMessageResentWithNewCorrelation() {
+        // Given
+        RabbitTemplate.ConfirmCallback callback = init();
+        tracker.send(QUEUE, PAYLOAD);
+        CorrelationData first = sentCorrelations().get(0);
+
+        // When: 被拒绝后重发，旧关联ID迟到的确认不影响重发的消息
+        callback.confirm(first, false, "NOT_FOUND");
+        tracker.resendUnconfirmed();
+        callback.confirm(first, true, null);
+
+        // Then
+        List<CorrelationData> sent = sentCorrelations();
+        assertEquals(2, sent.size());
+        assertNotEquals(first.getId(), sent.get(1).getId());
+        assertEquals(1.0, pending());
+        assertEquals(1.0, registry.counter("ai.review.publish.nacked").count());
+
+        callback.confirm(sent.get(1), true, null);
+        assertEquals(0.0, pending());
+    }
+
+    @Test
+    void testResend_TimedOutMessageResent() {
+        // Given: 未收到确认
+        init();
+        ReflectionTestUtils.setField(tracker, "confirmTimeoutMs", 0L);
+        tracker.send(QUEUE, PAYLOAD);
+
+        // When
+        tracker.resendUnconfirmed();
+
+        // Then
+        assertEquals(2, sentCorrelations().size());
+        assertEquals(1.0, registry.counter("ai.review.publish.retried").count());
+    }
+
+    @Test
+    void testResend_DroppedAfterMaxAttempts() {
+        // Given
+        init();
+        ReflectionTestUtils.setField(tracker, "confirmTimeoutMs", 0L);
+        tracker.send(QUEUE, PAYLOAD);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            tracker.resendUnconfirmed();
+        }
+
+        // Then: 最多发送3次，之后放弃
+        assertEquals(3, sentCorrelations().size());
+        assertEquals(0.0, pending());
+        assertEquals(1.0, registry.counter("ai.review.publish.dropped").count());
+    }
+
+    @Test
+    void testSend_FailureRetriedByScheduler() {
+        // Given
+        init();
+        ReflectionTestUtils.setField(tracker, "confirmTimeoutMs", 0L);
+        doThrow(new AmqpConnectException(new ConnectException("连接被拒绝"))).doReturn(null)
+                .when(rabbitTemplate).invoke(any());
+
+        // When: 发送异常不抛出，已登记的消息由定时任务重发
+        assertDoesNotThrow(() -> tracker.send(QUEUE, PAYLOAD));
+        tracker.resendUnconfirmed();
+
+        // Then
+        verify(rabbitTemplate, times(2)).invoke(any());
+        assertEquals(1.0, registry.counter("ai.review.publish.send.failed").count());
+    }
+
+    @Test
+    void testSend_UntrackedWhenPendingBytesExceeded() {
+        // Given: 未确认的消息体已接近字节上限
+        RabbitTemplate.ConfirmCallback callback = init();
+        ReflectionTestUtils.setField(tracker, "maxPendingBytes", (long) PAYLOAD.length * 2);
+        tracker.send(QUEUE, PAYLOAD);
+        tracker.send(QUEUE, PAYLOAD);
+
+        // When
+        tracker.send(QUEUE, PAYLOAD);
+
+        // Then: 第三条只发送不跟踪，确认后字节数归零
+        verify(operations).convertAndSend("", QUEUE, PAYLOAD, (CorrelationData) null);
+        assertEquals(2.0, pending());
+        assertEquals(PAYLOAD.length * 2.0, registry.get("ai.review.publish.pending.bytes").gauge().value());
+        for (CorrelationData correlation : sentCorrelations()) {
+            if (correlation != null) {
+                callback.confirm(correlation, true, null);
+            }
+        }
+        assertEquals(0.0, registry.get("ai.review.publish.pending.bytes").gauge().value());
+    }
+
+    @Test
+    void testSend_UntrackedWithoutCorrelatedConfirms() {
+        // Given
+        ReflectionTestUtils.setField(tracker, "confirmType", "none");
+        tracker.init();
+
+        // When
+        tracker.send(QUEUE, PAYLOAD);
+        tracker.resendUnconfirmed();
+
+        // Then
+        assertFalse(tracker.isEnabled());
+        verify(rabbitTemplate, never()).setConfirmCallback(any());
+        verify(operations, times(1)).convertAndSend("", QUEUE, PAYLOAD, (CorrelationData) null);
+    }
+
+    private RabbitTemplate.ConfirmCallback init() {
+        tracker.init();
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> captor = ArgumentCaptor.forClass(RabbitTemplate.ConfirmCallback.class);
+        verify(rabbitTemplate).setConfirmCallback(captor.capture());
+        return captor.getValue();
+    }
+
+    private List<CorrelationData> sentCorrelations() {
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(operations, atLeastOnce()).convertAndSend(eq(""), eq(QUEUE), eq(PAYLOAD), captor.capture());
+        return captor.getAllValues();
+    }
+
+    private double pending() {
+        return registry.get("ai.review.publish.pending").gauge().value();
+    }
+}
@@ -0,0 +1,63 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.utils.MetricsUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReviewLaneRouter单元测试
+ * @author CodeReview
+ */
+class ReviewLaneRouterTest {
+
+    private SimpleMeterRegistry registry;
+
+    private ReviewLaneRouter router;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        router = new ReviewLaneRouter();
+        ReflectionTestUtils.setField(router, "metricsUtils", new MetricsUtils(registry));
+        ReflectionTestUtils.setField(router, "oversizedTokens", 8000);
+        ReflectionTestUtils.setField(router, "interactiveMaxFiles", 1);
+    }
+
+    @Test
+    void testRoute_SingleSubmissionIsInteractive() {
+        // When & Then: 阈值本身不算超大
+        assertEquals(ReviewLane.INTERACTIVE, router.route(0, 0));
+        assertEquals(ReviewLane.INTERACTIVE, router.route(8000, 0));
+        assertEquals(ReviewLane.INTERACTIVE, router.route(100, 1));
+    }
+
+    @Test
+    void testRoute_OversizedTakesPrecedenceOverBatch() {
+        // When & Then
+        assertEquals(ReviewLane.OVERSIZED, router.route(8001, 0));
+        assertEquals(ReviewLane.OVERSIZED, router.route(8001, 50));
+    }
+
+    @Test
+    void testRoute_BatchUploadAboveInteractiveLimit() {
+        // When & Then
+        assertEquals(ReviewLane.BATCH, router.route(100, 2));
+        assertEquals(ReviewLane.BATCH, router.route(8000, 50));
+    }
+
+    @Test
+    void testRoute_CountsSubmissionsPerLane() {
+        // When
+        router.route(0, 0);
+        router.route(9000, 0);
+        router.route(9000, 0);
+
+        // Then
+        assertEquals(1.0, registry.counter("ai.review.lane.submitted", "lane", "interactive").count());
+        assertEquals(2.0, registry.counter("ai.review.lane.submitted", "lane", "oversized").count());
+    }
+}
@@ -0,0 +1,134 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.ReviewTaskMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReviewLeaseKeeper单元测试
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class ReviewLeaseKeeperTest {
+
+    @Mock
+    private ReviewTaskMapper reviewTaskMapper;
+
+    private ReviewLeaseKeeper keeper;
+
+    private ReviewTask task;
+
+    @BeforeEach
+    void setUp() {
+        keeper = new ReviewLeaseKeeper();
+        ReflectionTestUtils.setField(keeper, "reviewTaskMapper", reviewTaskMapper);
+        ReflectionTestUtils.setField(keeper, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(keeper, "leaseSeconds", 300L);
+        keeper.init();
+        // 缩短续期间隔
+        ReflectionTestUtils.setField(keeper, "renewIntervalMs", 20L);
+
+        task = new ReviewTask();
+        task.setId(1L);
+        task.setLeaseUntil(LocalDateTime.now().withNano(0).plusSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        keeper.destroy();
+    }
+
+    @Test
+    void testRenew_ExtendsLeaseAndUpdatesToken() {
+        // Given
+        LocalDateTime current = task.getLeaseUntil();
+        when(reviewTaskMapper.renewLease(eq(1L), eq(current), any())).thenReturn(1);
+
+        // When
+        boolean keepGoing = keeper.renew(task);
+
+        // Then: 后续条件更新使用续期后的租约
+        assertTrue(keepGoing);
+        assertTrue(task.getLeaseUntil().isAfter(current));
+        assertTrue(task.getLeaseUntil().isAfter(LocalDateTime.now().plusSeconds(290)));
+    }
+
+    @Test
+    void testRenew_LeaseTakenOverStops() {
+        // Given
+        LocalDateTime current = task.getLeaseUntil();
+        when(reviewTaskMapper.renewLease(anyLong(), any(), any())).thenReturn(0);
+
+        // When
+        boolean keepGoing = keeper.renew(task);
+
+        // Then
+        assertFalse(keepGoing);
+        assertEquals(current, task.getLeaseUntil());
+    }
+
+    @Test
+    void testRenew_SettledTaskStopsWithoutUpdate() {
+        // Given
+        task.setLeaseUntil(null);
+
+        // When & Then
+        assertFalse(keeper.renew(task));
+        verifyNoInteractions(reviewTaskMapper);
+    }
+
+    @Test
+    void testKeep_RenewsUntilReviewCompletes() throws InterruptedException {
+        // Given
+        when(reviewTaskMapper.renewLease(anyLong(), any(), any())).thenReturn(1);
+        CompletableFuture<Void> review = new CompletableFuture<>();
+
+        // When
+        keeper.keep(task, review);
+        Thread.sleep(200);
+        review.complete(null);
+        Thread.sleep(50);
+        int renewals = mockingDetails(reviewTaskMapper).getInvocations().size();
+        Thread.sleep(200);
+
+        // Then: 审查进行中多次续期，结束后不再续期
+        assertTrue(renewals >= 2);
+        verify(reviewTaskMapper, times(renewals)).renewLease(anyLong(), any(), any());
+    }
+
+    @Test
+    void testKeepAlive_HeartbeatFailureRetriedAndFalseStops() throws InterruptedException {
+        // Given
+        AtomicInteger beats = new AtomicInteger();
+        CompletableFuture<Void> review = new CompletableFuture<>();
+
+        // When: 第一次心跳异常，第二次返回 false
+        keeper.keepAlive(review, () -> {
+            if (beats.incrementAndGet() == 1) {
+                throw new IllegalStateException("连接中断");
+            }
+            return false;
+        });
+        Thread.sleep(300);
+
+        // Then
+        assertEquals(2, beats.get());
+        review.complete(null);
+    }
+}
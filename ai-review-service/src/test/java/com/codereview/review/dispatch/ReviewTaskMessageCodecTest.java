@@ -0,0 +1,108 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.review.entity.ReviewTask;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReviewTaskMessageCodec单元测试
+ * @author CodeReview
+ */
+class ReviewTaskMessageCodecTest {
+
+    @Test
+    void testRoundTrip_InlineAndHashedContent() {
+        ReviewTask small = task(1L, "A.java", "public class A {}", null);
+        ReviewTask large = task(300L, "大文件.java", repeat("int x = 1;\n", 100), "ab12cd");
+        ReviewTaskMessage message = ReviewTaskMessage.of(Arrays.asList(small, large), 64);
+
+        ReviewTaskMessage decoded = ReviewTaskMessageCodec.decode(ReviewTaskMessageCodec.encode(message));
+
+        assertEquals(ReviewTaskMessage.TYPE_TASK, decoded.getType());
+        assertEquals(7L, decoded.getUserId());
+        assertEquals("gpt-4", decoded.getAiModel());
+        assertEquals("Java", decoded.getLanguage());
+        assertEquals(Arrays.asList(1L, 300L), decoded.getTaskIds());
+        assertEquals("public class A {}", decoded.getTasks().get(0).getCodeContent());
+        assertNull(decoded.getTasks().get(1).getCodeContent());
+        assertEquals("ab12cd", decoded.getTasks().get(1).getCodeHash());
+        assertEquals("大文件.java", decoded.getTasks().get(1).getTitle());
+        assertTrue(decoded.isSelfContained());
+
+        List<ReviewTask> tasks = decoded.toTasks();
+        assertEquals(7L, tasks.get(1).getUserId());
+        assertEquals(Integer.valueOf(0), tasks.get(1).getStatus());
+    }
+
+    @Test
+    void testDecode_TokenAndLegacyJson() {
+        assertTrue(ReviewTaskMessageCodec.decode(ReviewTaskMessageCodec.encode(ReviewTaskMessage.token())).isToken());
+
+        ReviewTaskMessage single = ReviewTaskMessageCodec.decode(
+                "{\"taskId\":12,\"userId\":3}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(12L), single.getTaskIds());
+        assertEquals(3L, single.getUserId());
+        // 旧消息只有任务ID，需要从数据库加载
+        assertFalse(single.isSelfContained());
+
+        ReviewTaskMessage packed = ReviewTaskMessageCodec.decode(
+                "{\"taskIds\":[4,5],\"userId\":3}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(4L, 5L), packed.getTaskIds());
+    }
+
+    @Test
+    void testDecode_RejectsUnknownVersionAndTruncatedMessage() {
+        byte[] encoded = ReviewTaskMessageCodec.encode(
+                ReviewTaskMessage.of(Arrays.asList(task(1L, "A.java", "class A {}", null)), 1024));
+
+        byte[] newer = encoded.clone();
+        newer[1] = (byte) (ReviewTaskMessageCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> ReviewTaskMessageCodec.decode(newer));
+
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> ReviewTaskMessageCodec.decode(truncated));
+    }
+
+    @Test
+    void testOf_InlinesByUtf8ByteLength() {
+        // 60个ASCII字符为60字节，22个汉字为66字节
+        ReviewTask ascii = task(1L, "A.java", repeat("a", 60), "h1");
+        ReviewTask chinese = task(2L, "B.java", repeat("中", 22), "h2");
+
+        ReviewTaskMessage message = ReviewTaskMessage.of(Arrays.asList(ascii, chinese), 64);
+
+        assertEquals(repeat("a", 60), message.getTasks().get(0).getCodeContent());
+        assertNull(message.getTasks().get(1).getCodeContent());
+        assertEquals("h2", message.getTasks().get(1).getCodeHash());
+
+        // 不指定阈值时不内联
+        ReviewTaskMessage hashed = ReviewTaskMessage.of(Arrays.asList(ascii));
+        assertNull(hashed.getTasks().get(0).getCodeContent());
+        assertEquals("h1", hashed.getTasks().get(0).getCodeHash());
+    }
+
+    private ReviewTask task(Long id, String title, String code, String hash) {
+        ReviewTask task = new ReviewTask();
+        task.setId(id);
+        task.setUserId(7L);
+        task.setTitle(title);
+        task.setAiModel("gpt-4");
+        task.setLanguage("Java");
+        task.setCodeContent(code);
+        task.setCodeHash(hash);
+        return task;
+    }
+
+    private String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
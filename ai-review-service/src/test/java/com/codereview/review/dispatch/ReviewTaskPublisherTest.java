@@ -0,0 +1,120 @@
+package com.codereview.review.dispatch;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.entity.ReviewTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReviewTaskPublisher单元测试
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class ReviewTaskPublisherTest {
+
+    @Mock
+    private PublishConfirmTracker publishConfirmTracker;
+
+    @Mock
+    private FairShareScheduler fairShareScheduler;
+
+    private ReviewTaskPublisher publisher;
+
+    private ReviewTask task;
+
+    @BeforeEach
+    void setUp() {
+        ReviewLaneRouter router = new ReviewLaneRouter();
+        ReflectionTestUtils.setField(router, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(router, "oversizedTokens", 8000);
+        ReflectionTestUtils.setField(router, "interactiveMaxFiles", 1);
+
+        publisher = new ReviewTaskPublisher();
+        ReflectionTestUtils.setField(publisher, "publishConfirmTracker", publishConfirmTracker);
+        ReflectionTestUtils.setField(publisher, "reviewLaneRouter", router);
+        ReflectionTestUtils.setField(publisher, "fairShareScheduler", fairShareScheduler);
+        ReflectionTestUtils.setField(publisher, "inlineMaxBytes", 16384);
+
+        task = new ReviewTask();
+        task.setId(7L);
+        task.setUserId(3L);
+    }
+
+    @Test
+    void testRepublish_OversizedTaskRoutedByStoredTokens() {
+        // Given
+        task.setCodeTokens(20000);
+
+        // When
+        ReviewLane lane = publisher.republish(task);
+
+        // Then: 消息只携带任务ID，由发布确认跟踪
+        assertEquals(ReviewLane.OVERSIZED, lane);
+        ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        verify(publishConfirmTracker).send(eq(ReviewLane.OVERSIZED.getQueue()), captor.capture());
+        ReviewTaskMessage message = ReviewTaskMessageCodec.decode(captor.getValue());
+        assertEquals(3L, message.getUserId());
+        assertEquals(1, message.getTasks().size());
+        assertEquals(7L, message.getTasks().get(0).getTaskId());
+        assertFalse(message.isSelfContained());
+    }
+
+    @Test
+    void testRepublish_MissingTokensDefaultsToInteractive() {
+        // When
+        ReviewLane lane = publisher.republish(task);
+
+        // Then
+        assertEquals(ReviewLane.INTERACTIVE, lane);
+        verify(publishConfirmTracker).send(eq(ReviewLane.INTERACTIVE.getQueue()), any(byte[].class));
+    }
+
+    @Test
+    void testRepublish_FairShareEnqueuesForUser() {
+        // Given
+        task.setCodeTokens(500);
+        when(fairShareScheduler.isEnabled()).thenReturn(true);
+
+        // When
+        publisher.republish(task);
+
+        // Then
+        verify(fairShareScheduler).enqueue(eq(ReviewLane.INTERACTIVE), eq(3L), any(ReviewTaskMessage.class), eq(500));
+        verifyNoInteractions(publishConfirmTracker);
+    }
+
+    @Test
+    void testPublish_FairShareDoesNotInlineCode() {
+        // Given
+        task.setTitle("A.java");
+        task.setAiModel("gpt-4");
+        task.setLanguage("Java");
+        task.setCodeContent("public class A {}");
+        task.setCodeHash("ab12cd");
+        task.setCodeTokens(10);
+        when(fairShareScheduler.isEnabled()).thenReturn(true);
+
+        // When
+        publisher.publish(Collections.singletonList(task), 3L, 0);
+
+        // Then: 小文件也不内联，只携带内容哈希
+        ArgumentCaptor<ReviewTaskMessage> captor = ArgumentCaptor.forClass(ReviewTaskMessage.class);
+        verify(fairShareScheduler).enqueue(eq(ReviewLane.INTERACTIVE), eq(3L), captor.capture(), eq(10));
+        ReviewTaskMessage.Item item = captor.getValue().getTasks().get(0);
+        assertNull(item.getCodeContent());
+        assertEquals("ab12cd", item.getCodeHash());
+        verifyNoInteractions(publishConfirmTracker);
+    }
+}
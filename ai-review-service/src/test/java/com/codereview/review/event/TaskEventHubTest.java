@@ -0,0 +1,165 @@
+package com.codereview.review.event;
+
+import com.alibaba.fastjson2.JSON;
+import com.codereview.common.constant.RedisConstants;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import com.codereview.review.dto.TaskStatusEventDTO;
+import com.codereview.review.entity.ReviewTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TaskEventHub单元测试
+ * 连接未绑定HTTP响应时，SseEmitter 的 complete() 不触发回调，之后的发送会抛出异常，用来模拟已断开的连接
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class TaskEventHubTest {
+
+    @Mock
+    private RedisUtils redisUtils;
+
+    @Mock
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private SimpleMeterRegistry registry;
+
+    private TaskEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        hub = new TaskEventHub();
+        ReflectionTestUtils.setField(hub, "redisUtils", redisUtils);
+        ReflectionTestUtils.setField(hub, "metricsUtils", new MetricsUtils(registry));
+        ReflectionTestUtils.setField(hub, "redisMessageListenerContainer", redisMessageListenerContainer);
+        ReflectionTestUtils.setField(hub, "enabled", true);
+        ReflectionTestUtils.setField(hub, "timeoutMs", 60000L);
+        ReflectionTestUtils.setField(hub, "maxSubscriptionsPerUser", 2);
+        hub.init();
+    }
+
+    @Test
+    void testSubscribe_PerUserLimitClosesOldest() {
+        // Given
+        List<SseEmitter> emitters = new ArrayList<>();
+
+        // When: 同一用户订阅三次，另一用户订阅一次
+        for (int i = 0; i < 3; i++) {
+            emitters.add(hub.subscribe(3L, null));
+        }
+        hub.subscribe(4L, null);
+
+        // Then: 最早的连接被关闭，其他用户不受影响
+        assertEquals(3, subscriptions());
+        assertThrows(IllegalStateException.class, () -> emitters.get(0).send(SseEmitter.event().comment("x")));
+        assertDoesNotThrow(() -> emitters.get(2).send(SseEmitter.event().comment("x")));
+    }
+
+    @Test
+    void testPublish_SendsStatusEventToChannel() {
+        // Given
+        ReviewTask task = new ReviewTask();
+        task.setId(10L);
+        task.setUserId(3L);
+        task.setStatus(2);
+        task.setCodeContent("public class A {}");
+
+        // When
+        hub.publish(task);
+
+        // Then: 事件只包含状态字段
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(redisUtils).publish(eq(RedisConstants.REVIEW_TASK_EVENT_CHANNEL), captor.capture());
+        TaskStatusEventDTO event = JSON.parseObject(captor.getValue(), TaskStatusEventDTO.class);
+        assertEquals(10L, event.getTaskId());
+        assertEquals(3L, event.getUserId());
+        assertEquals(2, event.getStatus());
+        assertFalse(captor.getValue().contains("public class A"));
+    }
+
+    @Test
+    void testOnMessage_FansOutToMatchingSubscriptions() {
+        // Given: 订阅所有任务、订阅其他任务、其他用户
+        hub.subscribe(3L, null);
+        hub.subscribe(3L, Collections.singleton(11L));
+        hub.subscribe(4L, null);
+
+        // When
+        hub.onMessage(message(event(3L, 10L)), null);
+        hub.onMessage(message(event(3L, 11L)), null);
+        hub.onMessage(message(event(5L, 10L)), null);
+        hub.onMessage(message("not json"), null);
+
+        // Then
+        assertEquals(3.0, registry.counter("ai.task.events.sent").count());
+        assertEquals(3, subscriptions());
+    }
+
+    @Test
+    void testOnMessage_FailedPushRemovesSubscription() {
+        // Given
+        SseEmitter closed = hub.subscribe(3L, null);
+        hub.subscribe(3L, null);
+        closed.complete();
+
+        // When
+        hub.onMessage(message(event(3L, 10L)), null);
+
+        // Then
+        assertEquals(1.0, registry.counter("ai.task.events.sent").count());
+        assertEquals(1, subscriptions());
+    }
+
+    @Test
+    void testHeartbeat_RemovesDisconnectedSubscriptions() {
+        // Given
+        SseEmitter closed = hub.subscribe(3L, null);
+        hub.subscribe(4L, null);
+        closed.complete();
+
+        // When
+        hub.heartbeat();
+
+        // Then: 断开的连接被清理，空的用户条目被移除
+        assertEquals(1, subscriptions());
+        hub.onMessage(message(event(3L, 10L)), null);
+        assertEquals(0.0, registry.counter("ai.task.events.sent").count());
+    }
+
+    private int subscriptions() {
+        return (int) registry.get("ai.task.events.subscriptions").gauge().value();
+    }
+
+    private String event(Long userId, Long taskId) {
+        TaskStatusEventDTO event = new TaskStatusEventDTO();
+        event.setUserId(userId);
+        event.setTaskId(taskId);
+        event.setStatus(1);
+        return JSON.toJSONString(event);
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(RedisConstants.REVIEW_TASK_EVENT_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,64 @@
+package com.codereview.review.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TextCompression单元测试
+ * @author CodeReview
+ */
+class TextCompressionTest {
+
+    private final TextCompression compression = new TextCompression();
+
+    @Test
+    void testEncode_LargeTextCompressedAndRoundTrips() {
+        // Given
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            code.append("public int getValue").append(i).append("() { return value; } // 中文注释\n");
+        }
+        String text = code.toString();
+
+        // When
+        byte[] stored = compression.encode(text);
+
+        // Then
+        assertTrue(compression.isCompressed(stored));
+        assertTrue(stored.length < text.getBytes(StandardCharsets.UTF_8).length / 3);
+        assertEquals(text, compression.decode(stored));
+    }
+
+    @Test
+    void testEncode_ShortTextKeptAsPlainUtf8() {
+        // Given
+        String text = "int a = 1;";
+
+        // When
+        byte[] stored = compression.encode(text);
+
+        // Then
+        assertFalse(compression.isCompressed(stored));
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), stored);
+        assertEquals(text, compression.decode(stored));
+    }
+
+    @Test
+    void testDecode_LegacyRowsAndTextStartingWithNul() {
+        // When & Then: 迁移前的未压缩数据原样读取
+        assertEquals("旧数据", compression.decode("旧数据".getBytes(StandardCharsets.UTF_8)));
+
+        // Given
+        String nul = "\u0000\u0001abcdef";
+
+        // When
+        byte[] stored = compression.encode(nul);
+
+        // Then: 以NUL开头的短文本也加帧，避免被误判为压缩数据
+        assertTrue(compression.isCompressed(stored));
+        assertEquals(nul, compression.decode(stored));
+    }
+}
@@ -0,0 +1,110 @@
+package com.codereview.review.limiter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveConcurrencyLimiter单元测试
+ * @author CodeReview
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private ScheduledExecutorService timer;
+
+    private List<String> rejections;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        rejections = new ArrayList<>();
+        limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1, 100, 0.5, 3.0, timer, rejections::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void testAcquire_QueuesBeyondLimitAndRejectsWhenQueueFull() {
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().join();
+        limiter.acquire().join();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquire();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> rejected = limiter.acquire();
+
+        assertFalse(queued.isDone());
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(1, rejections.size());
+        assertEquals("queue_full", rejections.get(0));
+
+        // 归还许可后排队的调用方获得许可
+        first.onSuccess(1_000_000L);
+        assertTrue(queued.isDone());
+        assertEquals(2, limiter.getInflight());
+    }
+
+    @Test
+    void testAcquire_QueuedCallerTimesOut() throws InterruptedException {
+        limiter.acquire().join();
+        limiter.acquire().join();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquire();
+        Thread.sleep(300);
+
+        CompletionException e = assertThrows(CompletionException.class, queued::join);
+        assertTrue(e.getCause() instanceof ConcurrencyLimitExceededException);
+        assertEquals(0, limiter.getQueued());
+        assertTrue(rejections.contains("timeout"));
+    }
+
+    @Test
+    void testPermit_DroppedDecreasesLimit() {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire().join();
+
+        permit.onDropped();
+
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    void testPermit_SuccessIncreasesLimitAndLatencySpikeDecreases() {
+        for (int i = 0; i < 5; i++) {
+            AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().join();
+            AdaptiveConcurrencyLimiter.Permit second = limiter.acquire().join();
+            first.onSuccess(1_000_000L);
+            second.onSuccess(1_000_000L);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 2);
+
+        limiter.acquire().join().onSuccess(50_000_000L);
+
+        assertTrue(limiter.getLimit() < grown);
+    }
+
+    @Test
+    void testPermit_ReleaseIsIdempotent() {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire().join();
+
+        permit.release();
+        permit.release();
+        permit.onDropped();
+
+        assertEquals(0, limiter.getInflight());
+        assertEquals(2, limiter.getLimit());
+    }
+}
@@ -0,0 +1,237 @@
+package com.codereview.review.listener;
+
+import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.config.RabbitMQConfig;
+import com.codereview.review.dispatch.FairShareJob;
+import com.codereview.review.dispatch.FairShareScheduler;
+import com.codereview.review.dispatch.ReviewLane;
+import com.codereview.review.dispatch.ReviewLeaseKeeper;
+import com.codereview.review.dispatch.ReviewTaskMessage;
+import com.codereview.review.dispatch.ReviewTaskMessageCodec;
+import com.codereview.review.limiter.ConcurrencyLimitExceededException;
+import com.codereview.review.service.ReviewService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReviewTaskListener单元测试
+ * 分发线程池使用调用线程直接执行，延迟退回使用很短的等待时间
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class ReviewTaskListenerTest {
+
+    private static final long TAG = 42L;
+
+    @Mock
+    private ReviewService reviewService;
+
+    @Mock
+    private RabbitMQConfig rabbitMQConfig;
+
+    @Mock
+    private FairShareScheduler fairShareScheduler;
+
+    @Mock
+    private ReviewLeaseKeeper reviewLeaseKeeper;
+
+    @Mock
+    private Channel channel;
+
+    private ReviewTaskListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new ReviewTaskListener();
+        ReflectionTestUtils.setField(listener, "reviewService", reviewService);
+        ReflectionTestUtils.setField(listener, "rabbitMQConfig", rabbitMQConfig);
+        ReflectionTestUtils.setField(listener, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(listener, "fairShareScheduler", fairShareScheduler);
+        ReflectionTestUtils.setField(listener, "reviewLeaseKeeper", reviewLeaseKeeper);
+        ReflectionTestUtils.setField(listener, "reviewDispatchExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(listener, "fairShareRetryDelayMs", 20L);
+        ReflectionTestUtils.setField(listener, "retryDelayMs", 50L);
+        listener.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        listener.destroy();
+    }
+
+    @Test
+    void testHandle_CompletedReviewAcked() throws IOException {
+        // Given
+        when(reviewService.executeAsyncReview(1L)).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        listener.handleReviewTask(taskMessage(1L), channel, TAG, false);
+
+        // Then
+        verify(channel).basicAck(TAG, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void testHandle_FailedReviewAcked() throws IOException {
+        // Given: 审查失败已写入任务状态
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException("AI返回格式错误"));
+        when(reviewService.executeAsyncReview(1L)).thenReturn(future);
+
+        // When
+        listener.handleReviewTask(taskMessage(1L), channel, TAG, false);
+
+        // Then
+        verify(channel).basicAck(TAG, false);
+    }
+
+    @Test
+    void testHandle_MissingTaskAcked() throws IOException {
+        // Given
+        when(reviewService.executeAsyncReview(1L)).thenThrow(new BusinessException("任务不存在"));
+
+        // When
+        listener.handleReviewTask(taskMessage(1L), channel, TAG, false);
+
+        // Then
+        verify(channel).basicAck(TAG, false);
+    }
+
+    @Test
+    void testHandle_InvalidMessageRejected() throws IOException {
+        // When
+        listener.handleReviewTask(new Message("garbage".getBytes(StandardCharsets.UTF_8), new MessageProperties()),
+                channel, TAG, false);
+
+        // Then
+        verify(channel).basicNack(TAG, false, false);
+        verifyNoInteractions(reviewService);
+    }
+
+    @Test
+    void testHandle_TransientErrorRequeuedAfterDelay() throws IOException {
+        // Given
+        when(reviewService.executeAsyncReview(1L)).thenThrow(new IllegalStateException("数据库连接中断"));
+
+        // When
+        listener.handleReviewTask(taskMessage(1L), channel, TAG, false);
+
+        // Then: 不立即退回，延迟后退回队列
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(channel, timeout(1000)).basicNack(TAG, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testHandle_RedeliveredTransientErrorRejected() throws IOException {
+        // Given: 任务保持待审查，由定时任务超时后重新投递
+        when(reviewService.executeAsyncReview(1L)).thenThrow(new IllegalStateException("数据库连接中断"));
+
+        // When
+        listener.handleReviewTask(taskMessage(1L), channel, TAG, true);
+
+        // Then
+        verify(channel).basicNack(TAG, false, false);
+    }
+
+    @Test
+    void testHandle_ConcurrencyLimitRequeuedNotFailed() throws IOException {
+        // Given: 任务已退回待审查
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        when(reviewService.executeAsyncReview(1L)).thenReturn(future);
+
+        // When
+        listener.handleReviewTask(taskMessage(1L), channel, TAG, false);
+        future.completeExceptionally(new ConcurrencyLimitExceededException("AI并发已达上限"));
+
+        // Then
+        verify(channel, timeout(1000)).basicNack(TAG, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testHandle_FullDispatchPoolRetriedWithoutNack() throws IOException {
+        // Given: 分发线程池前两次拒绝
+        AtomicInteger attempts = new AtomicInteger();
+        ReflectionTestUtils.setField(listener, "reviewDispatchExecutor", (Executor) command -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new RejectedExecutionException("队列已满");
+            }
+            command.run();
+        });
+        when(reviewService.executeAsyncReview(1L)).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        listener.handleReviewTask(taskMessage(1L), channel, TAG, false);
+
+        // Then: 消息保持未确认，稍后重新提交，不退回队列
+        verify(channel, timeout(1000)).basicAck(TAG, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(reviewService, times(1)).executeAsyncReview(1L);
+    }
+
+    @Test
+    void testHandle_IdleTokenAcked() throws IOException {
+        // Given: 令牌多于任务
+        when(fairShareScheduler.poll(ReviewLane.INTERACTIVE)).thenReturn(null);
+        when(fairShareScheduler.hasPending(ReviewLane.INTERACTIVE)).thenReturn(false);
+
+        // When
+        listener.handleReviewTask(new Message(ReviewTaskMessageCodec.encode(ReviewTaskMessage.token()),
+                new MessageProperties()), channel, TAG, false);
+
+        // Then
+        verify(channel).basicAck(TAG, false);
+        verifyNoInteractions(reviewService);
+    }
+
+    @Test
+    void testHandle_FairShareJobReviewedByHash() throws IOException {
+        // Given: 虚拟队列中的任务只有ID和内容哈希
+        FairShareJob job = FairShareJob.parse("3:0000000000000001:{\"lane\":\"INTERACTIVE\",\"cost\":1,"
+                + "\"enqueuedAt\":0,\"aiModel\":\"gpt-4\",\"language\":\"Java\","
+                + "\"tasks\":[{\"taskId\":1,\"title\":\"A.java\",\"codeHash\":\"ab12cd\"}]}");
+        when(fairShareScheduler.poll(ReviewLane.INTERACTIVE)).thenReturn(job);
+        when(reviewService.executeQueuedReview(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        listener.handleReviewTask(new Message(ReviewTaskMessageCodec.encode(ReviewTaskMessage.token()),
+                new MessageProperties()), channel, TAG, false);
+
+        // Then: 不查询数据库，由内容存储读取代码
+        verify(reviewService).executeQueuedReview(argThat(tasks -> tasks.size() == 1
+                && "ab12cd".equals(tasks.get(0).getCodeHash()) && tasks.get(0).getCodeContent() == null));
+        verify(fairShareScheduler).complete(job);
+        verify(channel).basicAck(TAG, false);
+    }
+
+    private Message taskMessage(Long taskId) {
+        ReviewTaskMessage message = new ReviewTaskMessage();
+        message.setUserId(3L);
+        ReviewTaskMessage.Item item = new ReviewTaskMessage.Item();
+        item.setTaskId(taskId);
+        message.getTasks().add(item);
+        return new Message(ReviewTaskMessageCodec.encode(message), new MessageProperties());
+    }
+}
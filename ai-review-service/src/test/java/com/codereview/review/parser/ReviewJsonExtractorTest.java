@@ -0,0 +1,104 @@
+package com.codereview.review.parser;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReviewJsonExtractor单元测试
+ * @author CodeReview
+ */
+class ReviewJsonExtractorTest {
+
+    private ReviewJsonExtractor extractor;
+
+    @BeforeEach
+    void setUp() {
+        extractor = new ReviewJsonExtractor();
+    }
+
+    @Test
+    void testExtractJsonContent_FencedBlockWithBracesInStrings() {
+        String content = "审查结果如下：\n```json\n{\"summary\":\"注意 } 和 ``` 出现在字符串中\",\"qualityScore\":80}\n```\n以上。";
+
+        String json = extractor.extractJsonContent(content);
+
+        assertEquals("{\"summary\":\"注意 } 和 ``` 出现在字符串中\",\"qualityScore\":80}", json);
+    }
+
+    @Test
+    void testExtractJsonContent_IgnoresBracesInLaterNonJsonCodeBlock() {
+        String content = "{\"qualityScore\":80}\n示例修复：\n```java\nclass A { void f() {} }\n```";
+
+        String json = extractor.extractJsonContent(content);
+
+        assertEquals("{\"qualityScore\":80}", json);
+    }
+
+    @Test
+    void testExtractJsonContent_PrefersJsonCodeBlockOverEarlierCodeBlock() {
+        String content = "问题代码：\n```java\nclass A { }\n```\n审查结果：\n```json\n{\"qualityScore\":80}\n```";
+
+        String json = extractor.extractJsonContent(content);
+
+        assertEquals("{\"qualityScore\":80}", json);
+    }
+
+    @Test
+    void testIsValidObject_RejectsStructurallyInvalidJson() {
+        assertTrue(extractor.isValidObject(extractor.extractJsonContent("```json\n{\"qualityScore\":80,}\n```")));
+        assertFalse(extractor.isValidObject(extractor.extractJsonContent("{\"a\":1 \"b\":2}")));
+        assertFalse(extractor.isValidObject(extractor.extractJsonContent("AI审查失败：超时")));
+        assertFalse(extractor.isValidObject(null));
+    }
+
+    @Test
+    void testExtractJsonContent_RemovesTrailingCommas() {
+        String content = "{\"issues\":[{\"type\":\"bug\",},],\"suggestions\":[\"a\",],}";
+
+        JSONObject result = JSON.parseObject(extractor.extractJsonContent(content));
+
+        assertEquals(1, result.getJSONArray("issues").size());
+        assertEquals(1, result.getJSONArray("suggestions").size());
+    }
+
+    @Test
+    void testExtractJsonContent_RepairsTruncatedOutput() {
+        String truncatedValue = "```json\n{\"qualityScore\":85,\"issues\":[{\"type\":\"bug\",\"description\":\"未关闭的资";
+        String truncatedKey = "{\"qualityScore\":85,\"issues\":[],\"sugg";
+        String truncatedAfterColon = "{\"qualityScore\":85,\"securityScore\":";
+
+        JSONObject value = JSON.parseObject(extractor.extractJsonContent(truncatedValue));
+        JSONObject key = JSON.parseObject(extractor.extractJsonContent(truncatedKey));
+        JSONObject colon = JSON.parseObject(extractor.extractJsonContent(truncatedAfterColon));
+
+        assertEquals("未关闭的资", value.getJSONArray("issues").getJSONObject(0).getString("description"));
+        assertEquals(2, key.size());
+        assertNull(colon.get("securityScore"));
+        assertEquals(85, colon.getIntValue("qualityScore"));
+    }
+
+    @Test
+    void testExtractScores_ReadsScoresAndIssueCountWithoutTree() {
+        String json = "{\"summary\":\"{\\\"qualityScore\\\":1}\",\"qualityScore\":85,\"securityScore\":\"90\","
+                + "\"performanceScore\":72.6,\"issues\":[{\"type\":\"a\",\"tags\":[1,2]},{\"type\":\"b\"}],"
+                + "\"suggestions\":[\"x\"]}";
+
+        ReviewScores scores = extractor.extractScores(json);
+
+        assertEquals(85, scores.getQualityScore());
+        assertEquals(90, scores.getSecurityScore());
+        assertEquals(73, scores.getPerformanceScore());
+        assertEquals(2, scores.getIssueCount());
+    }
+
+    @Test
+    void testExtractScores_EmptyOrInvalidReturnsNull() {
+        assertNull(extractor.extractScores("{}"));
+        assertNull(extractor.extractScores("AI审查失败：超时"));
+        assertNull(extractor.extractScores(extractor.extractJsonContent("")));
+    }
+}
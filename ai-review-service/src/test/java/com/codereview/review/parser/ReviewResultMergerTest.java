@@ -0,0 +1,79 @@
+package com.codereview.review.parser;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.codereview.common.exception.BusinessException;
+import com.codereview.review.prompt.CodeChunk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReviewResultMerger单元测试
+ * @author CodeReview
+ */
+class ReviewResultMergerTest {
+
+    private ReviewResultMerger merger;
+
+    private List<CodeChunk> chunks;
+
+    @BeforeEach
+    void setUp() {
+        merger = new ReviewResultMerger();
+        ReflectionTestUtils.setField(merger, "reviewJsonExtractor", new ReviewJsonExtractor());
+        chunks = Arrays.asList(
+                new CodeChunk(0, 1, 100, 100, "class A {}"),
+                new CodeChunk(1, 101, 200, 300, "class B {}"));
+    }
+
+    @Test
+    void testMerge_ScoresWeightedByTokens() {
+        // When
+        MergedReviewResult merged = merger.merge(chunks, Arrays.asList(
+                "{\"qualityScore\":40,\"issues\":[]}", "{\"qualityScore\":80,\"issues\":[]}"));
+
+        // Then
+        assertTrue(merged.isComplete());
+        assertEquals(70, JSON.parseObject(merged.getResult()).getIntValue("qualityScore"));
+    }
+
+    @Test
+    void testMerge_LocationRebasedToFileLines() {
+        // When: 第二个片段从第101行开始，AI给出的是片段内的行号
+        MergedReviewResult merged = merger.merge(chunks, Arrays.asList(
+                "{\"issues\":[{\"location\":\"第3行\"}]}",
+                "{\"issues\":[{\"location\":\"第5-7行 method2()\"},{\"location\":12},{\"title\":\"无位置\"}]}"));
+
+        // Then
+        JSONArray issues = JSON.parseObject(merged.getResult()).getJSONArray("issues");
+        assertEquals("第3行", issues.getJSONObject(0).getString("location"));
+        assertEquals("第105-107行 method2()", issues.getJSONObject(1).getString("location"));
+        assertEquals(112, issues.getJSONObject(2).getIntValue("location"));
+        assertEquals("第101-200行", issues.getJSONObject(3).getString("location"));
+    }
+
+    @Test
+    void testMerge_FailedChunkMarksIncomplete() {
+        // When
+        MergedReviewResult merged = merger.merge(chunks, Arrays.asList("{\"qualityScore\":80}", null));
+
+        // Then
+        assertFalse(merged.isComplete());
+        assertEquals(1, merged.getFailedChunks());
+        JSONObject result = JSON.parseObject(merged.getResult());
+        assertTrue(result.getString("summary").contains("有1个片段审查失败"));
+    }
+
+    @Test
+    void testMerge_AllChunksFailedThrows() {
+        // When & Then
+        assertThrows(BusinessException.class, () -> merger.merge(chunks, Arrays.asList(null, "不是JSON")));
+    }
+}
@@ -0,0 +1,109 @@
+package com.codereview.review.prompt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CodeChunker单元测试
+ * @author CodeReview
+ */
+class CodeChunkerTest {
+
+    private CodeChunker codeChunker;
+
+    @BeforeEach
+    void setUp() {
+        codeChunker = new CodeChunker();
+        ReflectionTestUtils.setField(codeChunker, "enabled", true);
+        ReflectionTestUtils.setField(codeChunker, "maxChunkTokens", 60);
+    }
+
+    @Test
+    void testSplit_SmallFileNotSplit() {
+        String code = "public class Test { }";
+
+        List<CodeChunk> chunks = codeChunker.split(code, "Java");
+
+        assertEquals(1, chunks.size());
+        assertEquals(code, chunks.get(0).getContent());
+        assertEquals(1, chunks.get(0).getStartLine());
+    }
+
+    @Test
+    void testSplit_JavaSplitsAtMethodBoundaries() {
+        String code = "public class UserService {\n" +
+                "    public void createUser(String name) {\n" +
+                "        validate(name);\n" +
+                "        repository.save(new User(name));\n" +
+                "    }\n" +
+                "    public void deleteUser(Long id) {\n" +
+                "        String sql = \"{ not a block }\";\n" +
+                "        repository.deleteById(id);\n" +
+                "    }\n" +
+                "    public User findUser(Long id) {\n" +
+                "        // } 注释中的括号不影响拆分\n" +
+                "        return repository.findById(id);\n" +
+                "    }\n" +
+                "}";
+
+        List<CodeChunk> chunks = codeChunker.split(code, "Java");
+
+        assertTrue(chunks.size() > 1);
+        for (CodeChunk chunk : chunks) {
+            // 每个片段都不会从方法中间截断
+            String first = chunk.getContent().split("\n")[0];
+            assertFalse(first.startsWith("        "), "片段不应从方法体内部开始: " + first);
+        }
+        // 片段首尾相接，覆盖全部代码
+        assertEquals(1, chunks.get(0).getStartLine());
+        for (int i = 1; i < chunks.size(); i++) {
+            assertEquals(chunks.get(i - 1).getEndLine() + 1, chunks.get(i).getStartLine());
+        }
+        assertEquals(14, chunks.get(chunks.size() - 1).getEndLine());
+    }
+
+    @Test
+    void testSplit_PythonKeepsDecoratorWithFunction() {
+        String code = "import os\n" +
+                "\n" +
+                "def load_config(path):\n" +
+                "    with open(path) as f:\n" +
+                "        return f.read()\n" +
+                "\n" +
+                "@retry(times=3)\n" +
+                "def fetch_remote_config(url, timeout):\n" +
+                "    return requests.get(url, timeout=timeout).text\n" +
+                "\n" +
+                "class ConfigLoader:\n" +
+                "    def load(self):\n" +
+                "        return load_config(os.environ['CONFIG_PATH'])\n";
+
+        List<CodeChunk> chunks = codeChunker.split(code, "Python");
+
+        assertTrue(chunks.size() > 1);
+        for (CodeChunk chunk : chunks) {
+            assertFalse(chunk.getContent().trim().endsWith("@retry(times=3)"), "装饰器不应与函数分离");
+        }
+    }
+
+    @Test
+    void testSplit_OversizedUnitSplitByLines() {
+        StringBuilder code = new StringBuilder("function process() {\n");
+        for (int i = 0; i < 50; i++) {
+            code.append("    total += compute(").append(i).append(");\n");
+        }
+        code.append("}");
+
+        List<CodeChunk> chunks = codeChunker.split(code.toString(), "JavaScript");
+
+        assertTrue(chunks.size() > 1);
+        for (CodeChunk chunk : chunks) {
+            assertTrue(chunk.getTokens() <= 60);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.codereview.review.prompt;
+
+import com.codereview.review.entity.ReviewTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptPacker单元测试
+ * @author CodeReview
+ */
+class PromptPackerTest {
+
+    private PromptPacker promptPacker;
+
+    @BeforeEach
+    void setUp() {
+        promptPacker = new PromptPacker();
+        ReflectionTestUtils.setField(promptPacker, "enabled", true);
+        ReflectionTestUtils.setField(promptPacker, "maxPromptTokens", 300);
+        ReflectionTestUtils.setField(promptPacker, "maxFileTokens", 150);
+        ReflectionTestUtils.setField(promptPacker, "maxFiles", 3);
+    }
+
+    @Test
+    void testPack_SmallFilesPackedWithinBudget() {
+        List<ReviewTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(task((long) i, 90));
+        }
+
+        List<List<ReviewTask>> groups = promptPacker.pack(tasks);
+
+        // 每个文件约 15+20 token，每组最多3个文件
+        assertEquals(2, groups.size());
+        assertEquals(3, groups.get(0).size());
+        assertEquals(2, groups.get(1).size());
+    }
+
+    @Test
+    void testPack_LargeFileReviewedAlone() {
+        ReviewTask large = task(1L, 1200);
+        List<List<ReviewTask>> groups = promptPacker.pack(Arrays.asList(large, task(2L, 90), task(3L, 90)));
+
+        assertEquals(2, groups.size());
+        assertEquals(1, groups.get(0).size());
+        assertSame(large, groups.get(0).get(0));
+        assertEquals(2, groups.get(1).size());
+    }
+
+    @Test
+    void testPack_DisabledKeepsOneTaskPerGroup() {
+        ReflectionTestUtils.setField(promptPacker, "enabled", false);
+
+        List<List<ReviewTask>> groups = promptPacker.pack(Arrays.asList(task(1L, 90), task(2L, 90)));
+
+        assertEquals(2, groups.size());
+    }
+
+    private ReviewTask task(Long id, int length) {
+        ReviewTask task = new ReviewTask();
+        task.setId(id);
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            code.append('a');
+        }
+        task.setCodeContent(code.toString());
+        return task;
+    }
+}
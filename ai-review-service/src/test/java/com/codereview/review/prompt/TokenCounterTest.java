@@ -0,0 +1,36 @@
+package com.codereview.review.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TokenCounter单元测试
+ * @author CodeReview
+ */
+class TokenCounterTest {
+
+    @Test
+    void testCount_EmptyText() {
+        assertEquals(0, TokenCounter.count(null));
+        assertEquals(0, TokenCounter.count(""));
+    }
+
+    @Test
+    void testCount_CodeCloseToBpeTokenizer() {
+        // cl100k 分词结果为 public / class / UserService(2) / { / \n / private / int / count / ; / \n / } 共12个token
+        String code = "public class UserService {\n    private int count;\n}";
+
+        int tokens = TokenCounter.count(code);
+
+        assertTrue(tokens >= 11 && tokens <= 15, "token数偏差过大: " + tokens);
+    }
+
+    @Test
+    void testCount_NumbersAndChineseCharacters() {
+        // 数字最多3位合并为一个token
+        assertEquals(3, TokenCounter.count("1234567"));
+        // 中文按字计数
+        assertEquals(4, TokenCounter.count("代码审查"));
+    }
+}
@@ -0,0 +1,181 @@
+package com.codereview.review.routing;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.config.AIRoutingConfig;
+import com.codereview.review.strategy.AIEndpoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EndpointRouter单元测试
+ * @author CodeReview
+ */
+class EndpointRouterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AIRoutingConfig routingConfig;
+
+    private EndpointRouter router;
+
+    private AIRoutingConfig.Route route;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        routingConfig = new AIRoutingConfig();
+        routingConfig.setExploreRatio(0);
+        routingConfig.setEwmaAlpha(0.5);
+        routingConfig.setEjectConsecutiveFailures(2);
+        routingConfig.setEjectErrorRate(0.99);
+        routingConfig.setEjectionSeconds(30);
+        routingConfig.getEndpoints().put("fast", endpoint());
+        routingConfig.getEndpoints().put("slow", endpoint());
+        routingConfig.getEndpoints().put("backup", endpoint());
+
+        route = new AIRoutingConfig.Route();
+        route.setEndpoints(Arrays.asList("fast", "slow"));
+        route.setFallback(Collections.singletonList("backup"));
+        routingConfig.getRoutes().put("default", route);
+
+        router = new EndpointRouter();
+        ReflectionTestUtils.setField(router, "routingConfig", routingConfig);
+        ReflectionTestUtils.setField(router, "metricsUtils", new MetricsUtils(meterRegistry));
+        router.init();
+    }
+
+    @Test
+    void testPlan_PrefersLowerLatencyEndpointThenFallback() {
+        // Given
+        succeed("fast", 100);
+        succeed("slow", 1000);
+
+        // When
+        List<String> plan = names(router.plan(route));
+
+        // Then
+        assertEquals(Arrays.asList("fast", "slow", "backup"), plan);
+        assertEquals(100.0, gauge("ai.routing.latency.ewma", "fast"), 0.001);
+    }
+
+    @Test
+    void testOnFailure_EjectsEndpointAfterConsecutiveFailures() {
+        // Given
+        succeed("fast", 100);
+        succeed("slow", 1000);
+
+        // When
+        fail("fast", 100);
+        fail("fast", 100);
+
+        // Then: 被剔除的端点排在降级端点之后
+        assertEquals(1.0, gauge("ai.routing.ejected", "fast"), 0.001);
+        assertEquals(Arrays.asList("slow", "backup", "fast"), names(router.plan(route)));
+    }
+
+    @Test
+    void testOnAbandon_DoesNotAffectStatsOrEjection() {
+        // Given
+        succeed("fast", 100);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            router.onStart(endpointOf("fast"));
+            router.onAbandon(endpointOf("fast"));
+        }
+
+        // Then
+        assertEquals(0.0, gauge("ai.routing.ejected", "fast"), 0.001);
+        assertEquals(0.0, gauge("ai.routing.error.rate", "fast"), 0.001);
+        assertEquals(0.0, gauge("ai.routing.inflight", "fast"), 0.001);
+    }
+
+    @Test
+    void testPlan_EjectedEndpointRecoversAfterEjectionPeriod() throws InterruptedException {
+        // Given
+        routingConfig.setEjectionSeconds(1);
+        succeed("slow", 1000);
+        fail("fast", 100);
+        fail("fast", 100);
+        assertEquals("fast", names(router.plan(route)).get(2));
+
+        // When
+        Thread.sleep(1100);
+
+        // Then: 剔除到期后重新参与路由，错误率减半
+        assertEquals(0.0, gauge("ai.routing.ejected", "fast"), 0.001);
+        assertTrue(names(router.plan(route)).indexOf("fast") < 2);
+    }
+
+    @Test
+    void testHedgeTarget_OnlyHealthyPoolEndpoint() {
+        // Given
+        succeed("fast", 100);
+        succeed("slow", 1000);
+
+        // When & Then
+        assertEquals("slow", router.hedgeTarget(route, router.plan(route)).getName());
+
+        // When: 次选端点被剔除后，降级端点和被剔除端点都不作为对冲目标
+        fail("slow", 100);
+        fail("slow", 100);
+
+        // Then
+        assertNull(router.hedgeTarget(route, router.plan(route)));
+    }
+
+    @Test
+    void testInit_RejectsRouteWithUndefinedEndpoint() {
+        // Given
+        AIRoutingConfig.Route broken = new AIRoutingConfig.Route();
+        broken.setEndpoints(Collections.singletonList("missing"));
+        routingConfig.getRoutes().put("broken", broken);
+        EndpointRouter other = new EndpointRouter();
+        ReflectionTestUtils.setField(other, "routingConfig", routingConfig);
+        ReflectionTestUtils.setField(other, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, other::init);
+    }
+
+    private void succeed(String name, long latencyMs) {
+        router.onStart(endpointOf(name));
+        router.onSuccess(endpointOf(name), latencyMs);
+    }
+
+    private void fail(String name, long latencyMs) {
+        router.onStart(endpointOf(name));
+        router.onFailure(endpointOf(name), latencyMs);
+    }
+
+    private double gauge(String name, String endpoint) {
+        return meterRegistry.get(name).tag("endpoint", endpoint).gauge().value();
+    }
+
+    private AIEndpoint endpointOf(String name) {
+        return routingConfig.getEndpoints().get(name);
+    }
+
+    private static AIEndpoint endpoint() {
+        AIEndpoint endpoint = new AIEndpoint();
+        endpoint.setApiUrl("http://localhost");
+        endpoint.setModel("test-model");
+        return endpoint;
+    }
+
+    private static List<String> names(List<AIEndpoint> plan) {
+        String[] names = new String[plan.size()];
+        for (int i = 0; i < plan.size(); i++) {
+            names[i] = plan.get(i).getName();
+        }
+        return Arrays.asList(names);
+    }
+}
@@ -0,0 +1,139 @@
+package com.codereview.review.routing;
+
+import com.codereview.review.strategy.AIEndpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EndpointStats单元测试
+ * @author CodeReview
+ */
+class EndpointStatsTest {
+
+    private static final double ALPHA = 0.5;
+
+    private EndpointStats stats;
+
+    @BeforeEach
+    void setUp() {
+        AIEndpoint endpoint = new AIEndpoint();
+        endpoint.setName("primary");
+        stats = new EndpointStats(endpoint);
+    }
+
+    @Test
+    void testOnSuccess_FirstSampleSeedsEwmaThenSmooths() {
+        // When
+        stats.onStart();
+        stats.onSuccess(100, ALPHA);
+
+        // Then
+        assertEquals(100.0, stats.getLatencyMs(), 0.001);
+        assertEquals(0, stats.getInflight());
+
+        // When
+        stats.onStart();
+        stats.onSuccess(300, ALPHA);
+
+        // Then
+        assertEquals(200.0, stats.getLatencyMs(), 0.001);
+        assertEquals(0.0, stats.getErrorRate(), 0.001);
+    }
+
+    @Test
+    void testOnFailure_RaisesErrorRateAndEjectsAfterConsecutiveFailures() {
+        // Given
+        stats.onStart();
+        stats.onSuccess(100, ALPHA);
+
+        // When & Then
+        stats.onStart();
+        assertFalse(stats.onFailure(100, ALPHA, 3, 0.99));
+        assertEquals(0.5, stats.getErrorRate(), 0.001);
+        stats.onStart();
+        assertFalse(stats.onFailure(100, ALPHA, 3, 0.99));
+        stats.onStart();
+        assertTrue(stats.onFailure(100, ALPHA, 3, 0.99));
+    }
+
+    @Test
+    void testOnFailure_EjectsWhenErrorRateExceedsThreshold() {
+        // When
+        stats.onStart();
+        boolean eject = stats.onFailure(100, ALPHA, 10, 0.4);
+
+        // Then
+        assertTrue(eject);
+    }
+
+    @Test
+    void testOnSuccess_ResetsConsecutiveFailures() {
+        // Given
+        stats.onStart();
+        stats.onFailure(100, ALPHA, 2, 0.99);
+        stats.onStart();
+        stats.onSuccess(100, ALPHA);
+
+        // When
+        stats.onStart();
+        boolean eject = stats.onFailure(100, ALPHA, 2, 0.99);
+
+        // Then
+        assertFalse(eject);
+    }
+
+    @Test
+    void testEject_ExpiresAndHalvesErrorRate() {
+        // Given
+        stats.onStart();
+        stats.onFailure(100, ALPHA, 1, 0.99);
+        double errorRate = stats.getErrorRate();
+
+        // When
+        stats.eject(1000L);
+
+        // Then
+        assertTrue(stats.isEjected(999L));
+        assertFalse(stats.isEjected(1000L));
+        assertEquals(errorRate / 2, stats.getErrorRate(), 0.001);
+    }
+
+    @Test
+    void testCost_ScalesWithErrorRateAndInflight() {
+        // Given
+        stats.onStart();
+        stats.onSuccess(100, ALPHA);
+        double idleCost = stats.cost(10);
+
+        // When
+        stats.onStart();
+
+        // Then
+        assertEquals(100.0, idleCost, 0.001);
+        assertEquals(200.0, stats.cost(10), 0.001);
+
+        // When
+        stats.onFailure(100, ALPHA, 10, 0.99);
+
+        // Then: 错误率0.5，代价放大 1 + 0.5 × 10 倍
+        assertEquals(600.0, stats.cost(10), 0.001);
+    }
+
+    @Test
+    void testOnAbandon_OnlyReleasesInflight() {
+        // Given
+        stats.onStart();
+        stats.onSuccess(100, ALPHA);
+        stats.onStart();
+
+        // When
+        stats.onAbandon();
+
+        // Then
+        assertEquals(0, stats.getInflight());
+        assertEquals(100.0, stats.getLatencyMs(), 0.001);
+        assertEquals(0.0, stats.getErrorRate(), 0.001);
+    }
+}
@@ -0,0 +1,110 @@
+package com.codereview.review.routing;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.strategy.AIClientStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * HedgingAIClientStrategy单元测试
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class HedgingAIClientStrategyTest {
+
+    @Mock
+    private AIClientStrategy primary;
+
+    @Mock
+    private AIClientStrategy secondary;
+
+    private RequestHedger hedger;
+
+    private HedgingAIClientStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        hedger = new RequestHedger();
+        ReflectionTestUtils.setField(hedger, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(hedger, "enabled", true);
+        ReflectionTestUtils.setField(hedger, "percentile", 0.95);
+        ReflectionTestUtils.setField(hedger, "windowSize", 20);
+        ReflectionTestUtils.setField(hedger, "minSamples", 3);
+        ReflectionTestUtils.setField(hedger, "minDelayMs", 50L);
+        ReflectionTestUtils.setField(hedger, "budgetRatio", 1.0);
+        hedger.init();
+
+        lenient().when(primary.getModelName()).thenReturn("gpt");
+        lenient().when(secondary.getModelName()).thenReturn("claude");
+        lenient().when(primary.isCacheable(anyString())).thenReturn(true);
+        strategy = new HedgingAIClientStrategy(primary, secondary, hedger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedger.destroy();
+    }
+
+    @Test
+    void testReviewCodeAsync_PrimaryResultCacheable() {
+        // Given
+        when(primary.reviewCodeAsync("code", "Java")).thenReturn(CompletableFuture.completedFuture("{\"qualityScore\":80}"));
+
+        // When
+        String result = strategy.reviewCodeAsync("code", "Java").join();
+
+        // Then
+        assertTrue(strategy.isCacheable(result));
+    }
+
+    @Test
+    void testReviewCodeAsync_OtherModelHedgeResultNotCacheable() throws Exception {
+        // Given: 主策略响应过慢，对冲到其他模型
+        warmUp();
+        when(primary.reviewCodeAsync("code", "Java")).thenReturn(new CompletableFuture<>());
+        when(secondary.reviewCodeAsync("code", "Java"))
+                .thenReturn(CompletableFuture.completedFuture("{\"qualityScore\":70}"));
+
+        // When
+        String result = strategy.reviewCodeAsync("code", "Java").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("{\"qualityScore\":70}", result);
+        assertFalse(strategy.isCacheable(result));
+    }
+
+    @Test
+    void testReviewCodeAsync_SameModelHedgeResultCacheable() throws Exception {
+        // Given
+        when(secondary.getModelName()).thenReturn("gpt");
+        warmUp();
+        when(primary.reviewCodeAsync("code", "Java")).thenReturn(new CompletableFuture<>());
+        when(secondary.reviewCodeAsync("code", "Java"))
+                .thenReturn(CompletableFuture.completedFuture("{\"qualityScore\":70}"));
+
+        // When
+        String result = strategy.reviewCodeAsync("code", "Java").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue(strategy.isCacheable(result));
+    }
+
+    private void warmUp() {
+        when(primary.reviewCodeAsync("warm", "Java")).thenReturn(CompletableFuture.completedFuture("ok"));
+        for (int i = 0; i < 3; i++) {
+            strategy.reviewCodeAsync("warm", "Java").join();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.codereview.review.routing;
+
+import com.codereview.common.utils.MetricsUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RequestHedger单元测试
+ * @author CodeReview
+ */
+class RequestHedgerTest {
+
+    private static final String KEY = "route:default";
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RequestHedger hedger;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hedger = new RequestHedger();
+        ReflectionTestUtils.setField(hedger, "metricsUtils", new MetricsUtils(meterRegistry));
+        ReflectionTestUtils.setField(hedger, "enabled", true);
+        ReflectionTestUtils.setField(hedger, "percentile", 0.95);
+        ReflectionTestUtils.setField(hedger, "windowSize", 20);
+        ReflectionTestUtils.setField(hedger, "minSamples", 3);
+        ReflectionTestUtils.setField(hedger, "minDelayMs", 50L);
+        ReflectionTestUtils.setField(hedger, "budgetRatio", 1.0);
+        hedger.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedger.destroy();
+    }
+
+    @Test
+    void testExecute_NoHedgeBeforeMinSamples() throws Exception {
+        // Given
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        AtomicInteger hedges = new AtomicInteger();
+
+        // When
+        CompletableFuture<String> result = hedger.execute(KEY, () -> primary, () -> {
+            hedges.incrementAndGet();
+            return CompletableFuture.completedFuture("hedge");
+        });
+        Thread.sleep(150);
+        primary.complete("primary");
+
+        // Then
+        assertEquals("primary", result.join());
+        assertEquals(0, hedges.get());
+    }
+
+    @Test
+    void testExecute_SlowPrimaryIsHedgedAndCancelledWhenHedgeWins() throws Exception {
+        // Given
+        warmUp();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+
+        // When
+        String result = hedger.execute(KEY, () -> primary, () -> CompletableFuture.completedFuture("hedge"))
+                .get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("hedge", result);
+        assertThrows(CancellationException.class, () -> primary.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.get("ai.hedge.won").counter().count(), 0.001);
+    }
+
+    @Test
+    void testExecute_HedgeStartedAfterPrimaryCompletedIsCancelled() throws Exception {
+        // Given
+        warmUp();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> hedge = new CompletableFuture<>();
+        CountDownLatch hedgeCreated = new CountDownLatch(1);
+
+        // When: 主调用恰好在对冲请求发出期间完成
+        CompletableFuture<String> result = hedger.execute(KEY, () -> primary, () -> {
+            primary.complete("primary");
+            hedgeCreated.countDown();
+            return hedge;
+        });
+        assertTrue(hedgeCreated.await(5, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals("primary", result.get(5, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> hedge.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testExecute_SkipsHedgeWhenBudgetExhausted() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(hedger, "budgetRatio", 0.0);
+        warmUp();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        AtomicInteger hedges = new AtomicInteger();
+
+        // When
+        CompletableFuture<String> result = hedger.execute(KEY, () -> primary, () -> {
+            hedges.incrementAndGet();
+            return CompletableFuture.completedFuture("hedge");
+        });
+        Thread.sleep(150);
+        primary.complete("primary");
+
+        // Then
+        assertEquals("primary", result.join());
+        assertEquals(0, hedges.get());
+        assertEquals(1.0, meterRegistry.get("ai.hedge.skipped").tag("reason", "budget").counter().count(), 0.001);
+    }
+
+    @Test
+    void testExecute_BothFailCompletesWithPrimaryError() throws Exception {
+        // Given
+        warmUp();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> hedge = new AtomicReference<>();
+        CountDownLatch hedgeCreated = new CountDownLatch(1);
+        CompletableFuture<String> result = hedger.execute(KEY, () -> primary, () -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            hedge.set(future);
+            hedgeCreated.countDown();
+            return future;
+        });
+        assertTrue(hedgeCreated.await(5, TimeUnit.SECONDS));
+
+        // When
+        hedge.get().completeExceptionally(new IllegalStateException("hedge"));
+        assertFalse(result.isDone());
+        primary.completeExceptionally(new IllegalStateException("primary"));
+
+        // Then
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertEquals("primary", exception.getCause().getMessage());
+    }
+
+    @Test
+    void testExecute_DisabledCallsPrimaryOnly() {
+        // Given
+        ReflectionTestUtils.setField(hedger, "enabled", false);
+
+        // When
+        String result = hedger.execute(KEY, () -> CompletableFuture.completedFuture("primary"), () -> {
+            throw new AssertionError("不应发出对冲请求");
+        }).join();
+
+        // Then
+        assertEquals("primary", result);
+    }
+
+    /**
+     * 积累足够的延迟样本，使后续调用在最小对冲等待时间后触发对冲
+     */
+    private void warmUp() {
+        for (int i = 0; i < 3; i++) {
+            hedger.execute(KEY, () -> CompletableFuture.completedFuture("ok"), null).join();
+        }
+    }
+}
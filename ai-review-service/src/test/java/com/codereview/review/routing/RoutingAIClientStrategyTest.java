@@ -0,0 +1,127 @@
+package com.codereview.review.routing;
+
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.config.AIRoutingConfig;
+import com.codereview.review.limiter.ConcurrencyLimitExceededException;
+import com.codereview.review.strategy.AIClientException;
+import com.codereview.review.strategy.AIEndpoint;
+import com.codereview.review.strategy.AIEndpointClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RoutingAIClientStrategy单元测试
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+class RoutingAIClientStrategyTest {
+
+    @Mock
+    private AIEndpointClient client;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RoutingAIClientStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MetricsUtils metricsUtils = new MetricsUtils(meterRegistry);
+
+        AIRoutingConfig routingConfig = new AIRoutingConfig();
+        // 一次计入的失败即剔除端点
+        routingConfig.setEjectConsecutiveFailures(1);
+        routingConfig.getEndpoints().put("primary", new AIEndpoint());
+        routingConfig.getEndpoints().put("backup", new AIEndpoint());
+        AIRoutingConfig.Route route = new AIRoutingConfig.Route();
+        route.setEndpoints(Collections.singletonList("primary"));
+        route.setFallback(Collections.singletonList("backup"));
+        routingConfig.getRoutes().put("default", route);
+
+        EndpointRouter router = new EndpointRouter();
+        ReflectionTestUtils.setField(router, "routingConfig", routingConfig);
+        ReflectionTestUtils.setField(router, "metricsUtils", metricsUtils);
+        router.init();
+
+        RequestHedger hedger = new RequestHedger();
+        ReflectionTestUtils.setField(hedger, "enabled", false);
+
+        strategy = new RoutingAIClientStrategy("default", route, router,
+                Collections.singletonMap("openai", client), hedger, metricsUtils);
+    }
+
+    @Test
+    void testReviewCodeAsync_LimiterRejectionFailsOverWithoutEjecting() {
+        // Given
+        when(client.reviewCodeAsync(named("primary"), anyString(), anyString()))
+                .thenReturn(failed(new ConcurrencyLimitExceededException("排队超时")));
+        when(client.reviewCodeAsync(named("backup"), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture("ok"));
+
+        // When
+        String result = strategy.reviewCodeAsync("int a = 1;", "Java").join();
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(0.0, gauge("ai.routing.ejected", "primary"), 0.001);
+        assertEquals(0.0, gauge("ai.routing.error.rate", "primary"), 0.001);
+    }
+
+    @Test
+    void testReviewCodeAsync_ClientErrorNeitherCountedNorFailedOver() {
+        // Given
+        when(client.reviewCodeAsync(named("primary"), anyString(), anyString()))
+                .thenReturn(failed(new AIClientException("请求无效", 400)));
+
+        // When & Then
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> strategy.reviewCodeAsync("int a = 1;", "Java").join());
+        assertTrue(exception.getCause() instanceof AIClientException);
+        assertEquals(0.0, gauge("ai.routing.ejected", "primary"), 0.001);
+        assertEquals(0.0, gauge("ai.routing.inflight", "primary"), 0.001);
+        verify(client, never()).reviewCodeAsync(named("backup"), anyString(), anyString());
+    }
+
+    @Test
+    void testReviewCodeAsync_ServerErrorEjectsAndFailsOver() {
+        // Given
+        when(client.reviewCodeAsync(named("primary"), anyString(), anyString()))
+                .thenReturn(failed(new AIClientException("服务异常", 500)));
+        when(client.reviewCodeAsync(named("backup"), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture("ok"));
+
+        // When
+        String result = strategy.reviewCodeAsync("int a = 1;", "Java").join();
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(1.0, gauge("ai.routing.ejected", "primary"), 0.001);
+    }
+
+    private double gauge(String name, String endpoint) {
+        return meterRegistry.get(name).tag("endpoint", endpoint).gauge().value();
+    }
+
+    private static AIEndpoint named(String name) {
+        return argThat(endpoint -> endpoint != null && name.equals(endpoint.getName()));
+    }
+
+    private static CompletableFuture<String> failed(Throwable error) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
@@ -0,0 +1,147 @@
+package com.codereview.review.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.dto.PageResponseDTO;
+import com.codereview.review.dto.ReviewIssueQueryDTO;
+import com.codereview.review.entity.ReviewIssue;
+import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.mapper.ReviewIssueMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReviewIssueServiceImpl单元测试
+ * @author CodeReview
+ */
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class ReviewIssueServiceImplTest {
+
+    @Mock
+    private ReviewIssueMapper reviewIssueMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    private ReviewIssueServiceImpl service;
+
+    private ReviewTask task;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReviewIssueServiceImpl();
+        ReflectionTestUtils.setField(service, "reviewIssueMapper", reviewIssueMapper);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+
+        task = new ReviewTask();
+        task.setId(7L);
+        task.setUserId(3L);
+
+        // 事务模板直接执行回调，回调抛出异常时模拟回滚
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void testExtractIssues_TaskOwnerAndNormalizedSeverity() {
+        // Given
+        String result = "{\"summary\":\"ok\",\"issues\":["
+                + "{\"type\":\"SQL注入\",\"severity\":\" HIGH \",\"description\":\"拼接SQL\",\"suggestion\":\"使用参数化查询\"},"
+                + "{\"type\":\"硬编码密钥\",\"severity\":\"high\",\"description\":\"d\",\"location\":\"第3行\",\"source\":\"local\"},"
+                + "\"not-an-object\"]}";
+
+        // When
+        List<ReviewIssue> issues = service.extractIssues(task, result);
+
+        // Then
+        assertEquals(2, issues.size());
+        assertEquals(7L, issues.get(0).getTaskId());
+        assertEquals(3L, issues.get(0).getUserId());
+        assertEquals("high", issues.get(0).getSeverity());
+        assertEquals("ai", issues.get(0).getSource());
+        assertEquals("第3行", issues.get(1).getLocation());
+        assertEquals("local", issues.get(1).getSource());
+    }
+
+    @Test
+    void testExtractIssues_InvalidOrIssueFreeResults() {
+        // When & Then
+        assertTrue(service.extractIssues(task, "not json").isEmpty());
+        assertTrue(service.extractIssues(task, "{\"summary\":\"ok\"}").isEmpty());
+        assertTrue(service.extractIssues(task, "{\"issues\":[]}").isEmpty());
+    }
+
+    @Test
+    void testSaveIssues_DeleteAndInsertInOneTransaction() {
+        // Given
+        String result = "{\"issues\":[{\"type\":\"a\"},{\"type\":\"b\"}]}";
+
+        // When
+        service.saveIssues(task, result);
+
+        // Then
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        verify(reviewIssueMapper).delete(any(LambdaQueryWrapper.class));
+        verify(reviewIssueMapper, times(2)).insertBatch(anyList());
+    }
+
+    @Test
+    void testSaveIssues_InsertFailureIsContainedInTransaction() {
+        // Given
+        String result = "{\"issues\":[{\"type\":\"a\"},{\"type\":\"b\"}]}";
+        when(reviewIssueMapper.insertBatch(anyList())).thenReturn(1).thenThrow(new IllegalStateException("连接中断"));
+
+        // When
+        assertDoesNotThrow(() -> service.saveIssues(task, result));
+
+        // Then: 删除和插入都在事务回调内执行，异常由事务模板回滚
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        verify(reviewIssueMapper).delete(any(LambdaQueryWrapper.class));
+        verify(reviewIssueMapper, times(2)).insertBatch(anyList());
+    }
+
+    @Test
+    void testGetUserIssues_PageSizeCapped() {
+        // Given
+        ReviewIssueQueryDTO queryDTO = new ReviewIssueQueryDTO();
+        queryDTO.setPage(0);
+        queryDTO.setSize(100000);
+        when(reviewIssueMapper.selectPage(any(Page.class), any(LambdaQueryWrapper.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        PageResponseDTO<ReviewIssue> response = service.getUserIssues(3L, queryDTO);
+
+        // Then
+        ArgumentCaptor<Page<ReviewIssue>> captor = ArgumentCaptor.forClass(Page.class);
+        verify(reviewIssueMapper).selectPage(captor.capture(), any(LambdaQueryWrapper.class));
+        assertEquals(PageResponseDTO.MAX_PAGE_SIZE, captor.getValue().getSize());
+        assertEquals(1, captor.getValue().getCurrent());
+        assertEquals(PageResponseDTO.MAX_PAGE_SIZE, response.getSize());
+        assertEquals(1, response.getPage());
+    }
+}
@@ -1,20 +1,40 @@
 package com.codereview.review.service.impl;
 
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.codereview.common.exception.BusinessException;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.common.utils.RedisUtils;
+import com.codereview.review.blob.CodeBlobStore;
+import com.codereview.review.cache.ReviewTaskCache;
+import com.codereview.review.dispatch.ReviewTaskPublisher;
 import com.codereview.review.dto.PageResponseDTO;
 import com.codereview.review.dto.ReviewTaskQueryDTO;
+import com.codereview.review.dto.ReviewTaskSummaryDTO;
 import com.codereview.review.entity.ReviewTask;
+import com.codereview.review.handler.CompressedTextTypeHandler;
+import com.codereview.review.handler.TextCompression;
 import com.codereview.review.mapper.ReviewTaskMapper;
+import com.codereview.review.prompt.PromptPacker;
+import com.codereview.review.service.ReviewIssueService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.apache.ibatis.type.JdbcType;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -22,6 +42,10 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -38,11 +62,46 @@ class ReviewServiceImplTest {
     @Mock
     private ReviewTaskMapper reviewTaskMapper;
 
+    @Mock
+    private ReviewIssueService reviewIssueService;
+
+    @Mock
+    private CodeBlobStore codeBlobStore;
+
+    @Mock
+    private RedisUtils redisUtils;
+
+    @Mock
+    private ReviewTaskCache reviewTaskCache;
+
+    @Mock
+    private PromptPacker promptPacker;
+
+    @Mock
+    private ReviewTaskPublisher reviewTaskPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
     @InjectMocks
     private ReviewServiceImpl reviewService;
 
     private ReviewTask mockTask;
 
+    /**
+     * 任务列表使用Lambda指定查询列，需要实体的表信息
+     */
+    @BeforeAll
+    static void initTableInfo() {
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.getTypeHandlerRegistry()
+                .register(String.class, JdbcType.BLOB, new CompressedTextTypeHandler(new TextCompression()));
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(configuration, ""), ReviewTask.class);
+    }
+
     @BeforeEach
     void setUp() {
         mockTask = new ReviewTask();
@@ -54,6 +113,20 @@ class ReviewServiceImplTest {
         mockTask.setAiModel("gpt-3.5-turbo");
         mockTask.setStatus(0);
         mockTask.setCreateTime(LocalDateTime.now());
+
+        // 任务缓存直接穿透到加载函数
+        lenient().when(reviewTaskCache.get(anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<Function<Long, ReviewTask>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+
+        ReflectionTestUtils.setField(reviewService, "metricsUtils", new MetricsUtils(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(reviewService, "insertBatchSize", 200);
+
+        // 事务模板直接执行回调，回调抛出异常时模拟回滚
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
     }
 
     @Test
@@ -97,6 +170,60 @@ class ReviewServiceImplTest {
         verify(reviewTaskMapper, times(1)).selectById(1L);
     }
 
+    @Test
+    void testGetTaskDetail_CachedProjectionHydratesCode() {
+        // Given: 缓存中的任务不含代码内容
+        ReviewTask projection = new ReviewTask();
+        projection.setId(1L);
+        projection.setUserId(1L);
+        projection.setCodeHash("hash-1");
+        when(reviewTaskCache.get(eq(1L), any())).thenReturn(projection);
+        when(codeBlobStore.get("hash-1")).thenReturn("public class Test { }");
+
+        // When
+        ReviewTask result = reviewService.getTaskDetail(1L, 1L);
+
+        // Then: 返回副本，缓存共享的对象不被修改
+        assertEquals("public class Test { }", result.getCodeContent());
+        assertNotSame(projection, result);
+        assertNull(projection.getCodeContent());
+        verify(reviewTaskMapper, never()).selectById(anyLong());
+    }
+
+    @Test
+    void testGetTaskDetail_CachedProjectionLoadsInlineCode() {
+        // Given
+        ReviewTask projection = new ReviewTask();
+        projection.setId(1L);
+        projection.setUserId(1L);
+        when(reviewTaskCache.get(eq(1L), any())).thenReturn(projection);
+        when(reviewTaskMapper.selectOne(any(LambdaQueryWrapper.class))).thenReturn(mockTask);
+
+        // When
+        ReviewTask result = reviewService.getTaskDetail(1L, 1L);
+
+        // Then
+        assertEquals("public class Test { }", result.getCodeContent());
+        verifyNoInteractions(codeBlobStore);
+    }
+
+    @Test
+    void testGetTaskStatus_SkipsCodeHydration() {
+        // Given
+        ReviewTask projection = new ReviewTask();
+        projection.setId(1L);
+        projection.setUserId(1L);
+        projection.setCodeHash("hash-1");
+        when(reviewTaskCache.get(eq(1L), any())).thenReturn(projection);
+
+        // When
+        ReviewTask result = reviewService.getTaskStatus(1L, 1L);
+
+        // Then
+        assertSame(projection, result);
+        verifyNoInteractions(codeBlobStore);
+    }
+
     @Test
     void testGetUserTasks_Success() {
         // Given
@@ -112,7 +239,7 @@ class ReviewServiceImplTest {
                 .thenReturn(mockPage);
 
         // When
-        PageResponseDTO<ReviewTask> result = reviewService.getUserTasks(1L, queryDTO);
+        PageResponseDTO<ReviewTaskSummaryDTO> result = reviewService.getUserTasks(1L, queryDTO);
 
         // Then
         assertNotNull(result);
@@ -138,7 +265,7 @@ class ReviewServiceImplTest {
                 .thenReturn(mockPage);
 
         // When
-        PageResponseDTO<ReviewTask> result = reviewService.getUserTasks(1L, queryDTO);
+        PageResponseDTO<ReviewTaskSummaryDTO> result = reviewService.getUserTasks(1L, queryDTO);
 
         // Then
         assertNotNull(result);
@@ -147,6 +274,138 @@ class ReviewServiceImplTest {
         verify(reviewTaskMapper, times(1)).selectPage(any(Page.class), any(LambdaQueryWrapper.class));
     }
 
+    @Test
+    void testGetUserTasks_PageSizeCappedAndTotalCached() {
+        // Given
+        ReviewTaskQueryDTO queryDTO = new ReviewTaskQueryDTO();
+        queryDTO.setSize(100000);
+        when(reviewTaskMapper.selectPage(any(Page.class), any(LambdaQueryWrapper.class)))
+                .thenAnswer(invocation -> {
+                    Page<ReviewTask> page = invocation.getArgument(0);
+                    page.setRecords(Collections.singletonList(mockTask));
+                    page.setTotal(3L);
+                    return page;
+                });
+
+        // When
+        PageResponseDTO<ReviewTaskSummaryDTO> result = reviewService.getUserTasks(1L, queryDTO);
+
+        // Then
+        ArgumentCaptor<Page<ReviewTask>> captor = ArgumentCaptor.forClass(Page.class);
+        verify(reviewTaskMapper).selectPage(captor.capture(), any(LambdaQueryWrapper.class));
+        assertEquals(PageResponseDTO.MAX_PAGE_SIZE, captor.getValue().getSize());
+        assertTrue(captor.getValue().searchCount());
+        assertEquals(PageResponseDTO.MAX_PAGE_SIZE, result.getSize());
+        assertEquals(3L, result.getTotal());
+        verify(redisUtils).set(anyString(), eq("3"), anyLong(), eq(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testGetUserTasks_CachedTotalSkipsCount() {
+        // Given
+        ReviewTaskQueryDTO queryDTO = new ReviewTaskQueryDTO();
+        when(redisUtils.get(anyString())).thenReturn("57");
+        when(reviewTaskMapper.selectPage(any(Page.class), any(LambdaQueryWrapper.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        PageResponseDTO<ReviewTaskSummaryDTO> result = reviewService.getUserTasks(1L, queryDTO);
+
+        // Then
+        ArgumentCaptor<Page<ReviewTask>> captor = ArgumentCaptor.forClass(Page.class);
+        verify(reviewTaskMapper).selectPage(captor.capture(), any(LambdaQueryWrapper.class));
+        assertFalse(captor.getValue().searchCount());
+        assertEquals(57L, result.getTotal());
+        verify(redisUtils, never()).set(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testGetUserTasks_CursorAppliesKeysetPredicate() {
+        // Given
+        ReviewTaskQueryDTO queryDTO = new ReviewTaskQueryDTO();
+        queryDTO.setSize(2);
+        queryDTO.setCursor("2024-05-01T10:00:30_42");
+        queryDTO.setWithTotal(false);
+        when(reviewTaskMapper.selectList(any(LambdaQueryWrapper.class))).thenReturn(Collections.emptyList());
+
+        // When
+        reviewService.getUserTasks(1L, queryDTO);
+
+        // Then: create_time <= 游标时间 AND (create_time < 游标时间 OR id < 游标ID)，多取一行判断是否有下一页
+        ArgumentCaptor<LambdaQueryWrapper<ReviewTask>> captor = ArgumentCaptor.forClass(LambdaQueryWrapper.class);
+        verify(reviewTaskMapper).selectList(captor.capture());
+        String sql = captor.getValue().getSqlSegment();
+        assertTrue(sql.contains("create_time <="));
+        assertTrue(sql.contains("(create_time <"));
+        assertTrue(sql.contains("OR id <"));
+        assertTrue(sql.indexOf("create_time DESC") > sql.indexOf("ORDER BY"));
+        assertTrue(sql.indexOf("id DESC") > sql.indexOf("create_time DESC"));
+        assertTrue(sql.endsWith("LIMIT 3"));
+        assertTrue(captor.getValue().getParamNameValuePairs().containsValue(LocalDateTime.of(2024, 5, 1, 10, 0, 30)));
+        assertTrue(captor.getValue().getParamNameValuePairs().containsValue(42L));
+        assertFalse(captor.getValue().getSqlSelect().contains("code_content"));
+        verify(reviewTaskMapper, never()).selectCount(any());
+    }
+
+    @Test
+    void testGetUserTasks_CursorReturnsNextCursorWhenMoreRows() {
+        // Given
+        ReviewTaskQueryDTO queryDTO = new ReviewTaskQueryDTO();
+        queryDTO.setSize(2);
+        queryDTO.setCursor("");
+        queryDTO.setWithTotal(false);
+        ReviewTask second = new ReviewTask();
+        second.setId(7L);
+        second.setCreateTime(LocalDateTime.of(2024, 5, 1, 9, 0, 15));
+        ReviewTask extra = new ReviewTask();
+        extra.setId(6L);
+        extra.setCreateTime(LocalDateTime.of(2024, 5, 1, 8, 0));
+        when(reviewTaskMapper.selectList(any(LambdaQueryWrapper.class)))
+                .thenReturn(Arrays.asList(mockTask, second, extra));
+
+        // When
+        PageResponseDTO<ReviewTaskSummaryDTO> result = reviewService.getUserTasks(1L, queryDTO);
+
+        // Then
+        assertEquals(2, result.getRecords().size());
+        assertEquals("2024-05-01T09:00:15_7", result.getNextCursor());
+        assertNull(result.getTotal());
+    }
+
+    @Test
+    void testGetUserTasks_LastCursorPageHasNoNextCursor() {
+        // Given
+        ReviewTaskQueryDTO queryDTO = new ReviewTaskQueryDTO();
+        queryDTO.setSize(2);
+        queryDTO.setCursor("2024-05-01T09:00:15_7");
+        when(redisUtils.get(anyString())).thenReturn("3");
+        when(reviewTaskMapper.selectList(any(LambdaQueryWrapper.class))).thenReturn(Collections.singletonList(mockTask));
+
+        // When
+        PageResponseDTO<ReviewTaskSummaryDTO> result = reviewService.getUserTasks(1L, queryDTO);
+
+        // Then
+        assertEquals(1, result.getRecords().size());
+        assertNull(result.getNextCursor());
+        assertEquals(3L, result.getTotal());
+        verify(reviewTaskMapper, never()).selectCount(any());
+    }
+
+    @Test
+    void testGetUserTasks_InvalidCursor() {
+        for (String cursor : Arrays.asList("abc", "2024-05-01T09:00_x", "not-a-time_7")) {
+            // Given
+            ReviewTaskQueryDTO queryDTO = new ReviewTaskQueryDTO();
+            queryDTO.setCursor(cursor);
+
+            // When & Then
+            BusinessException exception = assertThrows(BusinessException.class,
+                    () -> reviewService.getUserTasks(1L, queryDTO));
+            assertEquals("无效的分页游标", exception.getMessage());
+        }
+        verify(reviewTaskMapper, never()).selectList(any());
+    }
+
     @Test
     void testDeleteTask_Success() {
         // Given
@@ -159,6 +418,7 @@ class ReviewServiceImplTest {
         // Then
         verify(reviewTaskMapper, times(1)).selectById(1L);
         verify(reviewTaskMapper, times(1)).deleteById(1L);
+        verify(reviewIssueService, times(1)).deleteByTaskId(1L);
     }
 
     @Test
@@ -198,17 +458,45 @@ class ReviewServiceImplTest {
                 "file2", "Test2.java", "text/plain", "public class Test2 {}".getBytes());
         List<MockMultipartFile> files = Arrays.asList(file1, file2);
 
-        when(reviewTaskMapper.insert(any(ReviewTask.class))).thenReturn(1);
+        AtomicLong ids = new AtomicLong();
+        when(reviewTaskMapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<ReviewTask> batch = invocation.getArgument(0);
+            batch.forEach(task -> task.setId(ids.incrementAndGet()));
+            return batch.size();
+        });
 
         // When
         List<Long> taskIds = reviewService.submitBatchReviewTask(
                 "批量测试", "Java", "Qwen3-Coder", true,
                 Arrays.asList(file1, file2), 1L);
 
-        // Then
-        assertNotNull(taskIds);
-        assertEquals(2, taskIds.size());
-        verify(reviewTaskMapper, times(2)).insert(any(ReviewTask.class));
+        // Then: 一条多行INSERT写入，写入后发送消息
+        assertEquals(Arrays.asList(1L, 2L), taskIds);
+        verify(reviewTaskMapper, times(1)).insertBatch(anyList());
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        verify(reviewTaskPublisher).publishAll(anyList(), eq(1L), eq(2));
+    }
+
+    @Test
+    void testSubmitBatchReview_InsertFailureRollsBackAndPublishesNothing() {
+        // Given: 每批一行，第二批写入失败
+        ReflectionTestUtils.setField(reviewService, "insertBatchSize", 1);
+        MockMultipartFile file1 = new MockMultipartFile(
+                "file1", "Test1.java", "text/plain", "public class Test1 {}".getBytes());
+        MockMultipartFile file2 = new MockMultipartFile(
+                "file2", "Test2.java", "text/plain", "public class Test2 {}".getBytes());
+        when(codeBlobStore.put(anyString())).thenReturn("h1", "h2");
+        when(reviewTaskMapper.insertBatch(anyList())).thenReturn(1)
+                .thenThrow(new IllegalStateException("数据库连接中断"));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> reviewService.submitBatchReviewTask(
+                "批量测试", "Java", "Qwen3-Coder", true, Arrays.asList(file1, file2), 1L));
+
+        // 事务整体回滚，已写入批次的内容引用同样释放，不发送消息
+        verify(codeBlobStore).release("h1");
+        verify(codeBlobStore).release("h2");
+        verifyNoInteractions(reviewTaskPublisher);
     }
 
     @Test
@@ -224,7 +512,7 @@ class ReviewServiceImplTest {
         // Then
         assertNotNull(taskIds);
         assertEquals(0, taskIds.size());
-        verify(reviewTaskMapper, never()).insert(any(ReviewTask.class));
+        verify(reviewTaskMapper, never()).insertBatch(anyList());
     }
 
     @Test
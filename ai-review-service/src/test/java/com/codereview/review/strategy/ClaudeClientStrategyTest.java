@@ -0,0 +1,247 @@
+package com.codereview.review.strategy;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.codereview.common.utils.MetricsUtils;
+import com.codereview.review.limiter.ConcurrencyLimiterRegistry;
+import com.codereview.review.prompt.PackedFile;
+import com.codereview.review.prompt.ReviewPromptBuilder;
+import com.codereview.review.prompt.TokenBudget;
+import com.codereview.review.prompt.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ClaudeClientStrategy单元测试（使用本地MockWebServer模拟Messages API）
+ * @author CodeReview
+ */
+class ClaudeClientStrategyTest {
+
+    /**
+     * ai.claude.prompt-cache-min-tokens 的默认值
+     */
+    private static final int MIN_CACHEABLE_TOKENS = 1024;
+
+    private MockWebServer server;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ClaudeClientStrategy strategy;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+
+        ConcurrencyLimiterRegistry limiterRegistry = new ConcurrencyLimiterRegistry();
+        ReflectionTestUtils.setField(limiterRegistry, "enabled", false);
+
+        TokenBudget tokenBudget = new TokenBudget();
+        ReflectionTestUtils.setField(tokenBudget, "maxInputTokens", 12000);
+        ReflectionTestUtils.setField(tokenBudget, "baseOutputTokens", 600);
+        ReflectionTestUtils.setField(tokenBudget, "outputRatio", 0.3);
+        ReflectionTestUtils.setField(tokenBudget, "minOutputTokens", 512);
+        ReflectionTestUtils.setField(tokenBudget, "maxOutputTokens", 4096);
+        ReflectionTestUtils.setField(tokenBudget, "metricsUtils", new MetricsUtils(meterRegistry));
+
+        strategy = new ClaudeClientStrategy();
+        ReflectionTestUtils.setField(strategy, "apiKey", "test-key");
+        ReflectionTestUtils.setField(strategy, "apiUrl", server.url("/v1/messages").toString());
+        ReflectionTestUtils.setField(strategy, "model", "claude-test");
+        ReflectionTestUtils.setField(strategy, "anthropicVersion", "2023-06-01");
+        ReflectionTestUtils.setField(strategy, "promptCacheEnabled", true);
+        ReflectionTestUtils.setField(strategy, "promptCacheMinTokens", MIN_CACHEABLE_TOKENS);
+        ReflectionTestUtils.setField(strategy, "maxRequests", 16);
+        ReflectionTestUtils.setField(strategy, "maxRequestsPerHost", 16);
+        ReflectionTestUtils.setField(strategy, "concurrencyLimiterRegistry", limiterRegistry);
+        ReflectionTestUtils.setField(strategy, "reviewPromptBuilder", new ReviewPromptBuilder());
+        ReflectionTestUtils.setField(strategy, "tokenBudget", tokenBudget);
+        ReflectionTestUtils.setField(strategy, "metricsUtils", new MetricsUtils(meterRegistry));
+        strategy.init();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testReviewCodeAsync_MarksStaticPromptCacheableAndRecordsCacheTokens() throws InterruptedException {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"type\":\"message\",\"content\":[{\"type\":\"text\",\"text\":\"{\\\"qualityScore\\\":90}\"}],"
+                        + "\"usage\":{\"input_tokens\":50,\"output_tokens\":20,"
+                        + "\"cache_creation_input_tokens\":0,\"cache_read_input_tokens\":1200}}"));
+
+        String result = strategy.reviewCodeAsync("int a = 1;", "Java").join();
+
+        assertEquals("{\"qualityScore\":90}", result);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("test-key", request.getHeader("x-api-key"));
+        assertEquals("2023-06-01", request.getHeader("anthropic-version"));
+        JSONObject body = JSON.parseObject(request.getBody().readUtf8());
+        assertEquals("claude-test", body.getString("model"));
+        // 小文件按输入规模预留输出
+        assertTrue(body.getIntValue("max_tokens") < 2000);
+        JSONObject systemBlock = body.getJSONArray("system").getJSONObject(0);
+        assertEquals("ephemeral", systemBlock.getJSONObject("cache_control").getString("type"));
+        assertFalse(systemBlock.getString("text").contains("int a = 1;"));
+        assertTrue(body.getJSONArray("messages").getJSONObject(0).getString("content").contains("int a = 1;"));
+
+        assertEquals(1200, meterRegistry.get("ai.claude.tokens").tag("type", "cache_read").counter().count());
+        assertEquals(50, meterRegistry.get("ai.claude.tokens").tag("type", "input").counter().count());
+    }
+
+    @Test
+    void testStaticInstructions_ReachMinimumCacheableTokens() {
+        // Given
+        ReviewPromptBuilder builder = new ReviewPromptBuilder();
+
+        // When
+        int singleTokens = TokenCounter.count(builder.getStaticInstructions());
+        int packedTokens = TokenCounter.count(builder.getPackedStaticInstructions());
+
+        // Then: 短于最小可缓存长度的前缀不会被缓存
+        assertTrue(singleTokens >= MIN_CACHEABLE_TOKENS, "single=" + singleTokens);
+        assertTrue(packedTokens >= MIN_CACHEABLE_TOKENS, "packed=" + packedTokens);
+    }
+
+    @Test
+    void testReviewCodeAsync_ShortStaticPromptNotMarkedCacheable() throws InterruptedException {
+        // Given: 最小可缓存长度超过静态审查要求（如 Haiku 的2048）
+        ReflectionTestUtils.setField(strategy, "promptCacheMinTokens", 100000);
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"type\":\"message\",\"content\":[{\"type\":\"text\",\"text\":\"{}\"}]}"));
+
+        // When
+        strategy.reviewCodeAsync("int a = 1;", "Java").join();
+
+        // Then
+        JSONObject body = JSON.parseObject(server.takeRequest().getBody().readUtf8());
+        assertNull(body.getJSONArray("system").getJSONObject(0).get("cache_control"));
+    }
+
+    @Test
+    void testReviewFilesAsync_PackedPromptUsesTokenBudgetCeiling() throws InterruptedException {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"type\":\"message\",\"content\":[{\"type\":\"text\",\"text\":\"{}\"}]}"));
+        List<PackedFile> files = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            files.add(new PackedFile("F" + i, "File" + i + ".java", "int a" + i + " = " + i + ";"));
+        }
+
+        strategy.reviewFilesAsync(files, "Java").join();
+
+        // 6个文件各预留600个输出token，只受 ai.review.token.max-output-tokens 限制
+        JSONObject body = JSON.parseObject(server.takeRequest().getBody().readUtf8());
+        int maxTokens = body.getIntValue("max_tokens");
+        assertTrue(maxTokens >= 3600 && maxTokens <= 4096);
+    }
+
+    @Test
+    void testReviewCodeAsync_RateLimitedCompletesWithStatusCode() {
+        server.enqueue(new MockResponse().setResponseCode(429)
+                .setBody("{\"type\":\"error\",\"error\":{\"type\":\"rate_limit_error\"}}"));
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> strategy.reviewCodeAsync("int a = 1;", "Java").join());
+
+        assertTrue(e.getCause() instanceof AIClientException);
+        AIClientException cause = (AIClientException) e.getCause();
+        assertEquals(429, cause.getStatusCode());
+        assertTrue(cause.isOverload());
+    }
+
+    @Test
+    void testStreamReviewCode_EmitsDeltasAndRecordsCacheWriteTokens() throws InterruptedException {
+        String events = "event: message_start\n"
+                + "data: {\"type\":\"message_start\",\"message\":{\"usage\":{\"input_tokens\":50,"
+                + "\"cache_creation_input_tokens\":1200,\"cache_read_input_tokens\":0}}}\n\n"
+                + "event: content_block_start\n"
+                + "data: {\"type\":\"content_block_start\",\"index\":0,\"content_block\":{\"type\":\"text\",\"text\":\"\"}}\n\n"
+                + "event: content_block_delta\n"
+                + "data: {\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"{\\\"summary\\\":\"}}\n\n"
+                + "event: content_block_delta\n"
+                + "data: {\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"\\\"ok\\\"}\"}}\n\n"
+                + "event: message_delta\n"
+                + "data: {\"type\":\"message_delta\",\"usage\":{\"output_tokens\":12}}\n\n"
+                + "event: message_stop\n"
+                + "data: {\"type\":\"message_stop\"}\n\n";
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(events));
+
+        List<String> deltas = new ArrayList<>();
+        String result = strategy.streamReviewCode("int a = 1;", "Java", deltas::add);
+
+        assertEquals("{\"summary\":\"ok\"}", result);
+        assertEquals(2, deltas.size());
+        JSONObject body = JSON.parseObject(server.takeRequest().getBody().readUtf8());
+        assertTrue(body.getBooleanValue("stream"));
+        assertEquals(1200, meterRegistry.get("ai.claude.tokens").tag("type", "cache_write").counter().count());
+        assertEquals(12, meterRegistry.get("ai.claude.tokens").tag("type", "output").counter().count());
+    }
+
+    @Test
+    void testStreamReviewCode_ErrorStatusThrows() {
+        server.enqueue(new MockResponse().setResponseCode(529)
+                .setBody("{\"type\":\"error\",\"error\":{\"type\":\"overloaded_error\"}}"));
+
+        AIClientException e = assertThrows(AIClientException.class,
+                () -> strategy.streamReviewCode("int a = 1;", "Java", delta -> { }));
+
+        assertEquals(529, e.getStatusCode());
+        assertTrue(e.isOverload());
+    }
+
+    @Test
+    void testStreamReviewCode_ErrorEventThrows() {
+        String events = "event: content_block_delta\n"
+                + "data: {\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"{\"}}\n\n"
+                + "event: error\n"
+                + "data: {\"type\":\"error\",\"error\":{\"type\":\"overloaded_error\",\"message\":\"Overloaded\"}}\n\n";
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(events));
+
+        AIClientException e = assertThrows(AIClientException.class,
+                () -> strategy.streamReviewCode("int a = 1;", "Java", delta -> { }));
+
+        assertTrue(e.getMessage().contains("Overloaded"));
+        assertTrue(e.isOverload());
+    }
+
+    @Test
+    void testStreamReviewCode_DisconnectBeforeStopThrows() {
+        // 连接在 message_stop 之前关闭，已输出的内容不能作为完整结果保存
+        String events = "event: content_block_delta\n"
+                + "data: {\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"{\\\"summary\\\":\"}}\n\n";
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(events));
+        List<String> deltas = new ArrayList<>();
+
+        AIClientException e = assertThrows(AIClientException.class,
+                () -> strategy.streamReviewCode("int a = 1;", "Java", deltas::add));
+
+        assertEquals(1, deltas.size());
+        assertTrue(e.getMessage().contains("中断"));
+    }
+}
@@ -17,10 +17,66 @@ public class RedisConstants {
     public static final String REVIEW_TASK_KEY = "review:task:";
 
     /**
-     * AI审查结果缓存键前缀
+     * 用户审查任务总数缓存键前缀（按用户和筛选条件）
+     */
+    public static final String REVIEW_TASK_TOTAL_KEY = "review:task:total:";
+
+    /**
+     * 审查任务缓存失效通知频道
+     */
+    public static final String REVIEW_TASK_INVALIDATE_CHANNEL = "review:task:invalidate";
+
+    /**
+     * 审查任务状态变化事件频道
+     */
+    public static final String REVIEW_TASK_EVENT_CHANNEL = "review:task:events";
+
+    /**
+     * AI审查结果缓存键前缀（按代码内容哈希寻址）
      */
     public static final String AI_REVIEW_CACHE_KEY = "ai:review:cache:";
 
+    /**
+     * AI审查进行中标记键前缀（按代码内容哈希，用于跨节点合并相同请求）
+     */
+    public static final String AI_REVIEW_INFLIGHT_KEY = "ai:review:inflight:";
+
+    /**
+     * 公平调度：按通道的虚拟队列键前缀（有序集合，成员按用户ID和入队序号排序，同一用户的任务按字典序取队首）
+     * 公平调度的键使用相同的哈希标签 {review:fair}，Redis Cluster 下位于同一个槽，脚本可以一次操作
+     */
+    public static final String FAIR_QUEUE_KEY = "{review:fair}:queue:";
+
+    /**
+     * 公平调度：入队序号计数键
+     */
+    public static final String FAIR_SEQ_KEY = "{review:fair}:seq";
+
+    /**
+     * 公平调度：按通道的轮转用户列表键前缀
+     */
+    public static final String FAIR_RING_KEY = "{review:fair}:ring:";
+
+    /**
+     * 公平调度：按通道的用户赤字计数哈希键前缀
+     */
+    public static final String FAIR_DEFICIT_KEY = "{review:fair}:deficit:";
+
+    /**
+     * 公平调度：用户权重哈希键（用户ID -> 权重），未配置的用户使用默认权重
+     */
+    public static final String FAIR_WEIGHT_KEY = "{review:fair}:weight";
+
+    /**
+     * 公平调度：用户进行中的AI调用数哈希键（用户ID -> 进行中数）
+     */
+    public static final String FAIR_INFLIGHT_KEY = "{review:fair}:inflight";
+
+    /**
+     * 公平调度：已取出但尚未结束的任务（有序集合，分值为取出时间）
+     */
+    public static final String FAIR_PROCESSING_KEY = "{review:fair}:processing";
+
     /**
      * 限流键前缀
      */
@@ -1,6 +1,7 @@
 package com.codereview.common.utils;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.Gauge;
@@ -44,6 +45,22 @@ public class MetricsUtils {
                 .register(meterRegistry);
     }
 
+    /**
+     * 分布统计（用于记录字节数、数量等分布）
+     */
+    public DistributionSummary summary(String name, String... tags) {
+        return DistributionSummary.builder(name)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次分布统计样本
+     */
+    public void recordSummary(String name, double amount, String... tags) {
+        summary(name, tags).record(amount);
+    }
+
     /**
      * 记录方法执行时间（无返回值）
      */
@@ -112,8 +129,10 @@ public class MetricsUtils {
      * @param tags 标签
      */
     public void registerGauge(String name, Supplier<Number> valueSupplier, String... tags) {
+        // Gauge默认弱引用观测对象，lambda形式的Supplier没有其他引用，需要强引用避免被回收
         Gauge.builder(name, valueSupplier, s -> s.get().doubleValue())
                 .tags(tags)
+                .strongReference(true)
                 .register(meterRegistry);
     }
 
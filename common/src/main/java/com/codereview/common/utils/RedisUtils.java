@@ -4,9 +4,12 @@ import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.TypeReference;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -165,6 +168,56 @@ public class RedisUtils {
         return stringRedisTemplate.opsForValue().decrement(key, delta);
     }
 
+    // ==================== 发布订阅 ====================
+
+    /**
+     * 向频道发布消息
+     */
+    public void publish(String channel, String message) {
+        stringRedisTemplate.convertAndSend(channel, message);
+    }
+
+    // ==================== 列表操作 ====================
+
+    /**
+     * 获取列表长度
+     */
+    public Long listSize(String key) {
+        return stringRedisTemplate.opsForList().size(key);
+    }
+
+    /**
+     * 获取列表指定范围的元素
+     */
+    public List<String> listRange(String key, long start, long end) {
+        return stringRedisTemplate.opsForList().range(key, start, end);
+    }
+
+    // ==================== 有序集合操作 ====================
+
+    /**
+     * 获取有序集合的成员数
+     */
+    public Long zSize(String key) {
+        return stringRedisTemplate.opsForZSet().zCard(key);
+    }
+
+    /**
+     * 按分值范围获取有序集合的成员
+     */
+    public Set<String> zRangeByScore(String key, double min, double max, long count) {
+        return stringRedisTemplate.opsForZSet().rangeByScore(key, min, max, 0, count);
+    }
+
+    // ==================== Lua脚本 ====================
+
+    /**
+     * 原子执行Lua脚本
+     */
+    public <T> T execute(RedisScript<T> script, List<String> keys, String... args) {
+        return stringRedisTemplate.execute(script, keys, (Object[]) args);
+    }
+
     // ==================== 分布式锁 ====================
 
     /**
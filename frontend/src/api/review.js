@@ -64,3 +64,18 @@ export function exportReviewReport(data) {
     responseType: 'blob'  // 重要：设置为blob以处理文件下载
   })
 }
+
+// 订阅任务状态变化（SSE），taskIds 为空时订阅当前用户的所有任务，返回 EventSource 供调用方关闭
+export function subscribeTaskEvents(taskIds, onStatus) {
+  const baseURL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8000'
+  const params = new URLSearchParams()
+  params.append('access_token', localStorage.getItem('token') || '')
+  if (taskIds && taskIds.length) {
+    params.append('taskIds', taskIds.join(','))
+  }
+  const source = new EventSource(`${baseURL}/api/review/events?${params.toString()}`)
+  source.addEventListener('status', event => {
+    onStatus(JSON.parse(event.data))
+  })
+  return source
+}
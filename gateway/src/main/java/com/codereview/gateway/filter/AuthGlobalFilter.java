@@ -33,6 +33,11 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
             "/error"
     );
 
+    // 允许通过查询参数传递Token的路径，浏览器 EventSource 无法设置请求头
+    private static final List<String> QUERY_TOKEN_PATHS = Arrays.asList(
+            "/api/review/events"
+    );
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         String path = exchange.getRequest().getURI().getPath();
@@ -101,13 +106,16 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
     }
 
     /**
-     * 从请求头提取Token
+     * 从请求头提取Token，SSE订阅等路径也可以通过 access_token 查询参数传递
      */
     private String extractToken(ServerHttpRequest request) {
         String bearerToken = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
             return bearerToken.substring(7);
         }
+        if (QUERY_TOKEN_PATHS.contains(request.getURI().getPath())) {
+            return request.getQueryParams().getFirst("access_token");
+        }
         return null;
     }
 
@@ -29,25 +29,57 @@ CREATE TABLE `review_task` (
     `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '任务ID',
     `user_id` BIGINT(20) NOT NULL COMMENT '用户ID',
     `title` VARCHAR(200) NOT NULL COMMENT '任务标题',
-    `code_content` TEXT NOT NULL COMMENT '代码内容',
+    `code_content` MEDIUMBLOB NOT NULL COMMENT '代码内容（超过阈值时deflate压缩）',
+    `code_hash` CHAR(64) DEFAULT NULL COMMENT '代码内容存储的SHA-256哈希（启用内容存储时代码内容为空）',
     `language` VARCHAR(50) NOT NULL COMMENT '编程语言',
     `ai_model` VARCHAR(50) NOT NULL COMMENT 'AI模型',
     `status` TINYINT(1) DEFAULT 0 COMMENT '审查状态（0-待审查，1-审查中，2-已完成，3-审查失败）',
-    `review_result` TEXT COMMENT '审查结果（JSON格式）',
+    `review_result` MEDIUMBLOB COMMENT '审查结果（JSON格式，超过阈值时deflate压缩）',
     `quality_score` INT(3) DEFAULT NULL COMMENT '质量评分（0-100）',
     `security_score` INT(3) DEFAULT NULL COMMENT '安全评分（0-100）',
     `performance_score` INT(3) DEFAULT NULL COMMENT '性能评分（0-100）',
     `issue_count` INT(5) DEFAULT 0 COMMENT '问题数量',
     `error_msg` VARCHAR(500) DEFAULT NULL COMMENT '错误信息',
+    `code_tokens` INT(11) DEFAULT NULL COMMENT '代码token数',
+    `lease_until` DATETIME DEFAULT NULL COMMENT '审查租约到期时间（审查中的任务超时后可被重新领取）',
     `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     `deleted` TINYINT(1) DEFAULT 0 COMMENT '逻辑删除（0-未删除，1-已删除）',
     PRIMARY KEY (`id`),
-    KEY `idx_user_id` (`user_id`),
-    KEY `idx_status` (`status`),
+    KEY `idx_user_deleted_create_time` (`user_id`, `deleted`, `create_time`, `id`),
+    KEY `idx_status_lease_until` (`status`, `lease_until`),
     KEY `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='代码审查任务表';
 
+-- 代码内容块表（内容保存在本地磁盘，按哈希寻址）
+CREATE TABLE `code_blob` (
+    `hash` CHAR(64) NOT NULL COMMENT '内容SHA-256哈希',
+    `size` BIGINT(20) NOT NULL COMMENT '内容字节数',
+    `ref_count` INT(11) NOT NULL DEFAULT 0 COMMENT '引用该内容的未删除任务数',
+    `deleting` TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否正在清理（0-否，1-是）',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`hash`),
+    KEY `idx_ref_count_update_time` (`ref_count`, `update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='代码内容块表';
+
+-- 审查问题表
+CREATE TABLE `review_issue` (
+    `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '问题ID',
+    `task_id` BIGINT(20) NOT NULL COMMENT '任务ID',
+    `user_id` BIGINT(20) NOT NULL COMMENT '用户ID',
+    `type` VARCHAR(100) DEFAULT NULL COMMENT '问题类型',
+    `severity` VARCHAR(20) DEFAULT NULL COMMENT '严重程度（high/medium/low）',
+    `description` TEXT COMMENT '问题描述',
+    `suggestion` TEXT COMMENT '修复建议',
+    `location` VARCHAR(100) DEFAULT NULL COMMENT '问题位置',
+    `source` VARCHAR(20) DEFAULT 'ai' COMMENT '问题来源（ai-AI审查，local-本地预分析）',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    KEY `idx_task_id` (`task_id`),
+    KEY `idx_user_severity_type` (`user_id`, `severity`, `type`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审查问题表';
+
 -- 插入测试用户（用户名：admin，密码：123456）
 INSERT INTO `user` (`username`, `password`, `email`, `nickname`, `role`, `status`)
 VALUES ('admin', 'e10adc3949ba59abbe56e057f20f883e', 'admin@codereview.com', '管理员', 1, 1);
@@ -0,0 +1,61 @@
+-- AI代码审查平台数据库升级脚本
+-- 已按旧版 schema.sql 初始化的数据库按顺序执行以下语句；新环境直接使用 schema.sql 即可
+
+USE code_review;
+
+-- 审查任务记录代码token数
+ALTER TABLE `review_task`
+    ADD COLUMN `code_tokens` INT(11) DEFAULT NULL COMMENT '代码token数' AFTER `error_msg`;
+
+-- 审查问题拆分为独立的表，按严重程度、类型筛选和统计
+CREATE TABLE IF NOT EXISTS `review_issue` (
+    `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '问题ID',
+    `task_id` BIGINT(20) NOT NULL COMMENT '任务ID',
+    `user_id` BIGINT(20) NOT NULL COMMENT '用户ID',
+    `type` VARCHAR(100) DEFAULT NULL COMMENT '问题类型',
+    `severity` VARCHAR(20) DEFAULT NULL COMMENT '严重程度（high/medium/low）',
+    `description` TEXT COMMENT '问题描述',
+    `suggestion` TEXT COMMENT '修复建议',
+    `location` VARCHAR(100) DEFAULT NULL COMMENT '问题位置',
+    `source` VARCHAR(20) DEFAULT 'ai' COMMENT '问题来源（ai-AI审查，local-本地预分析）',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    KEY `idx_task_id` (`task_id`),
+    KEY `idx_user_severity_type` (`user_id`, `severity`, `type`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审查问题表';
+
+-- 代码内容和审查结果改为BLOB压缩存储；转换保留原有UTF-8字节，旧数据无需改写即可读取，
+-- 开启 ai.review.compression.migrate-on-startup 后由服务在后台把旧数据改写为压缩格式
+ALTER TABLE `review_task`
+    MODIFY COLUMN `code_content` MEDIUMBLOB NOT NULL COMMENT '代码内容（超过阈值时deflate压缩）',
+    MODIFY COLUMN `review_result` MEDIUMBLOB COMMENT '审查结果（JSON格式，超过阈值时deflate压缩）';
+
+-- 代码内容寻址存储：任务记录内容哈希，内容块引用计数
+ALTER TABLE `review_task`
+    ADD COLUMN `code_hash` CHAR(64) DEFAULT NULL COMMENT '代码内容存储的SHA-256哈希（启用内容存储时代码内容为空）' AFTER `code_content`;
+
+CREATE TABLE IF NOT EXISTS `code_blob` (
+    `hash` CHAR(64) NOT NULL COMMENT '内容SHA-256哈希',
+    `size` BIGINT(20) NOT NULL COMMENT '内容字节数',
+    `ref_count` INT(11) NOT NULL DEFAULT 0 COMMENT '引用该内容的未删除任务数',
+    `deleting` TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否正在清理（0-否，1-是）',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`hash`),
+    KEY `idx_ref_count_update_time` (`ref_count`, `update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='代码内容块表';
+
+-- 审查状态按条件更新流转，审查中的任务持有租约
+ALTER TABLE `review_task`
+    ADD COLUMN `lease_until` DATETIME DEFAULT NULL COMMENT '审查租约到期时间（审查中的任务超时后可被重新领取）' AFTER `code_tokens`;
+
+-- 任务列表按 (user_id, deleted, create_time, id) 游标分页，原 user_id 单列索引是其前缀，一并删除；
+-- 列表的摘要列不在索引中，每页按主键回表 size + 1 行，回表行数与翻页深度无关
+ALTER TABLE `review_task`
+    ADD KEY `idx_user_deleted_create_time` (`user_id`, `deleted`, `create_time`, `id`),
+    DROP KEY `idx_user_id`;
+
+-- 定时查询租约已过期的审查中任务并重新投递，原 status 单列索引是其前缀，一并删除
+ALTER TABLE `review_task`
+    ADD KEY `idx_status_lease_until` (`status`, `lease_until`),
+    DROP KEY `idx_status`;